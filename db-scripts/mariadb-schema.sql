@@ -1,6 +1,9 @@
 -- Simplified schema for `springuser`
 
 -- Sequence structure
+DROP SEQUENCE IF EXISTS `mail_outbox_seq`;
+CREATE SEQUENCE `mail_outbox_seq` START WITH 1 INCREMENT BY 50 CACHE 1000 ENGINE=InnoDB;
+
 DROP SEQUENCE IF EXISTS `password_reset_token_seq`;
 CREATE SEQUENCE `password_reset_token_seq` START WITH 1 INCREMENT BY 50 CACHE 1000 ENGINE=InnoDB;
 
@@ -17,6 +20,32 @@ DROP SEQUENCE IF EXISTS `verification_token_seq`;
 CREATE SEQUENCE `verification_token_seq` START WITH 1 INCREMENT BY 50 CACHE 1000 ENGINE=InnoDB;
 
 -- Table structure
+DROP TABLE IF EXISTS `configuration_state`;
+CREATE TABLE `configuration_state` (
+  `name` VARCHAR(100) NOT NULL,
+  `hash` VARCHAR(64) NOT NULL,
+  `applied_date` DATETIME(6) DEFAULT NULL,
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+DROP TABLE IF EXISTS `mail_outbox`;
+CREATE TABLE `mail_outbox` (
+  `id` BIGINT(20) NOT NULL,
+  `recipient` VARCHAR(255) NOT NULL,
+  `subject` VARCHAR(255) NOT NULL,
+  `body` LONGTEXT DEFAULT NULL,
+  `status` VARCHAR(10) NOT NULL,
+  `attempts` INT(11) NOT NULL,
+  `next_attempt_at` DATETIME(6) NOT NULL,
+  `claim_token` VARCHAR(36) DEFAULT NULL,
+  `last_error` VARCHAR(1000) DEFAULT NULL,
+  `created_date` DATETIME(6) NOT NULL,
+  `sent_date` DATETIME(6) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_mail_outbox_status_next_attempt` (`status`, `next_attempt_at`),
+  KEY `idx_mail_outbox_claim_token` (`claim_token`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
 DROP TABLE IF EXISTS `password_reset_token`;
 CREATE TABLE `password_reset_token` (
   `id` BIGINT(20) NOT NULL,
@@ -36,6 +65,19 @@ CREATE TABLE `privilege` (
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
+DROP TABLE IF EXISTS `refresh_token_family`;
+CREATE TABLE `refresh_token_family` (
+  `id` VARCHAR(36) NOT NULL,
+  `user_id` BIGINT(20) NOT NULL,
+  `token_hash` VARCHAR(64) NOT NULL,
+  `previous_token_hash` VARCHAR(64) DEFAULT NULL,
+  `rotated_date` DATETIME(6) DEFAULT NULL,
+  `created_date` DATETIME(6) DEFAULT NULL,
+  `expiry_date` DATETIME(6) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_refresh_token_family_user_id` (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
 DROP TABLE IF EXISTS `role`;
 CREATE TABLE `role` (
   `id` BIGINT(20) NOT NULL,
@@ -58,18 +100,40 @@ DROP TABLE IF EXISTS `user_account`;
 CREATE TABLE `user_account` (
   `id` BIGINT(20) NOT NULL,
   `email` VARCHAR(255) NOT NULL,
+  `email_normalized` VARCHAR(255) DEFAULT NULL,
   `enabled` BIT(1) NOT NULL,
+  `token_version` BIGINT(20) NOT NULL DEFAULT 0,
   `first_name` VARCHAR(255) DEFAULT NULL,
   `last_activity_date` DATETIME(6) DEFAULT NULL,
   `last_name` VARCHAR(255) DEFAULT NULL,
   `locked` BIT(1) NOT NULL,
   `password` VARCHAR(60) DEFAULT NULL,
-  `provider` ENUM('LOCAL','FACEBOOK','GOOGLE','APPLE','KEYCLOAK') DEFAULT NULL,
+  `provider` ENUM('LOCAL','FACEBOOK','GOOGLE','APPLE','KEYCLOAK','GITHUB','OIDC') DEFAULT NULL,
+  `provider_registration_id` VARCHAR(100) DEFAULT NULL,
   `registration_date` DATETIME(6) DEFAULT NULL,
   `failed_login_attempts` INT(11) NOT NULL,
   `locked_date` DATETIME(6) DEFAULT NULL,
+  `provider_attributes_hash` VARCHAR(64) DEFAULT NULL,
   PRIMARY KEY (`id`),
-  UNIQUE KEY `UK_hl02wv5hym99ys465woijmfib` (`email`)
+  UNIQUE KEY `UK_hl02wv5hym99ys465woijmfib` (`email`),
+  UNIQUE KEY `UK_user_account_email_normalized` (`email_normalized`),
+  KEY `idx_user_account_registration_date` (`registration_date`, `id`),
+  KEY `idx_user_account_last_activity_date` (`last_activity_date`, `id`),
+  KEY `idx_user_account_first_name` (`first_name`),
+  KEY `idx_user_account_last_name` (`last_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+DROP TABLE IF EXISTS `user_session`;
+CREATE TABLE `user_session` (
+  `session_id` VARCHAR(100) NOT NULL,
+  `principal_key` VARCHAR(255) NOT NULL,
+  `username` VARCHAR(255) NOT NULL,
+  `last_request` DATETIME(6) NOT NULL,
+  `expired` BIT(1) NOT NULL,
+  PRIMARY KEY (`session_id`),
+  KEY `idx_user_session_principal_key` (`principal_key`),
+  KEY `idx_user_session_username` (`username`),
+  KEY `idx_user_session_last_request` (`last_request`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
 DROP TABLE IF EXISTS `users_roles`;
@@ -78,6 +142,7 @@ CREATE TABLE `users_roles` (
   `role_id` BIGINT(20) NOT NULL,
   KEY `FKt4v0rrweyk393bdgt107vdx0x` (`role_id`),
   KEY `FKci4mdvg1fmo9eqmwno1y9o0fa` (`user_id`),
+  KEY `idx_users_roles_role_user` (`role_id`, `user_id`),
   CONSTRAINT `FKci4mdvg1fmo9eqmwno1y9o0fa` FOREIGN KEY (`user_id`) REFERENCES `user_account` (`id`),
   CONSTRAINT `FKt4v0rrweyk393bdgt107vdx0x` FOREIGN KEY (`role_id`) REFERENCES `role` (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
@@ -92,3 +157,32 @@ CREATE TABLE `verification_token` (
   KEY `FK_VERIFY_USER` (`user_id`),
   CONSTRAINT `FK_VERIFY_USER` FOREIGN KEY (`user_id`) REFERENCES `user_account` (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+-- Upgrading an existing database: add the normalized email column and its unique index.
+-- ALTER TABLE `user_account` ADD COLUMN `email_normalized` VARCHAR(255) DEFAULT NULL AFTER `email`;
+-- ALTER TABLE `user_account` ADD UNIQUE KEY `UK_user_account_email_normalized` (`email_normalized`);
+-- Until a user's normalized email is set, lookups match the email as entered. The application fills in the column for existing users on startup
+-- (user.emailNormalization.backfillEnabled). For ASCII emails it can also be
+-- filled in directly with:
+-- UPDATE `user_account` SET `email_normalized` = LOWER(TRIM(`email`)) WHERE `email_normalized` IS NULL;
+
+-- Upgrading an existing database: add the token version covered by signed verification tokens.
+-- ALTER TABLE `user_account` ADD COLUMN `token_version` BIGINT(20) NOT NULL DEFAULT 0 AFTER `enabled`;
+
+-- Upgrading an existing database: add the GitHub and generic OIDC providers and the client registration id of OAuth2 and OIDC users.
+-- ALTER TABLE `user_account` MODIFY COLUMN `provider` ENUM('LOCAL','FACEBOOK','GOOGLE','APPLE','KEYCLOAK','GITHUB','OIDC') DEFAULT NULL;
+-- ALTER TABLE `user_account` ADD COLUMN `provider_registration_id` VARCHAR(100) DEFAULT NULL AFTER `provider`;
+
+-- Upgrading an existing database: add the profile hash of OAuth2 and OIDC users and the indexes of the admin user search and export.
+-- ALTER TABLE `user_account` ADD COLUMN `provider_attributes_hash` VARCHAR(64) DEFAULT NULL;
+-- ALTER TABLE `user_account` ADD KEY `idx_user_account_registration_date` (`registration_date`, `id`),
+--   ADD KEY `idx_user_account_last_activity_date` (`last_activity_date`, `id`), ADD KEY `idx_user_account_first_name` (`first_name`),
+--   ADD KEY `idx_user_account_last_name` (`last_name`);
+-- ALTER TABLE `users_roles` ADD KEY `idx_users_roles_role_user` (`role_id`, `user_id`);
+-- Upgrading an existing database: a user can have several outstanding verification and password reset tokens. Tables created by Hibernate have
+-- a unique key on `user_id`; find it with SHOW INDEX FROM `verification_token` WHERE `Column_name` = 'user_id' AND `Non_unique` = 0, and replace it
+-- with a plain key:
+-- ALTER TABLE `verification_token` DROP INDEX `<unique key name>`, ADD KEY `FK_VERIFY_USER` (`user_id`);
+-- ALTER TABLE `password_reset_token` DROP INDEX `<unique key name>`, ADD KEY `FKns9q9f0f318uaoxiqn6lka9ux` (`user_id`);
+-- The `refresh_token_family` (stateless session mode), `user_session` (JDBC session registry) and `mail_outbox` (mail outbox) tables and the
+-- `mail_outbox_seq` sequence are new; create them with the statements above.
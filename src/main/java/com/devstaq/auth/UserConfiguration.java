@@ -2,9 +2,14 @@ package com.devstaq.auth;
 
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.NoneNestedConditions;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -13,16 +18,48 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
  * The UserConfiguration class is a Spring Boot configuration class that provides configuration for the Devstaq Spring Boot User Framework
  * Library. This class is used to configure the user framework library, including enabling asynchronous processing and scheduling, and scanning for
  * components and repositories.
+ *
+ * <p>
+ * The library's controllers and security configuration are servlet based, so this configuration is skipped in reactive web applications, which use
+ * {@link com.devstaq.auth.reactive.ReactiveUserConfiguration} instead.
+ * </p>
  */
 @Slf4j
 @Configuration
+@Conditional(UserConfiguration.NotReactiveWebApplicationCondition.class)
 @EnableAsync
 @EnableScheduling
 @EnableMethodSecurity
 @ComponentScan(basePackages = "com.devstaq.auth")
 @Import(UserAutoConfigurationRegistrar.class)
+@ImportRuntimeHints(UserRuntimeHints.class)
 public class UserConfiguration {
 
+    /**
+     * Registers the post processor which makes the library's beans lazy when user.startup.lazyInitialization is true. Static, as bean factory
+     * post processors have to be created before any other bean.
+     *
+     * @return the lazy initialization post processor
+     */
+    @Bean
+    public static UserLazyInitializationPostProcessor userLazyInitializationPostProcessor() {
+        return new UserLazyInitializationPostProcessor();
+    }
+
+
+    /**
+     * Matches unless the application is a reactive web application.
+     */
+    static class NotReactiveWebApplicationCondition extends NoneNestedConditions {
+
+        NotReactiveWebApplicationCondition() {
+            super(ConfigurationPhase.PARSE_CONFIGURATION);
+        }
+
+        @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+        static class ReactiveWebApplication {
+        }
+    }
 
     /**
      * Logs a message when the UserConfiguration class is loaded to indicate that the Devstaq Spring Boot User Framework Library has been
@@ -0,0 +1,92 @@
+package com.devstaq.auth;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Arrays;
+
+/**
+ * {@code UserLazyInitializationPostProcessor} marks the beans of this library as lazy when user.startup.lazyInitialization is true, so they are
+ * created on first use instead of during startup.
+ *
+ * <p>
+ * Unlike the global spring.main.lazy-initialization setting it only affects the library's own beans, and it keeps the beans eager that have to run
+ * without being requested by another bean:
+ * <ul>
+ * <li>configuration classes,</li>
+ * <li>beans with {@link Scheduled} methods, which would otherwise never be scheduled,</li>
+ * <li>{@link SmartInitializingSingleton} beans,</li>
+ * <li>and infrastructure beans.</li>
+ * </ul>
+ * Event listeners may be lazy, as the context creates them when the first event is published.
+ */
+@Slf4j
+public class UserLazyInitializationPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+	/** The property enabling lazy initialization. */
+	public static final String LAZY_INITIALIZATION_PROPERTY = "user.startup.lazyInitialization";
+
+	/** The package prefix of the library's beans. */
+	private static final String PACKAGE_PREFIX = "com.devstaq.auth.";
+
+	/** The lazy initialization enabled flag. */
+	private boolean lazyInitialization;
+
+	/**
+	 * Reads the lazy initialization flag from the environment.
+	 *
+	 * @param environment the environment
+	 */
+	@Override
+	public void setEnvironment(final Environment environment) {
+		this.lazyInitialization = environment.getProperty(LAZY_INITIALIZATION_PROPERTY, Boolean.class, false);
+	}
+
+	/**
+	 * Marks the library's beans as lazy, if enabled.
+	 *
+	 * @param beanFactory the bean factory
+	 * @throws BeansException if a bean type cannot be determined
+	 */
+	@Override
+	public void postProcessBeanFactory(final ConfigurableListableBeanFactory beanFactory) throws BeansException {
+		if (!lazyInitialization) {
+			return;
+		}
+		int lazyBeans = 0;
+		for (String beanName : beanFactory.getBeanDefinitionNames()) {
+			BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+			if (beanDefinition.getRole() != BeanDefinition.ROLE_APPLICATION || beanDefinition.isLazyInit()) {
+				continue;
+			}
+			Class<?> beanType = beanFactory.getType(beanName, false);
+			if (beanType != null && beanType.getName().startsWith(PACKAGE_PREFIX) && !mustBeEager(beanType)) {
+				beanDefinition.setLazyInit(true);
+				lazyBeans++;
+			}
+		}
+		log.debug("UserLazyInitializationPostProcessor.postProcessBeanFactory: marked {} beans as lazy.", lazyBeans);
+	}
+
+	/**
+	 * Checks whether a bean of the given type has to be created during startup.
+	 *
+	 * @param beanType the bean type
+	 * @return true, if the bean has to be created eagerly
+	 */
+	static boolean mustBeEager(final Class<?> beanType) {
+		return AnnotatedElementUtils.hasAnnotation(beanType, Configuration.class) || SmartInitializingSingleton.class.isAssignableFrom(beanType)
+				|| Arrays.stream(ReflectionUtils.getUniqueDeclaredMethods(beanType))
+						.anyMatch(method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class));
+	}
+}
@@ -0,0 +1,33 @@
+package com.devstaq.auth;
+
+import com.devstaq.auth.dto.PasswordDto;
+import com.devstaq.auth.dto.UserDto;
+import com.devstaq.auth.util.JSONResponse;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * {@code UserRuntimeHints} registers the runtime hints the library needs when an application using it is built with Spring AOT, as a native image
+ * or on the JVM with spring.aot.enabled. It covers the library's resource files, which are loaded by name, and the request and response types
+ * bound to JSON by its controllers. Beans, configuration properties, entities and repositories are handled by Spring's own AOT processing.
+ */
+public class UserRuntimeHints implements RuntimeHintsRegistrar {
+
+	/** The request and response types bound to JSON. */
+	private static final Class<?>[] BOUND_TYPES = {UserDto.class, PasswordDto.class, JSONResponse.class};
+
+	/**
+	 * Registers the resource and binding hints.
+	 *
+	 * @param hints the runtime hints
+	 * @param classLoader the class loader
+	 */
+	@Override
+	public void registerHints(final RuntimeHints hints, final ClassLoader classLoader) {
+		hints.resources().registerPattern("config/dsspringuserconfig.properties");
+		hints.resources().registerPattern("messages/dsspringusermessages.properties");
+		hints.resources().registerPattern("mail/*.html");
+		new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), BOUND_TYPES);
+	}
+}
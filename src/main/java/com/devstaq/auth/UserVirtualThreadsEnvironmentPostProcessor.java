@@ -0,0 +1,78 @@
+package com.devstaq.auth;
+
+import org.apache.commons.logging.Log;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.boot.logging.DeferredLogFactory;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * {@code UserVirtualThreadsEnvironmentPostProcessor} turns on Spring Boot's virtual thread support when user.threads.virtual.enabled is true and the
+ * application runs on Java 21 or later. Tomcat then handles each request on a new virtual thread, and the {@code @Async} executor and the
+ * {@code @Scheduled} scheduler used by the library's listeners and jobs run their tasks on virtual threads too. Blocking on bcrypt, JDBC or SMTP then
+ * no longer ties up a platform thread.
+ *
+ * <p>
+ * The defaults are added with the lowest precedence, so an explicit spring.threads.virtual.enabled setting wins. On older Java versions a warning is
+ * logged and the application keeps running on platform threads. The property has to be set in the application's own configuration, as the
+ * library's property source is not loaded yet when this post processor runs.
+ * </p>
+ */
+public class UserVirtualThreadsEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+	/** The property enabling virtual threads. */
+	public static final String VIRTUAL_THREADS_PROPERTY = "user.threads.virtual.enabled";
+
+	/** The name of the property source holding the virtual thread defaults. */
+	static final String PROPERTY_SOURCE_NAME = "userVirtualThreads";
+
+	/** The first Java version with virtual threads. */
+	private static final int VIRTUAL_THREADS_JAVA_VERSION = 21;
+
+	/** The log, replayed once logging is initialized. */
+	private final Log log;
+
+	/**
+	 * Instantiates a new virtual threads environment post processor.
+	 *
+	 * @param logFactory the factory of logs that are replayed once logging is initialized
+	 */
+	public UserVirtualThreadsEnvironmentPostProcessor(final DeferredLogFactory logFactory) {
+		this.log = logFactory.getLog(UserVirtualThreadsEnvironmentPostProcessor.class);
+	}
+
+	/**
+	 * Adds the virtual thread defaults to the environment, if enabled and supported.
+	 *
+	 * @param environment the environment
+	 * @param application the application
+	 */
+	@Override
+	public void postProcessEnvironment(final ConfigurableEnvironment environment, final SpringApplication application) {
+		if (!environment.getProperty(VIRTUAL_THREADS_PROPERTY, Boolean.class, false)) {
+			return;
+		}
+		postProcessEnvironment(environment, Runtime.version().feature());
+	}
+
+	/**
+	 * Adds the virtual thread defaults to the environment if the Java version supports virtual threads.
+	 *
+	 * @param environment the environment
+	 * @param javaVersion the major Java version
+	 */
+	void postProcessEnvironment(final ConfigurableEnvironment environment, final int javaVersion) {
+		if (javaVersion < VIRTUAL_THREADS_JAVA_VERSION) {
+			log.warn("UserVirtualThreadsEnvironmentPostProcessor: " + VIRTUAL_THREADS_PROPERTY + " requires Java " + VIRTUAL_THREADS_JAVA_VERSION
+					+ " or later, running on platform threads on Java " + javaVersion + ".");
+			return;
+		}
+		// Virtual threads are daemon threads, keep-alive stops the JVM from exiting when only scheduled jobs are left
+		environment.getPropertySources()
+				.addLast(new MapPropertySource(PROPERTY_SOURCE_NAME, Map.of("spring.threads.virtual.enabled", "true", "spring.main.keep-alive", "true")));
+		log.info("UserVirtualThreadsEnvironmentPostProcessor: running request handling, @Async tasks and @Scheduled jobs on virtual threads.");
+	}
+}
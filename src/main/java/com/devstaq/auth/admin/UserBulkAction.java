@@ -0,0 +1,48 @@
+package com.devstaq.auth.admin;
+
+/**
+ * The actions of the {@link UserBulkService}.
+ */
+public enum UserBulkAction {
+
+	/** Locks the users and ends their sessions. */
+	LOCK("Bulk User Lock", true),
+
+	/** Unlocks the users and resets their failed login attempts. */
+	UNLOCK("Bulk User Unlock", false),
+
+	/** Disables the users and ends their sessions. */
+	DISABLE("Bulk User Disable", true),
+
+	/** Gives the users a role. The role applies from their next login. */
+	ASSIGN_ROLE("Bulk Role Assignment", false);
+
+	/** The action of the audit events. */
+	private final String auditAction;
+
+	/** Whether the sessions and refresh tokens of the users are revoked. */
+	private final boolean revokesSessions;
+
+	UserBulkAction(final String auditAction, final boolean revokesSessions) {
+		this.auditAction = auditAction;
+		this.revokesSessions = revokesSessions;
+	}
+
+	/**
+	 * Gets the action of the audit events.
+	 *
+	 * @return the audit action
+	 */
+	String auditAction() {
+		return auditAction;
+	}
+
+	/**
+	 * Checks whether the sessions and refresh tokens of the users are revoked.
+	 *
+	 * @return true, if the sessions are revoked
+	 */
+	boolean revokesSessions() {
+		return revokesSessions;
+	}
+}
@@ -0,0 +1,24 @@
+package com.devstaq.auth.admin;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * An action on many users. The users are given either by their ids or by a search filter; the order, page and cursor of the filter are ignored.
+ */
+@Data
+public class UserBulkRequest {
+
+	/** The action. */
+	private UserBulkAction action;
+
+	/** The ids of the users. */
+	private List<Long> ids;
+
+	/** The filter selecting the users, if no ids are given. */
+	private UserSearchCriteria filter;
+
+	/** The name of the role to assign. */
+	private String role;
+}
@@ -0,0 +1,19 @@
+package com.devstaq.auth.admin;
+
+import lombok.Value;
+
+/**
+ * The outcome of a {@link UserBulkRequest}.
+ */
+@Value
+public class UserBulkResult {
+
+	/** The number of users selected. */
+	long matched;
+
+	/** The number of users changed. Users already in the requested state are not counted. */
+	long updated;
+
+	/** The number of chunks, each in its own transaction with its own audit event. */
+	int chunks;
+}
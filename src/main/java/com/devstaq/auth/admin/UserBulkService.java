@@ -0,0 +1,202 @@
+package com.devstaq.auth.admin;
+
+import com.devstaq.auth.audit.AuditEvent;
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.RefreshTokenFamilyRepository;
+import com.devstaq.auth.persistence.repository.RoleRepository;
+import com.devstaq.auth.security.IndexedSessionRegistry.SessionPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Locks, unlocks, disables or assigns a role to many users at once. The users are taken from a list of ids or a search filter, in chunks of
+ * user.admin.bulk.chunkSize users. Each chunk is changed with one set-based statement in its own transaction, and publishes a single audit event
+ * listing the ids of the chunk. Users are updated directly in the database, without loading them or publishing their entity events.
+ * <p>
+ * Locking or disabling users also deletes their refresh token families in the same transaction and, once the chunk is committed, expires their
+ * sessions in the session registry, so they are logged out on their next request. Access tokens of the stateless session mode stay valid until
+ * they expire. Note that locks expire after user.security.accountLockoutDuration minutes if it is positive; disable users to keep them out.
+ * </p>
+ */
+@Slf4j
+@Service
+public class UserBulkService {
+
+	private static final String LOCK = "update user_account set locked = true, locked_date = :now where id in (:ids) and locked = false";
+
+	private static final String UNLOCK = "update user_account set locked = false, locked_date = null, failed_login_attempts = 0 where id in (:ids) "
+			+ "and (locked = true or failed_login_attempts <> 0)";
+
+	private static final String DISABLE = "update user_account set enabled = false, token_version = token_version + 1 where id in (:ids) "
+			+ "and enabled = true";
+
+	private static final String ASSIGN_ROLE = "insert into users_roles (user_id, role_id) select u.id, :roleId from user_account u where u.id in (:ids) "
+			+ "and not exists (select 1 from users_roles ur where ur.user_id = u.id and ur.role_id = :roleId)";
+
+	/** The JDBC template. */
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	/** The transaction template, one transaction per chunk. */
+	private final TransactionTemplate transactionTemplate;
+
+	/** The role repository. */
+	private final RoleRepository roleRepository;
+
+	/** The refresh token family repository. */
+	private final RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+	/** The session registry, absent in the stateless session mode. */
+	private final ObjectProvider<SessionRegistry> sessionRegistry;
+
+	/** The event publisher. */
+	private final ApplicationEventPublisher eventPublisher;
+
+	/** The clock. */
+	private final Clock clock;
+
+	/** The number of users per chunk. */
+	private final int chunkSize;
+
+	/**
+	 * Instantiates a new user bulk service.
+	 *
+	 * @param jdbcTemplate the JDBC template
+	 * @param transactionManager the transaction manager
+	 * @param roleRepository the role repository
+	 * @param refreshTokenFamilyRepository the refresh token family repository
+	 * @param sessionRegistry the session registry
+	 * @param eventPublisher the event publisher
+	 * @param clock the clock
+	 * @param chunkSize the number of users per chunk
+	 */
+	public UserBulkService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, RoleRepository roleRepository,
+			RefreshTokenFamilyRepository refreshTokenFamilyRepository, ObjectProvider<SessionRegistry> sessionRegistry,
+			ApplicationEventPublisher eventPublisher, Clock clock, @Value("${user.admin.bulk.chunkSize:500}") int chunkSize) {
+		this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.roleRepository = roleRepository;
+		this.refreshTokenFamilyRepository = refreshTokenFamilyRepository;
+		this.sessionRegistry = sessionRegistry;
+		this.eventPublisher = eventPublisher;
+		this.clock = clock;
+		this.chunkSize = Math.max(chunkSize, 1);
+	}
+
+	/**
+	 * Applies an action to the users of a request.
+	 *
+	 * @param request the action and the users
+	 * @param actor the administrator, recorded in the audit events
+	 * @return the outcome
+	 * @throws IllegalArgumentException if the request has no action, selects no users, or names an unknown role
+	 */
+	public UserBulkResult execute(final UserBulkRequest request, final User actor) {
+		UserBulkAction action = request.getAction();
+		if (action == null) {
+			throw new IllegalArgumentException("No action given");
+		}
+		boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+		if (!byIds && (request.getFilter() == null || !request.getFilter().isFiltered())) {
+			// An empty filter would select every user
+			throw new IllegalArgumentException("No ids or filter given");
+		}
+		Long roleId = null;
+		if (action == UserBulkAction.ASSIGN_ROLE) {
+			Role role = request.getRole() == null ? null : roleRepository.findByName(request.getRole().trim());
+			if (role == null) {
+				throw new IllegalArgumentException("Unknown role: " + request.getRole());
+			}
+			roleId = role.getId();
+		}
+
+		long matched = 0;
+		long updated = 0;
+		int chunks = 0;
+		if (byIds) {
+			List<Long> ids = new ArrayList<>(new LinkedHashSet<>(request.getIds()));
+			for (int from = 0; from < ids.size(); from += chunkSize) {
+				List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+				matched += chunk.size();
+				updated += applyChunk(action, roleId, chunk, ++chunks, actor);
+			}
+		} else {
+			long afterId = 0;
+			List<Long> chunk;
+			do {
+				chunk = findChunk(request.getFilter(), afterId);
+				if (chunk.isEmpty()) {
+					break;
+				}
+				matched += chunk.size();
+				updated += applyChunk(action, roleId, chunk, ++chunks, actor);
+				afterId = chunk.get(chunk.size() - 1);
+			} while (chunk.size() == chunkSize);
+		}
+		log.info("UserBulkService.execute: {} changed {} of {} users in {} chunks.", action, updated, matched, chunks);
+		return new UserBulkResult(matched, updated, chunks);
+	}
+
+	private List<Long> findChunk(final UserSearchCriteria filter, final long afterId) {
+		MapSqlParameterSource params = new MapSqlParameterSource("afterId", afterId).addValue("limit", chunkSize);
+		StringBuilder query = new StringBuilder("select u.id from user_account u where u.id > :afterId");
+		UserSearchService.addFilters(filter, query, params);
+		query.append(" order by u.id limit :limit");
+		return jdbcTemplate.queryForList(query.toString(), params, Long.class);
+	}
+
+	private int applyChunk(final UserBulkAction action, final Long roleId, final List<Long> ids, final int chunk, final User actor) {
+		Integer updated = transactionTemplate.execute(status -> {
+			MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+			int rows = switch (action) {
+				case LOCK -> jdbcTemplate.update(LOCK, params.addValue("now", Timestamp.from(clock.instant())));
+				case UNLOCK -> jdbcTemplate.update(UNLOCK, params);
+				case DISABLE -> jdbcTemplate.update(DISABLE, params);
+				case ASSIGN_ROLE -> jdbcTemplate.update(ASSIGN_ROLE, params.addValue("roleId", roleId));
+			};
+			if (action.revokesSessions()) {
+				refreshTokenFamilyRepository.deleteAllByUserIdIn(ids);
+			}
+			return rows;
+		});
+		if (action.revokesSessions()) {
+			expireSessions(ids);
+		}
+		eventPublisher.publishEvent(AuditEvent.builder().source(this).user(actor).action(action.auditAction()).actionStatus("Success")
+				.message(String.format("Chunk %d: changed %d of %d users", chunk, updated, ids.size()))
+				.extraData(ids.stream().map(String::valueOf).collect(Collectors.joining(",", "ids=", ""))).build());
+		return updated == null ? 0 : updated;
+	}
+
+	private void expireSessions(final List<Long> ids) {
+		SessionRegistry registry = sessionRegistry.getIfAvailable();
+		if (registry == null) {
+			return;
+		}
+		int expired = 0;
+		for (Long id : ids) {
+			for (SessionInformation session : registry.getAllSessions(new SessionPrincipal(id, String.valueOf(id)), false)) {
+				session.expireNow();
+				expired++;
+			}
+		}
+		log.debug("UserBulkService.expireSessions: expired {} sessions of {} users.", expired, ids.size());
+	}
+}
@@ -0,0 +1,122 @@
+package com.devstaq.auth.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Exports all users with their role names as CSV or JSON Lines, in pages of user.export.pageSize users. Each page is read with a keyset query on the
+ * id, so every page is as fast as the first, and only one page is held in memory however many users there are. The roles of a page are read with
+ * one query. Passwords are not exported.
+ * <p>
+ * The CSV columns are those read by the {@link UserImportService}, so an export can be imported into another installation; its users then have to
+ * reset their password.
+ * </p>
+ */
+@Slf4j
+@Service
+public class UserExportService {
+
+	/** The CSV columns. */
+	static final List<String> CSV_COLUMNS =
+			List.of("id", "email", "firstName", "lastName", "provider", "enabled", "locked", "registrationDate", "lastActivityDate", "roles");
+
+	private static final String SELECT_PAGE = "select " + UserRows.COLUMNS + " from user_account u where u.id > ? order by u.id limit ?";
+
+	/** The JDBC template. */
+	private final JdbcTemplate jdbcTemplate;
+
+	/** The named parameter JDBC template. */
+	private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+	/** The JSON writer. */
+	private final ObjectWriter jsonWriter;
+
+	/** The number of users per page. */
+	private final int pageSize;
+
+	/**
+	 * Instantiates a new user export service.
+	 *
+	 * @param jdbcTemplate the JDBC template
+	 * @param objectMapper the object mapper
+	 * @param pageSize the number of users per page
+	 */
+	public UserExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, @Value("${user.export.pageSize:1000}") int pageSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+		this.jsonWriter = objectMapper.writerFor(UserRow.class);
+		this.pageSize = Math.max(pageSize, 1);
+	}
+
+	/**
+	 * Writes all users, ordered by id. The writer is flushed after every page, and not closed.
+	 *
+	 * @param writer the writer
+	 * @param format the format
+	 * @return the number of users written
+	 * @throws IOException if the writer fails
+	 */
+	public long exportUsers(final Writer writer, final UserFileFormat format) throws IOException {
+		if (format == UserFileFormat.CSV) {
+			writer.write(String.join(",", CSV_COLUMNS));
+			writer.write('\n');
+		}
+		long exported = 0;
+		long afterId = 0;
+		List<UserRow> page;
+		do {
+			page = jdbcTemplate.query(SELECT_PAGE, UserRows.MAPPER, afterId, pageSize);
+			if (page.isEmpty()) {
+				break;
+			}
+			UserRows.addRoles(namedParameterJdbcTemplate, page);
+			for (UserRow row : page) {
+				if (format == UserFileFormat.CSV) {
+					writeCsv(writer, row);
+				} else {
+					writer.write(jsonWriter.writeValueAsString(row));
+					writer.write('\n');
+				}
+			}
+			writer.flush();
+			exported += page.size();
+			afterId = page.get(page.size() - 1).getId();
+		} while (page.size() == pageSize);
+		log.info("UserExportService.exportUsers: exported {} users as {}.", exported, format);
+		return exported;
+	}
+
+	private static void writeCsv(final Writer writer, final UserRow row) throws IOException {
+		writer.write(Long.toString(row.getId()));
+		for (Object value : new Object[] {row.getEmail(), row.getFirstName(), row.getLastName(), row.getProvider(), row.isEnabled(), row.isLocked(),
+				row.getRegistrationDate(), row.getLastActivityDate(), String.join(";", row.getRoles())}) {
+			writer.write(',');
+			writer.write(csvValue(value));
+		}
+		writer.write('\n');
+	}
+
+	/**
+	 * Formats a CSV value, quoting it if it contains a separator, a quote or a line break.
+	 *
+	 * @param value the value
+	 * @return the formatted value
+	 */
+	static String csvValue(final Object value) {
+		String text = Objects.toString(value, "");
+		if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+			return text;
+		}
+		return '"' + text.replace("\"", "\"\"") + '"';
+	}
+}
@@ -0,0 +1,36 @@
+package com.devstaq.auth.admin;
+
+import java.util.Locale;
+
+/**
+ * The file formats of the {@link UserImportService} and the {@link UserExportService}.
+ */
+public enum UserFileFormat {
+
+	/**
+	 * Comma separated values with a header row naming the columns. Values may be quoted with double quotes. Roles are separated by semicolons.
+	 */
+	CSV,
+
+	/**
+	 * JSON Lines, one JSON object per line.
+	 */
+	JSONL;
+
+	/**
+	 * Finds a format by its name, ignoring case.
+	 *
+	 * @param name the name, such as csv or jsonl
+	 * @return the format, or null if no format has the name
+	 */
+	public static UserFileFormat fromName(final String name) {
+		if (name != null) {
+			for (UserFileFormat format : values()) {
+				if (format.name().equals(name.toUpperCase(Locale.ROOT))) {
+					return format;
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,19 @@
+package com.devstaq.auth.admin;
+
+import lombok.Value;
+
+/**
+ * A user of an import file that was not imported.
+ */
+@Value
+public class UserImportError {
+
+	/** The line of the file. */
+	long line;
+
+	/** The email, if it could be read. */
+	String email;
+
+	/** The reason. */
+	String message;
+}
@@ -0,0 +1,23 @@
+package com.devstaq.auth.admin;
+
+/**
+ * Receives the errors and the progress of an import while it runs. Both methods are called on the importing thread.
+ */
+public interface UserImportListener {
+
+	/**
+	 * Called for every user that is not imported, except for duplicates.
+	 *
+	 * @param error the error
+	 */
+	default void onError(UserImportError error) {
+	}
+
+	/**
+	 * Called after every chunk.
+	 *
+	 * @param progress the progress so far
+	 */
+	default void onProgress(UserImportProgress progress) {
+	}
+}
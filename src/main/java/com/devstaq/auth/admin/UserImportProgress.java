@@ -0,0 +1,22 @@
+package com.devstaq.auth.admin;
+
+import lombok.Value;
+
+/**
+ * The progress of an import, reported after every chunk and returned when the import is complete.
+ */
+@Value
+public class UserImportProgress {
+
+	/** The number of users read. */
+	long read;
+
+	/** The number of users imported. */
+	long imported;
+
+	/** The number of users skipped because a user with the same email exists, or appeared earlier in the file. */
+	long skipped;
+
+	/** The number of users not imported because of an error. */
+	long failed;
+}
@@ -0,0 +1,214 @@
+package com.devstaq.auth.admin;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the users of an import file one at a time, so files of any size can be imported. A line that cannot be read is returned as a record with a
+ * parse error, and reading continues with the next line.
+ */
+abstract class UserImportReader {
+
+	/** The reader. */
+	protected final BufferedReader reader;
+
+	/** The number of the last line read. */
+	protected long lineNumber;
+
+	private UserImportReader(final Reader reader) {
+		this.reader = reader instanceof BufferedReader bufferedReader ? bufferedReader : new BufferedReader(reader);
+	}
+
+	/**
+	 * Creates a reader for a format.
+	 *
+	 * @param reader the input
+	 * @param format the format
+	 * @param objectMapper the object mapper for JSON Lines
+	 * @return the reader
+	 */
+	static UserImportReader of(final Reader reader, final UserFileFormat format, final ObjectMapper objectMapper) {
+		return format == UserFileFormat.CSV ? new Csv(reader) : new JsonLines(reader, objectMapper);
+	}
+
+	/**
+	 * Reads the next user.
+	 *
+	 * @return the user, or null at the end of the input
+	 */
+	final UserImportRecord next() {
+		try {
+			return read();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the next user.
+	 *
+	 * @return the user, or null at the end of the input
+	 * @throws IOException if the input cannot be read
+	 */
+	protected abstract UserImportRecord read() throws IOException;
+
+	/**
+	 * Reads JSON Lines.
+	 */
+	private static final class JsonLines extends UserImportReader {
+
+		private final ObjectMapper objectMapper;
+
+		private JsonLines(final Reader reader, final ObjectMapper objectMapper) {
+			super(reader);
+			this.objectMapper = objectMapper;
+		}
+
+		@Override
+		protected UserImportRecord read() throws IOException {
+			String line;
+			do {
+				line = reader.readLine();
+				if (line == null) {
+					return null;
+				}
+				lineNumber++;
+			} while (line.isBlank());
+			UserImportRecord record;
+			try {
+				record = objectMapper.readValue(line, UserImportRecord.class);
+			} catch (JsonProcessingException e) {
+				record = new UserImportRecord();
+				record.setParseError("Invalid JSON: " + e.getOriginalMessage());
+			}
+			record.setLine(lineNumber);
+			return record;
+		}
+	}
+
+	/**
+	 * Reads comma separated values. The first row names the columns; the names are the properties of {@link UserImportRecord} and are not case
+	 * sensitive. Quoted values may contain commas, line breaks and doubled quotes.
+	 */
+	private static final class Csv extends UserImportReader {
+
+		private Map<String, Integer> columns;
+
+		private Csv(final Reader reader) {
+			super(reader);
+		}
+
+		@Override
+		protected UserImportRecord read() throws IOException {
+			if (columns == null) {
+				List<String> header = readRow();
+				if (header == null) {
+					return null;
+				}
+				columns = new HashMap<>();
+				for (int i = 0; i < header.size(); i++) {
+					columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+				}
+			}
+			List<String> row;
+			long firstLine;
+			do {
+				firstLine = lineNumber + 1;
+				row = readRow();
+				if (row == null) {
+					return null;
+				}
+			} while (row.size() == 1 && row.get(0).isBlank());
+			UserImportRecord record = new UserImportRecord();
+			record.setLine(firstLine);
+			record.setEmail(value(row, "email"));
+			record.setFirstName(value(row, "firstname"));
+			record.setLastName(value(row, "lastname"));
+			record.setPassword(value(row, "password"));
+			record.setPasswordHash(value(row, "passwordhash"));
+			String enabled = value(row, "enabled");
+			if (enabled != null) {
+				record.setEnabled(Boolean.parseBoolean(enabled));
+			}
+			String roles = value(row, "roles");
+			if (roles != null) {
+				record.setRoles(Arrays.stream(roles.split(";")).map(String::trim).filter(role -> !role.isEmpty()).toList());
+			}
+			return record;
+		}
+
+		private String value(final List<String> row, final String column) {
+			Integer index = columns.get(column);
+			if (index == null || index >= row.size()) {
+				return null;
+			}
+			String value = row.get(index).trim();
+			return value.isEmpty() ? null : value;
+		}
+
+		/**
+		 * Reads one row, which spans several lines if a quoted value contains line breaks.
+		 *
+		 * @return the values, or null at the end of the input
+		 * @throws IOException if the input cannot be read
+		 */
+		private List<String> readRow() throws IOException {
+			String line = reader.readLine();
+			if (line == null) {
+				return null;
+			}
+			lineNumber++;
+			List<String> values = new ArrayList<>();
+			StringBuilder value = new StringBuilder();
+			boolean quoted = false;
+			int i = 0;
+			while (true) {
+				if (i == line.length()) {
+					if (!quoted) {
+						break;
+					}
+					// A line break inside a quoted value
+					line = reader.readLine();
+					if (line == null) {
+						break;
+					}
+					lineNumber++;
+					value.append('\n');
+					i = 0;
+					continue;
+				}
+				char c = line.charAt(i++);
+				if (quoted) {
+					if (c != '"') {
+						value.append(c);
+					} else if (i < line.length() && line.charAt(i) == '"') {
+						value.append('"');
+						i++;
+					} else {
+						quoted = false;
+					}
+				} else if (c == '"') {
+					quoted = true;
+				} else if (c == ',') {
+					values.add(value.toString());
+					value.setLength(0);
+				} else {
+					value.append(c);
+				}
+			}
+			values.add(value.toString());
+			return values;
+		}
+	}
+}
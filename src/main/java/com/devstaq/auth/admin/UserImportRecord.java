@@ -0,0 +1,45 @@
+package com.devstaq.auth.admin;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A user read from an import file. Either a plain text password, which is hashed during the import, or a BCrypt password hash can be given. Users
+ * without either can only log in after resetting their password.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UserImportRecord {
+
+	/** The line of the file the user was read from. */
+	@JsonIgnore
+	private long line;
+
+	/** The reason the line could not be read, if it could not. */
+	@JsonIgnore
+	private String parseError;
+
+	/** The email. */
+	private String email;
+
+	/** The first name. */
+	private String firstName;
+
+	/** The last name. */
+	private String lastName;
+
+	/** The plain text password. */
+	private String password;
+
+	/** The BCrypt hash of the password. */
+	private String passwordHash;
+
+	/** Whether the user is enabled. Imported users are enabled unless this is false. */
+	private Boolean enabled;
+
+	/** The role names. Imported users get ROLE_USER if none are given. */
+	private List<String> roles;
+}
@@ -0,0 +1,427 @@
+package com.devstaq.auth.admin;
+
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.RoleRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.generator.Generator;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.PooledLoOptimizer;
+import org.hibernate.id.enhanced.PooledLoThreadLocalOptimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Reader;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Imports users in bulk from CSV or JSON Lines input, without loading the input into memory. The input is read in chunks of user.import.chunkSize
+ * users. For each chunk, the emails already registered are looked up in one query, plain text passwords are hashed on a bounded pool of
+ * user.import.hashThreads threads, and the users and their roles are inserted with JDBC batches in one transaction.
+ * <p>
+ * User ids are taken from the sequence Hibernate uses for {@link User}, a block of ids per sequence call, so ids never collide with users registered
+ * while the import runs. For MariaDB and MySQL, add {@code rewriteBatchedStatements=true} to the JDBC URL to send each batch as one statement.
+ * </p>
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+	/** The format of BCrypt hashes. */
+	private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}");
+
+	/** The role of users without roles. */
+	private static final String DEFAULT_ROLE_NAME = "ROLE_USER";
+
+	private static final String INSERT_USER = "insert into user_account (id, email, email_normalized, first_name, last_name, password, provider, "
+			+ "enabled, locked, failed_login_attempts, registration_date, last_activity_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String INSERT_USER_ROLE = "insert into users_roles (user_id, role_id) values (?, ?)";
+
+	private static final String SELECT_EXISTING_EMAILS = "select email_normalized from user_account where email_normalized in (:emails)";
+
+	/** The JDBC template. */
+	private final JdbcTemplate jdbcTemplate;
+
+	/** The named parameter JDBC template. */
+	private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+	/** The transaction template, one transaction per chunk. */
+	private final TransactionTemplate transactionTemplate;
+
+	/** The entity manager factory. */
+	private final EntityManagerFactory entityManagerFactory;
+
+	/** The role repository. */
+	private final RoleRepository roleRepository;
+
+	/** The password encoder. */
+	private final PasswordEncoder passwordEncoder;
+
+	/** The object mapper. */
+	private final ObjectMapper objectMapper;
+
+	/** The clock. */
+	private final Clock clock;
+
+	/** The number of users per chunk. */
+	private final int chunkSize;
+
+	/** The password hashing pool. When its queue is full, the importing thread hashes as well. */
+	private final ThreadPoolExecutor hashExecutor;
+
+	/** The user id sequence, resolved on first use. */
+	private volatile IdSequence userIdSequence;
+
+	/**
+	 * Instantiates a new user import service.
+	 *
+	 * @param jdbcTemplate the JDBC template
+	 * @param transactionManager the transaction manager
+	 * @param entityManagerFactory the entity manager factory
+	 * @param roleRepository the role repository
+	 * @param passwordEncoder the password encoder
+	 * @param objectMapper the object mapper
+	 * @param clock the clock
+	 * @param chunkSize the number of users per chunk
+	 * @param hashThreads the number of password hashing threads, 0 for the number of processors
+	 */
+	public UserImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory,
+			RoleRepository roleRepository, PasswordEncoder passwordEncoder, ObjectMapper objectMapper, Clock clock,
+			@Value("${user.import.chunkSize:500}") int chunkSize, @Value("${user.import.hashThreads:0}") int hashThreads) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.entityManagerFactory = entityManagerFactory;
+		this.roleRepository = roleRepository;
+		this.passwordEncoder = passwordEncoder;
+		this.objectMapper = objectMapper;
+		this.clock = clock;
+		this.chunkSize = Math.max(chunkSize, 1);
+		int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("user-import-hash-");
+		threadFactory.setDaemon(true);
+		this.hashExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(this.chunkSize), threadFactory,
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		this.hashExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Imports the users of an input. Users whose email is already registered, or appeared earlier in the input, are skipped. Users that cannot be
+	 * imported are reported to the listener and the import continues. Chunks imported before a failure of the input or the database stay imported.
+	 *
+	 * @param input the input
+	 * @param format the format of the input
+	 * @param listener the listener receiving errors and progress
+	 * @return the totals
+	 */
+	public UserImportProgress importUsers(final Reader input, final UserFileFormat format, final UserImportListener listener) {
+		final UserImportReader reader = UserImportReader.of(input, format, objectMapper);
+		final ImportState state = new ImportState(listener, new IdBlock(userIdSequence()));
+		final List<UserImportRecord> chunk = new ArrayList<>(chunkSize);
+		UserImportRecord record;
+		while ((record = reader.next()) != null) {
+			state.read++;
+			chunk.add(record);
+			if (chunk.size() == chunkSize) {
+				importChunk(chunk, state);
+				chunk.clear();
+			}
+		}
+		if (!chunk.isEmpty()) {
+			importChunk(chunk, state);
+		}
+		UserImportProgress result = state.progress();
+		log.info("UserImportService.importUsers: read {} users, imported {}, skipped {}, failed {}.", result.getRead(), result.getImported(),
+				result.getSkipped(), result.getFailed());
+		return result;
+	}
+
+	private void importChunk(final List<UserImportRecord> chunk, final ImportState state) {
+		final Map<String, PendingUser> users = new LinkedHashMap<>();
+		for (UserImportRecord record : chunk) {
+			PendingUser user = validate(record, state);
+			if (user == null) {
+				continue;
+			}
+			if (users.putIfAbsent(user.emailNormalized, user) != null) {
+				state.skipped++;
+			}
+		}
+		removeExisting(users, state);
+		hashPasswords(users, state);
+		try {
+			insert(users.values(), state.ids);
+		} catch (DataIntegrityViolationException e) {
+			// Users registered since the lookup; look them up again and retry once
+			removeExisting(users, state);
+			try {
+				insert(users.values(), state.ids);
+			} catch (DataIntegrityViolationException retryFailure) {
+				users.values().forEach(user -> state.fail(user.record, "Could not be inserted: " + retryFailure.getMostSpecificCause().getMessage()));
+				users.clear();
+			}
+		}
+		state.imported += users.size();
+		state.listener.onProgress(state.progress());
+	}
+
+	/**
+	 * Validates a record and resolves its roles.
+	 *
+	 * @return the user to insert, or null if the record is invalid
+	 */
+	private PendingUser validate(final UserImportRecord record, final ImportState state) {
+		if (record.getParseError() != null) {
+			state.fail(record, record.getParseError());
+			return null;
+		}
+		String email = record.getEmail() == null ? null : record.getEmail().trim();
+		if (email == null || email.length() > 255 || email.indexOf('@') < 1) {
+			state.fail(record, "Invalid email");
+			return null;
+		}
+		if (record.getPassword() != null && record.getPasswordHash() != null) {
+			state.fail(record, "Either a password or a password hash can be given, not both");
+			return null;
+		}
+		if (record.getPasswordHash() != null && !BCRYPT_PATTERN.matcher(record.getPasswordHash()).matches()) {
+			state.fail(record, "Invalid password hash, only BCrypt hashes are supported");
+			return null;
+		}
+		List<String> roleNames = record.getRoles() == null || record.getRoles().isEmpty() ? List.of(DEFAULT_ROLE_NAME) : record.getRoles();
+		List<Long> roleIds = new ArrayList<>(roleNames.size());
+		for (String roleName : roleNames) {
+			Long roleId = state.roleIds.computeIfAbsent(roleName, name -> {
+				Role role = roleRepository.findByName(name);
+				return role == null ? null : role.getId();
+			});
+			if (roleId == null) {
+				state.fail(record, "Unknown role " + roleName);
+				return null;
+			}
+			if (!roleIds.contains(roleId)) {
+				roleIds.add(roleId);
+			}
+		}
+		return new PendingUser(record, email, User.normalizeEmail(email), record.getPasswordHash(), roleIds);
+	}
+
+	/**
+	 * Removes the users whose email is already registered, with one query per chunk.
+	 */
+	private void removeExisting(final Map<String, PendingUser> users, final ImportState state) {
+		if (users.isEmpty()) {
+			return;
+		}
+		List<String> existing = namedParameterJdbcTemplate.queryForList(SELECT_EXISTING_EMAILS, Map.of("emails", users.keySet()), String.class);
+		for (String email : existing) {
+			if (users.remove(email) != null) {
+				state.skipped++;
+			}
+		}
+	}
+
+	/**
+	 * Hashes the plain text passwords of a chunk in parallel. Users whose password cannot be hashed are removed.
+	 */
+	private void hashPasswords(final Map<String, PendingUser> users, final ImportState state) {
+		Map<PendingUser, Future<String>> hashes = new LinkedHashMap<>();
+		for (PendingUser user : users.values()) {
+			String password = user.record.getPassword();
+			if (password != null) {
+				hashes.put(user, hashExecutor.submit(() -> passwordEncoder.encode(password)));
+			}
+		}
+		for (Map.Entry<PendingUser, Future<String>> entry : hashes.entrySet()) {
+			try {
+				entry.getKey().passwordHash = entry.getValue().get();
+			} catch (ExecutionException e) {
+				users.remove(entry.getKey().emailNormalized);
+				state.fail(entry.getKey().record, "Password could not be hashed: " + e.getCause().getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while hashing passwords", e);
+			}
+		}
+	}
+
+	/**
+	 * Inserts the users of a chunk and their roles with two JDBC batches in one transaction.
+	 */
+	private void insert(final Iterable<PendingUser> chunk, final IdBlock ids) {
+		final List<PendingUser> users = new ArrayList<>();
+		chunk.forEach(users::add);
+		if (users.isEmpty()) {
+			return;
+		}
+		final Timestamp now = Timestamp.from(clock.instant());
+		transactionTemplate.executeWithoutResult(status -> {
+			List<long[]> userRoles = new ArrayList<>();
+			for (PendingUser user : users) {
+				user.id = ids.next();
+				user.roleIds.forEach(roleId -> userRoles.add(new long[] {user.id, roleId}));
+			}
+			jdbcTemplate.batchUpdate(INSERT_USER, users, users.size(), (ps, user) -> {
+				ps.setLong(1, user.id);
+				ps.setString(2, user.email);
+				ps.setString(3, user.emailNormalized);
+				ps.setString(4, user.record.getFirstName());
+				ps.setString(5, user.record.getLastName());
+				ps.setString(6, user.passwordHash);
+				ps.setString(7, User.Provider.LOCAL.name());
+				ps.setBoolean(8, !Boolean.FALSE.equals(user.record.getEnabled()));
+				ps.setBoolean(9, false);
+				ps.setInt(10, 0);
+				ps.setTimestamp(11, now);
+				ps.setTimestamp(12, now);
+			});
+			jdbcTemplate.batchUpdate(INSERT_USER_ROLE, userRoles, userRoles.size(), (ps, userRole) -> {
+				ps.setLong(1, userRole[0]);
+				ps.setLong(2, userRole[1]);
+			});
+		});
+	}
+
+	/**
+	 * Resolves the sequence Hibernate generates user ids from, and how it maps a sequence value to a block of ids.
+	 */
+	private IdSequence userIdSequence() {
+		IdSequence sequence = userIdSequence;
+		if (sequence == null) {
+			SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+			Generator generator = sessionFactory.getMappingMetamodel().getEntityDescriptor(User.class).getGenerator();
+			if (!(generator instanceof SequenceStyleGenerator sequenceGenerator) || !sequenceGenerator.getDatabaseStructure().isPhysicalSequence()) {
+				throw new IllegalStateException("The bulk import requires user ids to be generated from a database sequence");
+			}
+			DatabaseStructure structure = sequenceGenerator.getDatabaseStructure();
+			String nextValueSql =
+					sessionFactory.getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString(structure.getPhysicalName().render());
+			boolean valueIsLowEnd = sequenceGenerator.getOptimizer() instanceof PooledLoOptimizer
+					|| sequenceGenerator.getOptimizer() instanceof PooledLoThreadLocalOptimizer;
+			sequence = new IdSequence(nextValueSql, structure.getIncrementSize(), valueIsLowEnd);
+			userIdSequence = sequence;
+		}
+		return sequence;
+	}
+
+	/**
+	 * Shuts down the password hashing pool.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		hashExecutor.shutdownNow();
+	}
+
+	/**
+	 * The sequence of an id generator.
+	 *
+	 * @param nextValueSql the statement returning the next value
+	 * @param incrementSize the number of ids per value
+	 * @param valueIsLowEnd whether a value is the first id of its block (pooled-lo), rather than the last (pooled)
+	 */
+	private record IdSequence(String nextValueSql, int incrementSize, boolean valueIsLowEnd) {
+	}
+
+	/**
+	 * The block of ids an import is currently using.
+	 */
+	private final class IdBlock {
+
+		private final IdSequence sequence;
+		private long next = 1;
+		private long last = 0;
+
+		private IdBlock(final IdSequence sequence) {
+			this.sequence = sequence;
+		}
+
+		long next() {
+			if (next > last) {
+				Long value = jdbcTemplate.queryForObject(sequence.nextValueSql(), Long.class);
+				if (sequence.valueIsLowEnd()) {
+					next = value;
+					last = value + sequence.incrementSize() - 1;
+				} else {
+					next = Math.max(1, value - sequence.incrementSize() + 1);
+					last = value;
+				}
+			}
+			return next++;
+		}
+	}
+
+	/**
+	 * A validated user waiting to be inserted.
+	 */
+	private static final class PendingUser {
+
+		private final UserImportRecord record;
+		private final String email;
+		private final String emailNormalized;
+		private final List<Long> roleIds;
+		private String passwordHash;
+		private long id;
+
+		private PendingUser(final UserImportRecord record, final String email, final String emailNormalized, final String passwordHash,
+				final List<Long> roleIds) {
+			this.record = record;
+			this.email = email;
+			this.emailNormalized = emailNormalized;
+			this.passwordHash = passwordHash;
+			this.roleIds = roleIds;
+		}
+	}
+
+	/**
+	 * The counts and caches of a running import.
+	 */
+	private static final class ImportState {
+
+		private final UserImportListener listener;
+		private final IdBlock ids;
+		private final Map<String, Long> roleIds = new HashMap<>();
+		private long read;
+		private long imported;
+		private long skipped;
+		private long failed;
+
+		private ImportState(final UserImportListener listener, final IdBlock ids) {
+			this.listener = listener;
+			this.ids = ids;
+		}
+
+		void fail(final UserImportRecord record, final String message) {
+			failed++;
+			listener.onError(new UserImportError(record.getLine(), record.getEmail(), message));
+		}
+
+		UserImportProgress progress() {
+			return new UserImportProgress(read, imported, skipped, failed);
+		}
+	}
+}
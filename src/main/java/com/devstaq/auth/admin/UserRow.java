@@ -0,0 +1,44 @@
+package com.devstaq.auth.admin;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A user as listed by the {@link UserSearchService} and written by the {@link UserExportService}. Passwords are never included.
+ */
+@Data
+public class UserRow {
+
+	/** The id. */
+	private long id;
+
+	/** The email. */
+	private String email;
+
+	/** The first name. */
+	private String firstName;
+
+	/** The last name. */
+	private String lastName;
+
+	/** The login provider. */
+	private String provider;
+
+	/** Whether the user is enabled. */
+	private boolean enabled;
+
+	/** Whether the user is locked. */
+	private boolean locked;
+
+	/** The registration date. */
+	private Instant registrationDate;
+
+	/** The last activity date. */
+	private Instant lastActivityDate;
+
+	/** The role names. */
+	private List<String> roles = new ArrayList<>();
+}
@@ -0,0 +1,62 @@
+package com.devstaq.auth.admin;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The columns, row mapper and role query shared by the services reading {@link UserRow}s.
+ */
+final class UserRows {
+
+	/** The selected columns of user_account, aliased u. */
+	static final String COLUMNS =
+			"u.id, u.email, u.first_name, u.last_name, u.provider, u.enabled, u.locked, u.registration_date, u.last_activity_date";
+
+	/** Maps the {@link #COLUMNS}. */
+	static final RowMapper<UserRow> MAPPER = (rs, rowNum) -> {
+		UserRow row = new UserRow();
+		row.setId(rs.getLong("id"));
+		row.setEmail(rs.getString("email"));
+		row.setFirstName(rs.getString("first_name"));
+		row.setLastName(rs.getString("last_name"));
+		row.setProvider(rs.getString("provider"));
+		row.setEnabled(rs.getBoolean("enabled"));
+		row.setLocked(rs.getBoolean("locked"));
+		row.setRegistrationDate(toInstant(rs.getTimestamp("registration_date")));
+		row.setLastActivityDate(toInstant(rs.getTimestamp("last_activity_date")));
+		return row;
+	};
+
+	private static final String SELECT_ROLES =
+			"select ur.user_id, r.name from users_roles ur join role r on r.id = ur.role_id where ur.user_id in (:userIds) order by ur.user_id, r.name";
+
+	private UserRows() {
+	}
+
+	/**
+	 * Adds the role names to a page of users, with one query.
+	 *
+	 * @param jdbcTemplate the named parameter JDBC template
+	 * @param rows the users
+	 */
+	static void addRoles(final NamedParameterJdbcTemplate jdbcTemplate, final List<UserRow> rows) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		Map<Long, UserRow> rowsById = new HashMap<>();
+		rows.forEach(row -> rowsById.put(row.getId(), row));
+		jdbcTemplate.query(SELECT_ROLES, Map.of("userIds", rowsById.keySet()), rs -> {
+			rowsById.get(rs.getLong(1)).getRoles().add(rs.getString(2));
+		});
+	}
+
+	private static Instant toInstant(final Timestamp timestamp) {
+		return timestamp == null ? null : timestamp.toInstant();
+	}
+}
@@ -0,0 +1,47 @@
+package com.devstaq.auth.admin;
+
+import com.devstaq.auth.persistence.model.User;
+import lombok.Data;
+
+/**
+ * The filters, order and page of a user search. Filters that are not set match all users.
+ */
+@Data
+public class UserSearchCriteria {
+
+	/** The start of the email, first name or last name. */
+	private String q;
+
+	/** Whether the users are enabled. */
+	private Boolean enabled;
+
+	/** Whether the users are locked. */
+	private Boolean locked;
+
+	/** The login provider. */
+	private User.Provider provider;
+
+	/** The name of a role the users have. */
+	private String role;
+
+	/** The order. */
+	private UserSearchSort sort = UserSearchSort.REGISTRATION_DATE;
+
+	/** Whether the newest users come first. */
+	private boolean descending = true;
+
+	/** The page size. */
+	private int limit = 50;
+
+	/** The cursor returned with the previous page, or null for the first page. */
+	private String cursor;
+
+	/**
+	 * Checks whether any filter is set.
+	 *
+	 * @return true, if any filter is set
+	 */
+	boolean isFiltered() {
+		return (q != null && !q.isBlank()) || enabled != null || locked != null || provider != null || (role != null && !role.isBlank());
+	}
+}
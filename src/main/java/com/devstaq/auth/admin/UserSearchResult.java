@@ -0,0 +1,24 @@
+package com.devstaq.auth.admin;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A page of users found by the {@link UserSearchService}.
+ */
+@Value
+public class UserSearchResult {
+
+	/** The users. */
+	List<UserRow> users;
+
+	/** The cursor of the next page, or null if this is the last page. */
+	String nextCursor;
+
+	/** The number of users matching the filters, or null for pages after the first. */
+	Long total;
+
+	/** Whether the total is exact. Totals of large results are estimated, or bounded by user.admin.search.countLimit. */
+	boolean totalExact;
+}
@@ -0,0 +1,205 @@
+package com.devstaq.auth.admin;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Searches users for administration. Users are matched by the start of their email, first name or last name and filtered by status, provider and
+ * role, and pages are read with keyset pagination on the sort date and the id: the cursor of a page holds the date and id of its last user, and the
+ * next page starts after it. Every page is therefore read from the sort index like the first, where an offset would have to skip all earlier rows.
+ * Users without the sort date are not listed.
+ * <p>
+ * The total is only computed for the first page. Without filters it is taken from the table statistics of MariaDB, MySQL or PostgreSQL once the
+ * table is larger than user.admin.search.countLimit rows; otherwise the matching users are counted up to that limit, and a larger total is reported
+ * as not exact.
+ * </p>
+ */
+@Slf4j
+@Service
+public class UserSearchService {
+
+	/** The largest page. */
+	static final int MAX_LIMIT = 500;
+
+	private static final String MYSQL_ESTIMATE =
+			"select table_rows from information_schema.tables where table_schema = database() and table_name = 'user_account'";
+
+	private static final String POSTGRESQL_ESTIMATE = "select cast(reltuples as bigint) from pg_class where relname = 'user_account'";
+
+	/** The JDBC template. */
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	/** The query of the row count estimate of user_account, or null if the database has none. */
+	private final String estimateQuery;
+
+	/** The largest number of users counted exactly. */
+	private final int countLimit;
+
+	/**
+	 * Instantiates a new user search service.
+	 *
+	 * @param jdbcTemplate the JDBC template
+	 * @param entityManagerFactory the entity manager factory, to find the database
+	 * @param countLimit the largest number of users counted exactly
+	 */
+	public UserSearchService(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+			@Value("${user.admin.search.countLimit:10000}") int countLimit) {
+		this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+		Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+		this.estimateQuery = dialect instanceof MySQLDialect ? MYSQL_ESTIMATE : dialect instanceof PostgreSQLDialect ? POSTGRESQL_ESTIMATE : null;
+		this.countLimit = Math.max(countLimit, 0);
+	}
+
+	/**
+	 * Finds a page of users.
+	 *
+	 * @param criteria the filters, order and page
+	 * @return the page
+	 * @throws IllegalArgumentException if the cursor is invalid
+	 */
+	public UserSearchResult search(final UserSearchCriteria criteria) {
+		MapSqlParameterSource params = new MapSqlParameterSource();
+		StringBuilder where = new StringBuilder(" where u.").append(criteria.getSort().column()).append(" is not null");
+		addFilters(criteria, where, params);
+
+		Long total = null;
+		boolean totalExact = false;
+		if (criteria.getCursor() == null) {
+			Long estimate = criteria.isFiltered() ? null : estimateRows();
+			if (estimate != null && estimate > countLimit) {
+				total = estimate;
+			} else {
+				params.addValue("countLimit", countLimit + 1);
+				long counted = jdbcTemplate.queryForObject("select count(*) from (select 1 from user_account u" + where + " limit :countLimit) c",
+						params, Long.class);
+				total = Math.min(counted, countLimit);
+				totalExact = counted <= countLimit;
+			}
+		}
+
+		StringBuilder query = new StringBuilder("select ").append(UserRows.COLUMNS).append(" from user_account u").append(where);
+		String column = "u." + criteria.getSort().column();
+		String comparison = criteria.isDescending() ? "<" : ">";
+		if (criteria.getCursor() != null) {
+			Cursor cursor = Cursor.decode(criteria.getCursor());
+			query.append(" and ").append(column).append(comparison).append("= :cursorDate and (").append(column).append(' ').append(comparison)
+					.append(" :cursorDate or u.id ").append(comparison).append(" :cursorId)");
+			params.addValue("cursorDate", Timestamp.from(cursor.date())).addValue("cursorId", cursor.id());
+		}
+		String direction = criteria.isDescending() ? " desc" : " asc";
+		int limit = Math.min(Math.max(criteria.getLimit(), 1), MAX_LIMIT);
+		query.append(" order by ").append(column).append(direction).append(", u.id").append(direction).append(" limit :limit");
+		params.addValue("limit", limit + 1);
+
+		List<UserRow> users = new ArrayList<>(jdbcTemplate.query(query.toString(), params, UserRows.MAPPER));
+		String nextCursor = null;
+		if (users.size() > limit) {
+			users.remove(limit);
+			UserRow last = users.get(limit - 1);
+			nextCursor = new Cursor(criteria.getSort() == UserSearchSort.REGISTRATION_DATE ? last.getRegistrationDate() : last.getLastActivityDate(),
+					last.getId()).encode();
+		}
+		UserRows.addRoles(jdbcTemplate, users);
+		return new UserSearchResult(users, nextCursor, total, totalExact);
+	}
+
+	/**
+	 * Appends the filters of the criteria to a where clause on user_account, aliased u.
+	 *
+	 * @param criteria the criteria
+	 * @param where the where clause
+	 * @param params the parameters of the query
+	 */
+	static void addFilters(final UserSearchCriteria criteria, final StringBuilder where, final MapSqlParameterSource params) {
+		if (criteria.getQ() != null && !criteria.getQ().isBlank()) {
+			// The email is matched on its normalized column; whether names are matched case-insensitively depends on the column collation
+			String prefix = escapeLike(criteria.getQ().trim());
+			where.append(" and (u.email_normalized like :emailPrefix escape '!' or u.first_name like :namePrefix escape '!'")
+					.append(" or u.last_name like :namePrefix escape '!')");
+			params.addValue("emailPrefix", prefix.toLowerCase(Locale.ROOT) + '%').addValue("namePrefix", prefix + '%');
+		}
+		if (criteria.getEnabled() != null) {
+			where.append(" and u.enabled = :enabled");
+			params.addValue("enabled", criteria.getEnabled());
+		}
+		if (criteria.getLocked() != null) {
+			where.append(" and u.locked = :locked");
+			params.addValue("locked", criteria.getLocked());
+		}
+		if (criteria.getProvider() != null) {
+			where.append(" and u.provider = :provider");
+			params.addValue("provider", criteria.getProvider().name());
+		}
+		if (criteria.getRole() != null && !criteria.getRole().isBlank()) {
+			where.append(" and exists (select 1 from users_roles ur join role r on r.id = ur.role_id where ur.user_id = u.id and r.name = :role)");
+			params.addValue("role", criteria.getRole().trim());
+		}
+	}
+
+	/**
+	 * Escapes the LIKE wildcards of a value, with ! as the escape character.
+	 *
+	 * @param value the value
+	 * @return the escaped value
+	 */
+	static String escapeLike(final String value) {
+		return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+	}
+
+	/**
+	 * Reads the row count estimate of user_account from the table statistics.
+	 *
+	 * @return the estimate, or null if the database has none
+	 */
+	private Long estimateRows() {
+		if (estimateQuery == null) {
+			return null;
+		}
+		try {
+			Long estimate = jdbcTemplate.getJdbcTemplate().queryForObject(estimateQuery, Long.class);
+			return estimate != null && estimate >= 0 ? estimate : null;
+		} catch (DataAccessException e) {
+			log.debug("UserSearchService.estimateRows: no estimate available, counting instead", e);
+			return null;
+		}
+	}
+
+	/**
+	 * The position after the last user of a page.
+	 */
+	private record Cursor(Instant date, long id) {
+
+		String encode() {
+			return Base64.getUrlEncoder().withoutPadding().encodeToString((date + "|" + id).getBytes(StandardCharsets.UTF_8));
+		}
+
+		static Cursor decode(final String cursor) {
+			try {
+				String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+				int separator = value.indexOf('|');
+				return new Cursor(Instant.parse(value.substring(0, separator)), Long.parseLong(value.substring(separator + 1)));
+			} catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+				throw new IllegalArgumentException("Invalid cursor", e);
+			}
+		}
+	}
+}
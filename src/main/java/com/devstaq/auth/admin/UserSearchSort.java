@@ -0,0 +1,29 @@
+package com.devstaq.auth.admin;
+
+/**
+ * The orders of a user search. Each order is backed by an index on its column and the id, which also breaks ties between users with the same date.
+ */
+public enum UserSearchSort {
+
+	/** By registration date. */
+	REGISTRATION_DATE("registration_date"),
+
+	/** By last activity date. */
+	LAST_ACTIVITY_DATE("last_activity_date");
+
+	/** The column of user_account. */
+	private final String column;
+
+	UserSearchSort(final String column) {
+		this.column = column;
+	}
+
+	/**
+	 * Gets the column of user_account.
+	 *
+	 * @return the column
+	 */
+	String column() {
+		return column;
+	}
+}
@@ -0,0 +1,13 @@
+/**
+ * This package contains the administrative user operations of the Devstaq Spring User framework.
+ *
+ * <p>
+ * The services in this package work on many users at once, such as the search of users and their bulk import and export as CSV or JSON Lines
+ * files. They are exposed to administrators by the {@link com.devstaq.auth.api.AdminUserAPI} when user.admin.api.enabled is true.
+ * </p>
+ *
+ * @see com.devstaq.auth.admin.UserSearchService
+ * @see com.devstaq.auth.admin.UserImportService
+ * @see com.devstaq.auth.admin.UserExportService
+ */
+package com.devstaq.auth.admin;
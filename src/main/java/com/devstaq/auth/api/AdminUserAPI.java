@@ -0,0 +1,180 @@
+package com.devstaq.auth.api;
+
+import com.devstaq.auth.admin.UserBulkRequest;
+import com.devstaq.auth.admin.UserBulkService;
+import com.devstaq.auth.admin.UserExportService;
+import com.devstaq.auth.admin.UserFileFormat;
+import com.devstaq.auth.admin.UserImportError;
+import com.devstaq.auth.admin.UserImportListener;
+import com.devstaq.auth.admin.UserImportProgress;
+import com.devstaq.auth.admin.UserImportService;
+import com.devstaq.auth.admin.UserSearchCriteria;
+import com.devstaq.auth.admin.UserSearchService;
+import com.devstaq.auth.listener.ListenerUtils;
+import com.devstaq.auth.service.DSUserDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.devstaq.auth.util.UserUtils.buildErrorResponse;
+
+/**
+ * REST controller for administrative operations on many users. Only registered when {@code user.admin.api.enabled} is true, in which case the paths
+ * under /admin are restricted to users with the authority configured in user.security.adminAuthority.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@RestController
+@ConditionalOnProperty(name = "user.admin.api.enabled", havingValue = "true")
+@RequestMapping(path = "/admin/users")
+public class AdminUserAPI {
+
+	/** The content type of the streamed reports, one JSON object per line. */
+	static final String NDJSON = "application/x-ndjson";
+
+	private final UserImportService userImportService;
+	private final UserExportService userExportService;
+	private final UserSearchService userSearchService;
+	private final UserBulkService userBulkService;
+	private final ObjectMapper objectMapper;
+	private final ListenerUtils listenerUtils;
+
+	/**
+	 * Searches users. The criteria are bound from the query parameters: {@code q} matches the start of the email, first name or last name, and
+	 * {@code enabled}, {@code locked}, {@code provider} and {@code role} filter the users. The {@code nextCursor} of a page is passed as
+	 * {@code cursor} to read the next page.
+	 *
+	 * @param criteria the search criteria
+	 * @return the page of users, or a bad request response if the cursor is invalid
+	 */
+	@GetMapping
+	public ResponseEntity<?> searchUsers(UserSearchCriteria criteria) {
+		try {
+			return ResponseEntity.ok(userSearchService.search(criteria));
+		} catch (IllegalArgumentException e) {
+			return buildErrorResponse(e.getMessage(), 1, HttpStatus.BAD_REQUEST);
+		}
+	}
+
+	/**
+	 * Locks, unlocks, disables or assigns a role to the users given by ids or by a search filter, in chunks. Each chunk is audited as one event.
+	 *
+	 * @param bulkRequest the action and the users
+	 * @param userDetails the authenticated administrator
+	 * @return the number of users selected and changed, or a bad request response if the request is invalid
+	 */
+	@PostMapping("/bulk")
+	public ResponseEntity<?> bulkUpdate(@RequestBody UserBulkRequest bulkRequest, @AuthenticationPrincipal DSUserDetails userDetails) {
+		try {
+			return ResponseEntity.ok(userBulkService.execute(bulkRequest, userDetails != null ? userDetails.getUser() : null));
+		} catch (IllegalArgumentException e) {
+			return buildErrorResponse(e.getMessage(), 1, HttpStatus.BAD_REQUEST);
+		}
+	}
+
+	/**
+	 * Imports users from the request body, in CSV or JSON Lines format. The response is streamed while the import runs, one JSON object per line: an
+	 * {@code error} object for every user that is not imported, a {@code progress} object after every chunk, and a {@code summary} object at the end.
+	 *
+	 * @param format the format of the request body, csv or jsonl
+	 * @param userDetails the authenticated administrator
+	 * @param request the HTTP servlet request
+	 * @param response the HTTP servlet response
+	 * @return a bad request response if the format is not supported, otherwise null as the report is written to the response directly
+	 * @throws IOException if the request cannot be read or the response cannot be written
+	 */
+	@PostMapping("/import")
+	public ResponseEntity<?> importUsers(@RequestParam(defaultValue = "csv") String format, @AuthenticationPrincipal DSUserDetails userDetails,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		UserFileFormat fileFormat = UserFileFormat.fromName(format);
+		if (fileFormat == null) {
+			return unsupportedFormat(format);
+		}
+		response.setContentType(NDJSON);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		Writer writer = response.getWriter();
+		UserImportListener listener = new UserImportListener() {
+
+			@Override
+			public void onError(UserImportError error) {
+				writeLine(writer, Map.of("error", error), false);
+			}
+
+			@Override
+			public void onProgress(UserImportProgress progress) {
+				writeLine(writer, Map.of("progress", progress), true);
+			}
+		};
+		try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+			UserImportProgress summary = userImportService.importUsers(reader, fileFormat, listener);
+			writeLine(writer, Map.of("summary", summary), true);
+			listenerUtils.logAuditEvent("User Import", "Success", String.format("Imported %d of %d users", summary.getImported(), summary.getRead()),
+					userDetails != null ? userDetails.getUser() : null, request);
+		}
+		return null;
+	}
+
+	/**
+	 * Exports all users with their role names, in CSV or JSON Lines format. The response is streamed while the users are read, one page at a time.
+	 *
+	 * @param format the format of the response body, csv or jsonl
+	 * @param userDetails the authenticated administrator
+	 * @param request the HTTP servlet request
+	 * @param response the HTTP servlet response
+	 * @return a bad request response if the format is not supported, otherwise null as the users are written to the response directly
+	 * @throws IOException if the response cannot be written
+	 */
+	@GetMapping("/export")
+	public ResponseEntity<?> exportUsers(@RequestParam(defaultValue = "csv") String format, @AuthenticationPrincipal DSUserDetails userDetails,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		UserFileFormat fileFormat = UserFileFormat.fromName(format);
+		if (fileFormat == null) {
+			return unsupportedFormat(format);
+		}
+		response.setContentType(fileFormat == UserFileFormat.CSV ? "text/csv" : NDJSON);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + fileFormat.name().toLowerCase(Locale.ROOT) + "\"");
+		long exported = userExportService.exportUsers(response.getWriter(), fileFormat);
+		listenerUtils.logAuditEvent("User Export", "Success", String.format("Exported %d users", exported),
+				userDetails != null ? userDetails.getUser() : null, request);
+		return null;
+	}
+
+	private ResponseEntity<?> unsupportedFormat(String format) {
+		return buildErrorResponse("Unsupported format: " + format + ", expected csv or jsonl", 1, HttpStatus.BAD_REQUEST);
+	}
+
+	private void writeLine(Writer writer, Object value, boolean flush) {
+		try {
+			writer.write(objectMapper.writeValueAsString(value));
+			writer.write('\n');
+			if (flush) {
+				writer.flush();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
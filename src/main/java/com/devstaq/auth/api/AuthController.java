@@ -5,6 +5,7 @@ import com.devstaq.auth.dto.UserDto;
 import com.devstaq.auth.exceptions.UserAlreadyExistException;
 import com.devstaq.auth.listener.ListenerUtils;
 import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.service.TokenConsumptionResult;
 import com.devstaq.auth.service.UserEmailService;
 import com.devstaq.auth.service.UserService;
 import com.devstaq.auth.service.UserVerificationService;
@@ -101,7 +102,7 @@ public class AuthController {
      */
     @PostMapping("/resendRegistrationToken")
     public ResponseEntity<JSONResponse> resendRegistrationToken(@Valid @RequestBody UserDto userDto, HttpServletRequest request) {
-        User user = userService.findUserByEmail(userDto.getEmail());
+        User user = userService.findUserSummaryByEmail(userDto.getEmail());
         if (user != null) {
             if (user.isEnabled()) {
                 return buildErrorResponse("Account is already verified.", 1, HttpStatus.CONFLICT);
@@ -123,7 +124,7 @@ public class AuthController {
      */
     @PostMapping("/resetPassword")
     public ResponseEntity<JSONResponse> resetPassword(@Valid @RequestBody UserDto userDto, HttpServletRequest request) {
-        User user = userService.findUserByEmail(userDto.getEmail());
+        User user = userService.findUserSummaryByEmail(userDto.getEmail());
         if (user != null) {
             userEmailService.sendForgotPasswordVerificationEmail(user, UserUtils.getAppUrl(request));
             listenerUtils.logAuditEvent("Reset Password", "Success", "Password reset email sent", user, request);
@@ -151,7 +152,7 @@ public class AuthController {
         // Build and publish audit event
         AuditEvent changePasswordAuditEvent = AuditEvent.builder()
                 .source(this)
-                .sessionId(request.getSession().getId())
+                .sessionId(UserUtils.getSessionId(request))
                 .ipAddress(UserUtils.getClientIP(request))
                 .userAgent(request.getHeader("User-Agent"))
                 .action("validateChangePasswordToken")
@@ -193,23 +194,23 @@ public class AuthController {
 
         log.debug("UserActionRestController.confirmRegistration: called with token: {}", token);
         Locale locale = request.getLocale(); // Still useful for message sourcing
-        final UserService.TokenValidationResult result = userVerificationService.validateVerificationToken(token);
+        final TokenConsumptionResult consumption = userVerificationService.consumeVerificationToken(token);
+        final UserService.TokenValidationResult result = consumption.getResult();
 
         Map<String, String> response = new HashMap<>();
-        if (result == UserService.TokenValidationResult.VALID) {
-            final User user = userVerificationService.getUserByVerificationToken(token);
+        if (consumption.isValid()) {
+            final User user = consumption.getUser();
             if (user != null) {
                 userService.authWithoutPassword(user); // This might need review in a pure REST context
                 // as it implies server-side session management.
                 // For pure REST, client would typically log in after confirmation.
                 // Keeping it as per original for direct translation.
-                userVerificationService.deleteVerificationToken(token);
 
                 // Build and publish audit event
                 AuditEvent registrationAuditEvent = AuditEvent.builder()
                         .source(this)
                         .user(user)
-                        .sessionId(request.getSession().getId())
+                        .sessionId(UserUtils.getSessionId(request))
                         .ipAddress(UserUtils.getClientIP(request))
                         .userAgent(request.getHeader("User-Agent"))
                         .action("Registration Confirmation")
@@ -0,0 +1,70 @@
+package com.devstaq.auth.api;
+
+import com.devstaq.auth.security.stateless.StatelessTokenService;
+import com.devstaq.auth.security.stateless.StatelessTokenService.TokenPair;
+import com.devstaq.auth.util.JSONResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.devstaq.auth.util.UserUtils.buildErrorResponse;
+
+/**
+ * REST controller for the token endpoints of the stateless session mode. Only registered when {@code user.security.stateless.enabled} is true.
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user.security.stateless.enabled", havingValue = "true")
+public class TokenAPI {
+
+	private final StatelessTokenService statelessTokenService;
+
+	/**
+	 * Exchanges a refresh token for a new access token and refresh token. The refresh token is read from the refresh token cookie or, for clients
+	 * that do not use cookies, from the {@value StatelessTokenService#REFRESH_TOKEN_PARAMETER} field of a JSON body. The new tokens are returned in
+	 * the response body. They are only set as cookies if the refresh token came from the cookie, so a token posted by another site cannot log the
+	 * browser into another account.
+	 *
+	 * @param body the optional JSON body
+	 * @param request the HTTP servlet request
+	 * @param response the HTTP servlet response
+	 * @return a ResponseEntity containing a JSONResponse with the new tokens
+	 */
+	@PostMapping("${user.security.stateless.refreshUri:/user/token/refresh}")
+	public ResponseEntity<JSONResponse> refresh(@RequestBody(required = false) Map<String, String> body, HttpServletRequest request,
+			HttpServletResponse response) {
+		String refreshToken = statelessTokenService.resolveRefreshToken(request);
+		boolean fromCookie = refreshToken != null;
+		if (!fromCookie && body != null) {
+			refreshToken = body.get(StatelessTokenService.REFRESH_TOKEN_PARAMETER);
+		}
+		TokenPair tokens = refreshToken != null ? statelessTokenService.refresh(refreshToken) : null;
+		if (tokens == null) {
+			if (fromCookie) {
+				statelessTokenService.clearCookies(response);
+			}
+			return buildErrorResponse("Invalid or expired refresh token", 1, HttpStatus.UNAUTHORIZED);
+		}
+		if (fromCookie) {
+			statelessTokenService.writeCookies(response, tokens);
+		}
+
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("accessToken", tokens.accessToken());
+		data.put("accessTokenExpiresAt", tokens.accessTokenExpiresAt().toString());
+		data.put("refreshToken", tokens.refreshToken());
+		data.put("refreshTokenExpiresAt", tokens.refreshTokenExpiresAt().toString());
+		return ResponseEntity.ok(JSONResponse.builder().success(true).code(0).data(data).build());
+	}
+}
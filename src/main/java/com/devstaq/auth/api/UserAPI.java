@@ -5,6 +5,7 @@ import com.devstaq.auth.dto.UserDto;
 import com.devstaq.auth.exceptions.InvalidOldPasswordException;
 import com.devstaq.auth.listener.ListenerUtils;
 import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.security.stateless.StatelessTokenService;
 import com.devstaq.auth.service.DSUserDetails;
 import com.devstaq.auth.service.UserService;
 import com.devstaq.auth.util.JSONResponse;
@@ -38,6 +39,7 @@ public class UserAPI {
 	private final UserService userService;
 	private final MessageSource messages;
 	private final ListenerUtils listenerUtils;
+	private final StatelessTokenService statelessTokenService;
 
 	@Value("${user.security.registrationPendingURI}")
 	private String registrationPendingURI;
@@ -60,8 +62,7 @@ public class UserAPI {
 	@PostMapping("/updateUser")
 	public ResponseEntity<JSONResponse> updateUserAccount(@AuthenticationPrincipal DSUserDetails userDetails, @Valid @RequestBody UserDto userDto,
 			HttpServletRequest request, Locale locale) {
-		validateAuthenticatedUser(userDetails);
-		User user = userDetails.getUser();
+		User user = loadAuthenticatedUser(userDetails);
 		user.setFirstName(userDto.getFirstName());
 		user.setLastName(userDto.getLastName());
 		userService.saveRegisteredUser(user);
@@ -83,8 +84,7 @@ public class UserAPI {
 	@PostMapping("/updatePassword")
 	public ResponseEntity<JSONResponse> updatePassword(@AuthenticationPrincipal DSUserDetails userDetails,
 			@Valid @RequestBody PasswordDto passwordDto, HttpServletRequest request, Locale locale) {
-		validateAuthenticatedUser(userDetails);
-		User user = userDetails.getUser();
+		User user = loadAuthenticatedUser(userDetails);
 
 		try {
 			if (!userService.checkIfValidOldPassword(user, passwordDto.getOldPassword())) {
@@ -92,6 +92,10 @@ public class UserAPI {
 			}
 
 			userService.changeUserPassword(user, passwordDto.getNewPassword());
+			if (statelessTokenService.isEnabled()) {
+				// The password change revoked all refresh tokens, keep the current login alive
+				userService.authWithoutPassword(user);
+			}
 			listenerUtils.logAuditEvent("PasswordUpdate", "Success", "User password updated", user, request);
 
 			return buildSuccessResponse(messages.getMessage("message.update-password.success", null, locale), null);
@@ -115,8 +119,7 @@ public class UserAPI {
 	 */
 	@DeleteMapping("/deleteAccount")
 	public ResponseEntity<JSONResponse> deleteAccount(@AuthenticationPrincipal DSUserDetails userDetails, HttpServletRequest request) {
-		validateAuthenticatedUser(userDetails);
-		User user = userDetails.getUser();
+		User user = loadAuthenticatedUser(userDetails);
 		userService.deleteOrDisableUser(user);
 		listenerUtils.logAuditEvent("AccountDelete", "Success", "User account deleted", user, request);
 		logoutUser(request);
@@ -136,6 +139,18 @@ public class UserAPI {
 		}
 	}
 
+	/**
+	 * Loads the authenticated user from the database. The user held by the principal must not be saved, in the stateless session mode it is only a
+	 * snapshot of the access token claims.
+	 *
+	 * @param userDetails the authenticated user details
+	 * @return the user
+	 */
+	private User loadAuthenticatedUser(DSUserDetails userDetails) {
+		validateAuthenticatedUser(userDetails);
+		return userService.findUserByID(userDetails.getUser().getId()).orElseThrow(() -> new SecurityException("User not found."));
+	}
+
 	/**
 	 * Logs out the user.
 	 *
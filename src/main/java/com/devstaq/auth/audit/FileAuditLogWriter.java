@@ -14,10 +14,16 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Implementation of {@link AuditLogWriter} that writes audit logs to a file. This class handles the lifecycle of the log file, including opening,
  * writing, and closing the file. It also supports scheduled flushing of the buffer to balance performance with data integrity.
+ *
+ * <p>
+ * Writes, flushes and closing are guarded by a {@link ReentrantLock} rather than {@code synchronized}, so a virtual thread blocked on file I/O while
+ * holding it does not pin its carrier thread.
+ * </p>
  */
 @Slf4j
 @Component
@@ -25,6 +31,7 @@ import java.text.MessageFormat;
 public class FileAuditLogWriter implements AuditLogWriter {
 
     private final AuditConfig auditConfig;
+    private final ReentrantLock lock = new ReentrantLock();
     private BufferedWriter bufferedWriter;
 
     /**
@@ -64,12 +71,13 @@ public class FileAuditLogWriter implements AuditLogWriter {
             log.error("FileAuditLogWriter.writeLog: BufferedWriter is not initialized.");
             return;
         }
+        String userId = event.getUser() != null ? event.getUser().getId().toString() : null;
+        String userEmail = event.getUser() != null ? event.getUser().getEmail() : null;
+        String output = MessageFormat.format("{0}|{1}|{2}|{3}|{4}|{5}|{6}|{7}|{8}|{9}", event.getDate(), event.getAction(),
+                event.getActionStatus(), userId, userEmail, event.getIpAddress(), event.getSessionId(), event.getMessage(), event.getUserAgent(),
+                event.getExtraData());
+        lock.lock();
         try {
-            String userId = event.getUser() != null ? event.getUser().getId().toString() : null;
-            String userEmail = event.getUser() != null ? event.getUser().getEmail() : null;
-            String output = MessageFormat.format("{0}|{1}|{2}|{3}|{4}|{5}|{6}|{7}|{8}|{9}", event.getDate(), event.getAction(),
-                    event.getActionStatus(), userId, userEmail, event.getIpAddress(), event.getSessionId(), event.getMessage(), event.getUserAgent(),
-                    event.getExtraData());
             bufferedWriter.write(output);
             bufferedWriter.newLine();
             if (auditConfig.isFlushOnWrite()) {
@@ -77,6 +85,8 @@ public class FileAuditLogWriter implements AuditLogWriter {
             }
         } catch (IOException e) {
             log.error("FileAuditLogWriter.writeLog: IOException writing to log file: {}", auditConfig.getLogFilePath(), e);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -87,10 +97,13 @@ public class FileAuditLogWriter implements AuditLogWriter {
      */
     public void flushWriter() {
         if (bufferedWriter != null) {
+            lock.lock();
             try {
                 bufferedWriter.flush();
             } catch (IOException e) {
                 log.error("FileAuditLogWriter.flushWriter: IOException flushing buffer!", e);
+            } finally {
+                lock.unlock();
             }
         }
     }
@@ -139,12 +152,15 @@ public class FileAuditLogWriter implements AuditLogWriter {
      * Closes the log file to ensure all data is flushed and resources are released.
      */
     private void closeLogFile() {
+        lock.lock();
         try {
             if (bufferedWriter != null) {
                 bufferedWriter.close();
             }
         } catch (IOException e) {
             log.error("FileAuditLogWriter.cleanup: IOException closing log file: {}", auditConfig.getLogFilePath(), e);
+        } finally {
+            lock.unlock();
         }
     }
 
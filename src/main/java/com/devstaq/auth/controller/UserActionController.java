@@ -2,6 +2,7 @@ package com.devstaq.auth.controller;
 
 import com.devstaq.auth.audit.AuditEvent;
 import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.service.TokenConsumptionResult;
 import com.devstaq.auth.service.UserService;
 import com.devstaq.auth.service.UserService.TokenValidationResult;
 import com.devstaq.auth.service.UserVerificationService;
@@ -72,7 +73,7 @@ public class UserActionController {
 		log.debug("UserAPI.showChangePasswordPage: called with token: {}", token);
 		final TokenValidationResult result = userService.validatePasswordResetToken(token);
 		log.debug("UserAPI.showChangePasswordPage:" + "result: {}", result);
-		AuditEvent changePasswordAuditEvent = AuditEvent.builder().source(this).sessionId(request.getSession().getId())
+		AuditEvent changePasswordAuditEvent = AuditEvent.builder().source(this).sessionId(UserUtils.getSessionId(request))
 				.ipAddress(UserUtils.getClientIP(request)).userAgent(request.getHeader("User-Agent"))
 				.action("showChangePasswordPage")
 				.actionStatus("Success").message("Requested. Result:" + result).build();
@@ -105,16 +106,16 @@ public class UserActionController {
 		log.debug("UserAPI.confirmRegistration: called with token: {}", token);
 		Locale locale = request.getLocale();
 		model.addAttribute("lang", locale.getLanguage());
-		final TokenValidationResult result = userVerificationService.validateVerificationToken(token);
+		final TokenConsumptionResult consumption = userVerificationService.consumeVerificationToken(token);
+		final TokenValidationResult result = consumption.getResult();
 
-		if (result == TokenValidationResult.VALID) {
-			final User user = userVerificationService.getUserByVerificationToken(token);
+		if (consumption.isValid()) {
+			final User user = consumption.getUser();
 			if (user != null) {
 				userService.authWithoutPassword(user);
-				userVerificationService.deleteVerificationToken(token);
 
 				AuditEvent registrationAuditEvent = AuditEvent.builder().source(this).user(user)
-						.sessionId(request.getSession().getId())
+						.sessionId(UserUtils.getSessionId(request))
 						.ipAddress(UserUtils.getClientIP(request)).userAgent(request.getHeader("User-Agent"))
 						.action("Registration Confirmation")
 						.actionStatus("Success").message("Registration Confirmed. User logged in.").build();
@@ -2,6 +2,7 @@ package com.devstaq.auth.controller;
 
 import com.devstaq.auth.dto.UserDto;
 import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.security.CustomOAuth2AuthenticationEntryPoint;
 import com.devstaq.auth.service.DSUserDetails;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
@@ -12,6 +13,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 /**
  * The UserPageController for the user management pages.
@@ -34,18 +36,17 @@ public class UserPageController {
 	 * Login Page.
 	 *
 	 * @param userDetails the user details
-	 * @param session the session
+	 * @param request the request
+	 * @param errorMessage the error message passed in the stateless session mode
 	 * @param model the model
 	 *
 	 * @return the string
 	 */
 	@GetMapping("${user.security.loginPageURI:/user/login.html}")
-	public String login(@AuthenticationPrincipal DSUserDetails userDetails, HttpSession session, ModelMap model) {
+	public String login(@AuthenticationPrincipal DSUserDetails userDetails, HttpServletRequest request,
+			@RequestParam(name = CustomOAuth2AuthenticationEntryPoint.ERROR_MESSAGE_PARAMETER, required = false) String errorMessage, ModelMap model) {
 		log.debug("UserPageController.login:" + "userDetails: {}", userDetails);
-		if (session != null && session.getAttribute("error.message") != null) {
-			model.addAttribute("errormessage", session.getAttribute("error.message"));
-			session.removeAttribute("error.message");
-		}
+		addErrorMessage(request, errorMessage, model);
 		model.addAttribute("googleEnabled", googleEnabled);
 		model.addAttribute("facebookEnabled", facebookEnabled);
 		model.addAttribute("keycloakEnabled", keycloakEnabled);
@@ -56,17 +57,16 @@ public class UserPageController {
 	 * Register Page.
 	 *
 	 * @param userDetails the user details
-	 * @param session the session
+	 * @param request the request
+	 * @param errorMessage the error message passed in the stateless session mode
 	 * @param model the model
 	 * @return the string
 	 */
 	@GetMapping("${user.security.registrationURI:/user/register.html}")
-	public String register(@AuthenticationPrincipal DSUserDetails userDetails, HttpSession session, ModelMap model) {
+	public String register(@AuthenticationPrincipal DSUserDetails userDetails, HttpServletRequest request,
+			@RequestParam(name = CustomOAuth2AuthenticationEntryPoint.ERROR_MESSAGE_PARAMETER, required = false) String errorMessage, ModelMap model) {
 		log.debug("UserPageController.register:" + "userDetails: {}", userDetails);
-		if (session != null && session.getAttribute("error.message") != null) {
-			model.addAttribute("errormessage", session.getAttribute("error.message"));
-			session.removeAttribute("error.message");
-		}
+		addErrorMessage(request, errorMessage, model);
 		model.addAttribute("googleEnabled", googleEnabled);
 		model.addAttribute("facebookEnabled", facebookEnabled);
 		model.addAttribute("keycloakEnabled", keycloakEnabled);
@@ -87,14 +87,12 @@ public class UserPageController {
 	 * Registration complete.
 	 *
 	 * @param userDetails the user details
-	 * @param session the session
 	 * @param model the model
 	 *
 	 * @return the string
 	 */
 	@GetMapping("${user.security.registrationSuccessURI:/user/registration-complete.html}")
-	public String registrationComplete(@AuthenticationPrincipal DSUserDetails userDetails, HttpSession session,
-			ModelMap model) {
+	public String registrationComplete(@AuthenticationPrincipal DSUserDetails userDetails, ModelMap model) {
 		log.debug("UserPageController.registrationComplete:" + "userDetails: {}", userDetails);
 		return "user/registration-complete";
 	}
@@ -179,4 +177,23 @@ public class UserPageController {
 		return "user/delete-account";
 	}
 
+	/**
+	 * Adds the error message of a failed OAuth2 login to the model. The message is taken from the query parameter in the stateless session mode, and
+	 * from the session otherwise. No session is created.
+	 *
+	 * @param request the request
+	 * @param errorMessage the error message from the query parameter
+	 * @param model the model
+	 */
+	private void addErrorMessage(HttpServletRequest request, String errorMessage, ModelMap model) {
+		if (errorMessage != null) {
+			model.addAttribute("errormessage", errorMessage);
+			return;
+		}
+		HttpSession session = request.getSession(false);
+		if (session != null && session.getAttribute(CustomOAuth2AuthenticationEntryPoint.ERROR_MESSAGE_ATTRIBUTE) != null) {
+			model.addAttribute("errormessage", session.getAttribute(CustomOAuth2AuthenticationEntryPoint.ERROR_MESSAGE_ATTRIBUTE));
+			session.removeAttribute(CustomOAuth2AuthenticationEntryPoint.ERROR_MESSAGE_ATTRIBUTE);
+		}
+	}
 }
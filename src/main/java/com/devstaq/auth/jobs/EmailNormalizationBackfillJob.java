@@ -0,0 +1,115 @@
+package com.devstaq.auth.jobs;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.UserEmail;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * The EmailNormalizationBackfillJob is a Service which fills in the normalized email column of users created before the column existed. It runs once
+ * when the application is ready, in chunks of user.emailNormalization.backfillChunkSize rows, each chunk in its own transaction. Users whose
+ * normalized email collides with another user's (the same address registered with different case) are skipped and logged, as they have to be
+ * merged manually.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmailNormalizationBackfillJob {
+
+	/** The user repository. */
+	private final UserRepository userRepository;
+
+	/** The transaction manager. */
+	private final PlatformTransactionManager transactionManager;
+
+	/** The backfill enabled flag. */
+	@Value("${user.emailNormalization.backfillEnabled:true}")
+	private boolean backfillEnabled;
+
+	/** The number of users updated per transaction. */
+	@Value("${user.emailNormalization.backfillChunkSize:500}")
+	private int chunkSize = 500;
+
+	/**
+	 * Runs the backfill asynchronously once the application is ready, so it does not delay the application from accepting traffic.
+	 */
+	@Async
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (backfillEnabled) {
+			backfill();
+		}
+	}
+
+	/**
+	 * Backfill the normalized email of all users which do not have one yet.
+	 *
+	 * @return the number of users updated
+	 */
+	public int backfill() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		int updated = 0;
+		long afterId = 0L;
+		List<UserEmail> chunk;
+		do {
+			chunk = userRepository.findWithoutNormalizedEmail(afterId, Limit.of(chunkSize));
+			if (chunk.isEmpty()) {
+				break;
+			}
+			updated += updateChunk(transactionTemplate, chunk);
+			afterId = chunk.get(chunk.size() - 1).getId();
+		} while (chunk.size() == chunkSize);
+		if (updated > 0) {
+			log.info("EmailNormalizationBackfillJob.backfill: normalized the email of {} users.", updated);
+		}
+		return updated;
+	}
+
+	/**
+	 * Updates a chunk of users in one transaction. If a normalized email collides with an existing one, the chunk is retried one user per
+	 * transaction so the colliding users can be skipped.
+	 *
+	 * @param transactionTemplate the transaction template
+	 * @param chunk the chunk
+	 * @return the number of users updated
+	 */
+	private int updateChunk(final TransactionTemplate transactionTemplate, final List<UserEmail> chunk) {
+		try {
+			return transactionTemplate.execute(status -> {
+				chunk.forEach(this::updateUser);
+				return chunk.size();
+			});
+		} catch (DataIntegrityViolationException e) {
+			log.debug("EmailNormalizationBackfillJob.updateChunk: chunk contains colliding emails, retrying user by user.");
+		}
+		int updated = 0;
+		for (UserEmail user : chunk) {
+			try {
+				transactionTemplate.executeWithoutResult(status -> updateUser(user));
+				updated++;
+			} catch (DataIntegrityViolationException e) {
+				log.warn("EmailNormalizationBackfillJob.updateChunk: email of user {} collides with another user's after normalization, skipping.",
+						user.getId());
+			}
+		}
+		return updated;
+	}
+
+	private void updateUser(final UserEmail user) {
+		userRepository.updateEmailNormalized(user.getId(), User.normalizeEmail(user.getEmail()));
+	}
+}
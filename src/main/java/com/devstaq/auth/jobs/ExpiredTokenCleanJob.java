@@ -1,6 +1,9 @@
 package com.devstaq.auth.jobs;
 
+import com.devstaq.auth.mail.MailOutboxConfig;
+import com.devstaq.auth.persistence.repository.MailOutboxMessageRepository;
 import com.devstaq.auth.persistence.repository.PasswordResetTokenRepository;
+import com.devstaq.auth.persistence.repository.RefreshTokenFamilyRepository;
 import com.devstaq.auth.persistence.repository.VerificationTokenRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -8,12 +11,14 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Date;
 
 /**
  * The ExpiredTokenCleanJob is a Service which purges expired registration email verification tokens and password reset tokens based on the schedule
- * defined in user.purgetokens.cron.expression in your application.properties.
+ * defined in user.purgetokens.cron.expression in your application.properties. Expired refresh token families of the stateless session mode are
+ * purged as well, and so are the messages of the mail outbox sent longer ago than user.mail.outbox.sentRetentionDays.
  */
 @Slf4j
 @Service
@@ -27,16 +32,30 @@ public class ExpiredTokenCleanJob {
 	/** The password reset token repository. */
 	private final PasswordResetTokenRepository passwordTokenRepository;
 
+	/** The refresh token family repository. */
+	private final RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+	/** The mail outbox repository. */
+	private final MailOutboxMessageRepository mailOutboxMessageRepository;
+
+	/** The mail outbox configuration. */
+	private final MailOutboxConfig mailOutboxConfig;
+
+	/** The clock. */
+	private final Clock clock;
+
 	/**
 	 * Purge expired.
 	 */
 	@Scheduled(cron = "${user.purgetokens.cron.expression}")
 	public void purgeExpired() {
 		log.info("ExpiredTokenCleanJob.purgeExpired: running....");
-		Date now = Date.from(Instant.now());
+		Instant now = clock.instant();
 
 		passwordTokenRepository.deleteAllExpiredSince(now);
 		verificationTokenRepository.deleteAllExpiredSince(now);
+		refreshTokenFamilyRepository.deleteAllExpiredSince(now);
+		mailOutboxMessageRepository.deleteAllSentBefore(now.minus(Duration.ofDays(mailOutboxConfig.getSentRetentionDays())));
 		log.info("ExpiredTokenCleanJob.purgeExpired: all expired tokens have been deleted.");
 	}
 }
@@ -0,0 +1,95 @@
+package com.devstaq.auth.jobs;
+
+import com.devstaq.auth.admin.UserExportService;
+import com.devstaq.auth.admin.UserFileFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * The UserExportJob is a Service which exports all users to a new file in user.export.directory on the schedule defined in user.export.cron. The
+ * job is off unless a cron expression is configured. The file is written under a temporary name and renamed when complete, so readers of the
+ * directory never see a partial export.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserExportJob {
+
+	private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+	/** The user export service. */
+	private final UserExportService userExportService;
+
+	/** The clock. */
+	private final Clock clock;
+
+	/** The directory the exports are written to. */
+	@Value("${user.export.directory:exports}")
+	private String directory = "exports";
+
+	/** The format of the exports. */
+	@Value("${user.export.format:jsonl}")
+	private String format = "jsonl";
+
+	/**
+	 * Export all users.
+	 */
+	@Scheduled(cron = "${user.export.cron:-}")
+	public void export() {
+		log.info("UserExportJob.export: running....");
+		Path file = exportToFile();
+		log.info("UserExportJob.export: users exported to {}", file);
+	}
+
+	/**
+	 * Exports all users to a new file named after the current time.
+	 *
+	 * @return the file
+	 */
+	public Path exportToFile() {
+		UserFileFormat fileFormat = UserFileFormat.valueOf(format.toUpperCase(Locale.ROOT));
+		Path target = Path.of(directory).resolve("users-" + FILE_TIMESTAMP.format(clock.instant()) + "." + fileFormat.name().toLowerCase(Locale.ROOT));
+		Path temporary = null;
+		try {
+			Files.createDirectories(target.getParent());
+			temporary = Files.createTempFile(target.getParent(), ".users-", ".tmp");
+			try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+				userExportService.exportUsers(writer, fileFormat);
+			}
+			Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+			return target;
+		} catch (IOException e) {
+			deleteQuietly(temporary);
+			throw new UncheckedIOException("Failed to export users to " + target, e);
+		} catch (RuntimeException e) {
+			deleteQuietly(temporary);
+			throw e;
+		}
+	}
+
+	private static void deleteQuietly(final Path file) {
+		if (file == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			log.warn("UserExportJob.deleteQuietly: could not delete {}", file, e);
+		}
+	}
+}
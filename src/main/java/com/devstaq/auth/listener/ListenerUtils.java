@@ -36,7 +36,7 @@ public class ListenerUtils {
      */
     public void logAuditEvent(String action, String status, String message, User user, HttpServletRequest request) {
         AuditEvent event =
-                AuditEvent.builder().source(this).user(user).sessionId(request.getSession().getId()).ipAddress(UserUtils.getClientIP(request))
+                AuditEvent.builder().source(this).user(user).sessionId(UserUtils.getSessionId(request)).ipAddress(UserUtils.getClientIP(request))
                         .userAgent(request.getHeader("User-Agent")).action(action).actionStatus(status).message(message).build();
         eventPublisher.publishEvent(event);
     }
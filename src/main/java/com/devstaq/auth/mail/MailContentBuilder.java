@@ -1,26 +1,76 @@
 package com.devstaq.auth.mail;
 
+import com.devstaq.auth.persistence.model.User;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
+import org.thymeleaf.exceptions.TemplateEngineException;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The MailContentBuilder service renders Thymeleaf templates as rich emails, making use of the full templating engine for both HTML rendering and
- * dynamic content handling. .
+ * dynamic content handling.
+ * <p>
+ * Emails are rendered by a template engine of their own, so the cache settings of the web templates, which are often turned off during development,
+ * do not apply. Templates are looked up under {@code templates/} on the classpath first, so an application can override the library's templates, and
+ * then from the classpath root. Parsed templates are cached for the life of the application, and the library's templates are parsed at startup. Each
+ * thread renders into a reused buffer.
+ * </p>
  */
+@Slf4j
 @Service
 public class MailContentBuilder {
 
+	/** The templates sent by the library, parsed at startup. */
+	static final List<String> LIBRARY_TEMPLATES = List.of("mail/registration-token.html", "mail/forgot-password-token.html");
+
+	/** The buffers are dropped instead of reused once they have grown beyond this many characters. */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	/** The buffer each thread renders into. */
+	private static final ThreadLocal<StringBuilderWriter> WRITER = ThreadLocal.withInitial(StringBuilderWriter::new);
+
 	/** The template engine. */
-	private TemplateEngine templateEngine;
+	private final TemplateEngine templateEngine;
 
 	/**
 	 * Instantiates a new mail content builder.
 	 *
-	 * @param templateEngine the template engine
+	 * @param messageSource the message source for the message expressions of the templates
 	 */
-	public MailContentBuilder(TemplateEngine templateEngine) {
-		this.templateEngine = templateEngine;
+	public MailContentBuilder(MessageSource messageSource) {
+		SpringTemplateEngine engine = new SpringTemplateEngine();
+		engine.setTemplateEngineMessageSource(messageSource);
+		engine.addTemplateResolver(templateResolver("templates/", 1));
+		engine.addTemplateResolver(templateResolver("", 2));
+		this.templateEngine = engine;
+	}
+
+	/**
+	 * Parses the library's templates into the template cache, so the first emails do not pay for it. The templates are rendered once with
+	 * placeholder values.
+	 */
+	@PostConstruct
+	public void preloadTemplates() {
+		Context context = new Context();
+		context.setVariables(Map.of("user", new User(), "confirmationUrl", "", "appUrl", ""));
+		for (String template : LIBRARY_TEMPLATES) {
+			try {
+				build(template, context);
+			} catch (TemplateEngineException e) {
+				log.warn("MailContentBuilder.preloadTemplates: could not preload {}: {}", template, e.getMessage());
+			}
+		}
 	}
 
 	/**
@@ -31,7 +81,65 @@ public class MailContentBuilder {
 	 * @return the string of the output of processing the template. Typically HTML.
 	 */
 	public String build(String pTemplateName, Context pContext) {
-		return templateEngine.process(pTemplateName, pContext);
+		StringBuilderWriter writer = WRITER.get();
+		try {
+			templateEngine.process(pTemplateName, pContext, writer);
+			return writer.builder.toString();
+		} finally {
+			if (writer.builder.capacity() > MAX_RETAINED_CAPACITY) {
+				WRITER.remove();
+			} else {
+				writer.builder.setLength(0);
+			}
+		}
+	}
+
+	private static ClassLoaderTemplateResolver templateResolver(String prefix, int order) {
+		ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+		resolver.setPrefix(prefix);
+		resolver.setTemplateMode(TemplateMode.HTML);
+		resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		resolver.setCacheable(true);
+		resolver.setCheckExistence(true);
+		resolver.setOrder(order);
+		return resolver;
+	}
+
+	/**
+	 * An unsynchronized {@link Writer} into a {@link StringBuilder}, which can be reset and reused.
+	 */
+	private static final class StringBuilderWriter extends Writer {
+
+		private final StringBuilder builder = new StringBuilder(4096);
+
+		@Override
+		public void write(int c) {
+			builder.append((char) c);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			builder.append(cbuf, off, len);
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			builder.append(str, off, off + len);
+		}
+
+		@Override
+		public Writer append(CharSequence csq) {
+			builder.append(csq);
+			return this;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
 	}
 
 }
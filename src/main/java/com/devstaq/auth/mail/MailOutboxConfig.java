@@ -0,0 +1,59 @@
+package com.devstaq.auth.mail;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * The MailOutboxConfig class is a Spring Boot configuration class that provides properties for configuring the mail outbox. This class is used to
+ * turn the outbox on, and to define the batch size and the retry schedule of the {@link MailOutboxDispatcher}.
+ */
+@Data
+@Component
+@PropertySource("classpath:config/dsspringuserconfig.properties")
+@ConfigurationProperties(prefix = "user.mail.outbox")
+public class MailOutboxConfig {
+
+	/**
+	 * The enabled flag. If set to true, verification and password reset emails are written to the mail_outbox table in the transaction that creates
+	 * their token, and sent by the dispatcher. If false they are sent asynchronously and a failed email is only logged.
+	 */
+	private boolean enabled;
+
+	/**
+	 * The number of milliseconds between runs of the dispatcher. A run keeps sending batches until the outbox has no due messages left.
+	 */
+	private long pollIntervalMillis = 5000;
+
+	/**
+	 * The maximum number of messages sent over one SMTP connection.
+	 */
+	private int batchSize = 50;
+
+	/**
+	 * The number of send attempts after which a message is moved to the dead status.
+	 */
+	private int maxAttempts = 8;
+
+	/**
+	 * The delay before the first retry in seconds. The delay doubles with every further attempt.
+	 */
+	private long initialBackoffSeconds = 30;
+
+	/**
+	 * The maximum delay between two attempts in seconds.
+	 */
+	private long maxBackoffSeconds = 3600;
+
+	/**
+	 * The number of seconds a dispatcher holds the messages of a batch. Messages of a node that stops while sending are sent again after this time.
+	 */
+	private long claimSeconds = 300;
+
+	/**
+	 * The number of days sent messages are kept before the token purge job deletes them.
+	 */
+	private int sentRetentionDays = 7;
+
+}
@@ -0,0 +1,239 @@
+package com.devstaq.auth.mail;
+
+import com.devstaq.auth.persistence.model.MailOutboxMessage;
+import com.devstaq.auth.persistence.model.MailOutboxMessage.Status;
+import com.devstaq.auth.persistence.repository.MailOutboxMessageRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the messages of the mail outbox. Due messages are claimed in batches, and each batch is sent over a single SMTP connection. A message that
+ * fails is retried with an exponentially growing delay, and moved to the dead status after the maximum number of attempts. Dead messages stay in the
+ * table for inspection; setting their status back to PENDING sends them again.
+ * <p>
+ * Delivery is at least once: a message whose batch was sent by a node that stopped before recording the result is sent again once the claim runs
+ * out. The user.mail.outbox.* metrics count sent, retried and dead messages, time the batches and report the number of pending messages.
+ * </p>
+ */
+@Slf4j
+@Service
+public class MailOutboxDispatcher implements MeterBinder {
+
+	/** The maximum length of the stored error. */
+	private static final int MAX_ERROR_LENGTH = 1000;
+
+	/** The mail sender. */
+	private final JavaMailSender mailSender;
+
+	/** The mail outbox repository. */
+	private final MailOutboxMessageRepository mailOutboxMessageRepository;
+
+	/** The mail outbox configuration. */
+	private final MailOutboxConfig config;
+
+	/** The clock. */
+	private final Clock clock;
+
+	/** The from address. */
+	private final String fromAddress;
+
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder retried = new LongAdder();
+	private final LongAdder dead = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder batchNanos = new LongAdder();
+	private final AtomicLong pending = new AtomicLong();
+
+	/**
+	 * Instantiates a new mail outbox dispatcher.
+	 *
+	 * @param mailSender the mail sender
+	 * @param mailOutboxMessageRepository the mail outbox repository
+	 * @param config the mail outbox configuration
+	 * @param clock the clock
+	 * @param fromAddress the from address
+	 */
+	public MailOutboxDispatcher(JavaMailSender mailSender, MailOutboxMessageRepository mailOutboxMessageRepository, MailOutboxConfig config,
+			Clock clock, @Value("${user.mail.fromAddress}") String fromAddress) {
+		this.mailSender = mailSender;
+		this.mailOutboxMessageRepository = mailOutboxMessageRepository;
+		this.config = config;
+		this.clock = clock;
+		this.fromAddress = fromAddress;
+	}
+
+	/**
+	 * Sends batches of due messages until none are left or a batch is not sent completely, which usually means the mail server is unavailable. Does
+	 * nothing unless the outbox is enabled.
+	 */
+	@Scheduled(fixedDelayString = "${user.mail.outbox.pollIntervalMillis:5000}")
+	public void dispatch() {
+		if (!config.isEnabled()) {
+			return;
+		}
+		try {
+			while (dispatchBatch() == config.getBatchSize()) {
+				log.debug("MailOutboxDispatcher.dispatch: a full batch was sent, sending the next one.");
+			}
+		} catch (RuntimeException e) {
+			log.error("MailOutboxDispatcher.dispatch: Error!", e);
+		} finally {
+			pending.set(mailOutboxMessageRepository.countByStatus(Status.PENDING));
+		}
+	}
+
+	/**
+	 * Claims and sends one batch of due messages.
+	 *
+	 * @return the number of messages sent
+	 */
+	int dispatchBatch() {
+		Instant now = clock.instant();
+		List<Long> dueIds = mailOutboxMessageRepository.findDueIds(now, Limit.of(config.getBatchSize()));
+		if (dueIds.isEmpty()) {
+			return 0;
+		}
+		String claimToken = UUID.randomUUID().toString();
+		if (mailOutboxMessageRepository.claim(dueIds, claimToken, now, now.plusSeconds(config.getClaimSeconds())) == 0) {
+			return 0;
+		}
+		List<MailOutboxMessage> messages = mailOutboxMessageRepository.findByClaimTokenOrderById(claimToken);
+		long start = System.nanoTime();
+
+		Map<MimeMessage, MailOutboxMessage> batch = new LinkedHashMap<>();
+		List<MailOutboxMessage> failed = new ArrayList<>();
+		for (MailOutboxMessage message : messages) {
+			try {
+				batch.put(toMimeMessage(message), message);
+			} catch (MessagingException e) {
+				// The message can never be sent, so it is not retried
+				fail(message, e, now, true);
+				failed.add(message);
+			}
+		}
+
+		List<Long> sentIds = new ArrayList<>();
+		Map<Object, Exception> failures = Map.of();
+		MailException batchFailure = null;
+		if (!batch.isEmpty()) {
+			try {
+				mailSender.send(batch.keySet().toArray(new MimeMessage[0]));
+			} catch (MailSendException e) {
+				failures = e.getFailedMessages();
+				if (failures.isEmpty()) {
+					batchFailure = e;
+				}
+			} catch (MailException e) {
+				batchFailure = e;
+			}
+		}
+		for (Map.Entry<MimeMessage, MailOutboxMessage> entry : batch.entrySet()) {
+			Exception failure = batchFailure != null ? batchFailure : failures.get(entry.getKey());
+			if (failure == null) {
+				sentIds.add(entry.getValue().getId());
+			} else {
+				fail(entry.getValue(), failure, now, false);
+				failed.add(entry.getValue());
+			}
+		}
+
+		if (!sentIds.isEmpty()) {
+			mailOutboxMessageRepository.markSent(sentIds, clock.instant());
+			sent.add(sentIds.size());
+		}
+		if (!failed.isEmpty()) {
+			mailOutboxMessageRepository.saveAll(failed);
+		}
+		batches.increment();
+		batchNanos.add(System.nanoTime() - start);
+		log.debug("MailOutboxDispatcher.dispatchBatch: sent {} of {} messages.", sentIds.size(), messages.size());
+		return sentIds.size();
+	}
+
+	/**
+	 * Records a failed attempt, scheduling the next one or moving the message to the dead status.
+	 */
+	private void fail(MailOutboxMessage message, Exception e, Instant now, boolean permanent) {
+		int attempts = message.getAttempts() + 1;
+		message.setAttempts(attempts);
+		message.setClaimToken(null);
+		String error = String.valueOf(e.getMessage());
+		message.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+		if (permanent || attempts >= config.getMaxAttempts()) {
+			message.setStatus(Status.DEAD);
+			dead.increment();
+			log.warn("MailOutboxDispatcher.fail: giving up on message {} to {} after {} attempts: {}", message.getId(), message.getRecipient(),
+					attempts, error);
+		} else {
+			message.setNextAttemptAt(now.plus(backoff(attempts)));
+			retried.increment();
+			log.info("MailOutboxDispatcher.fail: message {} to {} will be retried: {}", message.getId(), message.getRecipient(), error);
+		}
+	}
+
+	/**
+	 * Calculates the delay after a number of failed attempts, doubling from the initial backoff up to the maximum backoff.
+	 *
+	 * @param attempts the number of failed attempts, at least 1
+	 * @return the delay
+	 */
+	Duration backoff(int attempts) {
+		long maxSeconds = config.getMaxBackoffSeconds();
+		long seconds = config.getInitialBackoffSeconds() << Math.min(attempts - 1, 30);
+		return Duration.ofSeconds(seconds <= 0 || seconds > maxSeconds ? maxSeconds : seconds);
+	}
+
+	private MimeMessage toMimeMessage(MailOutboxMessage message) throws MessagingException {
+		MimeMessage mimeMessage = mailSender.createMimeMessage();
+		MimeMessageHelper messageHelper = new MimeMessageHelper(mimeMessage);
+		messageHelper.setFrom(fromAddress);
+		messageHelper.setTo(message.getRecipient());
+		messageHelper.setSubject(message.getSubject());
+		messageHelper.setText(message.getBody() == null ? "" : message.getBody(), true);
+		return mimeMessage;
+	}
+
+	/**
+	 * Registers the mail outbox metrics.
+	 *
+	 * @param registry the meter registry
+	 */
+	@Override
+	public void bindTo(final MeterRegistry registry) {
+		FunctionCounter.builder("user.mail.outbox.sent", sent, LongAdder::sum).description("The number of emails sent from the outbox")
+				.register(registry);
+		FunctionCounter.builder("user.mail.outbox.retried", retried, LongAdder::sum).description("The number of failed attempts that will be retried")
+				.register(registry);
+		FunctionCounter.builder("user.mail.outbox.dead", dead, LongAdder::sum).description("The number of emails given up on").register(registry);
+		FunctionTimer.builder("user.mail.outbox.batch", this, d -> d.batches.sum(), d -> d.batchNanos.sum(), TimeUnit.NANOSECONDS)
+				.description("The time taken to send a batch of emails").register(registry);
+		Gauge.builder("user.mail.outbox.pending", pending, AtomicLong::get).description("The number of emails waiting to be sent, as of the last run")
+				.register(registry);
+	}
+}
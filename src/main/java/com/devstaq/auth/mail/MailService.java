@@ -1,5 +1,7 @@
 package com.devstaq.auth.mail;
 
+import com.devstaq.auth.persistence.model.MailOutboxMessage;
+import com.devstaq.auth.persistence.repository.MailOutboxMessageRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,13 +11,16 @@ import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.mail.javamail.MimeMessagePreparator;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.thymeleaf.context.Context;
 
+import java.time.Clock;
 import java.util.Map;
 
 /**
  * The MailService provides outbound email sending services on top of the Spring mail framework, and leverages Thymeleaf templates for rich dynamic
- * emails.
+ * emails. Emails can be sent right away, or queued in the mail outbox as part of the current transaction and sent by the
+ * {@link MailOutboxDispatcher}.
  */
 @Slf4j
 @Service
@@ -32,6 +37,18 @@ public class MailService {
 	@Autowired
 	MailContentBuilder mailContentBuilder;
 
+	/** The mail outbox configuration. */
+	@Autowired
+	MailOutboxConfig mailOutboxConfig;
+
+	/** The mail outbox repository. */
+	@Autowired
+	MailOutboxMessageRepository mailOutboxMessageRepository;
+
+	/** The clock. */
+	@Autowired
+	Clock clock;
+
 	/**
 	 * Instantiates a new mail service.
 	 *
@@ -80,10 +97,7 @@ public class MailService {
 			messageHelper.setFrom(fromAddress);
 			messageHelper.setTo(to);
 			messageHelper.setSubject(subject);
-			Context context = new Context();
-			context.setVariables(variables);
-			String content = mailContentBuilder.build(templatePath, context);
-			messageHelper.setText(content, true);
+			messageHelper.setText(render(variables, templatePath), true);
 		};
 		try {
 			mailSender.send(messagePreparator);
@@ -91,4 +105,34 @@ public class MailService {
 			log.error("MailService.sendTemplateMessage: Error!", e);
 		}
 	}
+
+	/**
+	 * Whether emails are sent through the mail outbox.
+	 *
+	 * @return true if the mail outbox is enabled
+	 */
+	public boolean isOutboxEnabled() {
+		return mailOutboxConfig.isEnabled();
+	}
+
+	/**
+	 * Queue a dynamic Thymeleaf template driven email in the mail outbox. The email is rendered now and written in the current transaction, so it is
+	 * only sent if the transaction commits, and it is not lost if the mail server is unavailable.
+	 *
+	 * @param to the to email address to send the mail to
+	 * @param subject the subject of the email
+	 * @param variables a map of variables (key->value) to use in building the dynamic content via the template
+	 * @param templatePath the file name, or path and name, for the Thymeleaf template to use to build the dynamic email
+	 */
+	@Transactional
+	public void queueTemplateMessage(String to, String subject, Map<String, Object> variables, String templatePath) {
+		mailOutboxMessageRepository.save(new MailOutboxMessage(to, subject, render(variables, templatePath), clock.instant()));
+		log.debug("MailService.queueTemplateMessage: queued {} to {}", templatePath, to);
+	}
+
+	private String render(Map<String, Object> variables, String templatePath) {
+		Context context = new Context();
+		context.setVariables(variables);
+		return mailContentBuilder.build(templatePath, context);
+	}
 }
@@ -0,0 +1,26 @@
+package com.devstaq.auth.persistence.model;
+
+/**
+ * The names of the Hibernate second-level cache regions used for the role and privilege reference data.
+ */
+public final class CacheRegions {
+
+	/** The region of the {@link Role} entities. */
+	public static final String ROLE = "dsspringuser.role";
+
+	/** The region of the {@link Role#getPrivileges()} collections. */
+	public static final String ROLE_PRIVILEGES = "dsspringuser.role.privileges";
+
+	/** The region of the {@link Privilege} entities. */
+	public static final String PRIVILEGE = "dsspringuser.privilege";
+
+	/** The query cache region of the role and privilege lookups by name. */
+	public static final String REFERENCE_DATA_QUERIES = "dsspringuser.referenceDataQueries";
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private CacheRegions() {
+		throw new IllegalStateException("Utility class");
+	}
+}
@@ -0,0 +1,49 @@
+package com.devstaq.auth.persistence.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * The ConfigurationState Entity. Records a hash of a piece of configuration that has been applied to the database, so it does not have to be applied
+ * again on the next startup when it is unchanged.
+ */
+@Data
+@Entity
+@Table(name = "configuration_state")
+public class ConfigurationState {
+
+	/** The name of the configuration. */
+	@Id
+	@Column(length = 100)
+	private String name;
+
+	/** The hash of the applied configuration. */
+	@Column(length = 64, nullable = false)
+	private String hash;
+
+	/** The time the configuration was last applied. */
+	private Instant appliedDate;
+
+	/**
+	 * Instantiates a new configuration state.
+	 */
+	public ConfigurationState() {
+		super();
+	}
+
+	/**
+	 * Instantiates a new configuration state.
+	 *
+	 * @param name the name of the configuration
+	 * @param hash the hash of the applied configuration
+	 * @param appliedDate the time the configuration was applied
+	 */
+	public ConfigurationState(final String name, final String hash, final Instant appliedDate) {
+		super();
+		this.name = name;
+		this.hash = hash;
+		this.appliedDate = appliedDate;
+	}
+}
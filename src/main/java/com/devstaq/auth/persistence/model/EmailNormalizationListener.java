@@ -0,0 +1,22 @@
+package com.devstaq.auth.persistence.model;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+
+/**
+ * Entity listener which keeps {@link User#getEmailNormalized()} in sync with {@link User#getEmail()} on every write. This also fills in the
+ * normalized email of rows created before the column existed the next time they are updated.
+ */
+public class EmailNormalizationListener {
+
+	/**
+	 * Sets the normalized email of the user before it is inserted or updated.
+	 *
+	 * @param user the user
+	 */
+	@PrePersist
+	@PreUpdate
+	public void normalizeEmail(final User user) {
+		user.setEmailNormalized(User.normalizeEmail(user.getEmail()));
+	}
+}
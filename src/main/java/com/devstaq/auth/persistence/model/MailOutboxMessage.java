@@ -0,0 +1,97 @@
+package com.devstaq.auth.persistence.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * The MailOutboxMessage Entity. An email written to the outbox by the {@link com.devstaq.auth.mail.MailService} in the transaction of the change
+ * that caused it, and sent by the {@link com.devstaq.auth.mail.MailOutboxDispatcher}. The body is rendered when the message is queued.
+ */
+@Data
+@Entity
+@Table(name = "mail_outbox", indexes = {@Index(name = "idx_mail_outbox_status_next_attempt", columnList = "status, nextAttemptAt"),
+		@Index(name = "idx_mail_outbox_claim_token", columnList = "claimToken")})
+public class MailOutboxMessage {
+
+	/**
+	 * The delivery status of a message.
+	 */
+	public enum Status {
+		/** Waiting to be sent, or to be retried. */
+		PENDING,
+		/** Sent. */
+		SENT,
+		/** Given up on after the maximum number of attempts, or because it could not be built. */
+		DEAD
+	}
+
+	/** The id. */
+	@Id
+	@GeneratedValue(strategy = GenerationType.AUTO)
+	private Long id;
+
+	/** The recipient address. */
+	@Column(nullable = false)
+	private String recipient;
+
+	/** The subject. */
+	@Column(nullable = false)
+	private String subject;
+
+	/** The HTML body. Cleared once the message is sent, as it usually contains a token. */
+	@Lob
+	private String body;
+
+	/** The delivery status. */
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 10)
+	private Status status = Status.PENDING;
+
+	/** The number of failed and successful send attempts. */
+	private int attempts;
+
+	/** The earliest time of the next attempt. While a dispatcher holds the message, the time its claim runs out. */
+	@Column(nullable = false)
+	private Instant nextAttemptAt;
+
+	/** The token of the dispatcher run holding the message, if any. */
+	@Column(length = 36)
+	private String claimToken;
+
+	/** The error of the latest failed attempt. */
+	@Column(length = 1000)
+	private String lastError;
+
+	/** The time the message was queued. */
+	@Column(nullable = false)
+	private Instant createdDate;
+
+	/** The time the message was sent. */
+	private Instant sentDate;
+
+	/**
+	 * Instantiates a new mail outbox message.
+	 */
+	public MailOutboxMessage() {
+		super();
+	}
+
+	/**
+	 * Instantiates a new mail outbox message, due immediately.
+	 *
+	 * @param recipient the recipient address
+	 * @param subject the subject
+	 * @param body the HTML body
+	 * @param createdDate the time the message is queued
+	 */
+	public MailOutboxMessage(final String recipient, final String subject, final String body, final Instant createdDate) {
+		super();
+		this.recipient = recipient;
+		this.subject = subject;
+		this.body = body;
+		this.createdDate = createdDate;
+		this.nextAttemptAt = createdDate;
+	}
+}
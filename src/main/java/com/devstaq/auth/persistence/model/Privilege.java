@@ -2,7 +2,10 @@ package com.devstaq.auth.persistence.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Collection;
 
@@ -11,6 +14,8 @@ import java.util.Collection;
  */
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PRIVILEGE)
 public class Privilege {
 
 	/** The id. */
@@ -26,6 +31,7 @@ public class Privilege {
 
 	/** The roles which have this privilege. */
 	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
 	@ManyToMany(mappedBy = "privileges")
 	private Collection<Role> roles;
 
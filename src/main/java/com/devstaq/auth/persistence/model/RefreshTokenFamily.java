@@ -0,0 +1,67 @@
+package com.devstaq.auth.persistence.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * The RefreshTokenFamily Entity. One row is written per stateless login and holds the hash of the only refresh token of that login which may still
+ * be used. Every refresh replaces the hash, so a refresh token that is presented a second time no longer matches and the whole family is revoked.
+ */
+@Data
+@Entity
+@Table(name = "refresh_token_family", indexes = @Index(name = "idx_refresh_token_family_user_id", columnList = "userId"))
+public class RefreshTokenFamily {
+
+	/** The family id, which is the first part of every refresh token of the family. */
+	@Id
+	@Column(length = 36)
+	private String id;
+
+	/** The id of the user the family was issued to. */
+	@Column(nullable = false)
+	private Long userId;
+
+	/** The hex encoded SHA-256 hash of the current refresh token secret. */
+	@Column(length = 64, nullable = false)
+	private String tokenHash;
+
+	/** The hash of the refresh token secret replaced by the latest rotation. */
+	@Column(length = 64)
+	private String previousTokenHash;
+
+	/** The time of the latest rotation. */
+	private Instant rotatedDate;
+
+	/** The time of the login that started the family. */
+	private Instant createdDate;
+
+	/** The time after which the family can no longer be refreshed. */
+	private Instant expiryDate;
+
+	/**
+	 * Instantiates a new refresh token family.
+	 */
+	public RefreshTokenFamily() {
+		super();
+	}
+
+	/**
+	 * Instantiates a new refresh token family.
+	 *
+	 * @param id the family id
+	 * @param userId the id of the user
+	 * @param tokenHash the hash of the first refresh token secret
+	 * @param createdDate the time of the login
+	 * @param expiryDate the time after which the family can no longer be refreshed
+	 */
+	public RefreshTokenFamily(final String id, final Long userId, final String tokenHash, final Instant createdDate, final Instant expiryDate) {
+		super();
+		this.id = id;
+		this.userId = userId;
+		this.tokenHash = tokenHash;
+		this.createdDate = createdDate;
+		this.expiryDate = expiryDate;
+	}
+}
@@ -2,7 +2,11 @@ package com.devstaq.auth.persistence.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -12,6 +16,8 @@ import java.util.Set;
  */
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.ROLE)
 public class Role {
 	/** The id. */
 	@Id
@@ -21,10 +27,16 @@ public class Role {
 
 	/** The users. */
 	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
 	@ManyToMany(mappedBy = "roles", cascade = {CascadeType.PERSIST, CascadeType.MERGE})
 	private Set<User> users = new HashSet<>();
 
-	/** The privileges. */
+	/**
+	 * The privileges. Cached in the second-level cache, and loaded in batches on a cache miss so the privileges of all roles of a user are fetched
+	 * with one query.
+	 */
+	@BatchSize(size = 32)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.ROLE_PRIVILEGES)
 	@ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.EAGER)
 	@JoinTable(name = "roles_privileges", joinColumns = @JoinColumn(name = "role_id", referencedColumnName = "id"),
 			inverseJoinColumns = @JoinColumn(name = "privilege_id", referencedColumnName = "id"))
@@ -2,12 +2,15 @@ package com.devstaq.auth.persistence.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * The User Entity. Part of the basic User ->> Role ->> Privilege structure. This is the primary user data object. You can add to this, or add
@@ -15,10 +18,16 @@ import java.util.List;
  */
 @Data
 @Entity
-@EntityListeners(AuditingEntityListener.class)
-@Table(name = "user_account")
+@EntityListeners({AuditingEntityListener.class, EmailNormalizationListener.class})
+@Table(name = "user_account", indexes = {@Index(name = "idx_user_account_registration_date", columnList = "registrationDate, id"),
+		@Index(name = "idx_user_account_last_activity_date", columnList = "lastActivityDate, id"),
+		@Index(name = "idx_user_account_first_name", columnList = "firstName"), @Index(name = "idx_user_account_last_name", columnList = "lastName")})
+@NamedEntityGraph(name = User.SUMMARY_GRAPH)
 public class User {
 
+	/** Entity graph loading only the user's own columns. Used as a fetch graph, the roles are left unloaded. */
+	public static final String SUMMARY_GRAPH = "User.summary";
+
 	/**
 	 * Enum representing the available login providers.
 	 */
@@ -46,7 +55,17 @@ public class User {
 		/**
 		 * Login using Keycloak as the authentication provider.
 		 */
-		KEYCLOAK
+		KEYCLOAK,
+
+		/**
+		 * Login using GitHub as the authentication provider.
+		 */
+		GITHUB,
+
+		/**
+		 * Login using any other OpenID Connect provider.
+		 */
+		OIDC
 	}
 
 	/** The id. */
@@ -61,13 +80,21 @@ public class User {
 	/** The last name. */
 	private String lastName;
 
-	/** The email. */
+	/** The email, as entered by the user. */
 	@Column(unique = true, nullable = false)
 	private String email;
 
+	/** The trimmed, lower-cased email. All email lookups use this column. */
+	@Column(name = "email_normalized", unique = true)
+	private String emailNormalized;
+
 	@Enumerated(EnumType.STRING)
 	private Provider provider = Provider.LOCAL;
 
+	/** The id of the OAuth2 or OIDC client registration the user signed up with. Tells apart registrations sharing the OIDC provider. */
+	@Column(length = 100)
+	private String providerRegistrationId;
+
 	/** The password. */
 	@Column(length = 60)
 	private String password;
@@ -75,6 +102,11 @@ public class User {
 	/** The enabled. */
 	private boolean enabled;
 
+	/** The token version. Moves forward whenever the enabled flag changes, and is covered by the fingerprint of signed verification tokens. */
+	@ColumnDefault("0")
+	@Column(nullable = false)
+	private long tokenVersion;
+
 	/** The registration date. */
 	@CreatedDate
 	@Temporal(TemporalType.TIMESTAMP)
@@ -93,10 +125,16 @@ public class User {
 	@Temporal(TemporalType.TIMESTAMP)
 	private Date lockedDate;
 
+	/** The hash of the profile attributes last received from the OAuth2 or OIDC provider. Compared on every login to skip unchanged updates. */
+	@Column(length = 64)
+	private String providerAttributesHash;
+
 	/** The roles. */
+	@ToString.Exclude
 	@ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.EAGER)
 	@JoinTable(name = "users_roles", joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"),
-			inverseJoinColumns = @JoinColumn(name = "role_id", referencedColumnName = "id"))
+			inverseJoinColumns = @JoinColumn(name = "role_id", referencedColumnName = "id"),
+			indexes = @Index(name = "idx_users_roles_role_user", columnList = "role_id, user_id"))
 	private List<Role> roles;
 
 	/**
@@ -107,6 +145,39 @@ public class User {
 		this.enabled = false;
 	}
 
+	/**
+	 * Sets the email and its normalized form.
+	 *
+	 * @param email the email
+	 */
+	public void setEmail(final String email) {
+		this.email = email;
+		this.emailNormalized = normalizeEmail(email);
+	}
+
+	/**
+	 * Sets the enabled flag. Every change moves the token version forward, so signed verification tokens issued before the change stop
+	 * validating, even once the flag is changed back.
+	 *
+	 * @param enabled the enabled flag
+	 */
+	public void setEnabled(final boolean enabled) {
+		if (this.enabled != enabled) {
+			this.enabled = enabled;
+			this.tokenVersion++;
+		}
+	}
+
+	/**
+	 * Normalizes an email for lookups by trimming it and converting it to lower case.
+	 *
+	 * @param email the email
+	 * @return the normalized email, or null if the email is null
+	 */
+	public static String normalizeEmail(final String email) {
+		return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+	}
+
 	/**
 	 * Sets the last activity date.
 	 */
@@ -0,0 +1,61 @@
+package com.devstaq.auth.persistence.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * The UserSession Entity. One row is written per HTTP session by the {@link com.devstaq.auth.security.JdbcSessionRegistry}, so that every node of a
+ * cluster sees the sessions of every user.
+ */
+@Data
+@Entity
+@Table(name = "user_session", indexes = {@Index(name = "idx_user_session_principal_key", columnList = "principalKey"),
+		@Index(name = "idx_user_session_username", columnList = "username"),
+		@Index(name = "idx_user_session_last_request", columnList = "lastRequest")})
+public class UserSession {
+
+	/** The HTTP session id. */
+	@Id
+	@Column(length = 100)
+	private String sessionId;
+
+	/** The key the session is registered under, the user id for users of this library. */
+	@Column(nullable = false)
+	private String principalKey;
+
+	/** The username of the principal. */
+	@Column(nullable = false)
+	private String username;
+
+	/** The time of the latest request, written in batches. */
+	@Column(nullable = false)
+	private Instant lastRequest;
+
+	/** Whether the session has been expired, for example by the concurrent session limit. */
+	private boolean expired;
+
+	/**
+	 * Instantiates a new user session.
+	 */
+	public UserSession() {
+		super();
+	}
+
+	/**
+	 * Instantiates a new user session.
+	 *
+	 * @param sessionId the HTTP session id
+	 * @param principalKey the key the session is registered under
+	 * @param username the username of the principal
+	 * @param lastRequest the time of the login
+	 */
+	public UserSession(final String sessionId, final String principalKey, final String username, final Instant lastRequest) {
+		super();
+		this.sessionId = sessionId;
+		this.principalKey = principalKey;
+		this.username = username;
+		this.lastRequest = lastRequest;
+	}
+}
@@ -3,8 +3,8 @@ package com.devstaq.auth.persistence.model;
 import jakarta.persistence.*;
 import lombok.Data;
 
-import java.util.Calendar;
-import java.util.Date;
+import java.time.Duration;
+import java.time.Instant;
 
 /**
  * The VerificationToken Entity. Stores Registration Verification Token data.
@@ -14,7 +14,7 @@ import java.util.Date;
 public class VerificationToken {
 
 	/** The Constant EXPIRATION. */
-	private static final int EXPIRATION = 60 * 24;
+	public static final Duration EXPIRATION = Duration.ofMinutes(60 * 24);
 
 	/** The id. */
 	@Id
@@ -24,13 +24,13 @@ public class VerificationToken {
 	/** The token. */
 	private String token;
 
-	/** The user. */
-	@OneToOne(targetEntity = User.class, fetch = FetchType.EAGER)
+	/** The user. A user can have several outstanding tokens, up to user.token.maxOutstandingPerUser. */
+	@ManyToOne(targetEntity = User.class, fetch = FetchType.EAGER)
 	@JoinColumn(nullable = false, name = "user_id", foreignKey = @ForeignKey(name = "FK_VERIFY_USER"))
 	private User user;
 
 	/** The expiry date. */
-	private Date expiryDate;
+	private Instant expiryDate;
 
 	/**
 	 * Instantiates a new verification token.
@@ -39,51 +39,39 @@ public class VerificationToken {
 		super();
 	}
 
-	/**
-	 * Instantiates a new verification token.
-	 *
-	 * @param token the token
-	 */
-	public VerificationToken(final String token) {
-		super();
-		this.token = token;
-		this.expiryDate = calculateExpiryDate(EXPIRATION);
-	}
-
 	/**
 	 * Instantiates a new verification token.
 	 *
 	 * @param token the token
 	 * @param user the user
+	 * @param expiryDate the expiry date, usually the current instant of the injected clock plus {@link #EXPIRATION}
 	 */
-	public VerificationToken(final String token, final User user) {
+	public VerificationToken(final String token, final User user, final Instant expiryDate) {
 		super();
 		this.token = token;
 		this.user = user;
-		this.expiryDate = calculateExpiryDate(EXPIRATION);
+		this.expiryDate = expiryDate;
 	}
 
 	/**
-	 * Calculate expiry date.
+	 * Checks whether the token has expired.
 	 *
-	 * @param expiryTimeInMinutes the expiry time in minutes
-	 * @return the date
+	 * @param nowEpochMilli the current time in epoch milliseconds, typically {@code clock.millis()}
+	 * @return true, if the expiry date is before the given time
 	 */
-	private Date calculateExpiryDate(final int expiryTimeInMinutes) {
-		final Calendar cal = Calendar.getInstance();
-		cal.setTimeInMillis(new Date().getTime());
-		cal.add(Calendar.MINUTE, expiryTimeInMinutes);
-		return new Date(cal.getTime().getTime());
+	public boolean isExpired(final long nowEpochMilli) {
+		return expiryDate.toEpochMilli() < nowEpochMilli;
 	}
 
 	/**
 	 * Update token.
 	 *
 	 * @param token the token
+	 * @param expiryDate the new expiry date
 	 */
-	public void updateToken(final String token) {
+	public void updateToken(final String token, final Instant expiryDate) {
 		this.token = token;
-		this.expiryDate = calculateExpiryDate(EXPIRATION);
+		this.expiryDate = expiryDate;
 	}
 
 }
@@ -0,0 +1,10 @@
+package com.devstaq.auth.persistence.repository;
+
+import com.devstaq.auth.persistence.model.ConfigurationState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * The Interface ConfigurationStateRepository.
+ */
+public interface ConfigurationStateRepository extends JpaRepository<ConfigurationState, String> {
+}
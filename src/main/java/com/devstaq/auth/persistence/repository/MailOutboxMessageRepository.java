@@ -0,0 +1,89 @@
+package com.devstaq.auth.persistence.repository;
+
+import com.devstaq.auth.persistence.model.MailOutboxMessage;
+import com.devstaq.auth.persistence.model.MailOutboxMessage.Status;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The Interface MailOutboxMessageRepository.
+ */
+public interface MailOutboxMessageRepository extends JpaRepository<MailOutboxMessage, Long> {
+
+	/**
+	 * Find the ids of the pending messages due at the given time, oldest first.
+	 *
+	 * @param now the time
+	 * @param limit the maximum number of ids to return
+	 * @return the message ids
+	 */
+	@Query("select m.id from MailOutboxMessage m where m.status = com.devstaq.auth.persistence.model.MailOutboxMessage.Status.PENDING "
+			+ "and m.nextAttemptAt <= :now order by m.nextAttemptAt, m.id")
+	List<Long> findDueIds(@Param("now") Instant now, Limit limit);
+
+	/**
+	 * Claims the messages that are still pending and due. A message claimed by another dispatcher in the meantime has been moved past {@code now}
+	 * and is skipped, so each message is held by one dispatcher at a time.
+	 *
+	 * @param ids the message ids
+	 * @param claimToken the token of the dispatcher run
+	 * @param now the time
+	 * @param claimedUntil the time the claim runs out, after which the message is due again
+	 * @return the number of claimed messages
+	 */
+	@Transactional
+	@Modifying
+	@Query("update MailOutboxMessage m set m.claimToken = :claimToken, m.nextAttemptAt = :claimedUntil where m.id in :ids "
+			+ "and m.status = com.devstaq.auth.persistence.model.MailOutboxMessage.Status.PENDING and m.nextAttemptAt <= :now")
+	int claim(@Param("ids") Collection<Long> ids, @Param("claimToken") String claimToken, @Param("now") Instant now,
+			@Param("claimedUntil") Instant claimedUntil);
+
+	/**
+	 * Find the messages held by a dispatcher run, in the order they were queued.
+	 *
+	 * @param claimToken the token of the dispatcher run
+	 * @return the messages
+	 */
+	List<MailOutboxMessage> findByClaimTokenOrderById(String claimToken);
+
+	/**
+	 * Marks several messages as sent in one statement, and clears their bodies.
+	 *
+	 * @param ids the message ids
+	 * @param sentDate the time the messages were sent
+	 * @return the number of updated rows
+	 */
+	@Transactional
+	@Modifying
+	@Query("update MailOutboxMessage m set m.status = com.devstaq.auth.persistence.model.MailOutboxMessage.Status.SENT, m.sentDate = :sentDate, "
+			+ "m.attempts = m.attempts + 1, m.claimToken = null, m.body = null where m.id in :ids")
+	int markSent(@Param("ids") Collection<Long> ids, @Param("sentDate") Instant sentDate);
+
+	/**
+	 * Count the messages with a status.
+	 *
+	 * @param status the status
+	 * @return the number of messages
+	 */
+	long countByStatus(Status status);
+
+	/**
+	 * Deletes the messages sent before the given time.
+	 *
+	 * @param before the time
+	 * @return the number of deleted rows
+	 */
+	@Transactional
+	@Modifying
+	@Query("delete from MailOutboxMessage m where m.status = com.devstaq.auth.persistence.model.MailOutboxMessage.Status.SENT "
+			+ "and m.sentDate < :before")
+	int deleteAllSentBefore(@Param("before") Instant before);
+}
@@ -5,8 +5,11 @@ import com.devstaq.auth.persistence.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Date;
+import java.time.Instant;
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -23,7 +26,7 @@ public interface PasswordResetTokenRepository extends JpaRepository<PasswordRese
 	PasswordResetToken findByToken(String token);
 
 	/**
-	 * Find by user.
+	 * Find by user. Fails if the user has more than one outstanding token, see {@link #findIdsByUserNewestFirst(User)}.
 	 *
 	 * @param user the user
 	 * @return the password reset token
@@ -36,14 +39,14 @@ public interface PasswordResetTokenRepository extends JpaRepository<PasswordRese
 	 * @param now the now
 	 * @return the stream
 	 */
-	Stream<PasswordResetToken> findAllByExpiryDateLessThan(Date now);
+	Stream<PasswordResetToken> findAllByExpiryDateLessThan(Instant now);
 
 	/**
 	 * Delete by expiry date less than.
 	 *
 	 * @param now the now
 	 */
-	void deleteByExpiryDateLessThan(Date now);
+	void deleteByExpiryDateLessThan(Instant now);
 
 	/**
 	 * Delete all expired since.
@@ -52,5 +55,25 @@ public interface PasswordResetTokenRepository extends JpaRepository<PasswordRese
 	 */
 	@Modifying
 	@Query("delete from PasswordResetToken t where t.expiryDate <= ?1")
-	void deleteAllExpiredSince(Date now);
+	void deleteAllExpiredSince(Instant now);
+
+	/**
+	 * Find the ids of the tokens of a user, the token expiring last first.
+	 *
+	 * @param user the user
+	 * @return the token ids
+	 */
+	@Query("select t.id from PasswordResetToken t where t.user = :user order by t.expiryDate desc, t.id desc")
+	List<Long> findIdsByUserNewestFirst(@Param("user") User user);
+
+	/**
+	 * Delete all tokens of a user.
+	 *
+	 * @param user the user
+	 * @return the number of deleted rows
+	 */
+	@Transactional
+	@Modifying
+	@Query("delete from PasswordResetToken t where t.user = :user")
+	int deleteAllByUser(@Param("user") User user);
 }
@@ -1,7 +1,11 @@
 package com.devstaq.auth.persistence.repository;
 
+import com.devstaq.auth.persistence.model.CacheRegions;
 import com.devstaq.auth.persistence.model.Privilege;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 /**
  * The Interface PrivilegeRepository.
@@ -9,11 +13,13 @@ import org.springframework.data.jpa.repository.JpaRepository;
 public interface PrivilegeRepository extends JpaRepository<Privilege, Long> {
 
 	/**
-	 * Find by name.
+	 * Find by name. The result is kept in the second-level query cache, and invalidated whenever the privilege table changes.
 	 *
 	 * @param name the name
 	 * @return the privilege
 	 */
+	@QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_DATA_QUERIES)})
 	Privilege findByName(String name);
 
 	/**
@@ -0,0 +1,60 @@
+package com.devstaq.auth.persistence.repository;
+
+import com.devstaq.auth.persistence.model.RefreshTokenFamily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * The Interface RefreshTokenFamilyRepository.
+ */
+public interface RefreshTokenFamilyRepository extends JpaRepository<RefreshTokenFamily, String> {
+
+	/**
+	 * Replaces the current refresh token hash of a family in a single conditional update and remembers the replaced hash. The update only matches
+	 * while the presented token is still the current one, so two concurrent refreshes with the same token can never both succeed.
+	 *
+	 * @param id the family id
+	 * @param currentHash the hash of the presented refresh token secret
+	 * @param newHash the hash of the new refresh token secret
+	 * @param now the current time
+	 * @return 1 if the token was rotated, 0 if the family does not exist, has expired or the presented token is not the current one
+	 */
+	@Modifying
+	@Query("update RefreshTokenFamily f set f.previousTokenHash = f.tokenHash, f.tokenHash = :newHash, f.rotatedDate = :now "
+			+ "where f.id = :id and f.tokenHash = :currentHash and f.expiryDate > :now")
+	int rotate(@Param("id") String id, @Param("currentHash") String currentHash, @Param("newHash") String newHash, @Param("now") Instant now);
+
+	/**
+	 * Deletes all refresh token families of a user.
+	 *
+	 * @param userId the user id
+	 * @return the number of deleted families
+	 */
+	@Modifying
+	@Query("delete from RefreshTokenFamily f where f.userId = :userId")
+	int deleteAllByUserId(@Param("userId") Long userId);
+
+	/**
+	 * Deletes all refresh token families of several users.
+	 *
+	 * @param userIds the user ids
+	 * @return the number of deleted families
+	 */
+	@Modifying
+	@Query("delete from RefreshTokenFamily f where f.userId in :userIds")
+	int deleteAllByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+	/**
+	 * Delete all expired since.
+	 *
+	 * @param now the now
+	 */
+	@Modifying
+	@Query("delete from RefreshTokenFamily f where f.expiryDate <= ?1")
+	void deleteAllExpiredSince(Instant now);
+}
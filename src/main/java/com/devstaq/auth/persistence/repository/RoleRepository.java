@@ -1,7 +1,14 @@
 package com.devstaq.auth.persistence.repository;
 
+import com.devstaq.auth.persistence.model.CacheRegions;
 import com.devstaq.auth.persistence.model.Role;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.List;
 
 /**
  * The Interface RoleRepository.
@@ -9,13 +16,23 @@ import org.springframework.data.jpa.repository.JpaRepository;
 public interface RoleRepository extends JpaRepository<Role, Long> {
 
 	/**
-	 * Find by name.
+	 * Find by name. The result is kept in the second-level query cache, and invalidated whenever the role table changes.
 	 *
 	 * @param name the name
 	 * @return the role
 	 */
+	@QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_DATA_QUERIES)})
 	Role findByName(String name);
 
+	/**
+	 * Find all roles together with their privileges in a single query.
+	 *
+	 * @return the roles
+	 */
+	@Query("select distinct r from Role r left join fetch r.privileges")
+	List<Role> findAllWithPrivileges();
+
 	/**
 	 * Delete.
 	 *
@@ -0,0 +1,118 @@
+package com.devstaq.auth.persistence.repository;
+
+import com.devstaq.auth.persistence.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Shared implementation of the atomic token consume operation used by the token repository fragments. A token is removed and returned in a single
+ * step so it can never be consumed twice:
+ * <ul>
+ * <li>On PostgreSQL a single {@code DELETE ... RETURNING} statement removes the row and returns the owning user id and expiry date.</li>
+ * <li>On other databases, including MariaDB, the row is read with a pessimistic write lock ({@code SELECT ... FOR UPDATE}) and deleted in the same
+ * transaction, so a concurrent consumer blocks on the lock and then finds nothing.</li>
+ * </ul>
+ *
+ * @param <T> the token entity type
+ */
+@RequiredArgsConstructor
+class TokenConsumptionSupport<T> {
+
+	/** The token entity class. */
+	private final Class<T> entityClass;
+
+	/** Creates a detached token from the values returned by the delete statement. */
+	private final TokenFactory<T> tokenFactory;
+
+	/** The DELETE ... RETURNING statement, or null if the database does not support it. Resolved on first use. */
+	private volatile Optional<String> returningDelete;
+
+	/**
+	 * Removes the token with the given value and returns it. Must be called within a transaction.
+	 *
+	 * @param entityManager the entity manager
+	 * @param token the token value
+	 * @return the removed token, or empty if no such token exists
+	 */
+	Optional<T> consume(final EntityManager entityManager, final String token) {
+		Optional<String> sql = returningDelete;
+		if (sql == null) {
+			sql = resolveReturningDelete(entityManager);
+			returningDelete = sql;
+		}
+		return sql.isPresent() ? consumeReturning(entityManager, sql.get(), token) : consumeLocked(entityManager, token);
+	}
+
+	private Optional<T> consumeReturning(final EntityManager entityManager, final String sql, final String token) {
+		Object[] row = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(sql)) {
+				statement.setString(1, token);
+				try (ResultSet resultSet = statement.executeQuery()) {
+					if (!resultSet.next()) {
+						return null;
+					}
+					return new Object[] {resultSet.getLong(1), resultSet.getTimestamp(2)};
+				}
+			}
+		});
+		if (row == null) {
+			return Optional.empty();
+		}
+		User user = entityManager.find(User.class, row[0]);
+		Instant expiryDate = row[1] != null ? ((Timestamp) row[1]).toInstant() : null;
+		return Optional.of(tokenFactory.create(token, user, expiryDate));
+	}
+
+	private Optional<T> consumeLocked(final EntityManager entityManager, final String token) {
+		List<T> found = entityManager.createQuery("select t from " + entityClass.getSimpleName() + " t where t.token = :token", entityClass)
+				.setParameter("token", token).setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+		if (found.isEmpty()) {
+			return Optional.empty();
+		}
+		T consumed = found.get(0);
+		entityManager.remove(consumed);
+		entityManager.flush();
+		return Optional.of(consumed);
+	}
+
+	private Optional<String> resolveReturningDelete(final EntityManager entityManager) {
+		SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+		if (!(sessionFactory.getJdbcServices().getDialect() instanceof PostgreSQLDialect)) {
+			return Optional.empty();
+		}
+		AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory.getMappingMetamodel().getEntityDescriptor(entityClass);
+		return Optional.of("delete from " + persister.getTableName() + " where " + persister.getPropertyColumnNames("token")[0] + " = ? returning "
+				+ persister.getPropertyColumnNames("user")[0] + ", " + persister.getPropertyColumnNames("expiryDate")[0]);
+	}
+
+	/**
+	 * Creates a token entity from its value, owning user and expiry date.
+	 *
+	 * @param <T> the token entity type
+	 */
+	@FunctionalInterface
+	interface TokenFactory<T> {
+
+		/**
+		 * Creates the token.
+		 *
+		 * @param token the token value
+		 * @param user the user
+		 * @param expiryDate the expiry date
+		 * @return the token
+		 */
+		T create(String token, User user, Instant expiryDate);
+	}
+}
@@ -0,0 +1,21 @@
+package com.devstaq.auth.persistence.repository;
+
+/**
+ * Closed projection of the id and email of a {@link com.devstaq.auth.persistence.model.User}. Used when backfilling the normalized email column.
+ */
+public interface UserEmail {
+
+	/**
+	 * Gets the user id.
+	 *
+	 * @return the id
+	 */
+	Long getId();
+
+	/**
+	 * Gets the email.
+	 *
+	 * @return the email
+	 */
+	String getEmail();
+}
@@ -0,0 +1,38 @@
+package com.devstaq.auth.persistence.repository;
+
+import java.util.Date;
+
+/**
+ * Closed projection of the account lockout columns of a {@link com.devstaq.auth.persistence.model.User}. Loading it selects only these columns,
+ * without the user's roles and privileges.
+ */
+public interface UserLockStatus {
+
+	/**
+	 * Gets the user id.
+	 *
+	 * @return the id
+	 */
+	Long getId();
+
+	/**
+	 * Checks if the account is locked.
+	 *
+	 * @return true, if locked
+	 */
+	boolean isLocked();
+
+	/**
+	 * Gets the date the account was locked.
+	 *
+	 * @return the locked date, or null if the account is not locked
+	 */
+	Date getLockedDate();
+
+	/**
+	 * Gets the number of consecutive failed login attempts.
+	 *
+	 * @return the failed login attempts
+	 */
+	int getFailedLoginAttempts();
+}
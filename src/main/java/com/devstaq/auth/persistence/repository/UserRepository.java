@@ -1,20 +1,184 @@
 package com.devstaq.auth.persistence.repository;
 
 import com.devstaq.auth.persistence.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
 
 /**
  * The Interface UserRepository.
  */
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+
+	/**
+	 * Matches a user by its normalized email, or by its email as entered if the normalized email has not been backfilled yet. The second branch only
+	 * matches rows the {@link com.devstaq.auth.jobs.EmailNormalizationBackfillJob} has not reached, or had to skip because of a collision, so
+	 * existing users can log in while the backfill runs.
+	 */
+	String EMAIL_MATCH = "(u.emailNormalized = :emailNormalized or (u.emailNormalized is null and u.email = :email))";
 
 	/**
-	 * Find by email.
+	 * Find by email. The email is normalized and matched against the normalized email column, so the lookup is case-insensitive and uses its
+	 * unique index. Users whose normalized email is not set yet are matched by the email as entered.
 	 *
 	 * @param email the email
 	 * @return the user
 	 */
-	User findByEmail(String email);
+	default User findByEmail(String email) {
+		return findByEmailNormalized(User.normalizeEmail(email), email);
+	}
+
+	/**
+	 * Find by normalized email, falling back to the email as entered for users whose normalized email is not set yet.
+	 *
+	 * @param emailNormalized the normalized email
+	 * @param email the email as entered
+	 * @return the user
+	 */
+	@Query("select u from User u where " + EMAIL_MATCH)
+	User findByEmailNormalized(@Param("emailNormalized") String emailNormalized, @Param("email") String email);
+
+	/**
+	 * Checks whether a user with the given email exists, without loading the user.
+	 *
+	 * @param email the email
+	 * @return true, if a user with the email exists
+	 */
+	default boolean existsByEmail(String email) {
+		return existsByEmailNormalized(User.normalizeEmail(email), email);
+	}
+
+	/**
+	 * Checks whether a user with the given normalized email exists, without loading the user.
+	 *
+	 * @param emailNormalized the normalized email
+	 * @param email the email as entered
+	 * @return true, if a user with the email exists
+	 */
+	@Query("select count(u) > 0 from User u where " + EMAIL_MATCH)
+	boolean existsByEmailNormalized(@Param("emailNormalized") String emailNormalized, @Param("email") String email);
+
+	/**
+	 * Find the lockout status of the user with the given email. Only the lockout columns are selected.
+	 *
+	 * @param email the email
+	 * @return the lock status, or empty if no user has the email
+	 */
+	default Optional<UserLockStatus> findLockStatusByEmail(String email) {
+		return findLockStatusByEmailNormalized(User.normalizeEmail(email), email);
+	}
+
+	/**
+	 * Find the lockout status of the user with the given normalized email.
+	 *
+	 * @param emailNormalized the normalized email
+	 * @param email the email as entered
+	 * @return the lock status, or empty if no user has the email
+	 */
+	@Query("select u.id as id, u.locked as locked, u.lockedDate as lockedDate, u.failedLoginAttempts as failedLoginAttempts from User u where "
+			+ EMAIL_MATCH)
+	Optional<UserLockStatus> findLockStatusByEmailNormalized(@Param("emailNormalized") String emailNormalized, @Param("email") String email);
+
+	/**
+	 * Find the user with the given email for authentication. The user and its roles are loaded with a single join-fetch query, and the privileges
+	 * of all roles with one batched query. Privileges are not join-fetched here because fetching through the roles bag would duplicate its
+	 * elements.
+	 *
+	 * @param email the email
+	 * @return the user, or null if no user has the email
+	 */
+	default User findWithAuthoritiesByEmail(String email) {
+		return findWithAuthoritiesByEmailNormalized(User.normalizeEmail(email), email);
+	}
+
+	/**
+	 * Find the user with the given normalized email together with its roles.
+	 *
+	 * @param emailNormalized the normalized email
+	 * @param email the email as entered
+	 * @return the user, or null if no user has the email
+	 * @see #findWithAuthoritiesByEmail(String)
+	 */
+	@Query("select u from User u left join fetch u.roles where " + EMAIL_MATCH)
+	User findWithAuthoritiesByEmailNormalized(@Param("emailNormalized") String emailNormalized, @Param("email") String email);
+
+	/**
+	 * Find the user with the given email without loading its roles, using the {@link User#SUMMARY_GRAPH} fetch graph. Suitable for flows that only
+	 * need the user's own columns, such as sending an email.
+	 *
+	 * @param email the email
+	 * @return the user, or null if no user has the email
+	 */
+	default User findSummaryByEmail(String email) {
+		return findSummaryByEmailNormalized(User.normalizeEmail(email), email);
+	}
+
+	/**
+	 * Find the user with the given normalized email without loading its roles.
+	 *
+	 * @param emailNormalized the normalized email
+	 * @param email the email as entered
+	 * @return the user, or null if no user has the email
+	 * @see #findSummaryByEmail(String)
+	 */
+	@EntityGraph(value = User.SUMMARY_GRAPH, type = EntityGraph.EntityGraphType.FETCH)
+	@Query("select u from User u where " + EMAIL_MATCH)
+	User findSummaryByEmailNormalized(@Param("emailNormalized") String emailNormalized, @Param("email") String email);
+
+	/**
+	 * Find the user with the given normalized email with a shared lock, which reads the latest committed row even under repeatable read isolation.
+	 * Used after {@link #insertIfAbsent(User, String)} to load the user another transaction may just have inserted, or that already existed with a
+	 * normalized email that is not set yet.
+	 *
+	 * @param emailNormalized the normalized email
+	 * @param email the email as entered
+	 * @return the user, or null if no user has the email
+	 */
+	@Lock(LockModeType.PESSIMISTIC_READ)
+	@Query("select u from User u where " + EMAIL_MATCH)
+	User findForShareByEmailNormalized(@Param("emailNormalized") String emailNormalized, @Param("email") String email);
+
+	/**
+	 * Find the next chunk of users whose normalized email has not been set yet, ordered by id.
+	 *
+	 * @param afterId only users with a greater id are returned
+	 * @param limit the maximum number of users to return
+	 * @return the ids and emails of the users
+	 */
+	@Query("select u.id as id, u.email as email from User u where u.emailNormalized is null and u.id > :afterId order by u.id")
+	List<UserEmail> findWithoutNormalizedEmail(@Param("afterId") Long afterId, Limit limit);
+
+	/**
+	 * Sets the normalized email of the user with the given id. Bypasses the entity lifecycle, so the last activity date is left unchanged.
+	 *
+	 * @param id the user id
+	 * @param emailNormalized the normalized email
+	 * @return the number of updated rows
+	 */
+	@Transactional
+	@Modifying
+	@Query("update User u set u.emailNormalized = :emailNormalized where u.id = :id")
+	int updateEmailNormalized(@Param("id") Long id, @Param("emailNormalized") String emailNormalized);
+
+	/**
+	 * Unlocks the account with the given id and resets its failed login attempts.
+	 *
+	 * @param id the user id
+	 * @return the number of updated rows
+	 */
+	@Transactional
+	@Modifying
+	@Query("update User u set u.locked = false, u.lockedDate = null, u.failedLoginAttempts = 0 where u.id = :id")
+	int unlockUser(@Param("id") Long id);
 
 	/**
 	 * Delete.
@@ -0,0 +1,19 @@
+package com.devstaq.auth.persistence.repository;
+
+import com.devstaq.auth.persistence.model.User;
+
+/**
+ * Custom repository fragment for creating users on their first OAuth2 or OIDC login.
+ */
+public interface UserRepositoryCustom {
+
+	/**
+	 * Inserts a user with one role unless a user with the same email exists, without failing if another transaction inserts the same email
+	 * concurrently. The user is not attached to the persistence context; load it by email afterwards. Must be called within a transaction.
+	 *
+	 * @param user the user, without id
+	 * @param roleName the name of the role to give the user
+	 * @return true if the user was inserted, false if a user with the email exists
+	 */
+	boolean insertIfAbsent(User user, String roleName);
+}
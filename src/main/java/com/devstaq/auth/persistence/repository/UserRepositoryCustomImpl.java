@@ -0,0 +1,114 @@
+package com.devstaq.auth.persistence.repository;
+
+import com.devstaq.auth.persistence.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.generator.Generator;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Implementation of {@link UserRepositoryCustom}. The user is inserted with a single statement that does nothing when the email exists: {@code ON
+ * CONFLICT DO NOTHING} on PostgreSQL and {@code ON DUPLICATE KEY UPDATE} on MariaDB and MySQL. A concurrent insert of the same email makes the
+ * statement wait for the other transaction and then do nothing, instead of failing with a unique constraint violation. Other databases use an
+ * {@code INSERT ... SELECT ... WHERE NOT EXISTS}, which can still fail with a unique constraint violation when two first logins of the same user
+ * overlap.
+ * <p>
+ * The id comes from the identifier generator of the entity, so it never collides with ids Hibernate allocates. Whether the row was inserted is
+ * checked by looking for that id, as the update counts of the no-op forms differ between drivers.
+ * </p>
+ */
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+	private static final String INSERT_COLUMNS = "insert into user_account (id, email, email_normalized, first_name, last_name, provider, enabled, "
+			+ "locked, failed_login_attempts, registration_date, last_activity_date, provider_attributes_hash, provider_registration_id) ";
+
+	private static final String INSERT_USER = INSERT_COLUMNS + "values (?, ?, ?, ?, ?, ?, ?, false, 0, ?, ?, ?, ?)";
+
+	private static final String INSERT_USER_IF_NO_EMAIL = INSERT_COLUMNS
+			+ "select ?, ?, ?, ?, ?, ?, ?, false, 0, ?, ?, ?, ? where not exists (select 1 from user_account where email_normalized = ? or email = ?)";
+
+	private static final String INSERT_USER_ROLE = "insert into users_roles (user_id, role_id) select ?, r.id from role r where r.name = ?";
+
+	/** The entity manager. */
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/** The insert statement, resolved on first use. */
+	private volatile String insertUser;
+
+	@Override
+	@Transactional
+	public boolean insertIfAbsent(final User user, final String roleName) {
+		SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+		Generator generator = session.getFactory().getMappingMetamodel().getEntityDescriptor(User.class).getGenerator();
+		if (!(generator instanceof IdentifierGenerator identifierGenerator)) {
+			throw new IllegalStateException("User ids must be generated before the insert");
+		}
+		long id = ((Number) identifierGenerator.generate(session, user)).longValue();
+		String sql = insertUser;
+		if (sql == null) {
+			sql = resolveInsertUser(session.getJdbcServices().getDialect());
+			insertUser = sql;
+		}
+		String statementSql = sql;
+		return session.doReturningWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(statementSql)) {
+				statement.setLong(1, id);
+				statement.setString(2, user.getEmail());
+				statement.setString(3, user.getEmailNormalized());
+				statement.setString(4, user.getFirstName());
+				statement.setString(5, user.getLastName());
+				statement.setString(6, user.getProvider().name());
+				statement.setBoolean(7, user.isEnabled());
+				statement.setTimestamp(8, timestamp(user.getRegistrationDate()));
+				statement.setTimestamp(9, timestamp(user.getLastActivityDate()));
+				statement.setString(10, user.getProviderAttributesHash());
+				statement.setString(11, user.getProviderRegistrationId());
+				if (statementSql.equals(INSERT_USER_IF_NO_EMAIL)) {
+					statement.setString(12, user.getEmailNormalized());
+					statement.setString(13, user.getEmail());
+				}
+				statement.executeUpdate();
+			}
+			try (PreparedStatement statement = connection.prepareStatement("select count(*) from user_account where id = ?")) {
+				statement.setLong(1, id);
+				try (ResultSet resultSet = statement.executeQuery()) {
+					resultSet.next();
+					if (resultSet.getLong(1) == 0) {
+						return false;
+					}
+				}
+			}
+			try (PreparedStatement statement = connection.prepareStatement(INSERT_USER_ROLE)) {
+				statement.setLong(1, id);
+				statement.setString(2, roleName);
+				statement.executeUpdate();
+			}
+			return true;
+		});
+	}
+
+	private static String resolveInsertUser(final Dialect dialect) {
+		if (dialect instanceof PostgreSQLDialect) {
+			return INSERT_USER + " on conflict do nothing";
+		}
+		if (dialect instanceof MySQLDialect) {
+			return INSERT_USER + " on duplicate key update id = id";
+		}
+		return INSERT_USER_IF_NO_EMAIL;
+	}
+
+	private static Timestamp timestamp(final Date date) {
+		return date == null ? null : new Timestamp(date.getTime());
+	}
+}
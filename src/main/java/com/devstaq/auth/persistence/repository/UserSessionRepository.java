@@ -0,0 +1,98 @@
+package com.devstaq.auth.persistence.repository;
+
+import com.devstaq.auth.persistence.model.UserSession;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The Interface UserSessionRepository.
+ */
+public interface UserSessionRepository extends JpaRepository<UserSession, String> {
+
+	/**
+	 * Find all sessions registered under a principal key.
+	 *
+	 * @param principalKey the principal key
+	 * @return the sessions
+	 */
+	List<UserSession> findByPrincipalKey(String principalKey);
+
+	/**
+	 * Find the principal keys and usernames of all sessions, sorted by username.
+	 *
+	 * @return the principal key and username pairs
+	 */
+	@Query("select distinct s.principalKey, s.username from UserSession s order by s.username, s.principalKey")
+	List<Object[]> findPrincipals();
+
+	/**
+	 * Find the next page of principal keys and usernames with a session that has not expired, sorted by username.
+	 *
+	 * @param afterUsername only principals with a greater username are returned
+	 * @param limit the maximum number of principals to return
+	 * @return the principal key and username pairs
+	 */
+	@Query("select distinct s.principalKey, s.username from UserSession s where s.expired = false and s.username > :afterUsername "
+			+ "order by s.username, s.principalKey")
+	List<Object[]> findActivePrincipals(@Param("afterUsername") String afterUsername, Limit limit);
+
+	/**
+	 * Count the principals with a session that has not expired.
+	 *
+	 * @return the number of principals
+	 */
+	@Query("select count(distinct s.principalKey) from UserSession s where s.expired = false")
+	long countActivePrincipals();
+
+	/**
+	 * Find the ids of sessions without a request since the given time.
+	 *
+	 * @param before the time
+	 * @param limit the maximum number of ids to return
+	 * @return the session ids
+	 */
+	@Query("select s.sessionId from UserSession s where s.lastRequest < :before")
+	List<String> findSessionIdsWithLastRequestBefore(@Param("before") Instant before, Limit limit);
+
+	/**
+	 * Marks a session as expired.
+	 *
+	 * @param sessionId the session id
+	 * @return the number of updated rows
+	 */
+	@Transactional
+	@Modifying
+	@Query("update UserSession s set s.expired = true where s.sessionId = :sessionId")
+	int expire(@Param("sessionId") String sessionId);
+
+	/**
+	 * Sets the last request time of several sessions in one statement.
+	 *
+	 * @param sessionIds the session ids
+	 * @param lastRequest the last request time
+	 * @return the number of updated rows
+	 */
+	@Transactional
+	@Modifying
+	@Query("update UserSession s set s.lastRequest = :lastRequest where s.sessionId in :sessionIds and s.lastRequest < :lastRequest")
+	int updateLastRequest(@Param("sessionIds") Collection<String> sessionIds, @Param("lastRequest") Instant lastRequest);
+
+	/**
+	 * Deletes several sessions in one statement.
+	 *
+	 * @param sessionIds the session ids
+	 * @return the number of deleted rows
+	 */
+	@Transactional
+	@Modifying
+	@Query("delete from UserSession s where s.sessionId in :sessionIds")
+	int deleteAllBySessionIds(@Param("sessionIds") Collection<String> sessionIds);
+}
@@ -5,14 +5,17 @@ import com.devstaq.auth.persistence.model.VerificationToken;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Date;
+import java.time.Instant;
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
  * The Interface VerificationTokenRepository.
  */
-public interface VerificationTokenRepository extends JpaRepository<VerificationToken, Long> {
+public interface VerificationTokenRepository extends JpaRepository<VerificationToken, Long>, VerificationTokenRepositoryCustom {
 
 	/**
 	 * Find by token.
@@ -23,7 +26,7 @@ public interface VerificationTokenRepository extends JpaRepository<VerificationT
 	VerificationToken findByToken(String token);
 
 	/**
-	 * Find by user.
+	 * Find by user. Fails if the user has more than one outstanding token, see {@link #findIdsByUserNewestFirst(User)}.
 	 *
 	 * @param user the user
 	 * @return the verification token
@@ -36,14 +39,14 @@ public interface VerificationTokenRepository extends JpaRepository<VerificationT
 	 * @param now the now
 	 * @return the stream
 	 */
-	Stream<VerificationToken> findAllByExpiryDateLessThan(Date now);
+	Stream<VerificationToken> findAllByExpiryDateLessThan(Instant now);
 
 	/**
 	 * Delete by expiry date less than.
 	 *
 	 * @param now the now
 	 */
-	void deleteByExpiryDateLessThan(Date now);
+	void deleteByExpiryDateLessThan(Instant now);
 
 	/**
 	 * Delete all expired since.
@@ -52,5 +55,25 @@ public interface VerificationTokenRepository extends JpaRepository<VerificationT
 	 */
 	@Modifying
 	@Query("delete from VerificationToken t where t.expiryDate <= ?1")
-	void deleteAllExpiredSince(Date now);
+	void deleteAllExpiredSince(Instant now);
+
+	/**
+	 * Find the ids of the tokens of a user, the token expiring last first.
+	 *
+	 * @param user the user
+	 * @return the token ids
+	 */
+	@Query("select t.id from VerificationToken t where t.user = :user order by t.expiryDate desc, t.id desc")
+	List<Long> findIdsByUserNewestFirst(@Param("user") User user);
+
+	/**
+	 * Delete all tokens of a user.
+	 *
+	 * @param user the user
+	 * @return the number of deleted rows
+	 */
+	@Transactional
+	@Modifying
+	@Query("delete from VerificationToken t where t.user = :user")
+	int deleteAllByUser(@Param("user") User user);
 }
@@ -0,0 +1,20 @@
+package com.devstaq.auth.persistence.repository;
+
+import com.devstaq.auth.persistence.model.VerificationToken;
+
+import java.util.Optional;
+
+/**
+ * Custom repository fragment for atomically consuming verification tokens.
+ */
+public interface VerificationTokenRepositoryCustom {
+
+	/**
+	 * Removes the verification token with the given value and returns it, in a single atomic step. Of several concurrent calls for the same token at most
+	 * one gets the token back. Expired tokens are consumed as well, so callers must check the expiry of the returned token.
+	 *
+	 * @param token the token value
+	 * @return the consumed token with its user, or empty if no such token exists
+	 */
+	Optional<VerificationToken> consumeByToken(String token);
+}
@@ -0,0 +1,28 @@
+package com.devstaq.auth.persistence.repository;
+
+import com.devstaq.auth.persistence.model.VerificationToken;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Implementation of {@link VerificationTokenRepositoryCustom}.
+ */
+class VerificationTokenRepositoryCustomImpl implements VerificationTokenRepositoryCustom {
+
+	/** The entity manager. */
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/** The consume support. */
+	private final TokenConsumptionSupport<VerificationToken> consumptionSupport =
+			new TokenConsumptionSupport<>(VerificationToken.class, VerificationToken::new);
+
+	@Override
+	@Transactional
+	public Optional<VerificationToken> consumeByToken(final String token) {
+		return consumptionSupport.consume(entityManager, token);
+	}
+}
@@ -1,12 +1,18 @@
 package com.devstaq.auth.profile.session;
 
 import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.UserRepository;
 import com.devstaq.auth.profile.BaseUserProfile;
+import com.devstaq.auth.profile.UserProfileService;
 import lombok.Data;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.core.ResolvableType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.support.WebApplicationContextUtils;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
@@ -21,6 +27,11 @@ import java.time.LocalDateTime;
  * </p>
  *
  * <p>
+ * Only the user id and the update time are serialized with the session. After the session has been restored, for example on another node, the
+ * profile is reloaded through the application's {@link UserProfileService} the first time it is requested.
+ * </p>
+ *
+ * <p>
  * Example usage:
  * </p>
  *
@@ -49,18 +60,24 @@ public abstract class BaseSessionProfile<T extends BaseUserProfile> implements S
     /** Serialization version ID. */
     private static final long serialVersionUID = 1L;
 
-    /** The current user's profile. */
-    private T userProfile;
+    /** The current user's profile. Not serialized, it is reloaded by the user id. */
+    private transient T userProfile;
+
+    /** The id of the user the profile belongs to. */
+    private Long userId;
 
     /** Timestamp of when the profile was last updated. */
     private LocalDateTime lastUpdated;
 
     /**
-     * Retrieves the current user's profile.
+     * Retrieves the current user's profile, reloading it if the session has been restored since it was set.
      *
      * @return the user profile of type T, or null if no profile is set
      */
     public T getUserProfile() {
+        if (userProfile == null && userId != null) {
+            userProfile = reloadUserProfile();
+        }
         return userProfile;
     }
 
@@ -72,6 +89,7 @@ public abstract class BaseSessionProfile<T extends BaseUserProfile> implements S
      */
     public void setUserProfile(T userProfile) {
         this.userProfile = userProfile;
+        this.userId = userProfile != null && userProfile.getUser() != null ? userProfile.getUser().getId() : null;
         this.lastUpdated = LocalDateTime.now();
     }
 
@@ -82,6 +100,29 @@ public abstract class BaseSessionProfile<T extends BaseUserProfile> implements S
      * @see User
      */
     public User getUser() {
-        return userProfile != null ? userProfile.getUser() : null;
+        T profile = getUserProfile();
+        return profile != null ? profile.getUser() : null;
+    }
+
+    /**
+     * Reloads the profile of the user id through the {@link UserProfileService} for this profile type, found in the context of the current request.
+     *
+     * @return the profile, or null if there is no current request or no matching service
+     */
+    private T reloadUserProfile() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        WebApplicationContext context = WebApplicationContextUtils.getWebApplicationContext(attributes.getRequest().getServletContext());
+        if (context == null) {
+            return null;
+        }
+        ResolvableType profileType = ResolvableType.forClass(getClass()).as(BaseSessionProfile.class).getGeneric(0);
+        UserProfileService<T> profileService = context
+                .<UserProfileService<T>>getBeanProvider(ResolvableType.forClassWithGenerics(UserProfileService.class, profileType)).getIfUnique();
+        if (profileService == null) {
+            return null;
+        }
+        return context.getBean(UserRepository.class).findById(userId).map(profileService::getOrCreateProfile).orElse(null);
     }
 }
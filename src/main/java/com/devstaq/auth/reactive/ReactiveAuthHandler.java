@@ -0,0 +1,197 @@
+package com.devstaq.auth.reactive;
+
+import com.devstaq.auth.audit.AuditEvent;
+import com.devstaq.auth.dto.PasswordDto;
+import com.devstaq.auth.dto.UserDto;
+import com.devstaq.auth.exceptions.InvalidOldPasswordException;
+import com.devstaq.auth.exceptions.UserAlreadyExistException;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.reactive.persistence.UserAccountRow;
+import com.devstaq.auth.service.DSUserDetails;
+import com.devstaq.auth.service.UserService.TokenValidationResult;
+import com.devstaq.auth.util.JSONResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.MessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * The reactive counterpart of {@link com.devstaq.auth.api.AuthController} and the password update of {@link com.devstaq.auth.api.UserAPI}, as
+ * functional endpoints. The requests and responses use the same {@link UserDto}, {@link PasswordDto} and {@link JSONResponse} types, status
+ * codes and error codes, and the same {@link AuditEvent}s are published.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveAuthHandler {
+
+    private static final String AUTH_MESSAGE_PREFIX = "auth.message.";
+
+    private final ReactiveUserService userService;
+
+    private final ReactiveUserDetailsService userDetailsService;
+
+    private final ServerSecurityContextRepository securityContextRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final MessageSource messages;
+
+    private final String registrationPendingURI;
+
+    private final String registrationSuccessURI;
+
+    private final String registrationNewVerificationURI;
+
+    /**
+     * Registers a new user account. Users which do not need to verify their email are logged in.
+     *
+     * @param request the request with a {@link UserDto} body
+     * @return the response
+     */
+    public Mono<ServerResponse> registerUserAccount(final ServerRequest request) {
+        return request.bodyToMono(UserDto.class).flatMap(userDto -> {
+            if (isNullOrEmpty(userDto.getEmail()) || isNullOrEmpty(userDto.getPassword())) {
+                return Mono.error(new IllegalArgumentException(isNullOrEmpty(userDto.getEmail()) ? "Email is required." : "Password is required."));
+            }
+            return userService.registerNewUserAccount(userDto, appUrl(request));
+        }).flatMap(user -> {
+            audit(request, "Registration", "Success", "Registration Successful", user.toUser());
+            if (!user.isEnabled()) {
+                return success("Registration Successful!", registrationPendingURI);
+            }
+            return login(request, user).then(success("Registration Successful!", registrationSuccessURI));
+        }).onErrorResume(UserAlreadyExistException.class, ex -> {
+            log.warn("User already exists: {}", ex.getMessage());
+            audit(request, "Registration", "Failure", "User Already Exists", null);
+            return error("An account already exists for the email address", 2, HttpStatus.CONFLICT);
+        }).onErrorResume(ex -> {
+            log.error("Unexpected error during registration.", ex);
+            audit(request, "Registration", "Failure", ex.getMessage(), null);
+            return error("System Error!", 5, HttpStatus.INTERNAL_SERVER_ERROR);
+        });
+    }
+
+    /**
+     * Resends the registration verification email.
+     *
+     * @param request the request with a {@link UserDto} body
+     * @return the response
+     */
+    public Mono<ServerResponse> resendRegistrationToken(final ServerRequest request) {
+        return request.bodyToMono(UserDto.class).flatMap(userDto -> userService.resendRegistrationToken(userDto.getEmail(), appUrl(request)))
+                .flatMap(user -> {
+                    if (user.isEnabled()) {
+                        return error("Account is already verified.", 1, HttpStatus.CONFLICT);
+                    }
+                    audit(request, "Resend Reg Token", "Success", "Verification Email Resent", user.toUser());
+                    return success("Verification Email Resent Successfully!", registrationPendingURI);
+                }).switchIfEmpty(Mono.defer(() -> error("System Error!", 2, HttpStatus.INTERNAL_SERVER_ERROR)));
+    }
+
+    /**
+     * Confirms a registration with the token from the verification email.
+     *
+     * @param request the request with a token parameter
+     * @return the response
+     */
+    public Mono<ServerResponse> confirmRegistration(final ServerRequest request) {
+        final String token = request.queryParam("token").orElse("");
+        final Locale locale = locale(request);
+        return userService.confirmRegistration(token).flatMap(result -> {
+            audit(request, "Registration Confirmation", result == TokenValidationResult.VALID ? "Success" : "Failure",
+                    "Token validation result: " + result, null);
+            if (result == TokenValidationResult.VALID) {
+                return success(messages.getMessage("message.account.verified", null, "Your account verified successfully", locale),
+                        registrationSuccessURI);
+            }
+            String message = messages.getMessage(AUTH_MESSAGE_PREFIX + result.name().toLowerCase(), null, result.getValue(), locale);
+            return ServerResponse.badRequest()
+                    .bodyValue(JSONResponse.builder().success(false).code(1).message(message).redirectUrl(registrationNewVerificationURI).build());
+        });
+    }
+
+    /**
+     * Changes the password of the authenticated user.
+     *
+     * @param request the request with a {@link PasswordDto} body
+     * @return the response
+     */
+    public Mono<ServerResponse> updatePassword(final ServerRequest request) {
+        final Locale locale = locale(request);
+        return request.principal().cast(Authentication.class).map(Authentication::getPrincipal).cast(DSUserDetails.class)
+                .flatMap(userDetails -> request.bodyToMono(PasswordDto.class).flatMap(passwordDto -> {
+                    User user = userDetails.getUser();
+                    return userService.changePassword(user.getEmail(), passwordDto.getOldPassword(), passwordDto.getNewPassword()).flatMap(updated -> {
+                        audit(request, "PasswordUpdate", "Success", "User password updated", user);
+                        return success(messages.getMessage("message.update-password.success", null, "Password updated", locale), null);
+                    }).onErrorResume(InvalidOldPasswordException.class, ex -> {
+                        audit(request, "PasswordUpdate", "Failure", "Invalid old password", user);
+                        return error(messages.getMessage("message.update-password.invalid-old", null, "Invalid old password", locale), 1,
+                                HttpStatus.BAD_REQUEST);
+                    });
+                })).switchIfEmpty(Mono.defer(() -> error("User not logged in.", 1, HttpStatus.UNAUTHORIZED)));
+    }
+
+    /**
+     * Logs a newly registered user in, by storing a security context for it in the web session.
+     *
+     * @param request the request
+     * @param user the user
+     * @return completes when the security context is stored
+     */
+    private Mono<Void> login(final ServerRequest request, final UserAccountRow user) {
+        return userDetailsService.findByUsername(user.getEmail()).flatMap(userDetails -> {
+            Authentication authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            return securityContextRepository.save(request.exchange(), new SecurityContextImpl(authentication));
+        });
+    }
+
+    private void audit(final ServerRequest request, final String action, final String status, final String message, final User user) {
+        AuditEvent event = AuditEvent.builder().source(this).user(user).ipAddress(clientIp(request))
+                .userAgent(request.headers().firstHeader("User-Agent")).action(action).actionStatus(status).message(message).build();
+        eventPublisher.publishEvent(event);
+    }
+
+    private static String clientIp(final ServerRequest request) {
+        String forwardedFor = request.headers().firstHeader("X-Forwarded-For");
+        if (forwardedFor != null) {
+            return forwardedFor.split(",")[0];
+        }
+        return request.remoteAddress().map(InetSocketAddress::getAddress).map(address -> address.getHostAddress()).orElse(null);
+    }
+
+    private static String appUrl(final ServerRequest request) {
+        URI uri = request.uri();
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort() + request.requestPath().contextPath().value();
+    }
+
+    private static Locale locale(final ServerRequest request) {
+        Locale locale = request.exchange().getLocaleContext().getLocale();
+        return locale != null ? locale : Locale.getDefault();
+    }
+
+    private static boolean isNullOrEmpty(final String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private static Mono<ServerResponse> success(final String message, final String redirectUrl) {
+        return ServerResponse.ok().bodyValue(JSONResponse.builder().success(true).code(0).message(message).redirectUrl(redirectUrl).build());
+    }
+
+    private static Mono<ServerResponse> error(final String message, final int code, final HttpStatus status) {
+        return ServerResponse.status(status).bodyValue(JSONResponse.builder().success(false).code(code).message(message).build());
+    }
+}
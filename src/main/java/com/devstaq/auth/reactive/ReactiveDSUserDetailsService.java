@@ -0,0 +1,44 @@
+package com.devstaq.auth.reactive;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.reactive.persistence.ReactiveRoleRepository;
+import com.devstaq.auth.reactive.persistence.ReactiveUserRepository;
+import com.devstaq.auth.service.DSUserDetails;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import reactor.core.publisher.Mono;
+
+import java.util.stream.Collectors;
+
+/**
+ * The reactive counterpart of {@link com.devstaq.auth.service.DSUserDetailsService}. Loads a user and its privileges from the database with two
+ * queries and returns the same {@link DSUserDetails}, so both stacks grant the same authorities.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveDSUserDetailsService implements ReactiveUserDetailsService {
+
+    /** The user repository. */
+    private final ReactiveUserRepository userRepository;
+
+    /** The role repository. */
+    private final ReactiveRoleRepository roleRepository;
+
+    /**
+     * Finds a user by email.
+     *
+     * @param email the email
+     * @return the user details, or empty if no user has the email
+     */
+    @Override
+    public Mono<UserDetails> findByUsername(final String email) {
+        log.debug("ReactiveDSUserDetailsService.findByUsername: called with username: {}", email);
+        return userRepository.findByEmail(email).flatMap(row -> {
+            User user = row.toUser();
+            return roleRepository.findPrivilegeNamesByUserId(row.getId()).map(DSUserDetails::internAuthority).collect(Collectors.toSet())
+                    .map(authorities -> new DSUserDetails(user, authorities));
+        });
+    }
+}
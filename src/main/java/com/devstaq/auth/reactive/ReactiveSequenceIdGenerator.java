@@ -0,0 +1,95 @@
+package com.devstaq.auth.reactive;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Allocates ids from the database sequences the JPA entities use, with the same pooled strategy as Hibernate: each sequence value is the upper end
+ * of a block of {@code allocationSize} ids, so ids handed out here never collide with ids Hibernate allocates from the same sequence, and only one
+ * sequence call is needed per block.
+ */
+public class ReactiveSequenceIdGenerator {
+
+    /** Hibernate's default allocation size, matching the INCREMENT BY of the library's sequences. */
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    private final DatabaseClient databaseClient;
+
+    private final String sequenceQuery;
+
+    private final int allocationSize;
+
+    private final Map<String, AtomicReference<Block>> blocks = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new sequence id generator.
+     *
+     * @param databaseClient the database client
+     * @param sequenceQuery the query returning the next value of a sequence, with {@code %s} in place of the sequence name
+     * @param allocationSize the number of ids allocated per sequence value
+     */
+    public ReactiveSequenceIdGenerator(final DatabaseClient databaseClient, final String sequenceQuery, final int allocationSize) {
+        this.databaseClient = databaseClient;
+        this.sequenceQuery = sequenceQuery;
+        this.allocationSize = allocationSize;
+    }
+
+    /**
+     * Returns the next id of a sequence, fetching a new block of ids from the database when the current block is used up.
+     *
+     * @param sequence the sequence name
+     * @return the id
+     */
+    public Mono<Long> nextId(final String sequence) {
+        final AtomicReference<Block> current = blocks.computeIfAbsent(sequence, name -> new AtomicReference<>(Block.EMPTY));
+        return Mono.defer(() -> {
+            long id = current.get().next();
+            if (id > 0) {
+                return Mono.just(id);
+            }
+            // Concurrent callers may each fetch a block; the ids of a replaced block are skipped, never reused
+            return fetchBlock(sequence).map(block -> {
+                long first = block.next();
+                current.set(block);
+                return first;
+            });
+        });
+    }
+
+    private Mono<Block> fetchBlock(final String sequence) {
+        return databaseClient.sql(String.format(sequenceQuery, sequence)).map(row -> row.get(0, Long.class)).one()
+                .map(hi -> new Block(Math.max(1, hi - allocationSize + 1), hi));
+    }
+
+    /**
+     * A block of ids.
+     */
+    private static final class Block {
+
+        private static final Block EMPTY = new Block(1, 0);
+
+        private final AtomicLong next;
+
+        private final long hi;
+
+        private Block(final long lo, final long hi) {
+            this.next = new AtomicLong(lo);
+            this.hi = hi;
+        }
+
+        /**
+         * Takes the next id of the block.
+         *
+         * @return the id, or 0 if the block is used up
+         */
+        long next() {
+            long id = next.getAndIncrement();
+            return id <= hi ? id : 0;
+        }
+    }
+}
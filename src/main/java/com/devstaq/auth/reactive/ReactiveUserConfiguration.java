@@ -0,0 +1,269 @@
+package com.devstaq.auth.reactive;
+
+import com.devstaq.auth.audit.AuditConfig;
+import com.devstaq.auth.audit.AuditEventListener;
+import com.devstaq.auth.audit.FileAuditLogFlushScheduler;
+import com.devstaq.auth.audit.FileAuditLogWriter;
+import com.devstaq.auth.mail.MailService;
+import com.devstaq.auth.reactive.persistence.ReactiveRoleRepository;
+import com.devstaq.auth.reactive.persistence.ReactiveUserRepository;
+import com.devstaq.auth.reactive.persistence.ReactiveVerificationTokenRepository;
+import com.devstaq.auth.token.SignedTokenConfig;
+import com.devstaq.auth.token.SignedTokenService;
+import com.devstaq.auth.util.ClockConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.security.web.server.context.WebSessionServerSecurityContextRepository;
+import org.springframework.security.web.server.csrf.CsrfWebFilter;
+import org.springframework.security.web.server.util.matcher.AndServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.NegatedServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Clock;
+import java.util.Arrays;
+
+/**
+ * Auto-configuration of the reactive variant of the library, for WebFlux applications such as gateways. It replaces {@link
+ * com.devstaq.auth.UserConfiguration}, which is skipped in reactive web applications, and provides:
+ * <ul>
+ * <li>R2DBC repositories for users, roles and verification tokens, on the same tables as the JPA entities,</li>
+ * <li>a {@link org.springframework.security.core.userdetails.ReactiveUserDetailsService} returning the shared
+ * {@link com.devstaq.auth.service.DSUserDetails},</li>
+ * <li>the registration, registration confirmation and password update endpoints, with the same request and response types and the same
+ * database backed or signed verification tokens,</li>
+ * <li>and the file audit log, fed by the same {@link com.devstaq.auth.audit.AuditEvent}s.</li>
+ * </ul>
+ *
+ * <p>
+ * BCrypt is deliberately slow and blocking, so password hashing and checking run on a dedicated bounded scheduler
+ * (user.reactive.passwordHashThreads) and never on the event loop. Requests waiting for a hash are queued up to
+ * user.reactive.passwordHashQueueSize, beyond which they fail fast instead of piling up.
+ * </p>
+ */
+@Slf4j
+@AutoConfiguration(after = {R2dbcDataAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class},
+        before = {ReactiveSecurityAutoConfiguration.class, ReactiveUserDetailsServiceAutoConfiguration.class})
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnClass({R2dbcEntityTemplate.class, ServerHttpSecurity.class})
+@ConditionalOnBean(R2dbcEntityTemplate.class)
+@PropertySource("classpath:config/dsspringuserconfig.properties")
+@EnableR2dbcRepositories(basePackageClasses = ReactiveUserRepository.class)
+@EnableWebFluxSecurity
+@EnableAsync
+@EnableScheduling
+@Import(ClockConfig.class)
+public class ReactiveUserConfiguration {
+
+    private static final String DEFAULT_ACTION_DENY = "deny";
+
+    private static final String DEFAULT_ACTION_ALLOW = "allow";
+
+    /**
+     * The audit configuration. Named like the component of the servlet configuration, as the audit log flush rate refers to it by name.
+     *
+     * @return the audit configuration
+     */
+    @Bean
+    public AuditConfig auditConfig() {
+        return new AuditConfig();
+    }
+
+    @Bean
+    public FileAuditLogWriter fileAuditLogWriter(AuditConfig auditConfig) {
+        return new FileAuditLogWriter(auditConfig);
+    }
+
+    @Bean
+    public AuditEventListener auditEventListener(AuditConfig auditConfig, FileAuditLogWriter fileAuditLogWriter) {
+        return new AuditEventListener(auditConfig, fileAuditLogWriter);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${user.audit.logEvents:true} && !${user.audit.flushOnWrite:true}")
+    public FileAuditLogFlushScheduler fileAuditLogFlushScheduler(FileAuditLogWriter fileAuditLogWriter) {
+        return new FileAuditLogFlushScheduler(fileAuditLogWriter);
+    }
+
+    /**
+     * The scheduler password hashing runs on.
+     *
+     * @param threads the maximum number of threads, or 0 for the number of processors
+     * @param queueSize the maximum number of queued hashing tasks
+     * @return the scheduler
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler passwordHashScheduler(@Value("${user.reactive.passwordHashThreads:0}") int threads,
+            @Value("${user.reactive.passwordHashQueueSize:10000}") int queueSize) {
+        int threadCap = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return Schedulers.newBoundedElastic(threadCap, queueSize, "user-password-hash");
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PasswordEncoder passwordEncoder(@Value("${user.security.bcryptStrength}") int bcryptStrength) {
+        return new BCryptPasswordEncoder(bcryptStrength);
+    }
+
+    @Bean
+    public ReactiveSequenceIdGenerator reactiveSequenceIdGenerator(DatabaseClient databaseClient,
+            @Value("${user.reactive.sequenceQuery:SELECT NEXT VALUE FOR %s}") String sequenceQuery) {
+        return new ReactiveSequenceIdGenerator(databaseClient, sequenceQuery, ReactiveSequenceIdGenerator.DEFAULT_ALLOCATION_SIZE);
+    }
+
+    @Bean
+    public ReactiveDSUserDetailsService reactiveDSUserDetailsService(ReactiveUserRepository userRepository, ReactiveRoleRepository roleRepository) {
+        return new ReactiveDSUserDetailsService(userRepository, roleRepository);
+    }
+
+    /**
+     * Authenticates logins against {@link ReactiveDSUserDetailsService}, checking the password on the password hash scheduler.
+     *
+     * @param userDetailsService the user details service
+     * @param passwordEncoder the password encoder
+     * @param passwordHashScheduler the password hash scheduler
+     * @return the authentication manager
+     */
+    @Bean
+    public ReactiveAuthenticationManager reactiveAuthenticationManager(ReactiveDSUserDetailsService userDetailsService, PasswordEncoder passwordEncoder,
+            Scheduler passwordHashScheduler) {
+        UserDetailsRepositoryReactiveAuthenticationManager authenticationManager = new UserDetailsRepositoryReactiveAuthenticationManager(
+                userDetailsService);
+        authenticationManager.setPasswordEncoder(passwordEncoder);
+        authenticationManager.setScheduler(passwordHashScheduler);
+        return authenticationManager;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ServerSecurityContextRepository serverSecurityContextRepository() {
+        return new WebSessionServerSecurityContextRepository();
+    }
+
+    @Bean
+    public SignedTokenConfig signedTokenConfig() {
+        return new SignedTokenConfig();
+    }
+
+    /**
+     * The signed token engine, used for verification tokens if user.token.signing.enabled is true.
+     *
+     * @param signedTokenConfig the signed token configuration
+     * @param clock the clock
+     * @return the signed token service
+     */
+    @Bean
+    public SignedTokenService signedTokenService(SignedTokenConfig signedTokenConfig, Clock clock) {
+        return new SignedTokenService(signedTokenConfig, clock);
+    }
+
+    @Bean
+    public ReactiveUserService reactiveUserService(ReactiveUserRepository userRepository, ReactiveRoleRepository roleRepository,
+            ReactiveVerificationTokenRepository verificationTokenRepository, R2dbcEntityTemplate entityTemplate,
+            ReactiveSequenceIdGenerator idGenerator, TransactionalOperator transactionalOperator, PasswordEncoder passwordEncoder,
+            Scheduler passwordHashScheduler, ObjectProvider<MailService> mailService, SignedTokenService signedTokenService, Clock clock,
+            @Value("${user.registration.sendVerificationEmail:false}") boolean sendRegistrationVerificationEmail) {
+        return new ReactiveUserService(userRepository, roleRepository, verificationTokenRepository, entityTemplate, idGenerator, transactionalOperator,
+                passwordEncoder, passwordHashScheduler, mailService, signedTokenService, clock, sendRegistrationVerificationEmail);
+    }
+
+    @Bean
+    public ReactiveAuthHandler reactiveAuthHandler(ReactiveUserService userService, ReactiveDSUserDetailsService userDetailsService,
+            ServerSecurityContextRepository securityContextRepository, ApplicationEventPublisher eventPublisher, MessageSource messageSource,
+            @Value("${user.security.registrationPendingURI}") String registrationPendingURI,
+            @Value("${user.security.registrationSuccessURI}") String registrationSuccessURI,
+            @Value("${user.security.registrationNewVerificationURI}") String registrationNewVerificationURI) {
+        return new ReactiveAuthHandler(userService, userDetailsService, securityContextRepository, eventPublisher, messageSource,
+                registrationPendingURI, registrationSuccessURI, registrationNewVerificationURI);
+    }
+
+    /**
+     * Routes the user endpoints to {@link ReactiveAuthHandler}, on the same paths as the servlet controllers.
+     *
+     * @param handler the handler
+     * @return the routes
+     */
+    @Bean
+    public RouterFunction<ServerResponse> userRoutes(ReactiveAuthHandler handler) {
+        return RouterFunctions.route().path("/api/user", builder -> builder.POST("/registration", handler::registerUserAccount)
+                .POST("/resendRegistrationToken", handler::resendRegistrationToken).GET("/registrationConfirm", handler::confirmRegistration))
+                .POST("/user/updatePassword", handler::updatePassword).build();
+    }
+
+    /**
+     * The reactive counterpart of the servlet security filter chain, driven by the same user.security properties.
+     *
+     * @param http the server http security
+     * @param authenticationManager the authentication manager
+     * @param securityContextRepository the security context repository
+     * @param defaultAction the default action, allow or deny
+     * @param protectedURIs the URIs requiring authentication if the default action is allow
+     * @param unprotectedURIs the URIs not requiring authentication if the default action is deny
+     * @param disableCSRFURIs the URIs without CSRF protection
+     * @param loginActionURI the login processing URI
+     * @param logoutActionURI the logout URI
+     * @return the security web filter chain
+     */
+    @Bean
+    public SecurityWebFilterChain userSecurityWebFilterChain(ServerHttpSecurity http, ReactiveAuthenticationManager authenticationManager,
+            ServerSecurityContextRepository securityContextRepository, @Value("${user.security.defaultAction}") String defaultAction,
+            @Value("${user.security.protectedURIs}") String[] protectedURIs, @Value("${user.security.unprotectedURIs}") String[] unprotectedURIs,
+            @Value("${user.security.disableCSRFdURIs}") String[] disableCSRFURIs, @Value("${user.security.loginActionURI}") String loginActionURI,
+            @Value("${user.security.logoutActionURI}") String logoutActionURI) {
+        http.authenticationManager(authenticationManager).securityContextRepository(securityContextRepository);
+        http.formLogin(formLogin -> formLogin.requiresAuthenticationMatcher(ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, loginActionURI)));
+        http.logout(logout -> logout.requiresLogout(ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, logoutActionURI)));
+
+        String[] csrfIgnored = Arrays.stream(disableCSRFURIs).filter(uri -> uri != null && !uri.isEmpty()).toArray(String[]::new);
+        if (csrfIgnored.length > 0) {
+            http.csrf(csrf -> csrf.requireCsrfProtectionMatcher(new AndServerWebExchangeMatcher(CsrfWebFilter.DEFAULT_CSRF_MATCHER,
+                    new NegatedServerWebExchangeMatcher(ServerWebExchangeMatchers.pathMatchers(csrfIgnored)))));
+        }
+
+        if (DEFAULT_ACTION_DENY.equals(defaultAction)) {
+            http.authorizeExchange(exchanges -> exchanges.pathMatchers(unprotectedURIs).permitAll().anyExchange().authenticated());
+        } else if (DEFAULT_ACTION_ALLOW.equals(defaultAction)) {
+            http.authorizeExchange(exchanges -> exchanges.pathMatchers(protectedURIs).authenticated().anyExchange().permitAll());
+        } else {
+            log.error("ReactiveUserConfiguration.userSecurityWebFilterChain: user.security.defaultAction must be set to either {} or {}!!!"
+                    + "  Denying access to all resources to force intentional configuration.", DEFAULT_ACTION_ALLOW, DEFAULT_ACTION_DENY);
+            http.authorizeExchange(exchanges -> exchanges.anyExchange().denyAll());
+        }
+        return http.build();
+    }
+}
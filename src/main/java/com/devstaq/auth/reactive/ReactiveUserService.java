@@ -0,0 +1,240 @@
+package com.devstaq.auth.reactive;
+
+import com.devstaq.auth.dto.UserDto;
+import com.devstaq.auth.exceptions.InvalidOldPasswordException;
+import com.devstaq.auth.exceptions.UserAlreadyExistException;
+import com.devstaq.auth.mail.MailService;
+import com.devstaq.auth.persistence.model.VerificationToken;
+import com.devstaq.auth.reactive.persistence.ReactiveRoleRepository;
+import com.devstaq.auth.reactive.persistence.ReactiveUserRepository;
+import com.devstaq.auth.reactive.persistence.ReactiveVerificationTokenRepository;
+import com.devstaq.auth.reactive.persistence.UserAccountRow;
+import com.devstaq.auth.reactive.persistence.VerificationTokenRow;
+import com.devstaq.auth.service.UserService.TokenValidationResult;
+import com.devstaq.auth.token.SignedToken;
+import com.devstaq.auth.token.SignedTokenService;
+import com.devstaq.auth.token.TokenPurpose;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The reactive counterpart of the registration and password parts of {@link com.devstaq.auth.service.UserService}. Password hashing is CPU bound
+ * and blocking, so it runs on the bounded password hash scheduler instead of the event loop; everything else is non-blocking R2DBC. Verification
+ * tokens are stored in the verification token table, or issued as signed tokens if the signed token engine is enabled, like in the servlet
+ * variant.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveUserService {
+
+    /** The name of the role every registered user gets. */
+    static final String USER_ROLE_NAME = "ROLE_USER";
+
+    private final ReactiveUserRepository userRepository;
+
+    private final ReactiveRoleRepository roleRepository;
+
+    private final ReactiveVerificationTokenRepository verificationTokenRepository;
+
+    private final R2dbcEntityTemplate entityTemplate;
+
+    private final ReactiveSequenceIdGenerator idGenerator;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final Scheduler passwordHashScheduler;
+
+    private final ObjectProvider<MailService> mailService;
+
+    private final SignedTokenService signedTokenService;
+
+    private final Clock clock;
+
+    private final boolean sendRegistrationVerificationEmail;
+
+    /**
+     * Registers a new user account. Fails with a {@link UserAlreadyExistException} if the email is taken. If verification emails are enabled the
+     * user is created disabled and a verification email is sent, otherwise the user is enabled immediately.
+     *
+     * @param userDto the user data
+     * @param appUrl the application URL used in the verification email
+     * @return the registered user
+     */
+    public Mono<UserAccountRow> registerNewUserAccount(final UserDto userDto, final String appUrl) {
+        log.debug("ReactiveUserService.registerNewUserAccount: called with userDto: {}", userDto);
+        return userRepository.existsByEmail(userDto.getEmail()).flatMap(exists -> {
+            if (exists) {
+                return Mono.error(new UserAlreadyExistException("There is an account with that email address: " + userDto.getEmail()));
+            }
+            return encode(userDto.getPassword());
+        }).flatMap(passwordHash -> {
+            UserAccountRow user = new UserAccountRow();
+            user.setFirstName(userDto.getFirstName());
+            user.setLastName(userDto.getLastName());
+            user.setEmail(userDto.getEmail());
+            user.setPassword(passwordHash);
+            user.setEnabled(!sendRegistrationVerificationEmail);
+            LocalDateTime now = LocalDateTime.now(clock);
+            user.setRegistrationDate(now);
+            user.setLastActivityDate(now);
+            return insertWithUserRole(user);
+        }).flatMap(user -> sendRegistrationVerificationEmail ? sendVerificationEmail(user, appUrl).thenReturn(user) : Mono.just(user));
+    }
+
+    /**
+     * Sends a new verification email to a user which has not been verified yet.
+     *
+     * @param email the email of the user
+     * @param appUrl the application URL used in the verification email
+     * @return the user, or empty if no user has the email
+     */
+    public Mono<UserAccountRow> resendRegistrationToken(final String email, final String appUrl) {
+        return userRepository.findByEmail(email).flatMap(user -> user.isEnabled() ? Mono.just(user) : sendVerificationEmail(user, appUrl).thenReturn(user));
+    }
+
+    /**
+     * Consumes a verification token and enables its user. If the signed token engine is enabled, the token is validated against the current state
+     * of the user instead of the token table, and revoked once the user is enabled.
+     *
+     * @param token the token
+     * @return the result of the validation
+     */
+    public Mono<TokenValidationResult> confirmRegistration(final String token) {
+        if (signedTokenService.isEnabled()) {
+            return confirmRegistrationWithSignedToken(token);
+        }
+        return verificationTokenRepository.findByToken(token).flatMap(verificationToken -> {
+            if (!verificationToken.getExpiryDate().isAfter(clock.instant())) {
+                return verificationTokenRepository.delete(verificationToken).thenReturn(TokenValidationResult.EXPIRED);
+            }
+            return userRepository.enable(verificationToken.getUserId()).then(verificationTokenRepository.delete(verificationToken))
+                    .thenReturn(TokenValidationResult.VALID);
+        }).as(transactionalOperator::transactional).defaultIfEmpty(TokenValidationResult.INVALID_TOKEN);
+    }
+
+    /**
+     * Validates a signed verification token and enables its user. Enabling the user changes the fingerprint the token was signed with, so of several
+     * concurrent confirmations with the same token only the one that enables the user succeeds.
+     *
+     * @param token the token
+     * @return the result of the validation
+     */
+    private Mono<TokenValidationResult> confirmRegistrationWithSignedToken(final String token) {
+        final SignedToken signedToken = signedTokenService.decode(token, TokenPurpose.REGISTRATION_VERIFICATION);
+        if (signedToken == null) {
+            return Mono.just(TokenValidationResult.INVALID_TOKEN);
+        }
+        return userRepository.findById(signedToken.getUserId()).flatMap(user -> {
+            final TokenValidationResult result = signedTokenService.validate(signedToken, user.toUser());
+            if (result != TokenValidationResult.VALID) {
+                return Mono.just(result);
+            }
+            return userRepository.enable(user.getId()).map(updated -> {
+                if (updated == 0) {
+                    return TokenValidationResult.INVALID_TOKEN;
+                }
+                signedTokenService.revoke(token);
+                return TokenValidationResult.VALID;
+            });
+        }).defaultIfEmpty(TokenValidationResult.INVALID_TOKEN);
+    }
+
+    /**
+     * Changes the password of a user after checking the old password. Fails with an {@link InvalidOldPasswordException} if the old password does
+     * not match.
+     *
+     * @param email the email of the user
+     * @param oldPassword the old password
+     * @param newPassword the new password
+     * @return completes when the password is changed, or empty if no user has the email
+     */
+    public Mono<UserAccountRow> changePassword(final String email, final String oldPassword, final String newPassword) {
+        return userRepository.findByEmail(email).flatMap(user -> Mono.fromCallable(() -> passwordEncoder.matches(oldPassword, user.getPassword()))
+                .subscribeOn(passwordHashScheduler).flatMap(matches -> {
+                    if (!matches) {
+                        return Mono.error(new InvalidOldPasswordException("Invalid old password"));
+                    }
+                    return encode(newPassword);
+                }).flatMap(passwordHash -> userRepository.updatePassword(user.getId(), passwordHash)).thenReturn(user));
+    }
+
+    /**
+     * Hashes a password on the password hash scheduler.
+     *
+     * @param password the password
+     * @return the hash
+     */
+    private Mono<String> encode(final String password) {
+        return Mono.fromCallable(() -> passwordEncoder.encode(password)).subscribeOn(passwordHashScheduler);
+    }
+
+    /**
+     * Inserts a new user and grants it the user role, in one transaction.
+     *
+     * @param user the user
+     * @return the inserted user
+     */
+    private Mono<UserAccountRow> insertWithUserRole(final UserAccountRow user) {
+        return idGenerator.nextId("user_account_seq").flatMap(id -> {
+            user.setId(id);
+            return entityTemplate.insert(user);
+        }).flatMap(inserted -> roleRepository.findByName(USER_ROLE_NAME).flatMap(role -> userRepository.addRole(inserted.getId(), role.getId()))
+                .switchIfEmpty(Mono.fromRunnable(() -> log.warn("ReactiveUserService.insertWithUserRole: role {} not found, user {} has no roles.",
+                        USER_ROLE_NAME, inserted.getId())))
+                .thenReturn(inserted)).as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Replaces the verification token of a user and sends the verification email. If the signed token engine is enabled, a signed token is issued
+     * and nothing is stored. The email is sent with the application's {@link MailService}, if there is one, on a scheduler for blocking tasks.
+     *
+     * @param user the user
+     * @param appUrl the application URL used in the verification email
+     * @return completes when the token is stored and the email handed over
+     */
+    private Mono<Void> sendVerificationEmail(final UserAccountRow user, final String appUrl) {
+        final Mono<String> token;
+        if (signedTokenService.isEnabled()) {
+            token = Mono.fromCallable(() -> signedTokenService.issueToken(user.toUser(), TokenPurpose.REGISTRATION_VERIFICATION));
+        } else {
+            VerificationTokenRow verificationToken = new VerificationTokenRow();
+            verificationToken.setToken(UUID.randomUUID().toString());
+            verificationToken.setUserId(user.getId());
+            verificationToken.setExpiryDate(clock.instant().plus(VerificationToken.EXPIRATION));
+            token = verificationTokenRepository.deleteByUserId(user.getId())
+                    .then(idGenerator.nextId("verification_token_seq")).flatMap(id -> {
+                        verificationToken.setId(id);
+                        return entityTemplate.insert(verificationToken);
+                    }).as(transactionalOperator::transactional).map(VerificationTokenRow::getToken);
+        }
+        return token.flatMap(value -> {
+            MailService mail = mailService.getIfAvailable();
+            if (mail == null) {
+                log.warn("ReactiveUserService.sendVerificationEmail: no MailService available, verification email for user {} not sent.", user.getId());
+                return Mono.empty();
+            }
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("token", value);
+            variables.put("appUrl", appUrl);
+            variables.put("confirmationUrl", appUrl + "/api/user/registrationConfirm?token=" + value);
+            variables.put("user", user.toUser());
+            return Mono.fromRunnable(() -> mail.sendTemplateMessage(user.getEmail(), "Registration Confirmation", variables,
+                    "mail/registration-token.html")).subscribeOn(Schedulers.boundedElastic()).then();
+        });
+    }
+}
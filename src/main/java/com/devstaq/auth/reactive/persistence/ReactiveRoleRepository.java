@@ -0,0 +1,30 @@
+package com.devstaq.auth.reactive.persistence;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive repository of the {@code role} table and the role and privilege assignments.
+ */
+public interface ReactiveRoleRepository extends R2dbcRepository<RoleRow, Long> {
+
+    /**
+     * Finds a role by name.
+     *
+     * @param name the name
+     * @return the role, or empty if not found
+     */
+    Mono<RoleRow> findByName(String name);
+
+    /**
+     * Finds the names of the privileges granted to a user through its roles, with one query.
+     *
+     * @param userId the user id
+     * @return the distinct privilege names
+     */
+    @Query("SELECT DISTINCT p.name FROM privilege p JOIN roles_privileges rp ON rp.privilege_id = p.id JOIN users_roles ur ON ur.role_id = rp.role_id"
+            + " WHERE ur.user_id = :userId")
+    Flux<String> findPrivilegeNamesByUserId(Long userId);
+}
@@ -0,0 +1,86 @@
+package com.devstaq.auth.reactive.persistence;
+
+import com.devstaq.auth.persistence.model.User;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive repository of the {@code user_account} table. Like {@link com.devstaq.auth.persistence.repository.UserRepository}, all email lookups go
+ * through the normalized email column, falling back to the email as entered for users whose normalized email is not set yet.
+ */
+public interface ReactiveUserRepository extends R2dbcRepository<UserAccountRow, Long> {
+
+    /**
+     * Finds a user by the normalized email.
+     *
+     * @param emailNormalized the normalized email
+     * @param email the email as entered
+     * @return the user, or empty if not found
+     */
+    @Query("SELECT * FROM user_account WHERE email_normalized = :emailNormalized OR (email_normalized IS NULL AND email = :email)")
+    Mono<UserAccountRow> findByEmailNormalized(String emailNormalized, String email);
+
+    /**
+     * Checks if a user with the normalized email exists.
+     *
+     * @param emailNormalized the normalized email
+     * @param email the email as entered
+     * @return true, if a user exists
+     */
+    @Query("SELECT COUNT(*) > 0 FROM user_account WHERE email_normalized = :emailNormalized OR (email_normalized IS NULL AND email = :email)")
+    Mono<Boolean> existsByEmailNormalized(String emailNormalized, String email);
+
+    /**
+     * Finds a user by email, ignoring case and surrounding whitespace.
+     *
+     * @param email the email
+     * @return the user, or empty if not found
+     */
+    default Mono<UserAccountRow> findByEmail(String email) {
+        return findByEmailNormalized(User.normalizeEmail(email), email);
+    }
+
+    /**
+     * Checks if a user with the email exists, ignoring case and surrounding whitespace.
+     *
+     * @param email the email
+     * @return true, if a user exists
+     */
+    default Mono<Boolean> existsByEmail(String email) {
+        return existsByEmailNormalized(User.normalizeEmail(email), email);
+    }
+
+    /**
+     * Sets the password hash of a user.
+     *
+     * @param id the user id
+     * @param password the password hash
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE user_account SET password = :password WHERE id = :id")
+    Mono<Integer> updatePassword(Long id, String password);
+
+    /**
+     * Enables a user and moves its token version forward, like {@link User#setEnabled(boolean)}.
+     *
+     * @param id the user id
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE user_account SET enabled = TRUE, token_version = token_version + 1 WHERE id = :id AND enabled = FALSE")
+    Mono<Integer> enable(Long id);
+
+    /**
+     * Grants a role to a user.
+     *
+     * @param userId the user id
+     * @param roleId the role id
+     * @return the number of inserted rows
+     */
+    @Modifying
+    @Query("INSERT INTO users_roles (user_id, role_id) VALUES (:userId, :roleId)")
+    Mono<Integer> addRole(Long userId, Long roleId);
+}
@@ -0,0 +1,30 @@
+package com.devstaq.auth.reactive.persistence;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive repository of the {@code verification_token} table.
+ */
+public interface ReactiveVerificationTokenRepository extends R2dbcRepository<VerificationTokenRow, Long> {
+
+    /**
+     * Finds a verification token.
+     *
+     * @param token the token
+     * @return the token, or empty if not found
+     */
+    Mono<VerificationTokenRow> findByToken(String token);
+
+    /**
+     * Deletes the verification tokens of a user.
+     *
+     * @param userId the user id
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM verification_token WHERE user_id = :userId")
+    Mono<Integer> deleteByUserId(Long userId);
+}
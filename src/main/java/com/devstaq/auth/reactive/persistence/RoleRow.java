@@ -0,0 +1,23 @@
+package com.devstaq.auth.reactive.persistence;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * A row of the {@code role} table, as read by the reactive repositories.
+ */
+@Data
+@Table("role")
+public class RoleRow {
+
+    /** The id. */
+    @Id
+    private Long id;
+
+    /** The name. */
+    private String name;
+
+    /** The description. */
+    private String description;
+}
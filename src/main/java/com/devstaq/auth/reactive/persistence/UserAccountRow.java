@@ -0,0 +1,102 @@
+package com.devstaq.auth.reactive.persistence;
+
+import com.devstaq.auth.persistence.model.User;
+import lombok.Data;
+import lombok.ToString;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * A row of the {@code user_account} table, as read and written by the reactive repositories. The reactive counterpart of {@link User}, without the
+ * roles, which are loaded separately.
+ */
+@Data
+@Table("user_account")
+public class UserAccountRow {
+
+    /** The id. */
+    @Id
+    private Long id;
+
+    /** The first name. */
+    private String firstName;
+
+    /** The last name. */
+    private String lastName;
+
+    /** The email, as entered by the user. */
+    private String email;
+
+    /** The trimmed, lower-cased email. */
+    private String emailNormalized;
+
+    /** The login provider. */
+    private String provider = User.Provider.LOCAL.name();
+
+    /** The password hash. */
+    @ToString.Exclude
+    private String password;
+
+    /** The enabled. */
+    private boolean enabled;
+
+    /** The token version. */
+    private long tokenVersion;
+
+    /** The registration date. */
+    private LocalDateTime registrationDate;
+
+    /** The last activity date. */
+    private LocalDateTime lastActivityDate;
+
+    /** The failed login attempts. */
+    private int failedLoginAttempts;
+
+    /** The locked. */
+    private boolean locked;
+
+    /** The locked date. */
+    private LocalDateTime lockedDate;
+
+    /**
+     * Sets the email and its normalized form.
+     *
+     * @param email the email
+     */
+    public void setEmail(final String email) {
+        this.email = email;
+        this.emailNormalized = User.normalizeEmail(email);
+    }
+
+    /**
+     * Copies this row to a detached {@link User}, so it can be passed to the shared user details, audit events and mail templates. The roles of the
+     * returned user are not set.
+     *
+     * @return the user
+     */
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setEmail(email);
+        user.setProvider(provider == null ? User.Provider.LOCAL : User.Provider.valueOf(provider));
+        user.setPassword(password);
+        user.setEnabled(enabled);
+        user.setTokenVersion(tokenVersion);
+        user.setRegistrationDate(toDate(registrationDate));
+        user.setLastActivityDate(toDate(lastActivityDate));
+        user.setFailedLoginAttempts(failedLoginAttempts);
+        user.setLocked(locked);
+        user.setLockedDate(toDate(lockedDate));
+        return user;
+    }
+
+    private static Date toDate(final LocalDateTime dateTime) {
+        return dateTime == null ? null : Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
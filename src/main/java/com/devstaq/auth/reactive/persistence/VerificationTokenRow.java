@@ -0,0 +1,28 @@
+package com.devstaq.auth.reactive.persistence;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * A row of the {@code verification_token} table, as read and written by the reactive repositories.
+ */
+@Data
+@Table("verification_token")
+public class VerificationTokenRow {
+
+    /** The id. */
+    @Id
+    private Long id;
+
+    /** The token. */
+    private String token;
+
+    /** The id of the user the token was issued to. */
+    private Long userId;
+
+    /** The expiry date. */
+    private Instant expiryDate;
+}
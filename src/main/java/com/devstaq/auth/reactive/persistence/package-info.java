@@ -0,0 +1,5 @@
+/**
+ * R2DBC rows and repositories of the reactive module. They map the same tables as the JPA entities in
+ * {@link com.devstaq.auth.persistence.model}, so servlet and reactive applications can share a database.
+ */
+package com.devstaq.auth.reactive.persistence;
@@ -0,0 +1,96 @@
+package com.devstaq.auth.roles;
+
+import com.devstaq.auth.persistence.model.CacheRegions;
+import com.devstaq.auth.persistence.model.Privilege;
+import com.devstaq.auth.persistence.model.Role;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Manages the Hibernate second-level cache regions holding the role and privilege reference data. Evicts them when the roles are set up, and
+ * exposes their hits, misses and overall hit ratio as the user.cache.reference.* metrics. The metrics require Hibernate statistics to be enabled
+ * (hibernate.generate_statistics).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache implements MeterBinder {
+
+	/** The cache regions holding reference data. */
+	static final List<String> REGIONS =
+			List.of(CacheRegions.ROLE, CacheRegions.ROLE_PRIVILEGES, CacheRegions.PRIVILEGE, CacheRegions.REFERENCE_DATA_QUERIES);
+
+	/** The entity manager factory. */
+	private final EntityManagerFactory entityManagerFactory;
+
+	/**
+	 * Evicts all cached roles, privileges and role lookups.
+	 */
+	public void evict() {
+		org.hibernate.Cache cache = sessionFactory().getCache();
+		cache.evictEntityData(Role.class);
+		cache.evictEntityData(Privilege.class);
+		cache.evictCollectionData(Role.class.getName() + ".privileges");
+		cache.evictQueryRegion(CacheRegions.REFERENCE_DATA_QUERIES);
+		log.debug("ReferenceDataCache.evict: evicted the role and privilege cache regions.");
+	}
+
+	/**
+	 * Registers the hit, miss and hit ratio metrics of the reference data cache regions.
+	 *
+	 * @param registry the meter registry
+	 */
+	@Override
+	public void bindTo(final MeterRegistry registry) {
+		Statistics statistics = sessionFactory().getStatistics();
+		if (!statistics.isStatisticsEnabled()) {
+			log.debug("ReferenceDataCache.bindTo: Hibernate statistics are disabled, not registering cache metrics.");
+			return;
+		}
+		for (String region : REGIONS) {
+			FunctionCounter.builder("user.cache.reference.hits", statistics, s -> regionCount(s, region, CacheRegionStatistics::getHitCount))
+					.tag("region", region).description("The number of reference data cache hits").register(registry);
+			FunctionCounter.builder("user.cache.reference.misses", statistics, s -> regionCount(s, region, CacheRegionStatistics::getMissCount))
+					.tag("region", region).description("The number of reference data cache misses").register(registry);
+		}
+		Gauge.builder("user.cache.reference.hit.ratio", statistics, ReferenceDataCache::hitRatio)
+				.description("The hit ratio of all reference data cache regions").register(registry);
+	}
+
+	/**
+	 * Calculates the hit ratio over all reference data cache regions.
+	 *
+	 * @param statistics the Hibernate statistics
+	 * @return the hit ratio, or NaN if the regions have not been accessed yet
+	 */
+	static double hitRatio(final Statistics statistics) {
+		long hits = 0;
+		long misses = 0;
+		for (String region : REGIONS) {
+			hits += regionCount(statistics, region, CacheRegionStatistics::getHitCount);
+			misses += regionCount(statistics, region, CacheRegionStatistics::getMissCount);
+		}
+		return hits + misses == 0 ? Double.NaN : (double) hits / (hits + misses);
+	}
+
+	private static long regionCount(final Statistics statistics, final String region, final ToLongFunction<CacheRegionStatistics> count) {
+		CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+		return regionStatistics == null ? 0 : count.applyAsLong(regionStatistics);
+	}
+
+	private SessionFactory sessionFactory() {
+		return entityManagerFactory.unwrap(SessionFactory.class);
+	}
+}
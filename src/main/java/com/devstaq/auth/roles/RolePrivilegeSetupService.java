@@ -1,24 +1,53 @@
 package com.devstaq.auth.roles;
 
+import com.devstaq.auth.persistence.model.ConfigurationState;
 import com.devstaq.auth.persistence.model.Privilege;
 import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.repository.ConfigurationStateRepository;
 import com.devstaq.auth.persistence.repository.PrivilegeRepository;
 import com.devstaq.auth.persistence.repository.RoleRepository;
-import jakarta.transaction.Transactional;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * A service to set up roles and privileges from a configuration when the application starts.
+ * <p>
+ * The configured roles and privileges are reconciled with the database in a single transaction: all roles and privileges are loaded with two
+ * queries, compared with the configuration in memory, and only the missing privileges and roles and the changed role privileges are written. A hash
+ * of the applied configuration is stored in the {@code configuration_state} table, and the setup is skipped when the configuration is unchanged.
+ * Delete the {@value #CONFIGURATION_NAME} row to force the reconciliation to run again, for example after editing roles directly in the database.
+ * </p>
+ * <p>
+ * When several nodes start at the same time, more than one of them may find the configuration unapplied and insert the same configuration state,
+ * roles or privileges. All but one of them then fail with a constraint violation. A node whose setup failed this way runs it once more in a new
+ * transaction, which sees the committed result of the other node and is skipped when that node applied the same configuration.
+ * </p>
  */
 @Slf4j
 @Data
@@ -26,6 +55,9 @@ import java.util.Set;
 @Component
 public class RolePrivilegeSetupService implements ApplicationListener<ContextRefreshedEvent> {
 
+    /** The name under which the hash of the roles and privileges configuration is stored. */
+    public static final String CONFIGURATION_NAME = "roles-and-privileges";
+
     /** The already setup flag. */
     private boolean alreadySetup = false;
 
@@ -38,65 +70,178 @@ public class RolePrivilegeSetupService implements ApplicationListener<ContextRef
     /** The privilege repository. */
     private final PrivilegeRepository privilegeRepository;
 
+    /** The reference data cache. */
+    private final ReferenceDataCache referenceDataCache;
+
+    /** The configuration state repository. */
+    private final ConfigurationStateRepository configurationStateRepository;
+
+    /** The clock. */
+    private final Clock clock;
+
+    /** The transaction manager. */
+    private final PlatformTransactionManager transactionManager;
+
     /**
      * Triggered when the application context is refreshed.
      *
      * @param event the context refreshed event
      */
     @Override
-    @Transactional
     public void onApplicationEvent(final ContextRefreshedEvent event) {
         if (alreadySetup) {
             return;
         }
+        final long start = System.nanoTime();
 
         log.debug("rolesAndPrivilegesConfig: {}", rolesAndPrivilegesConfig);
+        // Roles and privileges may have been changed outside of this application since they were cached
+        referenceDataCache.evict();
 
-        for (Map.Entry<String, List<String>> entry : rolesAndPrivilegesConfig.getRolesAndPrivileges().entrySet()) {
-            final String roleName = entry.getKey();
-            final List<String> privileges = entry.getValue();
-            if (roleName != null && privileges != null) {
-                final Set<Privilege> privilegeSet = new HashSet<>();
-                for (String privilegeName : privileges) {
-                    privilegeSet.add(getOrCreatePrivilege(privilegeName));
-                }
-                getOrCreateRole(roleName, privilegeSet);
-            }
+        final SortedMap<String, SortedSet<String>> configured = configuredRolesAndPrivileges();
+        final String hash = hash(configured);
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            transactionTemplate.executeWithoutResult(status -> setup(configured, hash, start));
+        } catch (DataIntegrityViolationException e) {
+            log.info("RolePrivilegeSetupService.onApplicationEvent: roles and privileges were set up concurrently by another node, retrying: {}",
+                    e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> setup(configured, hash, start));
         }
         alreadySetup = true;
     }
 
     /**
-     * Retrieves or creates a privilege by name.
+     * Reconciles the roles and privileges with the configuration and stores the hash of the configuration, unless the stored hash shows that the
+     * configuration is already applied.
      *
-     * @param name the name of the privilege
-     * @return the privilege
+     * @param configured the configured privilege names by role name
+     * @param hash the hash of the configuration
+     * @param start the start of the setup, in nanoseconds
      */
-    @Transactional
-    Privilege getOrCreatePrivilege(final String name) {
-        Privilege privilege = privilegeRepository.findByName(name);
-        if (privilege == null) {
-            privilege = new Privilege(name);
-            privilege = privilegeRepository.save(privilege);
+    private void setup(final SortedMap<String, SortedSet<String>> configured, final String hash, final long start) {
+        ConfigurationState state = configurationStateRepository.findById(CONFIGURATION_NAME).orElse(null);
+        if (state != null && hash.equals(state.getHash())) {
+            log.info("RolePrivilegeSetupService.onApplicationEvent: roles and privileges are unchanged, setup skipped in {} ms.", elapsedMillis(start));
+            return;
+        }
+        final ReconciliationResult result = reconcile(configured);
+        if (state == null) {
+            state = new ConfigurationState(CONFIGURATION_NAME, hash, clock.instant());
+        } else {
+            state.setHash(hash);
+            state.setAppliedDate(clock.instant());
         }
-        return privilege;
+        configurationStateRepository.save(state);
+        log.info("RolePrivilegeSetupService.onApplicationEvent: created {} privileges and {} roles, updated {} roles in {} ms.",
+                result.createdPrivileges(), result.createdRoles(), result.updatedRoles(), elapsedMillis(start));
     }
 
     /**
-     * Retrieves or creates a role by name and privileges.
+     * Brings the roles and privileges in the database in line with the configuration. Privileges and roles which are not configured are left
+     * untouched.
      *
-     * @param name the name of the role
-     * @param privileges the set of privileges associated with the role
-     * @return the role
+     * @param configured the configured privilege names by role name
+     * @return the number of created and updated entities
      */
-    @Transactional
-    Role getOrCreateRole(final String name, final Set<Privilege> privileges) {
-        Role role = roleRepository.findByName(name);
-        if (role == null) {
-            role = new Role(name);
+    ReconciliationResult reconcile(final Map<String, ? extends Set<String>> configured) {
+        final Map<String, Privilege> privilegesByName = new HashMap<>();
+        for (Privilege privilege : privilegeRepository.findAll()) {
+            privilegesByName.putIfAbsent(privilege.getName(), privilege);
         }
-        role.setPrivileges(privileges);
-        role = roleRepository.save(role);
-        return role;
+        final Map<String, Role> rolesByName = new HashMap<>();
+        for (Role role : roleRepository.findAllWithPrivileges()) {
+            rolesByName.putIfAbsent(role.getName(), role);
+        }
+
+        final List<Privilege> newPrivileges = new ArrayList<>();
+        configured.values().stream().flatMap(Set::stream).distinct().filter(name -> !privilegesByName.containsKey(name)).forEach(name -> {
+            Privilege privilege = new Privilege(name);
+            newPrivileges.add(privilege);
+            privilegesByName.put(name, privilege);
+        });
+        privilegeRepository.saveAll(newPrivileges);
+
+        final List<Role> newRoles = new ArrayList<>();
+        int updatedRoles = 0;
+        for (Map.Entry<String, ? extends Set<String>> entry : configured.entrySet()) {
+            final Set<String> privilegeNames = entry.getValue();
+            Role role = rolesByName.get(entry.getKey());
+            if (role == null) {
+                role = new Role(entry.getKey());
+                role.setPrivileges(privilegeNames.stream().map(privilegesByName::get).collect(Collectors.toCollection(HashSet::new)));
+                newRoles.add(role);
+            } else if (updatePrivileges(role, privilegeNames, privilegesByName)) {
+                updatedRoles++;
+            }
+        }
+        // Updated roles are managed entities and are flushed with the transaction
+        roleRepository.saveAll(newRoles);
+        return new ReconciliationResult(newPrivileges.size(), newRoles.size(), updatedRoles);
+    }
+
+    /**
+     * Updates the privileges of an existing role in place, so only the added and removed privileges are written.
+     *
+     * @param role the role
+     * @param privilegeNames the configured privilege names of the role
+     * @param privilegesByName all privileges by name
+     * @return true, if the privileges of the role changed
+     */
+    private boolean updatePrivileges(final Role role, final Set<String> privilegeNames, final Map<String, Privilege> privilegesByName) {
+        final Set<Privilege> privileges = role.getPrivileges();
+        final Set<String> currentNames = privileges.stream().map(Privilege::getName).collect(Collectors.toSet());
+        if (currentNames.equals(privilegeNames)) {
+            return false;
+        }
+        privileges.removeIf(privilege -> !privilegeNames.contains(privilege.getName()));
+        privilegeNames.stream().filter(name -> !currentNames.contains(name)).map(privilegesByName::get).forEach(privileges::add);
+        return true;
+    }
+
+    /**
+     * Returns the configured roles and privileges in a canonical, sorted form. Roles without a name or privileges are ignored.
+     *
+     * @return the privilege names by role name
+     */
+    private SortedMap<String, SortedSet<String>> configuredRolesAndPrivileges() {
+        final SortedMap<String, SortedSet<String>> configured = new TreeMap<>();
+        for (Map.Entry<String, List<String>> entry : rolesAndPrivilegesConfig.getRolesAndPrivileges().entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                configured.put(entry.getKey(), entry.getValue().stream().filter(Objects::nonNull).collect(Collectors.toCollection(TreeSet::new)));
+            }
+        }
+        return configured;
+    }
+
+    /**
+     * Calculates the SHA-256 hash of the canonical roles and privileges configuration.
+     *
+     * @param configured the privilege names by role name, sorted
+     * @return the hex encoded hash
+     */
+    static String hash(final SortedMap<String, SortedSet<String>> configured) {
+        final StringBuilder canonical = new StringBuilder();
+        configured.forEach((role, privileges) -> canonical.append(role).append('=').append(String.join(",", privileges)).append('\n'));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static long elapsedMillis(final long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * The number of entities written by a reconciliation.
+     *
+     * @param createdPrivileges the number of created privileges
+     * @param createdRoles the number of created roles
+     * @param updatedRoles the number of roles whose privileges changed
+     */
+    record ReconciliationResult(int createdPrivileges, int createdRoles, int updatedRoles) {
     }
 }
@@ -0,0 +1,291 @@
+package com.devstaq.auth.security;
+
+import com.devstaq.auth.service.DSUserDetails;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.session.AbstractSessionEvent;
+import org.springframework.security.core.session.SessionDestroyedEvent;
+import org.springframework.security.core.session.SessionIdChangedEvent;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * An {@link IndexedSessionRegistry} which keeps a compact record per session instead of the full principal.
+ * <p>
+ * The default {@code SessionRegistryImpl} holds a strong reference to the principal of every session, which for this library is a
+ * {@link DSUserDetails} with its whole {@code User}, role and privilege graph. This registry keys sessions by user id and keeps only the session id,
+ * the last request time and the expired flag, so a session costs a few hundred bytes. Session and principal lookups are single hash map reads, and
+ * the principals are additionally kept sorted by username so the active users can be listed page by page without copying the whole registry.
+ * </p>
+ * <p>
+ * The registry only knows the sessions of its own node. Use the {@link JdbcSessionRegistry} when running more than one node.
+ * </p>
+ */
+@Slf4j
+public class CompactSessionRegistry implements IndexedSessionRegistry, ApplicationListener<AbstractSessionEvent>, MeterBinder {
+
+	/** The session records by session id. */
+	private final Map<String, SessionRecord> sessions = new ConcurrentHashMap<>();
+
+	/** The sessions of each principal by principal key. */
+	private final Map<Object, PrincipalSessions> principals = new ConcurrentHashMap<>();
+
+	/** The sessions of each principal, sorted by username. */
+	private final NavigableMap<String, PrincipalSessions> principalsByName = new ConcurrentSkipListMap<>();
+
+	@Override
+	public List<Object> getAllPrincipals() {
+		List<Object> result = new ArrayList<>(principalsByName.size());
+		principalsByName.values().forEach(principalSessions -> result.add(principalSessions.principal()));
+		return result;
+	}
+
+	@Override
+	public List<SessionInformation> getAllSessions(final Object principal, final boolean includeExpiredSessions) {
+		PrincipalSessions principalSessions = principals.get(keyOf(principal));
+		if (principalSessions == null) {
+			return new ArrayList<>();
+		}
+		List<SessionInformation> result = new ArrayList<>(principalSessions.sessionIds().size());
+		for (String sessionId : principalSessions.sessionIds()) {
+			SessionRecord record = sessions.get(sessionId);
+			if (record != null && (includeExpiredSessions || !record.expired)) {
+				result.add(new CompactSessionInformation(principalSessions.principal(), record));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public SessionInformation getSessionInformation(final String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		SessionRecord record = sessions.get(sessionId);
+		if (record == null) {
+			return null;
+		}
+		PrincipalSessions principalSessions = principals.get(record.principalKey);
+		return principalSessions != null ? new CompactSessionInformation(principalSessions.principal(), record) : null;
+	}
+
+	@Override
+	public void refreshLastRequest(final String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		SessionRecord record = sessions.get(sessionId);
+		if (record != null) {
+			record.lastRequest = System.currentTimeMillis();
+		}
+	}
+
+	@Override
+	public void registerNewSession(final String sessionId, final Object principal) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		Assert.notNull(principal, "Principal required as per interface contract");
+		if (getSessionInformation(sessionId) != null) {
+			removeSessionInformation(sessionId);
+		}
+		Object key = keyOf(principal);
+		SessionRecord record = new SessionRecord(sessionId, key);
+		principals.compute(key, (k, principalSessions) -> {
+			if (principalSessions == null) {
+				principalSessions = new PrincipalSessions(new SessionPrincipal(key, nameOf(principal)), ConcurrentHashMap.newKeySet());
+				principalsByName.put(principalSessions.sortKey(), principalSessions);
+			}
+			principalSessions.sessionIds().add(sessionId);
+			sessions.put(sessionId, record);
+			return principalSessions;
+		});
+		log.trace("CompactSessionRegistry.registerNewSession: registered session {} of {}", sessionId, key);
+	}
+
+	@Override
+	public void removeSessionInformation(final String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		SessionRecord record = sessions.get(sessionId);
+		if (record == null) {
+			return;
+		}
+		principals.computeIfPresent(record.principalKey, (k, principalSessions) -> {
+			sessions.remove(sessionId);
+			principalSessions.sessionIds().remove(sessionId);
+			if (principalSessions.sessionIds().isEmpty()) {
+				principalsByName.remove(principalSessions.sortKey());
+				return null;
+			}
+			return principalSessions;
+		});
+	}
+
+	@Override
+	public void onApplicationEvent(final AbstractSessionEvent event) {
+		if (event instanceof SessionDestroyedEvent sessionDestroyedEvent) {
+			removeSessionInformation(sessionDestroyedEvent.getId());
+		} else if (event instanceof SessionIdChangedEvent sessionIdChangedEvent) {
+			SessionRecord record = sessions.get(sessionIdChangedEvent.getOldSessionId());
+			PrincipalSessions principalSessions = record != null ? principals.get(record.principalKey) : null;
+			if (principalSessions != null) {
+				removeSessionInformation(sessionIdChangedEvent.getOldSessionId());
+				registerNewSession(sessionIdChangedEvent.getNewSessionId(), principalSessions.principal());
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of users with at least one session that has not expired. Users whose sessions have all expired but not been removed yet are
+	 * not counted.
+	 *
+	 * @return the number of active users
+	 */
+	@Override
+	public int getActiveUserCount() {
+		return (int) principals.values().stream().filter(this::hasLiveSession).count();
+	}
+
+	/**
+	 * Gets the number of registered sessions, including expired sessions which have not been removed yet.
+	 *
+	 * @return the number of sessions
+	 */
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * Streams the principals with at least one session that has not expired, sorted by username. The stream is weakly consistent and does not copy
+	 * the registry.
+	 *
+	 * @return the active principals
+	 */
+	@Override
+	public Stream<SessionPrincipal> streamActivePrincipals() {
+		return principalsByName.values().stream().filter(this::hasLiveSession).map(PrincipalSessions::principal);
+	}
+
+	@Override
+	public List<SessionPrincipal> getActivePrincipals(final String afterUsername, final int limit) {
+		// Sort keys are the username followed by a NUL character, so this skips every principal with the given username
+		NavigableMap<String, PrincipalSessions> page =
+				afterUsername == null ? principalsByName : principalsByName.tailMap(afterUsername + '\u0001', true);
+		return page.values().stream().filter(this::hasLiveSession).limit(limit).map(PrincipalSessions::principal).toList();
+	}
+
+	@Override
+	public void bindTo(final MeterRegistry registry) {
+		Gauge.builder("user.sessions.active.users", this, CompactSessionRegistry::getActiveUserCount)
+				.description("The number of users with at least one session").register(registry);
+		Gauge.builder("user.sessions.active", this, CompactSessionRegistry::getSessionCount)
+				.description("The number of registered sessions").register(registry);
+	}
+
+	private boolean hasLiveSession(final PrincipalSessions principalSessions) {
+		for (String sessionId : principalSessions.sessionIds()) {
+			SessionRecord record = sessions.get(sessionId);
+			if (record != null && !record.expired) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Derives the key sessions are registered under. Users of this library are keyed by their id, other principals by their name.
+	 */
+	static Object keyOf(final Object principal) {
+		if (principal instanceof SessionPrincipal sessionPrincipal) {
+			return sessionPrincipal.key();
+		}
+		if (principal instanceof DSUserDetails userDetails && userDetails.getUser() != null && userDetails.getUser().getId() != null) {
+			return userDetails.getUser().getId();
+		}
+		return nameOf(principal);
+	}
+
+	static String nameOf(final Object principal) {
+		if (principal instanceof UserDetails userDetails) {
+			return userDetails.getUsername();
+		}
+		if (principal instanceof AuthenticatedPrincipal authenticatedPrincipal) {
+			return authenticatedPrincipal.getName();
+		}
+		return principal.toString();
+	}
+
+	private static String sortKey(final SessionPrincipal principal) {
+		return principal.username() + '\u0000' + principal.key();
+	}
+
+	/**
+	 * The sessions of one principal.
+	 */
+	private record PrincipalSessions(SessionPrincipal principal, Set<String> sessionIds) {
+
+		String sortKey() {
+			return CompactSessionRegistry.sortKey(principal);
+		}
+	}
+
+	/**
+	 * The mutable state of one session.
+	 */
+	private static final class SessionRecord {
+
+		private final String sessionId;
+		private final Object principalKey;
+		private volatile long lastRequest = System.currentTimeMillis();
+		private volatile boolean expired;
+
+		SessionRecord(final String sessionId, final Object principalKey) {
+			this.sessionId = sessionId;
+			this.principalKey = principalKey;
+		}
+	}
+
+	/**
+	 * A {@link SessionInformation} view of a session record. Expiring it or refreshing its last request updates the record.
+	 */
+	private static final class CompactSessionInformation extends SessionInformation {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient SessionRecord record;
+
+		CompactSessionInformation(final SessionPrincipal principal, final SessionRecord record) {
+			super(principal, record.sessionId, new Date(record.lastRequest));
+			this.record = record;
+		}
+
+		@Override
+		public Date getLastRequest() {
+			return new Date(record.lastRequest);
+		}
+
+		@Override
+		public boolean isExpired() {
+			return record.expired;
+		}
+
+		@Override
+		public void expireNow() {
+			record.expired = true;
+		}
+
+		@Override
+		public void refreshLastRequest() {
+			record.lastRequest = System.currentTimeMillis();
+		}
+	}
+}
@@ -8,17 +8,27 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
 
 /**
  * The CustomOAuth2AuthenticationEntryPoint class is used to handle OAuth2 authentication exceptions. This class will redirect the user to the login
- * page if an exception occurs during the OAuth2 authentication process.
+ * page if an exception occurs during the OAuth2 authentication process. The error message is kept in the {@value #ERROR_MESSAGE_ATTRIBUTE} session
+ * attribute, or passed as the {@value #ERROR_MESSAGE_PARAMETER} query parameter in the stateless session mode, which has no session.
  */
 @Slf4j
 public class CustomOAuth2AuthenticationEntryPoint implements AuthenticationEntryPoint {
+
+    /** The session attribute holding the error message shown on the login page. */
+    public static final String ERROR_MESSAGE_ATTRIBUTE = "error.message";
+
+    /** The query parameter holding the error message shown on the login page in the stateless session mode. */
+    public static final String ERROR_MESSAGE_PARAMETER = "errorMessage";
+
     private final AuthenticationFailureHandler failureHandler;
     private final String redirectURL;
+    private final boolean stateless;
 
     /**
      * Instantiates a new custom OAuth2 authentication entry point.
@@ -27,8 +37,20 @@ public class CustomOAuth2AuthenticationEntryPoint implements AuthenticationEntry
      * @param redirectURL the redirect URL
      */
     public CustomOAuth2AuthenticationEntryPoint(AuthenticationFailureHandler failureHandler, String redirectURL) {
+        this(failureHandler, redirectURL, false);
+    }
+
+    /**
+     * Instantiates a new custom OAuth2 authentication entry point.
+     *
+     * @param failureHandler the failure handler
+     * @param redirectURL the redirect URL
+     * @param stateless true in the stateless session mode, to pass the error message without creating a session
+     */
+    public CustomOAuth2AuthenticationEntryPoint(AuthenticationFailureHandler failureHandler, String redirectURL, boolean stateless) {
         this.failureHandler = failureHandler;
         this.redirectURL = redirectURL;
+        this.stateless = stateless;
     }
 
     /**
@@ -52,8 +74,27 @@ public class CustomOAuth2AuthenticationEntryPoint implements AuthenticationEntry
         } else {
             // For other exceptions, redirect to the login page
             System.out.println("CustomOAuth2AuthenticationEntryPoint.commence() setting error.message: " + authException.getMessage());
-            request.getSession().setAttribute("error.message", authException.getMessage());
-            response.sendRedirect(redirectURL);
+            redirectWithError(request, response, redirectURL, authException.getMessage(), stateless);
+        }
+    }
+
+    /**
+     * Redirects to a page which shows an error message. The message is stored in the session, or added to the URL in the stateless session mode.
+     *
+     * @param request the request
+     * @param response the response
+     * @param url the URL of the page
+     * @param message the error message
+     * @param stateless true in the stateless session mode
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    static void redirectWithError(HttpServletRequest request, HttpServletResponse response, String url, String message, boolean stateless)
+            throws IOException {
+        if (stateless) {
+            response.sendRedirect(UriComponentsBuilder.fromUriString(url).queryParam(ERROR_MESSAGE_PARAMETER, message).encode().build().toUriString());
+        } else {
+            request.getSession().setAttribute(ERROR_MESSAGE_ATTRIBUTE, message);
+            response.sendRedirect(url);
         }
     }
 
@@ -0,0 +1,76 @@
+package com.devstaq.auth.security;
+
+import org.springframework.security.core.session.SessionRegistry;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * A {@link SessionRegistry} which can count and list its users without walking every session.
+ * <p>
+ * The principals returned by {@link #getAllPrincipals()} and held by the returned session information are {@link SessionPrincipal}s, whose
+ * {@code toString()} is the username. Both they and the original principals can be passed to {@link #getAllSessions(Object, boolean)}. They are
+ * not the principals the sessions were registered with, so they cannot be cast to {@link com.devstaq.auth.service.DSUserDetails}; load the user by
+ * the {@link SessionPrincipal#key() key}, which is its id, or by the {@link SessionPrincipal#username() username} instead.
+ * </p>
+ *
+ * @see CompactSessionRegistry
+ * @see JdbcSessionRegistry
+ */
+public interface IndexedSessionRegistry extends SessionRegistry {
+
+	/**
+	 * Gets the number of users with at least one session that has not expired.
+	 *
+	 * @return the number of active users
+	 */
+	int getActiveUserCount();
+
+	/**
+	 * Gets a page of the principals with at least one session that has not expired, sorted by username. Pass the username of the last principal of a
+	 * page to get the next one.
+	 *
+	 * @param afterUsername the username of the last principal of the previous page, or null for the first page
+	 * @param limit the maximum number of principals to return
+	 * @return the page of active principals
+	 */
+	List<SessionPrincipal> getActivePrincipals(String afterUsername, int limit);
+
+	/**
+	 * Streams the principals with at least one session that has not expired, sorted by username. The principals are read page by page as the stream
+	 * is consumed.
+	 *
+	 * @return the active principals
+	 */
+	default Stream<SessionPrincipal> streamActivePrincipals() {
+		int pageSize = 500;
+		return Stream.iterate(getActivePrincipals(null, pageSize), page -> !page.isEmpty(),
+				page -> page.size() < pageSize ? List.of() : getActivePrincipals(page.get(page.size() - 1).username(), pageSize))
+				.flatMap(List::stream);
+	}
+
+	/**
+	 * The compact principal of a session.
+	 *
+	 * @param key the key the sessions are registered under, the user id for users of this library
+	 * @param username the username
+	 */
+	record SessionPrincipal(Object key, String username) {
+
+		/**
+		 * Instantiates a new session principal.
+		 *
+		 * @param key the key the sessions are registered under
+		 * @param username the username
+		 */
+		public SessionPrincipal {
+			Objects.requireNonNull(key, "key");
+		}
+
+		@Override
+		public String toString() {
+			return username;
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package com.devstaq.auth.security;
+
+import com.devstaq.auth.persistence.model.UserSession;
+import com.devstaq.auth.persistence.repository.UserSessionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.session.AbstractSessionEvent;
+import org.springframework.security.core.session.SessionDestroyedEvent;
+import org.springframework.security.core.session.SessionIdChangedEvent;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.util.Assert;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An {@link IndexedSessionRegistry} which keeps the sessions of every node in the {@code user_session} table, so that the concurrent session limit
+ * and the list of logged in users cover the whole cluster.
+ * <p>
+ * The registry is read on every request by the concurrent session filter, so each node keeps a near-cache of the sessions it has looked up. A cached
+ * session is trusted for {@code user.session.jdbc.nearCacheSeconds}, which is how long a session expired on another node keeps working. Refreshes of
+ * the last request time are only recorded in memory and written in batches every {@code user.session.jdbc.flushIntervalMillis}, one statement per
+ * chunk of sessions. Sessions without a request for longer than the session timeout are deleted in chunks, which covers nodes that stopped without
+ * destroying their sessions.
+ * </p>
+ * <p>
+ * Logins always read the sessions of the user from the table, so the concurrent session limit is enforced across nodes. Two logins of the same user
+ * on different nodes at the same moment can both succeed; the next login corrects the count.
+ * </p>
+ */
+@Slf4j
+public class JdbcSessionRegistry implements IndexedSessionRegistry, ApplicationListener<AbstractSessionEvent>, MeterBinder {
+
+	private final UserSessionRepository userSessionRepository;
+	private final Clock clock;
+	private final Duration nearCacheTtl;
+	private final Duration sessionTimeout;
+	private final int chunkSize;
+
+	/** The sessions this node has looked up, by session id. */
+	private final Map<String, CachedSession> nearCache = new ConcurrentHashMap<>();
+
+	/** The ids of the sessions whose last request time has not been written yet. */
+	private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Instantiates a new JDBC session registry.
+	 *
+	 * @param userSessionRepository the user session repository
+	 * @param clock the clock
+	 * @param nearCacheTtl how long a cached session is trusted
+	 * @param sessionTimeout how long a session without requests is kept
+	 * @param chunkSize the number of sessions written or deleted per statement
+	 */
+	public JdbcSessionRegistry(final UserSessionRepository userSessionRepository, final Clock clock, final Duration nearCacheTtl,
+			final Duration sessionTimeout, final int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+		this.userSessionRepository = userSessionRepository;
+		this.clock = clock;
+		this.nearCacheTtl = nearCacheTtl;
+		this.sessionTimeout = sessionTimeout;
+		this.chunkSize = chunkSize;
+	}
+
+	@Override
+	public List<Object> getAllPrincipals() {
+		List<Object> result = new ArrayList<>();
+		userSessionRepository.findPrincipals().forEach(row -> result.add(new SessionPrincipal(row[0], (String) row[1])));
+		return result;
+	}
+
+	@Override
+	public List<SessionInformation> getAllSessions(final Object principal, final boolean includeExpiredSessions) {
+		SessionPrincipal sessionPrincipal = principalOf(principal);
+		Instant now = clock.instant();
+		List<SessionInformation> result = new ArrayList<>();
+		for (UserSession userSession : userSessionRepository.findByPrincipalKey((String) sessionPrincipal.key())) {
+			CachedSession cached = cache(userSession, now);
+			if (includeExpiredSessions || !cached.expired) {
+				result.add(new JdbcSessionInformation(cached));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public SessionInformation getSessionInformation(final String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		Instant now = clock.instant();
+		CachedSession cached = nearCache.get(sessionId);
+		if (cached == null || !now.isBefore(cached.loadedAt.plus(nearCacheTtl))) {
+			UserSession userSession = userSessionRepository.findById(sessionId).orElse(null);
+			if (userSession == null) {
+				nearCache.remove(sessionId);
+				return null;
+			}
+			cached = cache(userSession, now);
+		}
+		return new JdbcSessionInformation(cached);
+	}
+
+	@Override
+	public void refreshLastRequest(final String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		CachedSession cached = nearCache.get(sessionId);
+		if (cached != null) {
+			cached.lastRequest = clock.instant();
+		}
+		pendingRefreshes.add(sessionId);
+	}
+
+	@Override
+	public void registerNewSession(final String sessionId, final Object principal) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		Assert.notNull(principal, "Principal required as per interface contract");
+		SessionPrincipal sessionPrincipal = principalOf(principal);
+		Instant now = clock.instant();
+		UserSession userSession = new UserSession(sessionId, (String) sessionPrincipal.key(), sessionPrincipal.username(), now);
+		cache(userSessionRepository.save(userSession), now);
+		log.trace("JdbcSessionRegistry.registerNewSession: registered session {} of {}", sessionId, sessionPrincipal.key());
+	}
+
+	@Override
+	public void removeSessionInformation(final String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		nearCache.remove(sessionId);
+		pendingRefreshes.remove(sessionId);
+		userSessionRepository.deleteAllBySessionIds(List.of(sessionId));
+	}
+
+	@Override
+	public void onApplicationEvent(final AbstractSessionEvent event) {
+		if (event instanceof SessionDestroyedEvent sessionDestroyedEvent) {
+			removeSessionInformation(sessionDestroyedEvent.getId());
+		} else if (event instanceof SessionIdChangedEvent sessionIdChangedEvent) {
+			SessionInformation information = getSessionInformation(sessionIdChangedEvent.getOldSessionId());
+			if (information != null) {
+				removeSessionInformation(sessionIdChangedEvent.getOldSessionId());
+				registerNewSession(sessionIdChangedEvent.getNewSessionId(), information.getPrincipal());
+			}
+		}
+	}
+
+	@Override
+	public int getActiveUserCount() {
+		return (int) userSessionRepository.countActivePrincipals();
+	}
+
+	@Override
+	public List<SessionPrincipal> getActivePrincipals(final String afterUsername, final int limit) {
+		return userSessionRepository.findActivePrincipals(afterUsername == null ? "" : afterUsername, Limit.of(limit)).stream()
+				.map(row -> new SessionPrincipal(row[0], (String) row[1])).toList();
+	}
+
+	/**
+	 * Writes the last request times recorded since the previous flush, one statement per chunk of sessions. Each session is given the time of the
+	 * flush, so the stored time is late by at most the flush interval.
+	 *
+	 * @return the number of sessions written
+	 */
+	@Scheduled(fixedDelayString = "${user.session.jdbc.flushIntervalMillis:10000}")
+	public int flushLastRequests() {
+		Instant now = clock.instant();
+		int flushed = 0;
+		List<String> chunk = new ArrayList<>(chunkSize);
+		for (Iterator<String> iterator = pendingRefreshes.iterator(); iterator.hasNext();) {
+			chunk.add(iterator.next());
+			iterator.remove();
+			if (chunk.size() == chunkSize || !iterator.hasNext()) {
+				flushed += chunk.size();
+				userSessionRepository.updateLastRequest(chunk, now);
+				chunk = new ArrayList<>(chunkSize);
+			}
+		}
+		if (flushed > 0) {
+			log.debug("JdbcSessionRegistry.flushLastRequests: wrote the last request time of {} sessions", flushed);
+		}
+		return flushed;
+	}
+
+	/**
+	 * Deletes the sessions of every node without a request for longer than the session timeout, one chunk per statement, and drops cached sessions
+	 * which have not been looked up for as long.
+	 *
+	 * @return the number of deleted sessions
+	 */
+	@Scheduled(fixedDelayString = "${user.session.jdbc.sweepIntervalMillis:60000}")
+	public int sweepStaleSessions() {
+		flushLastRequests();
+		Instant before = clock.instant().minus(sessionTimeout);
+		int swept = 0;
+		List<String> sessionIds;
+		do {
+			sessionIds = userSessionRepository.findSessionIdsWithLastRequestBefore(before, Limit.of(chunkSize));
+			if (!sessionIds.isEmpty()) {
+				swept += userSessionRepository.deleteAllBySessionIds(sessionIds);
+				sessionIds.forEach(nearCache::remove);
+			}
+		} while (sessionIds.size() == chunkSize);
+		nearCache.values().removeIf(cached -> cached.loadedAt.isBefore(before));
+		if (swept > 0) {
+			log.info("JdbcSessionRegistry.sweepStaleSessions: deleted {} stale sessions", swept);
+		}
+		return swept;
+	}
+
+	@Override
+	public void bindTo(final MeterRegistry registry) {
+		Gauge.builder("user.sessions.active.users", this, JdbcSessionRegistry::getActiveUserCount)
+				.description("The number of users with at least one session").register(registry);
+		Gauge.builder("user.sessions.cached", nearCache, Map::size).description("The number of sessions in the near-cache of this node")
+				.register(registry);
+	}
+
+	private void expire(final CachedSession cached) {
+		cached.expired = true;
+		userSessionRepository.expire(cached.sessionId);
+	}
+
+	/**
+	 * Caches a session read from the table. A cached last request time which has not been written yet is kept.
+	 */
+	private CachedSession cache(final UserSession userSession, final Instant now) {
+		CachedSession loaded = new CachedSession(userSession.getSessionId(),
+				new SessionPrincipal(userSession.getPrincipalKey(), userSession.getUsername()), userSession.getLastRequest(), userSession.isExpired(), now);
+		return nearCache.merge(userSession.getSessionId(), loaded, (previous, current) -> {
+			if (previous.lastRequest.isAfter(current.lastRequest)) {
+				current.lastRequest = previous.lastRequest;
+			}
+			return current;
+		});
+	}
+
+	private static SessionPrincipal principalOf(final Object principal) {
+		if (principal instanceof SessionPrincipal sessionPrincipal) {
+			return new SessionPrincipal(String.valueOf(sessionPrincipal.key()), sessionPrincipal.username());
+		}
+		return new SessionPrincipal(String.valueOf(CompactSessionRegistry.keyOf(principal)), CompactSessionRegistry.nameOf(principal));
+	}
+
+	/**
+	 * A session as last read from the table, with the changes made on this node.
+	 */
+	private static final class CachedSession {
+
+		private final String sessionId;
+		private final SessionPrincipal principal;
+		private final Instant loadedAt;
+		private volatile Instant lastRequest;
+		private volatile boolean expired;
+
+		CachedSession(final String sessionId, final SessionPrincipal principal, final Instant lastRequest, final boolean expired,
+				final Instant loadedAt) {
+			this.sessionId = sessionId;
+			this.principal = principal;
+			this.lastRequest = lastRequest;
+			this.expired = expired;
+			this.loadedAt = loadedAt;
+		}
+	}
+
+	/**
+	 * A {@link SessionInformation} view of a cached session. Expiring it writes through to the table, refreshing its last request is batched.
+	 */
+	private final class JdbcSessionInformation extends SessionInformation {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient CachedSession cached;
+
+		JdbcSessionInformation(final CachedSession cached) {
+			super(cached.principal, cached.sessionId, Date.from(cached.lastRequest));
+			this.cached = cached;
+		}
+
+		@Override
+		public Date getLastRequest() {
+			return Date.from(cached.lastRequest);
+		}
+
+		@Override
+		public boolean isExpired() {
+			return cached.expired;
+		}
+
+		@Override
+		public void expireNow() {
+			expire(cached);
+		}
+
+		@Override
+		public void refreshLastRequest() {
+			JdbcSessionRegistry.this.refreshLastRequest(cached.sessionId);
+		}
+	}
+}
@@ -1,6 +1,9 @@
 package com.devstaq.auth.security;
 
+import com.devstaq.auth.persistence.repository.UserSessionRepository;
 import com.devstaq.auth.roles.RolesAndPrivilegesConfig;
+import com.devstaq.auth.security.stateless.StatelessAuthenticationFilter;
+import com.devstaq.auth.security.stateless.StatelessTokenService;
 import com.devstaq.auth.service.DSOAuth2UserService;
 import com.devstaq.auth.service.DSOidcUserService;
 import com.devstaq.auth.service.LoginSuccessService;
@@ -10,6 +13,7 @@ import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,16 +25,21 @@ import org.springframework.security.authentication.DefaultAuthenticationEventPub
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.session.SessionRegistry;
-import org.springframework.security.core.session.SessionRegistryImpl;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.FilterInvocation;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.expression.DefaultWebSecurityExpressionHandler;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import org.springframework.security.web.session.HttpSessionEventPublisher;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -43,6 +52,14 @@ import static org.springframework.security.config.Customizer.withDefaults;
  * The WebSecurityConfig class is a Spring Boot configuration class that provides properties for configuring the web security. This class is used to
  * define properties that control the behavior of the web security, such as the default action for protected URIs and the URIs that are protected or
  * unprotected.
+ * <p>
+ * When {@code user.security.stateless.enabled} is true no HTTP session is used: requests are authenticated from signed access tokens by the
+ * {@link StatelessAuthenticationFilter}, the CSRF token is kept in a cookie, and remember-me and the saved request are turned off.
+ * </p>
+ * <p>
+ * Otherwise sessions are registered with the {@link IndexedSessionRegistry} selected by {@code user.session.registry}, which enforces
+ * {@code user.session.maximumSessions}. Use the {@code jdbc} registry when running more than one node.
+ * </p>
  */
 @Slf4j
 @Data
@@ -65,6 +82,15 @@ public class WebSecurityConfig {
 	@Value("#{'${user.security.unprotectedURIs}'.split(',')}")
 	private String[] unprotectedURIsArray;
 
+	@Value("#{'${user.security.adminURIs:/admin/**}'.split(',')}")
+	private String[] adminURIsArray;
+
+	@Value("${user.security.adminAuthority:ADMIN_PRIVILEGE}")
+	private String adminAuthority;
+
+	@Value("${user.admin.api.enabled:false}")
+	private boolean adminApiEnabled;
+
 	@Value("#{'${user.security.disableCSRFdURIs}'.split(',')}")
 	private String[] disableCSRFURIsArray;
 
@@ -110,6 +136,12 @@ public class WebSecurityConfig {
 	@Value("${user.security.bcryptStrength}")
 	private int bcryptStrength = 10;
 
+	@Value("${user.session.maximumSessions:-1}")
+	private int maximumSessions = -1;
+
+	@Value("${user.session.maxSessionsPreventsLogin:false}")
+	private boolean maxSessionsPreventsLogin;
+
 
 	private final UserDetailsService userDetailsService;
 	private final LoginSuccessService loginSuccessService;
@@ -117,29 +149,39 @@ public class WebSecurityConfig {
 	private final RolesAndPrivilegesConfig rolesAndPrivilegesConfig;
 	private final DSOAuth2UserService dsOAuth2UserService;
 	private final DSOidcUserService dsOidcUserService;
+	private final StatelessTokenService statelessTokenService;
 
 	/**
 	 *
 	 * The securityFilterChain method builds the security filter chain for Spring Security.
 	 *
 	 * @param http the HttpSecurity object
+	 * @param sessionRegistry the session registry
 	 * @return the SecurityFilterChain object
 	 * @throws Exception if there is an issue creating the SecurityFilterChain
 	 */
 	@Bean
-	public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+	public SecurityFilterChain securityFilterChain(HttpSecurity http, SessionRegistry sessionRegistry) throws Exception {
 		log.debug("WebSecurityConfig.configure: user.security.defaultAction: {}", getDefaultAction());
 		log.debug("WebSecurityConfig.configure: unprotectedURIs: {}", Arrays.toString(unprotectedURIsArray));
 		List<String> unprotectedURIs = getUnprotectedURIsList();
 		log.debug("WebSecurityConfig.configure: enhanced unprotectedURIs: {}", unprotectedURIs.toString());
 
 		http.formLogin(
-				formLogin -> formLogin.loginPage(loginPageURI).loginProcessingUrl(loginActionURI).successHandler(loginSuccessService).permitAll())
-				.rememberMe(withDefaults());
+				formLogin -> formLogin.loginPage(loginPageURI).loginProcessingUrl(loginActionURI).successHandler(loginSuccessService).permitAll());
 
 		http.logout(logout -> logout.logoutUrl(logoutActionURI).logoutSuccessUrl(logoutSuccessURI).invalidateHttpSession(true)
 				.deleteCookies("JSESSIONID"));
 
+		if (statelessTokenService.isEnabled()) {
+			setupStateless(http);
+			unprotectedURIs.add(statelessTokenService.getRefreshUri());
+		} else {
+			// Register sessions with the session registry, which also enforces the concurrent session limit
+			http.rememberMe(withDefaults()).sessionManagement(session -> session.maximumSessions(maximumSessions)
+					.maxSessionsPreventsLogin(maxSessionsPreventsLogin).sessionRegistry(sessionRegistry));
+		}
+
 		// If we have URIs to disable CSRF validation on, do so here
 		List<String> disableCSRFURIs = Arrays.stream(disableCSRFURIsArray).filter(uri -> uri != null && !uri.isEmpty()).collect(Collectors.toList());
 		if (disableCSRFURIs.size() > 0) {
@@ -153,6 +195,11 @@ public class WebSecurityConfig {
 			setupOAuth2(http);
 		}
 
+		// Restrict the administrative URIs of the admin API, ahead of the rules of the default action
+		if (adminApiEnabled) {
+			http.authorizeHttpRequests((authorize) -> authorize.requestMatchers(adminURIsArray).hasAuthority(adminAuthority));
+		}
+
 		// Configure authorization rules based on the default action
 		if (DEFAULT_ACTION_DENY.equals(getDefaultAction())) {
 			// Allow access to unprotected URIs and require authentication for all other requests
@@ -172,6 +219,24 @@ public class WebSecurityConfig {
 		return http.build();
 	}
 
+	/**
+	 * Setup the stateless session mode. The refresh endpoint is exempt from CSRF protection, its refresh token cookie is SameSite=Strict.
+	 *
+	 * @param http the http security object to configure
+	 * @throws Exception the exception
+	 */
+	private void setupStateless(HttpSecurity http) throws Exception {
+		http.sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+				.requestCache(cache -> cache.requestCache(new NullRequestCache()))
+				.csrf(csrf -> csrf.csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
+						.ignoringRequestMatchers(statelessTokenService.getRefreshUri()))
+				.logout(logout -> logout.addLogoutHandler((request, response, authentication) -> {
+					statelessTokenService.revoke(statelessTokenService.resolveRefreshToken(request));
+					statelessTokenService.clearCookies(response);
+				}))
+				.addFilterBefore(new StatelessAuthenticationFilter(statelessTokenService), UsernamePasswordAuthenticationFilter.class);
+	}
+
 	/**
 	 * Setup OAuth2 specific configuration.
 	 *
@@ -179,13 +244,14 @@ public class WebSecurityConfig {
 	 * @throws Exception the exception
 	 */
 	private void setupOAuth2(HttpSecurity http) throws Exception {
-		CustomOAuth2AuthenticationEntryPoint loginAuthenticationEntryPoint = new CustomOAuth2AuthenticationEntryPoint(null, loginPageURI);
+		CustomOAuth2AuthenticationEntryPoint loginAuthenticationEntryPoint = new CustomOAuth2AuthenticationEntryPoint(null, loginPageURI,
+				statelessTokenService.isEnabled());
 
 		http.exceptionHandling(handling -> handling.authenticationEntryPoint(loginAuthenticationEntryPoint))
 				.oauth2Login(o -> o.loginPage(loginPageURI).successHandler(loginSuccessService).failureHandler((request, response, exception) -> {
 					log.error("WebSecurityConfig.configure: OAuth2 login failure: {}", exception.getMessage());
-					request.getSession().setAttribute("error.message", exception.getMessage());
-					response.sendRedirect(loginPageURI);
+					CustomOAuth2AuthenticationEntryPoint.redirectWithError(request, response, loginPageURI, exception.getMessage(),
+							statelessTokenService.isEnabled());
 					// handler.onAuthenticationFailure(request, response, exception);
 				}).userInfoEndpoint(userInfo -> {
 					userInfo.userService(dsOAuth2UserService);
@@ -243,13 +309,33 @@ public class WebSecurityConfig {
 	}
 
 	/**
-	 * The sessionRegistry method creates a SessionRegistryImpl object.
+	 * The sessionRegistry method creates a CompactSessionRegistry object, which keys sessions by user id and keeps a compact record per session. It
+	 * only knows the sessions of this node.
+	 *
+	 * @return the CompactSessionRegistry object
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "user.session.registry", havingValue = "memory", matchIfMissing = true)
+	public CompactSessionRegistry sessionRegistry() {
+		return new CompactSessionRegistry();
+	}
+
+	/**
+	 * The jdbcSessionRegistry method creates a JdbcSessionRegistry object, which shares the sessions of all nodes through the user_session table.
 	 *
-	 * @return the SessionRegistryImpl object
+	 * @param userSessionRepository the user session repository
+	 * @param clock the clock
+	 * @param nearCacheSeconds how long a node trusts its cached copy of a session
+	 * @param sessionTimeout the HTTP session timeout
+	 * @param chunkSize the number of sessions written or deleted per statement
+	 * @return the JdbcSessionRegistry object
 	 */
 	@Bean
-	public SessionRegistry sessionRegistry() {
-		return new SessionRegistryImpl();
+	@ConditionalOnProperty(name = "user.session.registry", havingValue = "jdbc")
+	public JdbcSessionRegistry jdbcSessionRegistry(UserSessionRepository userSessionRepository, Clock clock,
+			@Value("${user.session.jdbc.nearCacheSeconds:5}") long nearCacheSeconds,
+			@Value("${server.servlet.session.timeout:30m}") Duration sessionTimeout, @Value("${user.session.jdbc.chunkSize:500}") int chunkSize) {
+		return new JdbcSessionRegistry(userSessionRepository, clock, Duration.ofSeconds(nearCacheSeconds), sessionTimeout, chunkSize);
 	}
 
 	/**
@@ -285,11 +371,12 @@ public class WebSecurityConfig {
 	}
 
 	/**
-	 * The httpSessionEventPublisher method creates an HttpSessionEventPublisher object.
+	 * The httpSessionEventPublisher method creates an HttpSessionEventPublisher object. Not needed in the stateless session mode.
 	 *
 	 * @return the HttpSessionEventPublisher object
 	 */
 	@Bean
+	@ConditionalOnProperty(name = "user.security.stateless.enabled", havingValue = "false", matchIfMissing = true)
 	public HttpSessionEventPublisher httpSessionEventPublisher() {
 		return new HttpSessionEventPublisher();
 	}
@@ -0,0 +1,122 @@
+package com.devstaq.auth.security.oauth2;
+
+import com.devstaq.auth.persistence.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.util.StringUtils;
+
+import java.util.Map;
+
+/**
+ * An {@link OAuth2UserMapper} compiled from a {@link OAuth2UserMappingConfig.Mapping}. The attribute paths are split once when the mapper is
+ * created, so mapping a login only reads the attribute maps. If the mapping names an email verified attribute, a login whose attribute is not true is
+ * mapped to null.
+ */
+@Slf4j
+final class AttributeOAuth2UserMapper implements OAuth2UserMapper {
+
+    private static final String[] NONE = new String[0];
+
+    private final String registrationId;
+    private final User.Provider provider;
+    private final String[] email;
+    private final String[] firstName;
+    private final String[] lastName;
+    private final String[] name;
+    private final String[] emailVerified;
+
+    /**
+     * Compiles a mapping.
+     *
+     * @param registrationId the registration id
+     * @param mapping the mapping
+     */
+    AttributeOAuth2UserMapper(final String registrationId, final OAuth2UserMappingConfig.Mapping mapping) {
+        this.registrationId = registrationId;
+        this.provider = mapping.getProvider() != null ? mapping.getProvider() : User.Provider.OIDC;
+        this.email = path(mapping.getEmail());
+        this.firstName = path(mapping.getFirstName());
+        this.lastName = path(mapping.getLastName());
+        this.name = path(mapping.getName());
+        this.emailVerified = path(mapping.getEmailVerified());
+    }
+
+    private static String[] path(final String attribute) {
+        return StringUtils.hasText(attribute) ? StringUtils.tokenizeToStringArray(attribute, ".") : NONE;
+    }
+
+    @Override
+    public String registrationId() {
+        return registrationId;
+    }
+
+    @Override
+    public User map(final OAuth2User principal) {
+        Map<String, Object> attributes = principal.getAttributes();
+        if (emailVerified.length > 0 && !"true".equalsIgnoreCase(read(attributes, emailVerified))) {
+            log.debug("AttributeOAuth2UserMapper.map: email of {} login is not verified", registrationId);
+            return null;
+        }
+        User user = new User();
+        user.setEmail(read(attributes, email));
+        user.setFirstName(read(attributes, firstName));
+        user.setLastName(read(attributes, lastName));
+        if (user.getFirstName() == null && user.getLastName() == null) {
+            String fullName = read(attributes, name);
+            if (fullName != null) {
+                splitName(fullName, user);
+            }
+        }
+        user.setProvider(provider);
+        return user;
+    }
+
+    /**
+     * Reads an attribute by path.
+     *
+     * @return the non-blank value as a string, or null
+     */
+    private static String read(final Map<String, Object> attributes, final String[] path) {
+        if (path.length == 0) {
+            return null;
+        }
+        Object value = attributes.get(path[0]);
+        for (int i = 1; i < path.length && value != null; i++) {
+            value = value instanceof Map<?, ?> nested ? nested.get(path[i]) : null;
+        }
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString();
+        return text.isBlank() ? null : text;
+    }
+
+    /**
+     * Sets the first word of a full name as the first name and, if there are several words, the last word as the last name.
+     */
+    static void splitName(final String fullName, final User user) {
+        int end = fullName.length();
+        while (end > 0 && Character.isWhitespace(fullName.charAt(end - 1))) {
+            end--;
+        }
+        int start = 0;
+        while (start < end && Character.isWhitespace(fullName.charAt(start))) {
+            start++;
+        }
+        if (start == end) {
+            return;
+        }
+        int firstEnd = start;
+        while (firstEnd < end && !Character.isWhitespace(fullName.charAt(firstEnd))) {
+            firstEnd++;
+        }
+        user.setFirstName(fullName.substring(start, firstEnd));
+        if (firstEnd < end) {
+            int lastStart = end;
+            while (!Character.isWhitespace(fullName.charAt(lastStart - 1))) {
+                lastStart--;
+            }
+            user.setLastName(fullName.substring(lastStart, end));
+        }
+    }
+}
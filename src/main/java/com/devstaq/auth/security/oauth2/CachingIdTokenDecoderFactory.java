@@ -0,0 +1,178 @@
+package com.devstaq.auth.security.oauth2;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenValidator;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.oidc.OidcScopes;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.util.StringUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the decoders of OIDC ID tokens. Spring Security picks up this factory for the OAuth2 login and asks it for a decoder on every login.
+ * <p>
+ * The decoder of a client registration is created once, and reads the provider's signing keys from a cache of user.oauth2.jwkCacheSeconds. The
+ * keys are fetched again in the background user.oauth2.jwkRefreshAheadSeconds before they expire, so logins do not wait for the provider, and the
+ * last keys are used for up to user.oauth2.jwkOutageToleranceSeconds while the provider cannot be reached. Keys are also fetched again when a token
+ * names a key id that is not cached, which covers key rotation. ID tokens are validated like Spring Security's {@link OidcIdTokenDecoderFactory}
+ * does; registrations without a JWK set URI are passed to it.
+ * </p>
+ * <p>
+ * The factory is registered by {@link IdTokenDecoderConfig} unless the application defines its own {@link JwtDecoderFactory}.
+ * </p>
+ */
+@Slf4j
+public class CachingIdTokenDecoderFactory implements JwtDecoderFactory<ClientRegistration>, DisposableBean {
+
+    /** The signature algorithms accepted with keys of the provider's JWK set. */
+    private static final Set<JWSAlgorithm> ALGORITHMS = Set.of(JWSAlgorithm.RS256, JWSAlgorithm.RS384, JWSAlgorithm.RS512, JWSAlgorithm.PS256,
+            JWSAlgorithm.PS384, JWSAlgorithm.PS512, JWSAlgorithm.ES256, JWSAlgorithm.ES384, JWSAlgorithm.ES512);
+
+    /** The largest JWK set read, in bytes. */
+    private static final int JWK_SET_SIZE_LIMIT = 512 * 1024;
+
+    /** The cache configuration. */
+    private final OAuth2ProviderCacheConfig config;
+
+    /** The client registrations, to prewarm their keys. */
+    private final ObjectProvider<ClientRegistrationRepository> clientRegistrationRepository;
+
+    /** The factory of the decoders of registrations without a JWK set URI. */
+    private final OidcIdTokenDecoderFactory defaultFactory = new OidcIdTokenDecoderFactory();
+
+    /** The decoders, by registration id. */
+    private final Map<String, CachedDecoder> decoders = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new caching ID token decoder factory.
+     *
+     * @param config the cache configuration
+     * @param clientRegistrationRepository the client registrations
+     */
+    public CachingIdTokenDecoderFactory(OAuth2ProviderCacheConfig config, ObjectProvider<ClientRegistrationRepository> clientRegistrationRepository) {
+        this.config = config;
+        this.clientRegistrationRepository = clientRegistrationRepository;
+    }
+
+    @Override
+    public JwtDecoder createDecoder(final ClientRegistration clientRegistration) {
+        String jwkSetUri = clientRegistration.getProviderDetails().getJwkSetUri();
+        if (!StringUtils.hasText(jwkSetUri)) {
+            return defaultFactory.createDecoder(clientRegistration);
+        }
+        return decoders.computeIfAbsent(clientRegistration.getRegistrationId(), id -> createCachedDecoder(clientRegistration, jwkSetUri)).decoder();
+    }
+
+    /**
+     * Fetches the signing keys of all OIDC client registrations into the cache, unless user.oauth2.prewarmJwks is false.
+     */
+    void prewarmAll() {
+        ClientRegistrationRepository repository = clientRegistrationRepository.getIfAvailable();
+        if (config.isPrewarmJwks() && repository instanceof Iterable<?> registrations) {
+            for (Object registration : registrations) {
+                prewarm((ClientRegistration) registration);
+            }
+        }
+    }
+
+    /**
+     * Fetches the signing keys of a client registration into the cache, if it uses OIDC.
+     *
+     * @param clientRegistration the client registration
+     */
+    void prewarm(final ClientRegistration clientRegistration) {
+        if (!clientRegistration.getScopes().contains(OidcScopes.OPENID) || !StringUtils.hasText(clientRegistration.getProviderDetails().getJwkSetUri())) {
+            return;
+        }
+        createDecoder(clientRegistration);
+        try {
+            int keys = decoders.get(clientRegistration.getRegistrationId()).jwkSource()
+                    .get(new JWKSelector(new JWKMatcher.Builder().build()), null).size();
+            log.info("CachingIdTokenDecoderFactory.prewarm: cached {} signing keys of {}", keys, clientRegistration.getRegistrationId());
+        } catch (KeySourceException e) {
+            log.warn("CachingIdTokenDecoderFactory.prewarm: could not fetch the signing keys of {}: {}", clientRegistration.getRegistrationId(),
+                    e.getMessage());
+        }
+    }
+
+    private CachedDecoder createCachedDecoder(final ClientRegistration clientRegistration, final String jwkSetUri) {
+        DefaultResourceRetriever retriever =
+                new DefaultResourceRetriever(config.getConnectTimeoutMillis(), config.getReadTimeoutMillis(), JWK_SET_SIZE_LIMIT);
+        JWKSourceBuilder<SecurityContext> builder;
+        try {
+            builder = JWKSourceBuilder.create(URI.create(jwkSetUri).toURL(), retriever);
+        } catch (MalformedURLException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid JWK set URI of " + clientRegistration.getRegistrationId() + ": " + jwkSetUri, e);
+        }
+        long refreshTimeout = (long) config.getConnectTimeoutMillis() + config.getReadTimeoutMillis();
+        long timeToLive = TimeUnit.SECONDS.toMillis(config.getJwkCacheSeconds());
+        // Nimbus requires the interval between unknown-key refreshes to be shorter than the time to live
+        builder.cache(timeToLive, refreshTimeout)
+                .refreshAheadCache(TimeUnit.SECONDS.toMillis(config.getJwkRefreshAheadSeconds()), true)
+                .rateLimited(Math.min(JWKSourceBuilder.DEFAULT_RATE_LIMIT_MIN_INTERVAL, timeToLive / 2));
+        if (config.getJwkOutageToleranceSeconds() > 0) {
+            builder.outageTolerant(TimeUnit.SECONDS.toMillis(config.getJwkOutageToleranceSeconds()));
+        } else {
+            builder.outageTolerant(false);
+        }
+        JWKSource<SecurityContext> jwkSource = builder.build();
+
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(ALGORITHMS, jwkSource));
+        // The claims are validated by the validators of the decoder
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(new JwtTimestampValidator(), new OidcIdTokenValidator(clientRegistration)));
+        decoder.setClaimSetConverter(OidcIdTokenDecoderFactory.createDefaultClaimTypeConverter());
+        log.debug("CachingIdTokenDecoderFactory.createCachedDecoder: created the decoder of {} with keys from {}", clientRegistration.getRegistrationId(),
+                jwkSetUri);
+        return new CachedDecoder(decoder, jwkSource);
+    }
+
+    @Override
+    public void destroy() {
+        for (CachedDecoder cachedDecoder : decoders.values()) {
+            if (cachedDecoder.jwkSource() instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    log.debug("CachingIdTokenDecoderFactory.destroy: could not close a JWK source", e);
+                }
+            }
+        }
+        decoders.clear();
+    }
+
+    /**
+     * The decoder of a client registration and its key source.
+     */
+    private record CachedDecoder(JwtDecoder decoder, JWKSource<SecurityContext> jwkSource) {
+    }
+}
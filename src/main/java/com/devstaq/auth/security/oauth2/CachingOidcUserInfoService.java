@@ -0,0 +1,107 @@
+package com.devstaq.auth.security.oauth2;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
+import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
+import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
+import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fetches the user info of OIDC logins, caching it by registration and subject for user.oauth2.userInfoCacheSeconds. The subject is known from the
+ * ID token before the user info is requested, so a cached login skips the request to the provider. If the user info endpoint fails, user info that
+ * expired less than user.oauth2.userInfoMaxStaleSeconds ago is used instead. Plain OAuth2 logins have no subject before their user info is read and
+ * are not cached.
+ * <p>
+ * This is a collaborator of {@link com.devstaq.auth.service.DSOidcUserService}, not an {@link OAuth2UserService} bean, so it does not compete with
+ * the application's user services for injection by type.
+ * </p>
+ */
+@Slf4j
+@Component
+public class CachingOidcUserInfoService {
+
+    /** Expired entries are removed once more than this many users are cached. */
+    static final int EVICTION_THRESHOLD = 10_000;
+
+    /** The clock. */
+    private final Clock clock;
+
+    /** How long user info is cached. Zero turns the cache off. */
+    private final Duration timeToLive;
+
+    /** How long expired user info is used while the endpoint fails. */
+    private final Duration maxStale;
+
+    /** The cached user info, by registration and subject. */
+    private final Map<CacheKey, CachedUserInfo> cache = new ConcurrentHashMap<>();
+
+    OAuth2UserService<OAuth2UserRequest, OAuth2User> delegate = new DefaultOAuth2UserService();
+
+    /**
+     * Instantiates a new caching OIDC user info service.
+     *
+     * @param config the cache configuration
+     * @param clock the clock
+     */
+    public CachingOidcUserInfoService(OAuth2ProviderCacheConfig config, Clock clock) {
+        this.clock = clock;
+        this.timeToLive = Duration.ofSeconds(Math.max(config.getUserInfoCacheSeconds(), 0));
+        this.maxStale = Duration.ofSeconds(Math.max(config.getUserInfoMaxStaleSeconds(), 0));
+    }
+
+    /**
+     * Loads the user info of a login, from the cache if the login is an OIDC login whose user info is cached.
+     *
+     * @param userRequest the user request
+     * @return the user info
+     * @throws OAuth2AuthenticationException if the user info cannot be loaded
+     */
+    public OAuth2User loadUser(final OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
+        if (timeToLive.isZero() || !(userRequest instanceof OidcUserRequest oidcUserRequest)) {
+            return delegate.loadUser(userRequest);
+        }
+        CacheKey key = new CacheKey(userRequest.getClientRegistration().getRegistrationId(), oidcUserRequest.getIdToken().getSubject());
+        Instant now = clock.instant();
+        CachedUserInfo cached = cache.get(key);
+        if (cached != null && now.isBefore(cached.loadedAt().plus(timeToLive))) {
+            return cached.user();
+        }
+        OAuth2User user;
+        try {
+            user = delegate.loadUser(userRequest);
+        } catch (OAuth2AuthenticationException e) {
+            if (cached != null && now.isBefore(cached.loadedAt().plus(timeToLive).plus(maxStale))) {
+                log.warn("CachingOidcUserInfoService.loadUser: user info of {} unavailable, using the cached copy: {}", key.registrationId(),
+                        e.getMessage());
+                return cached.user();
+            }
+            throw e;
+        }
+        cache.put(key, new CachedUserInfo(user, now));
+        if (cache.size() > EVICTION_THRESHOLD) {
+            cache.values().removeIf(entry -> !now.isBefore(entry.loadedAt().plus(timeToLive).plus(maxStale)));
+        }
+        return user;
+    }
+
+    /**
+     * The key of cached user info.
+     */
+    private record CacheKey(String registrationId, String subject) {
+    }
+
+    /**
+     * Cached user info and when it was loaded.
+     */
+    private record CachedUserInfo(OAuth2User user, Instant loadedAt) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.devstaq.auth.security.oauth2;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+
+/**
+ * Configuration class providing the {@link CachingIdTokenDecoderFactory} used for the ID tokens of OIDC logins. Applications can define their own
+ * {@link JwtDecoderFactory} bean to decode ID tokens differently, in which case the caching factory is not created.
+ */
+@Configuration
+public class IdTokenDecoderConfig {
+
+    /**
+     * Provides the caching ID token decoder factory unless the application defines its own decoder factory.
+     *
+     * @param config the cache configuration
+     * @param clientRegistrationRepository the client registrations
+     * @return the decoder factory
+     */
+    @Bean
+    @ConditionalOnMissingBean(JwtDecoderFactory.class)
+    public CachingIdTokenDecoderFactory cachingIdTokenDecoderFactory(OAuth2ProviderCacheConfig config,
+            ObjectProvider<ClientRegistrationRepository> clientRegistrationRepository) {
+        return new CachingIdTokenDecoderFactory(config, clientRegistrationRepository);
+    }
+}
@@ -0,0 +1,29 @@
+package com.devstaq.auth.security.oauth2;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fetches the signing keys of the OIDC providers in the background once the application is ready, so the first login does not wait for them. Does
+ * nothing if the application defines its own ID token decoder factory.
+ */
+@Component
+@RequiredArgsConstructor
+public class JwkSetPrewarmer {
+
+    /** The decoder factory that caches the keys, if it is used. */
+    private final ObjectProvider<CachingIdTokenDecoderFactory> decoderFactory;
+
+    /**
+     * Pre-warms the signing key caches.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        decoderFactory.ifAvailable(CachingIdTokenDecoderFactory::prewarmAll);
+    }
+}
@@ -0,0 +1,61 @@
+package com.devstaq.auth.security.oauth2;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * The OAuth2ProviderCacheConfig class is a Spring Boot configuration class that provides properties for the caches in front of the OAuth2 and OIDC
+ * identity providers: how long signing keys and user info are kept, when they are refreshed, and how long stale copies are used while a provider
+ * fails.
+ */
+@Data
+@Component
+@PropertySource("classpath:config/dsspringuserconfig.properties")
+@ConfigurationProperties(prefix = "user.oauth2")
+public class OAuth2ProviderCacheConfig {
+
+    /**
+     * How long the signing keys (JWK set) of a provider are cached, in seconds.
+     */
+    private long jwkCacheSeconds = 300;
+
+    /**
+     * How long before the cached signing keys expire they are fetched again in the background, in seconds. Must be less than the cache time minus
+     * the connect and read timeouts.
+     */
+    private long jwkRefreshAheadSeconds = 60;
+
+    /**
+     * How long the last signing keys keep being used after they expired while the provider cannot be reached, in seconds. 0 turns this off.
+     */
+    private long jwkOutageToleranceSeconds = 3600;
+
+    /**
+     * If true, the signing keys of all OIDC client registrations are fetched when the application is ready, so the first login does not wait for
+     * them.
+     */
+    private boolean prewarmJwks = true;
+
+    /**
+     * The connect timeout of requests for signing keys, in milliseconds.
+     */
+    private int connectTimeoutMillis = 2000;
+
+    /**
+     * The read timeout of requests for signing keys, in milliseconds.
+     */
+    private int readTimeoutMillis = 2000;
+
+    /**
+     * How long the user info of an OIDC login is cached by registration and subject, in seconds. Profile changes at the provider show after at most
+     * this long. 0 turns the cache off.
+     */
+    private long userInfoCacheSeconds = 0;
+
+    /**
+     * How long cached user info keeps being used after it expired while the user info endpoint fails, in seconds.
+     */
+    private long userInfoMaxStaleSeconds = 3600;
+}
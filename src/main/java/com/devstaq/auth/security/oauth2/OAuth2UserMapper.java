@@ -0,0 +1,26 @@
+package com.devstaq.auth.security.oauth2;
+
+import com.devstaq.auth.persistence.model.User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+/**
+ * Maps the attributes an OAuth2 or OIDC provider returned to a user profile. Declare an implementation as a bean to support a provider whose
+ * attributes cannot be described by a user.oauth2.mappings entry; a bean replaces the built-in and configured mapping of its registration id.
+ */
+public interface OAuth2UserMapper {
+
+    /**
+     * The registration id of the client registration this mapper handles, as in spring.security.oauth2.client.registration.&lt;id&gt;.
+     *
+     * @return the registration id
+     */
+    String registrationId();
+
+    /**
+     * Builds the user profile from the attributes of an authenticated principal.
+     *
+     * @param principal the principal returned by the provider
+     * @return the user with email, names and provider set
+     */
+    User map(OAuth2User principal);
+}
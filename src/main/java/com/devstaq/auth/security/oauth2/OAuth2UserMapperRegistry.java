@@ -0,0 +1,75 @@
+package com.devstaq.auth.security.oauth2;
+
+import com.devstaq.auth.persistence.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolves the {@link OAuth2UserMapper} of a client registration. The mappers are collected once at startup into an immutable map: the built-in
+ * mappings of Google, Facebook, Keycloak, Apple and GitHub, replaced by the user.oauth2.mappings entries, replaced in turn by
+ * {@link OAuth2UserMapper} beans. Registration ids are matched exactly first, then in lower case. If user.oauth2.genericOidcEnabled is true, an OIDC
+ * registration without a mapper is mapped from the standard claims, and only if its email_verified claim is true.
+ */
+@Slf4j
+@Component
+public class OAuth2UserMapperRegistry {
+
+    /** The registration id of the mapping used for OIDC registrations without a mapper of their own. */
+    static final String GENERIC_OIDC = "oidc";
+
+    /** The mappers, by registration id. */
+    private final Map<String, OAuth2UserMapper> mappers;
+
+    /** The mapper of OIDC registrations without a mapper of their own, or null if they are not supported. */
+    private final OAuth2UserMapper genericOidcMapper;
+
+    /**
+     * Instantiates a new registry.
+     *
+     * @param config the configured attribute mappings
+     * @param customMappers the mapper beans
+     */
+    public OAuth2UserMapperRegistry(final OAuth2UserMappingConfig config, final List<OAuth2UserMapper> customMappers) {
+        Map<String, OAuth2UserMapper> resolved = new HashMap<>();
+        for (User.Provider provider : List.of(User.Provider.GOOGLE, User.Provider.FACEBOOK, User.Provider.KEYCLOAK, User.Provider.APPLE,
+                User.Provider.GITHUB)) {
+            String registrationId = provider.name().toLowerCase(Locale.ROOT);
+            resolved.put(registrationId, new AttributeOAuth2UserMapper(registrationId, OAuth2UserMappingConfig.Mapping.of(provider)));
+        }
+        config.getMappings().forEach((registrationId, mapping) -> resolved.put(registrationId, new AttributeOAuth2UserMapper(registrationId, mapping)));
+        for (OAuth2UserMapper mapper : customMappers) {
+            resolved.put(mapper.registrationId(), mapper);
+        }
+        OAuth2UserMapper generic = resolved.remove(GENERIC_OIDC);
+        if (!config.isGenericOidcEnabled()) {
+            generic = null;
+        } else if (generic == null) {
+            OAuth2UserMappingConfig.Mapping mapping = OAuth2UserMappingConfig.Mapping.of(User.Provider.OIDC);
+            mapping.setEmailVerified("email_verified");
+            generic = new AttributeOAuth2UserMapper(GENERIC_OIDC, mapping);
+        }
+        this.genericOidcMapper = generic;
+        this.mappers = Map.copyOf(resolved);
+        log.debug("OAuth2UserMapperRegistry: mappers for {}", mappers.keySet());
+    }
+
+    /**
+     * Finds the mapper of a client registration.
+     *
+     * @param registrationId the registration id
+     * @param oidc true if the login used OIDC, in which case registrations without a mapper use the generic OIDC mapping if it is enabled
+     * @return the mapper, or null if the registration is not supported
+     */
+    public OAuth2UserMapper find(final String registrationId, final boolean oidc) {
+        OAuth2UserMapper mapper = mappers.get(registrationId);
+        if (mapper == null) {
+            mapper = mappers.get(registrationId.toLowerCase(Locale.ROOT));
+        }
+        return mapper == null && oidc ? genericOidcMapper : mapper;
+    }
+}
@@ -0,0 +1,82 @@
+package com.devstaq.auth.security.oauth2;
+
+import com.devstaq.auth.persistence.model.User;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The OAuth2UserMappingConfig class is a Spring Boot configuration class that provides the attribute mappings of OAuth2 and OIDC client
+ * registrations, by registration id. Google, Facebook, Keycloak, Apple and GitHub are mapped without configuration; an entry here replaces the
+ * built-in mapping of its registration id. Other OIDC registrations are only mapped from the standard claims if genericOidcEnabled is true.
+ */
+@Data
+@Component
+@PropertySource("classpath:config/dsspringuserconfig.properties")
+@ConfigurationProperties(prefix = "user.oauth2")
+public class OAuth2UserMappingConfig {
+
+    /**
+     * The attribute mappings, by registration id. For example user.oauth2.mappings.okta.provider=OIDC.
+     */
+    private Map<String, Mapping> mappings = new LinkedHashMap<>();
+
+    /**
+     * If true, OIDC registrations without a mapping are mapped from the standard claims. Their users are only accepted if the email_verified claim is
+     * true.
+     */
+    private boolean genericOidcEnabled = false;
+
+    /**
+     * The attributes that hold the user's email and names. A dot separates the names of nested attributes, as in address.email.
+     */
+    @Data
+    public static class Mapping {
+
+        /**
+         * The provider the users of the registration are recorded with.
+         */
+        private User.Provider provider = User.Provider.OIDC;
+
+        /**
+         * The attribute holding the email.
+         */
+        private String email = "email";
+
+        /**
+         * The attribute holding the first name.
+         */
+        private String firstName = "given_name";
+
+        /**
+         * The attribute holding the last name.
+         */
+        private String lastName = "family_name";
+
+        /**
+         * The attribute holding the full name, split into first and last name if neither name attribute is present.
+         */
+        private String name = "name";
+
+        /**
+         * The attribute which must be true for the email to be accepted, as in email_verified. Not checked if empty.
+         */
+        private String emailVerified;
+
+        /**
+         * Creates the default mapping for a provider.
+         *
+         * @param provider the provider
+         * @return the mapping
+         */
+        static Mapping of(final User.Provider provider) {
+            Mapping mapping = new Mapping();
+            mapping.setProvider(provider);
+            return mapping;
+        }
+    }
+}
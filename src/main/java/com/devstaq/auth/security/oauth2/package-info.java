@@ -0,0 +1,20 @@
+/**
+ * This package contains the caches in front of the OAuth2 and OIDC identity providers of the Spring User Framework, and the mappers from the
+ * attributes the providers return to users.
+ *
+ * <p>
+ * Without them, logging in with an OIDC provider fetches the provider's signing keys and user info on the login request, so a slow provider makes
+ * every login slow. The signing keys are kept per client registration and refreshed in the background before they expire, and the last keys keep
+ * being used while the provider fails. The user info of OIDC logins can be cached by subject.
+ * </p>
+ *
+ * <p>
+ * The mappers are resolved by registration id once at startup, from built-in mappings, user.oauth2.mappings entries and
+ * {@link com.devstaq.auth.security.oauth2.OAuth2UserMapper} beans.
+ * </p>
+ *
+ * <p>
+ * This package is part of the Devstaq Spring User Framework project.
+ * </p>
+ */
+package com.devstaq.auth.security.oauth2;
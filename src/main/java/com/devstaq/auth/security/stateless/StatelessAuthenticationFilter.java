@@ -0,0 +1,73 @@
+package com.devstaq.auth.security.stateless;
+
+import com.devstaq.auth.service.DSUserDetails;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * The StatelessAuthenticationFilter authenticates requests from their access token in the stateless session mode.
+ * <p>
+ * The user details are rebuilt from the token claims, so no session and no database read is needed. When a browser's access token has expired but it
+ * still sends a refresh token cookie, the tokens are refreshed on the fly, which keeps server rendered pages working without client side code. This
+ * filter is added to the security filter chain by the {@code WebSecurityConfig} and is not a bean, so it is not registered with the servlet container
+ * as well.
+ * </p>
+ */
+@Slf4j
+public class StatelessAuthenticationFilter extends OncePerRequestFilter {
+
+    private final StatelessTokenService statelessTokenService;
+
+    private final SecurityContextHolderStrategy securityContextHolderStrategy = SecurityContextHolder.getContextHolderStrategy();
+
+    /**
+     * Instantiates a new stateless authentication filter.
+     *
+     * @param statelessTokenService the stateless token service
+     */
+    public StatelessAuthenticationFilter(StatelessTokenService statelessTokenService) {
+        this.statelessTokenService = statelessTokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (securityContextHolderStrategy.getContext().getAuthentication() == null) {
+            DSUserDetails userDetails = statelessTokenService.authenticate(statelessTokenService.resolveAccessToken(request));
+            if (userDetails == null && !request.getRequestURI().endsWith(statelessTokenService.getRefreshUri())) {
+                userDetails = refresh(request, response);
+            }
+            if (userDetails != null) {
+                SecurityContext context = securityContextHolderStrategy.createEmptyContext();
+                context.setAuthentication(new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+                securityContextHolderStrategy.setContext(context);
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private DSUserDetails refresh(HttpServletRequest request, HttpServletResponse response) {
+        String refreshToken = statelessTokenService.resolveRefreshToken(request);
+        if (refreshToken == null) {
+            return null;
+        }
+        StatelessTokenService.TokenPair tokens = statelessTokenService.refresh(refreshToken);
+        if (tokens == null) {
+            log.debug("StatelessAuthenticationFilter.refresh: refresh token rejected, clearing token cookies");
+            statelessTokenService.clearCookies(response);
+            return null;
+        }
+        statelessTokenService.writeCookies(response, tokens);
+        return statelessTokenService.authenticate(tokens.accessToken());
+    }
+}
@@ -0,0 +1,74 @@
+package com.devstaq.auth.security.stateless;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The StatelessSessionConfig class is a Spring Boot configuration class that provides properties for configuring the stateless session mode. This
+ * class is used to turn the mode on, and to define the signing keys, the token lifetimes and the cookies the tokens are sent in.
+ */
+@Data
+@Component
+@PropertySource("classpath:config/dsspringuserconfig.properties")
+@ConfigurationProperties(prefix = "user.security.stateless")
+public class StatelessSessionConfig {
+
+    /**
+     * The enabled flag. If set to true, no HTTP session is created. Logins are carried by signed access tokens and rotating refresh tokens instead.
+     */
+    private boolean enabled;
+
+    /**
+     * The id of the key used to sign new access tokens. Must be one of the keys in {@link #keys}.
+     */
+    private String activeKeyId;
+
+    /**
+     * The access token signing keys, keyed by key id. Values are Base64 encoded secrets of at least 32 bytes. Retired keys should be kept here for
+     * one access token lifetime after rotation, so that tokens already handed out keep validating. If no keys are configured a random key is
+     * generated at startup, which only works for a single node and does not survive a restart.
+     */
+    private Map<String, String> keys = new LinkedHashMap<>();
+
+    /**
+     * The access token lifetime in minutes. Authorities and account state changes take effect on other nodes after at most this long.
+     */
+    private int accessTokenMinutes = 15;
+
+    /**
+     * The refresh token lifetime in days, counted from the login.
+     */
+    private int refreshTokenDays = 14;
+
+    /**
+     * The number of seconds during which the refresh token replaced by the latest rotation is rejected without revoking its family. This covers a
+     * browser sending several requests with the same refresh cookie at once; any later reuse is treated as theft.
+     */
+    private int refreshReuseGraceSeconds = 30;
+
+    /**
+     * The name of the cookie the access token is sent in.
+     */
+    private String accessTokenCookieName = "DS_ACCESS_TOKEN";
+
+    /**
+     * The name of the cookie the refresh token is sent in.
+     */
+    private String refreshTokenCookieName = "DS_REFRESH_TOKEN";
+
+    /**
+     * The URI that exchanges a refresh token for a new access token and refresh token.
+     */
+    private String refreshUri = "/user/token/refresh";
+
+    /**
+     * The secure flag of the token cookies. Only disable this for local development over plain HTTP.
+     */
+    private boolean secureCookies = true;
+
+}
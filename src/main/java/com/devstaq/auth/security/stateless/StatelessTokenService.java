@@ -0,0 +1,417 @@
+package com.devstaq.auth.security.stateless;
+
+import com.devstaq.auth.persistence.model.RefreshTokenFamily;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.RefreshTokenFamilyRepository;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import com.devstaq.auth.service.DSUserDetails;
+import com.devstaq.auth.service.LoginHelperService;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The StatelessTokenService issues and validates the tokens of the stateless session mode.
+ * <p>
+ * Access tokens are HMAC-SHA256 signed JWTs which carry the user's id, email, name and authorities. They are validated without a database read and
+ * turned back into a {@link DSUserDetails}, so the user object of the principal is a snapshot of the claims and must not be saved. The key id is
+ * written into the token header, so the active key can be rotated while tokens signed with a retired key keep validating until they expire.
+ * </p>
+ * <p>
+ * Refresh tokens are opaque: a family id followed by a random secret. One {@link RefreshTokenFamily} row is written per login and only the hash of
+ * its current secret is stored. A refresh swaps the secret in a single conditional update and reloads the user, so locked, disabled and deleted
+ * accounts stop refreshing and changed authorities are picked up. Presenting a replaced refresh token revokes the family.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StatelessTokenService {
+
+    /** The JSON body field of the refresh endpoint a refresh token can be sent in by clients that do not use cookies. */
+    public static final String REFRESH_TOKEN_PARAMETER = "refreshToken";
+
+    private static final int MIN_KEY_LENGTH = 32;
+    private static final int SECRET_LENGTH = 32;
+    private static final String EPHEMERAL_KEY_ID = "ephemeral";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String EMAIL_CLAIM = "email";
+    private static final String GIVEN_NAME_CLAIM = "given_name";
+    private static final String FAMILY_NAME_CLAIM = "family_name";
+    private static final String AUTHORITIES_CLAIM = "authorities";
+
+    private final StatelessSessionConfig statelessSessionConfig;
+
+    private final RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    private final UserRepository userRepository;
+
+    private final LoginHelperService loginHelperService;
+
+    private final Clock clock;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private String activeKeyId;
+    private JwtEncoder jwtEncoder;
+    private JwtDecoder jwtDecoder;
+
+    /**
+     * Loads the signing keys. Nothing is loaded if the stateless session mode is disabled.
+     */
+    @PostConstruct
+    public void init() {
+        if (!statelessSessionConfig.isEnabled()) {
+            return;
+        }
+        Map<String, JWK> loaded = new LinkedHashMap<>();
+        statelessSessionConfig.getKeys().forEach((keyId, secret) -> {
+            byte[] keyBytes = Base64.getDecoder().decode(secret.trim());
+            if (keyBytes.length < MIN_KEY_LENGTH) {
+                throw new IllegalStateException("Access token signing key " + keyId + " must be at least " + MIN_KEY_LENGTH + " bytes");
+            }
+            loaded.put(keyId, new OctetSequenceKey.Builder(keyBytes).keyID(keyId).build());
+        });
+
+        String active = StringUtils.hasText(statelessSessionConfig.getActiveKeyId()) ? statelessSessionConfig.getActiveKeyId() : null;
+        if (loaded.isEmpty()) {
+            log.warn("StatelessTokenService.init: no access token signing keys configured, generating an ephemeral key. "
+                    + "Logins will not survive a restart and will not be accepted by other nodes.");
+            byte[] keyBytes = new byte[MIN_KEY_LENGTH];
+            secureRandom.nextBytes(keyBytes);
+            loaded.put(EPHEMERAL_KEY_ID, new OctetSequenceKey.Builder(keyBytes).keyID(EPHEMERAL_KEY_ID).build());
+            active = EPHEMERAL_KEY_ID;
+        } else if (active == null && loaded.size() == 1) {
+            active = loaded.keySet().iterator().next();
+        }
+        if (active == null || !loaded.containsKey(active)) {
+            throw new IllegalStateException("user.security.stateless.activeKeyId must name one of the configured signing keys");
+        }
+
+        this.activeKeyId = active;
+        this.jwtEncoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(loaded.get(active))));
+
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        JWKSet verificationKeys = new JWKSet(new ArrayList<>(loaded.values()));
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.HS256, new ImmutableJWKSet<>(verificationKeys)));
+        // Expiry is checked by the Spring validator below, which uses the injected clock
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+        JwtTimestampValidator timestampValidator = new JwtTimestampValidator(Duration.ZERO);
+        timestampValidator.setClock(clock);
+        decoder.setJwtValidator(timestampValidator);
+        this.jwtDecoder = decoder;
+        log.info("StatelessTokenService.init: stateless sessions enabled with {} key(s), active key: {}", loaded.size(), activeKeyId);
+    }
+
+    /**
+     * Checks whether the stateless session mode is enabled.
+     * @return true if logins are carried by tokens instead of the HTTP session
+     */
+    public boolean isEnabled() {
+        return statelessSessionConfig.isEnabled();
+    }
+
+    /**
+     * Starts a new refresh token family for a login and issues its first tokens.
+     * @param userDetails the authenticated user
+     * @return the access token and refresh token
+     */
+    @Transactional
+    public TokenPair issueTokens(final DSUserDetails userDetails) {
+        User user = userDetails.getUser();
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("Cannot issue tokens for an unsaved user");
+        }
+        Instant now = clock.instant();
+        Instant refreshExpiresAt = now.plus(Duration.ofDays(statelessSessionConfig.getRefreshTokenDays()));
+        String familyId = UUID.randomUUID().toString();
+        String secret = newSecret();
+        refreshTokenFamilyRepository.save(new RefreshTokenFamily(familyId, user.getId(), hash(secret), now, refreshExpiresAt));
+        return newTokenPair(userDetails, now, familyId, secret, refreshExpiresAt);
+    }
+
+    /**
+     * Validates an access token and rebuilds the user details from its claims, without reading the database.
+     * @param accessToken the encoded access token
+     * @return the user details, or null if the token is malformed, was signed with an unknown key, has a bad signature or has expired
+     */
+    public DSUserDetails authenticate(final String accessToken) {
+        if (jwtDecoder == null || !StringUtils.hasText(accessToken)) {
+            return null;
+        }
+        Jwt jwt;
+        try {
+            jwt = jwtDecoder.decode(accessToken);
+        } catch (JwtException e) {
+            log.debug("StatelessTokenService.authenticate: rejected access token: {}", e.getMessage());
+            return null;
+        }
+        User user = new User();
+        user.setId(Long.valueOf(jwt.getSubject()));
+        user.setEmail(jwt.getClaimAsString(EMAIL_CLAIM));
+        user.setFirstName(jwt.getClaimAsString(GIVEN_NAME_CLAIM));
+        user.setLastName(jwt.getClaimAsString(FAMILY_NAME_CLAIM));
+        user.setEnabled(true);
+        List<String> authorityNames = jwt.getClaimAsStringList(AUTHORITIES_CLAIM);
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        if (authorityNames != null) {
+            authorityNames.forEach(name -> authorities.add(DSUserDetails.internAuthority(name)));
+        }
+        return new DSUserDetails(user, authorities);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and refresh token. The presented refresh token can not be used again.
+     * @param refreshToken the encoded refresh token
+     * @return the new tokens, or null if the refresh token is unknown, expired or has already been used, or if the account can no longer log in
+     */
+    @Transactional
+    public TokenPair refresh(final String refreshToken) {
+        String[] parts = split(refreshToken);
+        if (parts == null) {
+            return null;
+        }
+        RefreshTokenFamily family = refreshTokenFamilyRepository.findById(parts[0]).orElse(null);
+        if (family == null) {
+            return null;
+        }
+        Instant now = clock.instant();
+        String presentedHash = hash(parts[1]);
+        String newSecret = newSecret();
+        if (refreshTokenFamilyRepository.rotate(family.getId(), presentedHash, hash(newSecret), now) == 0) {
+            rejectRefresh(family, presentedHash, now);
+            return null;
+        }
+
+        User user = userRepository.findById(family.getUserId()).orElse(null);
+        if (user == null || !user.isEnabled()) {
+            refreshTokenFamilyRepository.deleteById(family.getId());
+            return null;
+        }
+        DSUserDetails userDetails = loginHelperService.userLoginHelper(user);
+        if (!userDetails.isAccountNonLocked()) {
+            return null;
+        }
+        return newTokenPair(userDetails, now, family.getId(), newSecret, family.getExpiryDate());
+    }
+
+    /**
+     * Revokes the refresh token family of a refresh token, for example on logout. Access tokens already issued stay valid until they expire.
+     * @param refreshToken the encoded refresh token
+     */
+    @Transactional
+    public void revoke(final String refreshToken) {
+        String[] parts = split(refreshToken);
+        if (parts == null) {
+            return;
+        }
+        refreshTokenFamilyRepository.findById(parts[0]).filter(family -> MessageDigest.isEqual(bytes(family.getTokenHash()), bytes(hash(parts[1]))))
+                .ifPresent(refreshTokenFamilyRepository::delete);
+    }
+
+    /**
+     * Revokes every refresh token family of a user, for example after a password change.
+     * @param user the user
+     */
+    @Transactional
+    public void revokeAll(final User user) {
+        if (isEnabled() && user != null && user.getId() != null) {
+            int revoked = refreshTokenFamilyRepository.deleteAllByUserId(user.getId());
+            log.debug("StatelessTokenService.revokeAll: revoked {} refresh token families of user: {}", revoked, user.getEmail());
+        }
+    }
+
+    /**
+     * Finds the access token of a request, in the Authorization header or in the access token cookie.
+     * @param request the request
+     * @return the encoded access token, or null
+     */
+    public String resolveAccessToken(final HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return authorization.substring(BEARER_PREFIX.length()).trim();
+        }
+        return cookieValue(request, statelessSessionConfig.getAccessTokenCookieName());
+    }
+
+    /**
+     * Finds the refresh token of a request in the refresh token cookie. Request parameters are never read, so a crafted link cannot log a browser
+     * into another account, and refresh tokens stay out of URLs and access logs.
+     * @param request the request
+     * @return the encoded refresh token, or null
+     */
+    public String resolveRefreshToken(final HttpServletRequest request) {
+        return cookieValue(request, statelessSessionConfig.getRefreshTokenCookieName());
+    }
+
+    /**
+     * Sends the tokens to the browser in HttpOnly cookies.
+     * @param response the response
+     * @param tokens the tokens
+     */
+    public void writeCookies(final HttpServletResponse response, final TokenPair tokens) {
+        Instant now = clock.instant();
+        addCookie(response, statelessSessionConfig.getAccessTokenCookieName(), tokens.accessToken(),
+                Duration.between(now, tokens.accessTokenExpiresAt()), "Lax");
+        addCookie(response, statelessSessionConfig.getRefreshTokenCookieName(), tokens.refreshToken(),
+                Duration.between(now, tokens.refreshTokenExpiresAt()), "Strict");
+    }
+
+    /**
+     * Removes the token cookies from the browser.
+     * @param response the response
+     */
+    public void clearCookies(final HttpServletResponse response) {
+        addCookie(response, statelessSessionConfig.getAccessTokenCookieName(), "", Duration.ZERO, "Lax");
+        addCookie(response, statelessSessionConfig.getRefreshTokenCookieName(), "", Duration.ZERO, "Strict");
+    }
+
+    /**
+     * Gets the URI that exchanges a refresh token for new tokens.
+     * @return the refresh URI
+     */
+    public String getRefreshUri() {
+        return statelessSessionConfig.getRefreshUri();
+    }
+
+    private TokenPair newTokenPair(DSUserDetails userDetails, Instant now, String familyId, String secret, Instant refreshExpiresAt) {
+        User user = userDetails.getUser();
+        Instant accessExpiresAt = now.plus(Duration.ofMinutes(statelessSessionConfig.getAccessTokenMinutes()));
+        List<String> authorityNames = userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).sorted().toList();
+        JwtClaimsSet.Builder claims = JwtClaimsSet.builder().subject(String.valueOf(user.getId())).issuedAt(now).expiresAt(accessExpiresAt)
+                .claim(AUTHORITIES_CLAIM, authorityNames);
+        if (user.getEmail() != null) {
+            claims.claim(EMAIL_CLAIM, user.getEmail());
+        }
+        if (user.getFirstName() != null) {
+            claims.claim(GIVEN_NAME_CLAIM, user.getFirstName());
+        }
+        if (user.getLastName() != null) {
+            claims.claim(FAMILY_NAME_CLAIM, user.getLastName());
+        }
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).keyId(activeKeyId).build();
+        String accessToken = jwtEncoder.encode(JwtEncoderParameters.from(header, claims.build())).getTokenValue();
+        return new TokenPair(accessToken, accessExpiresAt, familyId + "." + secret, refreshExpiresAt);
+    }
+
+    /**
+     * Decides what a failed rotation means. A token replaced within the grace period is most likely a concurrent request of the same browser and is
+     * only rejected. Any other replaced token is being replayed, so the whole family is revoked.
+     */
+    private void rejectRefresh(RefreshTokenFamily family, String presentedHash, Instant now) {
+        if (!family.getExpiryDate().isAfter(now)) {
+            refreshTokenFamilyRepository.deleteById(family.getId());
+            return;
+        }
+        boolean recentlyReplaced = presentedHash.equals(family.getPreviousTokenHash()) && family.getRotatedDate() != null
+                && family.getRotatedDate().plusSeconds(statelessSessionConfig.getRefreshReuseGraceSeconds()).isAfter(now);
+        if (!recentlyReplaced) {
+            log.warn("StatelessTokenService.refresh: refresh token reuse detected, revoking refresh token family of user id: {}", family.getUserId());
+            refreshTokenFamilyRepository.deleteById(family.getId());
+        }
+    }
+
+    private void addCookie(HttpServletResponse response, String name, String value, Duration maxAge, String sameSite) {
+        ResponseCookie cookie = ResponseCookie.from(name, value).path("/").httpOnly(true).secure(statelessSessionConfig.isSecureCookies())
+                .sameSite(sameSite).maxAge(maxAge).build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private String newSecret() {
+        byte[] secret = new byte[SECRET_LENGTH];
+        secureRandom.nextBytes(secret);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+    }
+
+    private static String[] split(String refreshToken) {
+        if (refreshToken == null) {
+            return null;
+        }
+        int separator = refreshToken.indexOf('.');
+        if (separator <= 0 || separator == refreshToken.length() - 1) {
+            return null;
+        }
+        return new String[] {refreshToken.substring(0, separator), refreshToken.substring(separator + 1)};
+    }
+
+    private static String cookieValue(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookie.getName().equals(name) && StringUtils.hasText(cookie.getValue())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String hash(String secret) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(secret.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An access token and the refresh token issued with it.
+     *
+     * @param accessToken the encoded access token
+     * @param accessTokenExpiresAt the expiry of the access token
+     * @param refreshToken the encoded refresh token
+     * @param refreshTokenExpiresAt the expiry of the refresh token
+     */
+    public record TokenPair(String accessToken, Instant accessTokenExpiresAt, String refreshToken, Instant refreshTokenExpiresAt) {
+    }
+}
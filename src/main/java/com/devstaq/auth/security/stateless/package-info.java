@@ -0,0 +1,23 @@
+/**
+ * This package contains the stateless session mode for the Spring User Framework.
+ *
+ * <p>
+ * The classes in this package replace the HTTP session with short-lived signed access tokens and rotating refresh tokens. An access token carries
+ * the user's id, name and authorities, so authenticating a request is pure CPU work and needs neither a session nor a database read. Refresh tokens
+ * are single use; presenting one a second time revokes every token issued for that login.
+ * </p>
+ *
+ *
+ * The main functionalities provided by this package include:
+ * <ul>
+ * <li>Issuing and validating signed access tokens</li>
+ * <li>Refresh token rotation with reuse detection</li>
+ * <li>Signing key rotation</li>
+ * </ul>
+ *
+ *
+ * <p>
+ * This package is part of the Devstaq Spring User Framework project.
+ * </p>
+ */
+package com.devstaq.auth.security.stateless;
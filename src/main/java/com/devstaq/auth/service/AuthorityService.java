@@ -6,7 +6,6 @@ import com.devstaq.auth.persistence.model.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -45,9 +44,9 @@ public class AuthorityService {
     public Collection<? extends GrantedAuthority> getAuthoritiesFromRoles(Collection<Role> roles) {
         // flatMap streams the roles, and maps each Role to its privileges (a Collection of Privilege objects).
         // The stream of Collection<Privilege> objects is then flattened into a single stream of Privilege objects.
-        // Finally, each Privilege is mapped to its name as a String, wrapped in a SimpleGrantedAuthority object,
+        // Finally, each Privilege is mapped to its name as a String, mapped to the GrantedAuthority shared by all principals,
         // and collected into a Set of GrantedAuthority objects.
-        return roles.stream().flatMap(role -> role.getPrivileges().stream()).map(Privilege::getName).map(SimpleGrantedAuthority::new)
+        return roles.stream().flatMap(role -> role.getPrivileges().stream()).map(Privilege::getName).map(DSUserDetails::internAuthority)
                 .collect(Collectors.toSet());
     }
 
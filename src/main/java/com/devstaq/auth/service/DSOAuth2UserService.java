@@ -1,12 +1,11 @@
 package com.devstaq.auth.service;
 
-import com.devstaq.auth.audit.AuditEvent;
 import com.devstaq.auth.persistence.model.User;
-import com.devstaq.auth.persistence.repository.RoleRepository;
 import com.devstaq.auth.persistence.repository.UserRepository;
+import com.devstaq.auth.security.oauth2.OAuth2UserMapper;
+import com.devstaq.auth.security.oauth2.OAuth2UserMapperRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
@@ -16,8 +15,6 @@ import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Arrays;
-
 /**
  *
  * This class is an implementation of the OAuth2UserService interface that is used to handle OAuth2 logins for a Spring Security application. It
@@ -44,105 +41,41 @@ import java.util.Arrays;
 @RequiredArgsConstructor
 public class DSOAuth2UserService implements OAuth2UserService<OAuth2UserRequest, OAuth2User> {
 
-    /** The user repository. */
-    private final UserRepository userRepository;
-
-    /** The role repository. */
-    private final RoleRepository roleRepository;
+    /** The OAuth user upsert service. */
+    private final OAuthUserUpsertService oAuthUserUpsertService;
 
     private final LoginHelperService loginHelperService;
 
-
-
-    /** The Event Publisher. */
-    private final ApplicationEventPublisher eventPublisher;
-
-    /** The user role name. */
-    private static final String USER_ROLE_NAME = "ROLE_USER";
+    /** The mappers from provider attributes to users. */
+    private final OAuth2UserMapperRegistry oAuth2UserMapperRegistry;
 
     DefaultOAuth2UserService defaultOAuth2UserService = new DefaultOAuth2UserService();
 
     /**
      *
-     * Handles a successful OAuth2 login. If the user is already registered, updates their account with any new information from the OAuth2 provider.
-     * If the user is not already registered, creates a new user account with the information from the OAuth2 provider and saves it to the database.
+     * Handles a successful OAuth2 login. If the user is already registered, updates their account if the information from the OAuth2 provider
+     * changed. If the user is not already registered, creates a new user account with the information from the OAuth2 provider.
      *
      * @param registrationId The registration ID for the OAuth2 provider.
      * @param oAuth2User The OAuth2User object containing information about the authenticated user.
      * @return A User object representing the authenticated user.
      */
     public User handleOAuthLoginSuccess(String registrationId, OAuth2User oAuth2User) {
-        User user = null;
-        if (registrationId.equalsIgnoreCase("google")) {
-            user = getUserFromGoogleOAuth2User(oAuth2User);
-        } else if (registrationId.equalsIgnoreCase("facebook")) {
-            user = getUserFromFacebookOAuth2User(oAuth2User);
-        } else {
+        OAuth2UserMapper mapper = oAuth2UserMapperRegistry.find(registrationId, false);
+        if (mapper == null) {
             log.error("Sorry! Login with " + registrationId + " is not supported yet.");
             throw new OAuth2AuthenticationException(new OAuth2Error("Login Exception"),
                     "Sorry! Login with " + registrationId + " is not supported yet.");
         }
-        if (user == null) {
-            log.error("handleOAuthLoginSuccess: user is null");
+        User user = oAuth2User != null ? mapper.map(oAuth2User) : null;
+        if (user == null || user.getEmail() == null) {
+            log.error("handleOAuthLoginSuccess: no user or email from {}", registrationId);
             throw new OAuth2AuthenticationException(new OAuth2Error("Login Exception"),
                     "Sorry! An error occurred while processing your login request.");
         }
-        log.debug("handleOAuthLoginSuccess: looking up user with email: {}", user.getEmail());
-        User existingUser = userRepository.findByEmail(user.getEmail().toLowerCase());
-        log.debug("handleOAuthLoginSuccess: existingUser: {}", existingUser);
-        if (existingUser != null && registrationId != null) {
-            log.debug("handleOAuthLoginSuccess: existingUser.getProvider(): {}", existingUser.getProvider());
-            // If the user is already registered with a different auth provider (OAuth2 or Local), throw an exception.
-            if (!existingUser.getProvider().toString().equals(registrationId.toUpperCase())) {
-                log.debug("handleOAuthLoginSuccess: ERROR! existingUser.getProvider(): {}", existingUser.getProvider());
-                throw new OAuth2AuthenticationException(new OAuth2Error("User Registered With Alternate Provider"),
-                        "Looks like you're signed up with your " + existingUser.getProvider() + " account. Please use your "
-                                + existingUser.getProvider() + " account to log in.");
-            }
-            existingUser = updateExistingUser(existingUser, user);
-            return userRepository.save(existingUser);
-        } else {
-            log.debug("handleOAuthLoginSuccess: registering new user with email: {}", user.getEmail());
-            user = registerNewOAuthUser(registrationId, user);
-            return user;
-        }
-    }
-
-    /**
-     *
-     * Registers a new user with an OAuth2 account. Creates a new user account with the information from the OAuth2 provider and saves it to the
-     * database.
-     *
-     * @param registrationId The registration ID for the OAuth2 provider.
-     * @param user The User object representing the authenticated user.
-     * @return A User object representing the newly registered user.
-     */
-    @Transactional
-    private User registerNewOAuthUser(String registrationId, User user) {
-        User.Provider provider = User.Provider.valueOf(registrationId.toUpperCase());
-        user.setProvider(provider);
-        user.setRoles(Arrays.asList(roleRepository.findByName(USER_ROLE_NAME)));
-        // We will trust OAuth2 providers to provide us with a verified email address.
-        user.setEnabled(true);
-        AuditEvent registrationAuditEvent = AuditEvent.builder().source(this).user(user).action("OAuth2 Registration Success").actionStatus("Success")
-                .message("Registration Confirmed. User logged in.").build();
-
-        eventPublisher.publishEvent(registrationAuditEvent);
-        return userRepository.save(user);
-    }
-
-    /**
-     *
-     * Updates an existing user's account with any new information from the OAuth2 provider.
-     *
-     * @param existingUser The existing User object representing the user to be updated.
-     * @param user The User object representing the authenticated user.
-     * @return The updated User object.
-     */
-    private User updateExistingUser(User existingUser, User user) {
-        existingUser.setFirstName(user.getFirstName());
-        existingUser.setLastName(user.getLastName());
-        return existingUser;
+        user.setProviderRegistrationId(registrationId);
+        log.debug("handleOAuthLoginSuccess: upserting user with email: {}", user.getEmail());
+        return oAuthUserUpsertService.upsert(user);
     }
 
     /**
@@ -151,19 +84,11 @@ public class DSOAuth2UserService implements OAuth2UserService<OAuth2UserRequest,
      *
      * @param principal The OAuth2User object containing information about the authenticated user.
      * @return A User object representing the authenticated user.
+     * @deprecated the attributes are mapped by the {@link OAuth2UserMapperRegistry}, use its mapper of the google registration
      */
+    @Deprecated
     public User getUserFromGoogleOAuth2User(OAuth2User principal) {
-        log.debug("Getting user info from Google OAuth2 provider with principal: {}", principal);
-        if (principal == null) {
-            return null;
-        }
-        log.debug("Principal attributes: {}", principal.getAttributes());
-        User user = new User();
-        user.setEmail(principal.getAttribute("email"));
-        user.setFirstName(principal.getAttribute("given_name"));
-        user.setLastName(principal.getAttribute("family_name"));
-        user.setProvider(User.Provider.GOOGLE);
-        return user;
+        return principal == null ? null : oAuth2UserMapperRegistry.find("google", false).map(principal);
     }
 
     /**
@@ -171,27 +96,11 @@ public class DSOAuth2UserService implements OAuth2UserService<OAuth2UserRequest,
      *
      * @param principal The OAuth2User object containing information about the authenticated user.
      * @return A User object representing the authenticated user.
+     * @deprecated the attributes are mapped by the {@link OAuth2UserMapperRegistry}, use its mapper of the facebook registration
      */
+    @Deprecated
     public User getUserFromFacebookOAuth2User(OAuth2User principal) {
-        log.debug("Getting user info from Facebook OAuth2 provider with principal: {}", principal);
-        if (principal == null) {
-            return null;
-        }
-        log.debug("Principal attributes: {}", principal.getAttributes());
-        User user = new User();
-        user.setEmail(principal.getAttribute("email"));
-        String fullName = principal.getAttribute("name");
-        if (fullName != null) {
-            String[] names = fullName.split(" ");
-            if (names.length > 0) {
-                user.setFirstName(names[0]);
-            }
-            if (names.length > 1) {
-                user.setLastName(names[names.length - 1]);
-            }
-        }
-        user.setProvider(User.Provider.FACEBOOK);
-        return user;
+        return principal == null ? null : oAuth2UserMapperRegistry.find("facebook", false).map(principal);
     }
 
     /**
@@ -2,6 +2,10 @@ package com.devstaq.auth.service;
 
 import com.devstaq.auth.persistence.model.User;
 import com.devstaq.auth.persistence.repository.UserRepository;
+import com.devstaq.auth.security.oauth2.CachingOidcUserInfoService;
+import com.devstaq.auth.security.oauth2.OAuth2UserMapper;
+import com.devstaq.auth.security.oauth2.OAuth2UserMapperRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
@@ -39,85 +43,50 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class DSOidcUserService implements OAuth2UserService<OidcUserRequest, OidcUser> {
 
-    /** The user repository. */
-    private final UserRepository userRepository;
+    /** The OAuth user upsert service. */
+    private final OAuthUserUpsertService oAuthUserUpsertService;
+
+    /** The user info service, which caches the user info of OIDC logins. */
+    private final CachingOidcUserInfoService cachingOidcUserInfoService;
+
+    /** The mappers from provider attributes to users. */
+    private final OAuth2UserMapperRegistry oAuth2UserMapperRegistry;
 
     OidcUserService defaultOidcUserService = new OidcUserService();
 
+    /**
+     * Fetches user info through the caching user info service.
+     */
+    @PostConstruct
+    void init() {
+        defaultOidcUserService.setOauth2UserService(cachingOidcUserInfoService::loadUser);
+    }
+
     /**
      *
-     * Handles a successful Oidc login. If the user is already registered, updates their account with any new information from the Oidc provider.
-     * If the user is not already registered, creates a new user account with the information from the Oidc provider and saves it to the database.
+     * Handles a successful Oidc login. If the user is already registered, updates their account if the information from the Oidc provider changed.
+     * If the user is not already registered, creates a new user account with the information from the Oidc provider.
      *
      * @param registrationId The registration ID for the Oidc provider.
      * @param oidcUser The OidcUser object containing information about the authenticated user.
      * @return A User object representing the authenticated user.
      */
     public User handleOidcLoginSuccess(String registrationId, OidcUser oidcUser) {
-        User user = null;
-        if (registrationId.equalsIgnoreCase("keycloak")) {
-            user = getUserFromKeycloakOidc2User(oidcUser);
-        } else {
+        OAuth2UserMapper mapper = oAuth2UserMapperRegistry.find(registrationId, true);
+        if (mapper == null) {
             log.error("Sorry! Login with " + registrationId + " is not supported yet.");
             throw new OAuth2AuthenticationException(new OAuth2Error("Login Exception"),
                     "Sorry! Login with " + registrationId + " is not supported yet.");
         }
-        if (user == null) {
-            log.error("handleOidcLoginSuccess: user is null");
+        User user = oidcUser != null ? mapper.map(oidcUser) : null;
+        if (user == null || user.getEmail() == null) {
+            log.error("handleOidcLoginSuccess: no user or email from {}", registrationId);
             throw new OAuth2AuthenticationException(new OAuth2Error("Login Exception"),
                     "Sorry! An error occurred while processing your login request.");
         }
-        log.debug("handleOidcLoginSuccess: looking up user with email: {}", user.getEmail());
-        User existingUser = userRepository.findByEmail(user.getEmail());
-        log.debug("handleOidcLoginSuccess: existingUser: {}", existingUser);
-        if (existingUser != null && registrationId != null) {
-            log.debug("handleOidcLoginSuccess: existingUser.getProvider(): {}", existingUser.getProvider());
-            // If the user is already registered with a different auth provider (OAuth2 or Local), throw an exception.
-            if (!existingUser.getProvider().toString().equals(registrationId.toUpperCase())) {
-                log.debug("handleOidcLoginSuccess: ERROR! existingUser.getProvider(): {}", existingUser.getProvider());
-                throw new OAuth2AuthenticationException(new OAuth2Error("User Registered With Alternate Provider"),
-                        "Looks like you're signed up with your " + existingUser.getProvider() + " account. Please use your "
-                                + existingUser.getProvider() + " account to log in.");
-            }
-            existingUser = updateExistingUser(existingUser, user);
-            return userRepository.save(existingUser);
-        } else {
-            log.debug("handleOidcLoginSuccess: registering new user with email: {}", user.getEmail());
-            user = registerNewOidcUser(registrationId, user);
-            return user;
-        }
-    }
-
-    /**
-     *
-     * Registers a new user with an Oidc account. Creates a new user account with the information from the Oidc provider and saves it to the
-     * database.
-     *
-     * @param registrationId The registration ID for the Oidc provider.
-     * @param user The User object representing the authenticated user.
-     * @return A User object representing the newly registered user.
-     */
-    private User registerNewOidcUser(String registrationId, User user) {
-        User.Provider provider = User.Provider.valueOf(registrationId.toUpperCase());
-        user.setProvider(provider);
-        // user.setRoles(Collections.singletonList(roleRepository.findByName(RoleName.ROLE_USER)));
-        // We will trust OAuth2 providers to provide us with a verified email address.
-        user.setEnabled(true);
-        return userRepository.save(user);
-    }
-
-    /**
-     *
-     * Updates an existing user's account with any new information from the Oidc provider.
-     *
-     * @param existingUser The existing User object representing the user to be updated.
-     * @param user The User object representing the authenticated user.
-     * @return The updated User object.
-     */
-    private User updateExistingUser(User existingUser, User user) {
-        existingUser.setFirstName(user.getFirstName());
-        existingUser.setLastName(user.getLastName());
-        return existingUser;
+        user.setProviderRegistrationId(registrationId);
+        log.debug("handleOidcLoginSuccess: upserting user with email: {}", user.getEmail());
+        return oAuthUserUpsertService.upsert(user);
     }
 
     /**
@@ -126,25 +95,13 @@ public class DSOidcUserService implements OAuth2UserService<OidcUserRequest, Oid
      *
      * @param principal The OidcUser object containing information about the authenticated user.
      * @return A User object representing the authenticated user.
+     * @deprecated the attributes are mapped by the {@link OAuth2UserMapperRegistry}, use its mapper of the keycloak registration
      */
+    @Deprecated
     public User getUserFromKeycloakOidc2User(OidcUser principal) {
-        log.debug("Getting user info from Keycloak Oidc provider with principal: {}", principal);
-        if (principal == null) {
-            return null;
-        }
-        log.debug("Principal attributes: {}", principal.getAttributes());
-        User user = new User();
-/*        user.setEmail(principal.getAttribute("email"));
-        user.setFirstName(principal.getAttribute("given_name"));
-        user.setLastName(principal.getAttribute("family_name"));*/
-        user.setEmail(principal.getEmail());
-        user.setFirstName(principal.getGivenName());
-        user.setLastName(principal.getFamilyName());
-        user.setProvider(User.Provider.KEYCLOAK);
-        return user;
+        return principal == null ? null : oAuth2UserMapperRegistry.find("keycloak", true).map(principal);
     }
 
-
     /**
      *
      * Loads user information from an Oidc provider and creates a UserDetails object representing the authenticated user.
@@ -1,18 +1,30 @@
 package com.devstaq.auth.service;
 
 import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.UserRepository;
 import lombok.Builder;
 import lombok.ToString;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.oauth2.core.oidc.OidcIdToken;
 import org.springframework.security.oauth2.core.oidc.OidcUserInfo;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.support.WebApplicationContextUtils;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The {@code DSUserDetails} class is an extension of the default Spring Security {@code UserDetails} interface that uses a custom {@code User} object
@@ -38,6 +50,12 @@ import java.util.Map;
  * Collection<GrantedAuthority> authorities = Arrays.asList(new SimpleGrantedAuthority("ROLE_USER"));
  * DSUserDetails userDetails = new DSUserDetails(user, authorities);
  * }</pre>
+ *
+ * <p>
+ * When the HTTP session is serialized, for example to be replicated or stored by Spring Session, only a compact snapshot of the user is written: the
+ * id, email, names, provider and account flags, and the authority names. The entity graph, the password hash and the attributes are left out. A
+ * deserialized instance answers the {@code UserDetails} methods from the snapshot, and its authorities are shared with every other session. The
+ * {@code User} entity is reloaded by its id the first time {@link #getUser()} is called in a request.
  */
 @ToString
 public class DSUserDetails implements UserDetails, OidcUser {
@@ -45,8 +63,14 @@ public class DSUserDetails implements UserDetails, OidcUser {
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 5286810064622508389L;
 
-	/** The user. */
-	private final User user;
+	/** The authorities by name, shared by all principals. The names are the configured privileges, so the map stays small. */
+	private static final Map<String, GrantedAuthority> INTERNED_AUTHORITIES = new ConcurrentHashMap<>();
+
+	/** The user. After deserialization a snapshot, until it is replaced by the reloaded entity. */
+	private volatile User user;
+
+	/** True, if the user is a snapshot restored from the serialized form which has not been reloaded yet. */
+	private volatile boolean snapshot;
 
 	/** The granted authorities. */
 	private final Collection<? extends GrantedAuthority> grantedAuthorities;
@@ -180,14 +204,53 @@ public class DSUserDetails implements UserDetails, OidcUser {
 	}
 
 	/**
-	 * Gets the user.
+	 * Gets the user. After the session has been deserialized, the entity is reloaded by its id the first time this method is called in a request.
+	 * Outside of a request, or if the user no longer exists, this is the snapshot without password or roles.
 	 *
 	 * @return the user
 	 */
 	public User getUser() {
+		if (snapshot) {
+			User reloaded = reloadUser();
+			if (reloaded != null) {
+				user = reloaded;
+				snapshot = false;
+			}
+		}
 		return user;
 	}
 
+	/**
+	 * Reloads the user by its id through the {@link UserRepository} found in the context of the current request. A user who no longer exists is not
+	 * looked up again.
+	 *
+	 * @return the user, or null if there is no current request or the user no longer exists
+	 */
+	private User reloadUser() {
+		if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+			return null;
+		}
+		WebApplicationContext context = WebApplicationContextUtils.getWebApplicationContext(attributes.getRequest().getServletContext());
+		if (context == null) {
+			return null;
+		}
+		User reloaded = context.getBean(UserRepository.class).findById(user.getId()).orElse(null);
+		if (reloaded == null) {
+			snapshot = false;
+		}
+		return reloaded;
+	}
+
+	/**
+	 * Gets the shared authority with the given name, creating it on first use.
+	 *
+	 * @param authority the authority name
+	 * @return the authority
+	 */
+	public static GrantedAuthority internAuthority(String authority) {
+		return INTERNED_AUTHORITIES.computeIfAbsent(authority, SimpleGrantedAuthority::new);
+	}
+
 	@Override
 	public Map<String, Object> getAttributes() {
 		return attributes;
@@ -212,4 +275,74 @@ public class DSUserDetails implements UserDetails, OidcUser {
 	public OidcIdToken getIdToken() {
 		return oidcIdToken;
 	}
+
+	/**
+	 * Writes the compact snapshot instead of this object.
+	 *
+	 * @return the serialized form
+	 */
+	@Serial
+	private Object writeReplace() {
+		return new SerializedForm(this);
+	}
+
+	@Serial
+	private void readObject(ObjectInputStream stream) throws InvalidObjectException {
+		throw new InvalidObjectException("DSUserDetails is deserialized from its SerializedForm");
+	}
+
+	/**
+	 * The serialized form of a {@link DSUserDetails}.
+	 */
+	private static final class SerializedForm implements Serializable {
+
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		private final Long id;
+		private final String email;
+		private final String firstName;
+		private final String lastName;
+		private final User.Provider provider;
+		private final boolean enabled;
+		private final boolean locked;
+		private final String[] authorities;
+		private final OidcUserInfo oidcUserInfo;
+		private final OidcIdToken oidcIdToken;
+
+		SerializedForm(DSUserDetails userDetails) {
+			User user = userDetails.user;
+			this.id = user.getId();
+			this.email = user.getEmail();
+			this.firstName = user.getFirstName();
+			this.lastName = user.getLastName();
+			this.provider = user.getProvider();
+			this.enabled = user.isEnabled();
+			this.locked = user.isLocked();
+			this.authorities = userDetails.grantedAuthorities.stream().map(GrantedAuthority::getAuthority).toArray(String[]::new);
+			this.oidcUserInfo = userDetails.oidcUserInfo;
+			this.oidcIdToken = userDetails.oidcIdToken;
+		}
+
+		@Serial
+		private Object readResolve() {
+			User user = new User();
+			user.setId(id);
+			user.setEmail(email);
+			user.setFirstName(firstName);
+			user.setLastName(lastName);
+			user.setProvider(provider);
+			user.setEnabled(enabled);
+			user.setLocked(locked);
+			user.setRoles(List.of());
+			List<GrantedAuthority> grantedAuthorities = new ArrayList<>(authorities.length);
+			for (String authority : authorities) {
+				grantedAuthorities.add(internAuthority(authority));
+			}
+			DSUserDetails userDetails = new DSUserDetails(user, oidcUserInfo, oidcIdToken, grantedAuthorities);
+			userDetails.attributes = new HashMap<>();
+			userDetails.snapshot = id != null;
+			return userDetails;
+		}
+	}
 }
@@ -37,7 +37,7 @@ public class DSUserDetailsService implements UserDetailsService {
 	@Override
 	public DSUserDetails loadUserByUsername(final String email) throws UsernameNotFoundException {
 		log.debug("DSUserDetailsService.loadUserByUsername: called with username: {}", email);
-		User dbUser = userRepository.findByEmail(email);
+		User dbUser = userRepository.findWithAuthoritiesByEmail(email);
 		if (dbUser == null) {
 			throw new UsernameNotFoundException("No user found with email/username: " + email);
 		}
@@ -0,0 +1,101 @@
+package com.devstaq.auth.service;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.token.TokenPurpose;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collapses repeated requests for a verification or password reset email to the same user. The first request opens a window of
+ * user.mail.coalesceWindowSeconds, and further requests for the same user and purpose within the window are dropped, so the email and token of the
+ * first request are the only ones. If the window is opened within a transaction that rolls back, for example because the token could not be
+ * stored, the window is closed again so the next request sends the email. The windows are kept per node; the number of tokens a user can have is
+ * bounded separately by user.token.maxOutstandingPerUser.
+ */
+@Slf4j
+@Service
+public class EmailRequestCoalescer {
+
+    /** Expired windows are removed once more than this many users are tracked. */
+    static final int EVICTION_THRESHOLD = 10_000;
+
+    /** The clock. */
+    private final Clock clock;
+
+    /** The window length. Zero turns coalescing off. */
+    private final Duration window;
+
+    /** The start of the open window, by user and purpose. */
+    private final Map<WindowKey, Instant> windowStarts = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new email request coalescer.
+     *
+     * @param clock the clock
+     * @param windowSeconds the window length in seconds
+     */
+    public EmailRequestCoalescer(Clock clock, @Value("${user.mail.coalesceWindowSeconds:60}") long windowSeconds) {
+        this.clock = clock;
+        this.window = Duration.ofSeconds(Math.max(windowSeconds, 0));
+    }
+
+    /**
+     * Opens a window for an email to a user, unless one is already open. Within a transaction, the window is closed again if the transaction rolls
+     * back.
+     *
+     * @param purpose the purpose of the email
+     * @param user the user
+     * @return true if the email should be sent, false if an email for the same purpose was requested within the window
+     */
+    public boolean tryAcquire(final TokenPurpose purpose, final User user) {
+        if (window.isZero() || user.getId() == null) {
+            return true;
+        }
+        final Instant now = clock.instant();
+        final WindowKey windowKey = new WindowKey(purpose, user.getId());
+        final boolean[] acquired = new boolean[1];
+        windowStarts.compute(windowKey, (key, open) -> {
+            if (open != null && isOpen(open, now)) {
+                return open;
+            }
+            acquired[0] = true;
+            return now;
+        });
+        if (windowStarts.size() > EVICTION_THRESHOLD) {
+            windowStarts.values().removeIf(open -> !isOpen(open, now));
+        }
+        if (!acquired[0]) {
+            log.debug("EmailRequestCoalescer.tryAcquire: {} email to user {} coalesced with an earlier request", purpose, user.getId());
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        windowStarts.remove(windowKey, now);
+                        log.debug("EmailRequestCoalescer.tryAcquire: {} email to user {} rolled back, window closed", purpose, user.getId());
+                    }
+                }
+            });
+        }
+        return acquired[0];
+    }
+
+    private boolean isOpen(final Instant start, final Instant now) {
+        return now.isBefore(start.plus(window));
+    }
+
+    /**
+     * The key of a window.
+     */
+    private record WindowKey(TokenPurpose purpose, Long userId) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.devstaq.auth.service;
 
 import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.UserLockStatus;
 import com.devstaq.auth.persistence.repository.UserRepository;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -9,6 +10,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Clock;
 import java.util.Date;
 
 
@@ -24,6 +26,9 @@ public class LoginAttemptService {
 
 	final private UserRepository userRepository;
 
+	/** The clock. */
+	private final Clock clock;
+
 	/** The max failed login attempts on a given account before it is locked. A value of 0 will disable locking accounts based on failed logins. */
 	@Value("${user.security.failedLoginAttempts}")
 	private int maxFailedLoginAttempts;
@@ -80,7 +85,7 @@ public class LoginAttemptService {
 		user.setFailedLoginAttempts(++currentAttempts);
 		if (currentAttempts >= maxFailedLoginAttempts) {
 			user.setLocked(true);
-			user.setLockedDate(new Date());
+			user.setLockedDate(Date.from(clock.instant()));
 		}
 		userRepository.save(user);
 	}
@@ -93,12 +98,13 @@ public class LoginAttemptService {
 	 */
 	public boolean isLocked(final String email) {
 		log.debug("Checking if user is locked: {}", email);
-		User user = userRepository.findByEmail(email);
-		if (user != null && user.isLocked()) {
+		UserLockStatus status = userRepository.findLockStatusByEmail(email).orElse(null);
+		if (status != null && status.isLocked()) {
 			// See if the user will be automatically unlocked
-			user = checkIfUserShouldBeUnlocked(user);
-			// If the user is still locked, return true
-			if (user != null && user.isLocked()) {
+			if (lockoutExpired(status.getLockedDate())) {
+				log.debug("User should be unlocked: {}", email);
+				userRepository.unlockUser(status.getId());
+			} else {
 				log.debug("User is locked: {}", email);
 				return true;
 			}
@@ -115,19 +121,27 @@ public class LoginAttemptService {
 	 */
 	public User checkIfUserShouldBeUnlocked(User user) {
 		log.debug("Checking if user should be unlocked: {}", user.getEmail());
-		if (user.isLocked() && user.getLockedDate() != null && accountLockoutDuration >= 0) {
-			Date lockedDate = user.getLockedDate();
-			Date now = new Date();
-			long diff = now.getTime() - lockedDate.getTime();
-			long diffMinutes = diff / (60 * 1000);
-			if (diffMinutes >= accountLockoutDuration) {
-				log.debug("User should be unlocked: {}", user.getEmail());
-				user.setLocked(false);
-				user.setLockedDate(null);
-				user.setFailedLoginAttempts(0);
-				userRepository.save(user);
-			}
+		if (user.isLocked() && lockoutExpired(user.getLockedDate())) {
+			log.debug("User should be unlocked: {}", user.getEmail());
+			user.setLocked(false);
+			user.setLockedDate(null);
+			user.setFailedLoginAttempts(0);
+			userRepository.save(user);
 		}
 		return user;
 	}
+
+	/**
+	 * Checks whether the lockout duration has passed since the account was locked.
+	 *
+	 * @param lockedDate the date the account was locked
+	 * @return true, if the account should be unlocked
+	 */
+	private boolean lockoutExpired(final Date lockedDate) {
+		if (lockedDate == null || accountLockoutDuration < 0) {
+			return false;
+		}
+		long diffMinutes = (clock.millis() - lockedDate.getTime()) / (60 * 1000);
+		return diffMinutes >= accountLockoutDuration;
+	}
 }
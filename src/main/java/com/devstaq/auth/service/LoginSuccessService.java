@@ -2,10 +2,12 @@ package com.devstaq.auth.service;
 
 import com.devstaq.auth.audit.AuditEvent;
 import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.security.stateless.StatelessTokenService;
 import com.devstaq.auth.util.UserUtils;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,7 +20,8 @@ import org.thymeleaf.util.StringUtils;
 import java.io.IOException;
 
 /**
- * The LoginSuccessService is called after a user successfully logs in.
+ * The LoginSuccessService is called after a user successfully logs in. In the stateless session mode it issues the access and refresh token cookies
+ * and never creates an HTTP session.
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -28,6 +31,9 @@ public class LoginSuccessService extends SavedRequestAwareAuthenticationSuccessH
 	/** The event publisher. */
 	private final ApplicationEventPublisher eventPublisher;
 
+	/** The stateless token service. */
+	private final StatelessTokenService statelessTokenService;
+
 	/** The login success uri. */
 	@Value("${user.security.loginSuccessURI}")
 	private String loginSuccessUri;
@@ -52,15 +58,17 @@ public class LoginSuccessService extends SavedRequestAwareAuthenticationSuccessH
 		log.debug("Request URI: {}", request.getRequestURI());
 		log.debug("Request URL: {}", request.getRequestURL());
 		log.debug("Request query string: {}", request.getQueryString());
-		log.debug("Session ID: {}", request.getSession().getId());
+		HttpSession session = request.getSession(false);
+		log.debug("Session ID: {}", session != null ? session.getId() : null);
 
 		// Log saved request if present
-		Object savedRequest = request.getSession().getAttribute("SPRING_SECURITY_SAVED_REQUEST");
+		Object savedRequest = session != null ? session.getAttribute("SPRING_SECURITY_SAVED_REQUEST") : null;
 		log.debug("Saved request in session: {}", savedRequest);
 
 		log.debug("LoginSuccessService.onAuthenticationSuccess:" + "targetUrl: {}", super.determineTargetUrl(request, response));
 
 		User user = null;
+		DSUserDetails userDetails = null;
 		if (authentication != null && authentication.getPrincipal() != null) {
 			log.debug("LoginSuccessService.onAuthenticationSuccess() authentication.getPrincipal(): " + authentication.getPrincipal());
 			log.debug("LoginSuccessService.onAuthenticatonSuccess() authentication.getClass(): " + authentication.getClass());
@@ -68,13 +76,23 @@ public class LoginSuccessService extends SavedRequestAwareAuthenticationSuccessH
 					+ authentication.getPrincipal().getClass());
 			if (authentication.getPrincipal() instanceof DSUserDetails) {
 				log.debug("LoginSuccessService.onAuthenticationSuccess:" + "DSUserDetails: " + authentication.getPrincipal());
-				user = ((DSUserDetails) authentication.getPrincipal()).getUser();
+				userDetails = (DSUserDetails) authentication.getPrincipal();
+				user = userDetails.getUser();
+			}
+		}
+
+		// In the stateless session mode the login is carried by the token cookies instead of the session
+		if (statelessTokenService.isEnabled()) {
+			if (userDetails != null) {
+				statelessTokenService.writeCookies(response, statelessTokenService.issueTokens(userDetails));
+			} else {
+				log.warn("LoginSuccessService.onAuthenticationSuccess: no tokens issued, the principal is not a DSUserDetails");
 			}
 		}
 
 		// Create audit event
 		AuditEvent loginAuditEvent =
-				AuditEvent.builder().source(this).user(user).sessionId(request.getSession().getId()).ipAddress(UserUtils.getClientIP(request))
+				AuditEvent.builder().source(this).user(user).sessionId(session != null ? session.getId() : null).ipAddress(UserUtils.getClientIP(request))
 						.userAgent(request.getHeader("User-Agent")).action("Login").actionStatus("Success").message("Success").build();
 
 		// Publish audit event in a try-catch to prevent redirection issues
@@ -112,8 +130,7 @@ public class LoginSuccessService extends SavedRequestAwareAuthenticationSuccessH
 		log.debug("LoginSuccessService.onAuthenticationSuccess: Proceeding with redirection to {}", this.getDefaultTargetUrl());
 
 		// Log the SavedRequest state
-		log.debug("SavedRequest state before calling super.onAuthenticationSuccess: {}",
-				request.getSession().getAttribute("SPRING_SECURITY_SAVED_REQUEST"));
+		log.debug("SavedRequest state before calling super.onAuthenticationSuccess: {}", savedRequest);
 
 		super.onAuthenticationSuccess(request, response, authentication);
 
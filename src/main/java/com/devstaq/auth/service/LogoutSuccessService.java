@@ -6,6 +6,7 @@ import com.devstaq.auth.util.UserUtils;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -53,8 +54,9 @@ public class LogoutSuccessService extends SimpleUrlLogoutSuccessHandler {
 			user = ((DSUserDetails) authentication.getPrincipal()).getUser();
 		}
 
+		HttpSession session = request.getSession(false);
 		AuditEvent logoutAuditEvent =
-				AuditEvent.builder().source(this).user(user).sessionId(request.getSession().getId()).ipAddress(UserUtils.getClientIP(request))
+				AuditEvent.builder().source(this).user(user).sessionId(session != null ? session.getId() : null).ipAddress(UserUtils.getClientIP(request))
 						.userAgent(request.getHeader("User-Agent")).action("Logout").actionStatus("Success").message("Success").build();
 
 		eventPublisher.publishEvent(logoutAuditEvent);
@@ -0,0 +1,103 @@
+package com.devstaq.auth.service;
+
+import com.devstaq.auth.audit.AuditEvent;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * Creates or updates the user of an OAuth2 or OIDC login from the profile the provider returned.
+ * <p>
+ * The profile attributes the user is built from are hashed and compared with the hash stored on the user, so an unchanged profile is not written
+ * again. New users are created with {@link UserRepository#insertIfAbsent(User, String)}, which inserts the user and its role without looking the
+ * role up first, and does not fail when the same user logs in for the first time on two nodes at once; both logins get the same user.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OAuthUserUpsertService {
+
+    /** The user role name. */
+    static final String USER_ROLE_NAME = "ROLE_USER";
+
+    /** The user repository. */
+    private final UserRepository userRepository;
+
+    /** The Event Publisher. */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Returns the user with the email of the profile, creating the user if it does not exist and updating its names if the profile changed.
+     *
+     * @param profile the user built from the provider's attributes, with email, names and provider
+     * @return the user
+     * @throws OAuth2AuthenticationException if the user is registered with another provider
+     */
+    @Transactional
+    public User upsert(final User profile) {
+        String hash = attributesHash(profile);
+        User user = userRepository.findByEmail(profile.getEmail());
+        if (user == null) {
+            // We will trust OAuth2 providers to provide us with a verified email address.
+            profile.setEnabled(true);
+            profile.setProviderAttributesHash(hash);
+            Date now = new Date();
+            profile.setRegistrationDate(now);
+            profile.setLastActivityDate(now);
+            boolean created = userRepository.insertIfAbsent(profile, USER_ROLE_NAME);
+            user = userRepository.findForShareByEmailNormalized(profile.getEmailNormalized(), profile.getEmail());
+            if (created) {
+                log.debug("OAuthUserUpsertService.upsert: registered new {} user with email: {}", profile.getProvider(), profile.getEmail());
+                eventPublisher.publishEvent(AuditEvent.builder().source(this).user(user).action("OAuth2 Registration Success").actionStatus("Success")
+                        .message("Registration Confirmed. User logged in.").build());
+            }
+        }
+        // If the user is already registered with a different auth provider (OAuth2 or Local), or another registration of the OIDC provider, throw an
+        // exception.
+        if (user.getProvider() != profile.getProvider() || (user.getProvider() == User.Provider.OIDC
+                && !Objects.equals(user.getProviderRegistrationId(), profile.getProviderRegistrationId()))) {
+            String signedUpWith = user.getProvider() == User.Provider.OIDC && user.getProviderRegistrationId() != null
+                    ? user.getProviderRegistrationId() : String.valueOf(user.getProvider());
+            log.debug("OAuthUserUpsertService.upsert: ERROR! user registered with provider: {}", signedUpWith);
+            throw new OAuth2AuthenticationException(new OAuth2Error("User Registered With Alternate Provider"),
+                    "Looks like you're signed up with your " + signedUpWith + " account. Please use your " + signedUpWith + " account to log in.");
+        }
+        if (!hash.equals(user.getProviderAttributesHash())) {
+            log.debug("OAuthUserUpsertService.upsert: profile of user {} changed", user.getId());
+            user.setFirstName(profile.getFirstName());
+            user.setLastName(profile.getLastName());
+            user.setProviderAttributesHash(hash);
+        }
+        return user;
+    }
+
+    /**
+     * Hashes the profile attributes a user is built from. Claims that change on every login, such as token timestamps, are not part of the hash.
+     *
+     * @param profile the user built from the provider's attributes
+     * @return the hex encoded SHA-256 hash
+     */
+    static String attributesHash(final User profile) {
+        String attributes = String.join("\n", String.valueOf(profile.getProvider()), String.valueOf(profile.getEmailNormalized()),
+                String.valueOf(profile.getFirstName()), String.valueOf(profile.getLastName()));
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(attributes.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
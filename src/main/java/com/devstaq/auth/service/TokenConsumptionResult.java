@@ -0,0 +1,40 @@
+package com.devstaq.auth.service;
+
+import com.devstaq.auth.persistence.model.User;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The result of consuming a verification token: the validation result and, if the token was valid, the user it belonged to.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class TokenConsumptionResult {
+
+    /** The token validation result. */
+    private final UserService.TokenValidationResult result;
+
+    /** The user the token belonged to, or null if the token was not valid. */
+    private final User user;
+
+    /**
+     * Creates a result for a token that could not be consumed.
+     *
+     * @param result the validation result
+     * @return the token consumption result
+     */
+    public static TokenConsumptionResult failed(final UserService.TokenValidationResult result) {
+        return new TokenConsumptionResult(result, null);
+    }
+
+    /**
+     * Checks whether the token was valid.
+     *
+     * @return true, if the token was valid
+     */
+    public boolean isValid() {
+        return result == UserService.TokenValidationResult.VALID;
+    }
+}
@@ -5,17 +5,25 @@ import com.devstaq.auth.mail.MailService;
 import com.devstaq.auth.persistence.model.PasswordResetToken;
 import com.devstaq.auth.persistence.model.User;
 import com.devstaq.auth.persistence.repository.PasswordResetTokenRepository;
+import com.devstaq.auth.token.SignedTokenService;
+import com.devstaq.auth.token.TokenPurpose;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Clock;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 /**
  * The UserEmailService class provides methods for sending emails to users for various purposes, such as registration verification and password reset.
+ * When the mail outbox is enabled, the email is queued in the same transaction as its token. Repeated requests for the same email within a short window
+ * are collapsed into the first one by the {@link EmailRequestCoalescer}.
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -34,16 +42,39 @@ public class UserEmailService {
     /** The event publisher. */
     private final ApplicationEventPublisher eventPublisher;
 
+    /** The signed token service. */
+    private final SignedTokenService signedTokenService;
+
+    /** The email request coalescer. */
+    private final EmailRequestCoalescer emailRequestCoalescer;
+
+    /** The clock. */
+    private final Clock clock;
+
+    /** The maximum number of unexpired tokens per user and purpose. Older tokens are deleted when a new one is created. 0 means no limit. */
+    @Value("${user.token.maxOutstandingPerUser:3}")
+    private int maxOutstandingTokens;
+
     /**
-     * Send forgot password verification email.
+     * Send forgot password verification email. If signed tokens are enabled, no token is stored. Nothing is sent if the same email was requested
+     * within the coalescing window.
      *
      * @param user the user
      * @param appUrl the app url
      */
+    @Transactional
     public void sendForgotPasswordVerificationEmail(final User user, final String appUrl) {
         log.debug("UserEmailService.sendForgotPasswordVerificationEmail: called with user: {}", user);
-        final String token = generateToken();
-        createPasswordResetTokenForUser(user, token);
+        if (!emailRequestCoalescer.tryAcquire(TokenPurpose.PASSWORD_RESET, user)) {
+            return;
+        }
+        final String token;
+        if (signedTokenService.isEnabled()) {
+            token = signedTokenService.issueToken(user, TokenPurpose.PASSWORD_RESET);
+        } else {
+            token = generateToken();
+            createPasswordResetTokenForUser(user, token);
+        }
 
         AuditEvent sendForgotPasswordEmailAuditEvent = AuditEvent.builder().source(this).user(user).action("sendForgotPasswordVerificationEmail")
                 .actionStatus("Success").message("Forgot password email to be sent.").build();
@@ -52,24 +83,50 @@ public class UserEmailService {
 
         Map<String, Object> variables = createEmailVariables(user, appUrl, token, "/user/changePassword?token=");
 
-        mailService.sendTemplateMessage(user.getEmail(), "Password Reset", variables, "mail/forgot-password-token.html");
+        sendTemplateMessage(user.getEmail(), "Password Reset", variables, "mail/forgot-password-token.html");
     }
 
     /**
      * Handle the completed registration.
      *
-     * Create a Verification token for the user, and send the email out.
+     * Create a Verification token for the user, and send the email out. If signed tokens are enabled, no token is stored. Nothing is sent if the same
+     * email was requested within the coalescing window.
      *
      * @param user the user
      * @param appUrl the app url
      */
+    @Transactional
     public void sendRegistrationVerificationEmail(final User user, final String appUrl) {
-        final String token = generateToken();
-        userVerificationService.createVerificationTokenForUser(user, token);
+        if (!emailRequestCoalescer.tryAcquire(TokenPurpose.REGISTRATION_VERIFICATION, user)) {
+            return;
+        }
+        final String token;
+        if (signedTokenService.isEnabled()) {
+            token = signedTokenService.issueToken(user, TokenPurpose.REGISTRATION_VERIFICATION);
+        } else {
+            token = generateToken();
+            userVerificationService.createVerificationTokenForUser(user, token);
+        }
 
         Map<String, Object> variables = createEmailVariables(user, appUrl, token, "/user/registrationConfirm?token=");
 
-        mailService.sendTemplateMessage(user.getEmail(), "Registration Confirmation", variables, "mail/registration-token.html");
+        sendTemplateMessage(user.getEmail(), "Registration Confirmation", variables, "mail/registration-token.html");
+    }
+
+    /**
+     * Queues the email in the mail outbox if it is enabled, otherwise sends it asynchronously.
+     *
+     * @param to the to email address
+     * @param subject the subject
+     * @param variables the template variables
+     * @param templatePath the template path
+     */
+    private void sendTemplateMessage(final String to, final String subject, final Map<String, Object> variables, final String templatePath) {
+        if (mailService.isOutboxEnabled()) {
+            mailService.queueTemplateMessage(to, subject, variables, templatePath);
+        } else {
+            mailService.sendTemplateMessage(to, subject, variables, templatePath);
+        }
     }
 
     /**
@@ -100,14 +157,20 @@ public class UserEmailService {
     }
 
     /**
-     * Creates the password reset token for user.
+     * Creates the password reset token for user, and deletes the oldest tokens of the user beyond the maximum number of outstanding tokens.
      *
      * @param user the user
      * @param token the token
      */
     public void createPasswordResetTokenForUser(final User user, final String token) {
-        final PasswordResetToken myToken = new PasswordResetToken(token, user);
+        final PasswordResetToken myToken = new PasswordResetToken(token, user, clock.instant().plus(PasswordResetToken.EXPIRATION));
         passwordTokenRepository.save(myToken);
+        if (maxOutstandingTokens > 0) {
+            final List<Long> tokenIds = passwordTokenRepository.findIdsByUserNewestFirst(user);
+            if (tokenIds.size() > maxOutstandingTokens) {
+                passwordTokenRepository.deleteAllByIdInBatch(tokenIds.subList(maxOutstandingTokens, tokenIds.size()));
+            }
+        }
     }
 
 }
@@ -10,8 +10,15 @@ import com.devstaq.auth.persistence.repository.PasswordResetTokenRepository;
 import com.devstaq.auth.persistence.repository.RoleRepository;
 import com.devstaq.auth.persistence.repository.UserRepository;
 import com.devstaq.auth.persistence.repository.VerificationTokenRepository;
+import com.devstaq.auth.security.IndexedSessionRegistry;
+import com.devstaq.auth.security.IndexedSessionRegistry.SessionPrincipal;
+import com.devstaq.auth.security.stateless.StatelessTokenService;
+import com.devstaq.auth.token.SignedToken;
+import com.devstaq.auth.token.SignedTokenService;
+import com.devstaq.auth.token.TokenPurpose;
 import com.devstaq.auth.util.TimeLogger;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -29,6 +36,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.time.Clock;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -53,6 +61,7 @@ import java.util.stream.Collectors;
  * <li>{@link UserEmailService}</li>
  * <li>{@link UserVerificationService}</li>
  * <li>{@link DSUserDetailsService}</li>
+ * <li>{@link SignedTokenService}</li>
  * </ul>
  *
  * <p>
@@ -77,6 +86,7 @@ import java.util.stream.Collectors;
  * <li>{@link #saveRegisteredUser(User)}: Saves a registered user.</li>
  * <li>{@link #deleteOrDisableUser(User)}: Deletes a user and cleans up associated tokens.</li>
  * <li>{@link #findUserByEmail(String)}: Finds a user by email.</li>
+ * <li>{@link #findUserSummaryByEmail(String)}: Finds a user by email without loading roles and privileges.</li>
  * <li>{@link #getPasswordResetToken(String)}: Gets a password reset token by token string.</li>
  * <li>{@link #getUserByPasswordResetToken(String)}: Gets a user by password reset token.</li>
  * <li>{@link #findUserByID(long)}: Finds a user by ID.</li>
@@ -84,6 +94,7 @@ import java.util.stream.Collectors;
  * <li>{@link #checkIfValidOldPassword(User, String)}: Checks if the provided old password is valid.</li>
  * <li>{@link #validatePasswordResetToken(String)}: Validates a password reset token.</li>
  * <li>{@link #getUsersFromSessionRegistry()}: Gets the list of users from the session registry.</li>
+ * <li>{@link #getUsersFromSessionRegistry(String, int)}: Gets a page of the users from the session registry.</li>
  * <li>{@link #authWithoutPassword(User)}: Authenticates a user without a password.</li>
  * </ul>
  *
@@ -94,6 +105,7 @@ import java.util.stream.Collectors;
  * <li>{@link #emailExists(String)}: Checks if an email exists in the user repository.</li>
  * <li>{@link #authenticateUser(DSUserDetails, Collection)}: Authenticates a user by setting the authentication object in the security context.</li>
  * <li>{@link #storeSecurityContextInSession()}: Stores the current security context in the session.</li>
+ * <li>{@link #issueStatelessTokens(DSUserDetails)}: Sends access and refresh token cookies in the stateless session mode.</li>
  * </ul>
  *
  * <p>
@@ -191,6 +203,15 @@ public class UserService {
 
 	private final ApplicationEventPublisher eventPublisher;
 
+	/** The signed token service. */
+	private final SignedTokenService signedTokenService;
+
+	/** The stateless token service. */
+	private final StatelessTokenService statelessTokenService;
+
+	/** The clock. */
+	private final Clock clock;
+
 	/** The send registration verification email flag. */
 	@Value("${user.registration.sendVerificationEmail:false}")
 	private boolean sendRegistrationVerificationEmail;
@@ -264,21 +285,16 @@ public class UserService {
 			eventPublisher.publishEvent(new UserPreDeleteEvent(this, user));
 
 			// Clean up any Tokens associated with this user
-			final VerificationToken verificationToken = tokenRepository.findByUser(user);
-			if (verificationToken != null) {
-				tokenRepository.delete(verificationToken);
-			}
-
-			final PasswordResetToken passwordToken = passwordTokenRepository.findByUser(user);
-			if (passwordToken != null) {
-				passwordTokenRepository.delete(passwordToken);
-			}
+			tokenRepository.deleteAllByUser(user);
+			passwordTokenRepository.deleteAllByUser(user);
+			statelessTokenService.revokeAll(user);
 			// Delete the user
 			userRepository.delete(user);
 		} else {
 			log.debug("UserService.deleteOrDisableUser: actuallyDeleteAccount is false, disabling user: {}", user);
 			user.setEnabled(false);
 			userRepository.save(user);
+			statelessTokenService.revokeAll(user);
 			log.debug("UserService.deleteOrDisableUser: user {} has been disabled", user.getEmail());
 		}
 	}
@@ -294,6 +310,17 @@ public class UserService {
 		return userRepository.findByEmail(email);
 	}
 
+	/**
+	 * Find user by email without loading the user's roles and privileges. Use this when only the user's own fields are needed, for example to send
+	 * an email.
+	 *
+	 * @param email the email
+	 * @return the user, or null if not found
+	 */
+	public User findUserSummaryByEmail(final String email) {
+		return userRepository.findSummaryByEmail(email);
+	}
+
 	/**
 	 * Gets the password reset token.
 	 *
@@ -311,6 +338,10 @@ public class UserService {
 	 * @return the user by password reset token
 	 */
 	public Optional<User> getUserByPasswordResetToken(final String token) {
+		if (signedTokenService.isEnabled()) {
+			final SignedToken signedToken = signedTokenService.decode(token, TokenPurpose.PASSWORD_RESET);
+			return signedToken != null ? userRepository.findById(signedToken.getUserId()) : Optional.empty();
+		}
 		return Optional.ofNullable(passwordTokenRepository.findByToken(token).getUser());
 	}
 
@@ -325,7 +356,8 @@ public class UserService {
 	}
 
 	/**
-	 * Change user password.
+	 * Change user password. In the stateless session mode every refresh token of the user is revoked, so every login of the user ends once its
+	 * access token expires.
 	 *
 	 * @param user the user
 	 * @param password the password
@@ -333,6 +365,7 @@ public class UserService {
 	public void changeUserPassword(final User user, final String password) {
 		user.setPassword(passwordEncoder.encode(password));
 		userRepository.save(user);
+		statelessTokenService.revokeAll(user);
 	}
 
 	/**
@@ -355,22 +388,28 @@ public class UserService {
 	 * @return true, if the email address is already in the user repository
 	 */
 	private boolean emailExists(final String email) {
-		return userRepository.findByEmail(email.toLowerCase()) != null;
+		return userRepository.existsByEmail(email);
 	}
 
 	/**
-	 * Validate password reset token.
+	 * Validate password reset token. Signed tokens are checked against the user's current password hash instead of the token table.
 	 *
 	 * @param token the token
 	 * @return the password reset token validation result enum
 	 */
 	public TokenValidationResult validatePasswordResetToken(String token) {
+		if (signedTokenService.isEnabled()) {
+			final SignedToken signedToken = signedTokenService.decode(token, TokenPurpose.PASSWORD_RESET);
+			if (signedToken == null) {
+				return TokenValidationResult.INVALID_TOKEN;
+			}
+			return signedTokenService.validate(signedToken, userRepository.findById(signedToken.getUserId()).orElse(null));
+		}
 		final PasswordResetToken passToken = passwordTokenRepository.findByToken(token);
 		if (passToken == null) {
 			return TokenValidationResult.INVALID_TOKEN;
 		}
-		final Calendar cal = Calendar.getInstance();
-		if (passToken.getExpiryDate().before(cal.getTime())) {
+		if (passToken.isExpired(clock.millis())) {
 			passwordTokenRepository.delete(passToken);
 			return TokenValidationResult.EXPIRED;
 		}
@@ -383,6 +422,9 @@ public class UserService {
 	 * @return the users from session registry
 	 */
 	public List<String> getUsersFromSessionRegistry() {
+		if (sessionRegistry instanceof IndexedSessionRegistry indexedSessionRegistry) {
+			return indexedSessionRegistry.streamActivePrincipals().map(SessionPrincipal::username).collect(Collectors.toList());
+		}
 		return sessionRegistry.getAllPrincipals().stream().filter((u) -> !sessionRegistry.getAllSessions(u, false).isEmpty()).map(o -> {
 			if (o instanceof User) {
 				return ((User) o).getEmail();
@@ -392,9 +434,24 @@ public class UserService {
 		}).collect(Collectors.toList());
 	}
 
+	/**
+	 * Gets a page of the users from session registry, sorted by email. Only supported by an {@link IndexedSessionRegistry}.
+	 *
+	 * @param afterEmail the email of the last user of the previous page, or null for the first page
+	 * @param limit the maximum number of users to return
+	 * @return the page of users from session registry
+	 */
+	public List<String> getUsersFromSessionRegistry(final String afterEmail, final int limit) {
+		if (!(sessionRegistry instanceof IndexedSessionRegistry indexedSessionRegistry)) {
+			throw new UnsupportedOperationException("Paging requires an IndexedSessionRegistry");
+		}
+		return indexedSessionRegistry.getActivePrincipals(afterEmail, limit).stream().map(SessionPrincipal::username).collect(Collectors.toList());
+	}
+
 	/**
 	 * Authenticates the given user without requiring a password. This method loads the user's details, generates their authorities from their roles
-	 * and privileges, and stores these details in the security context and session.
+	 * and privileges, and stores these details in the security context and session. In the stateless session mode access and refresh token cookies
+	 * are issued instead of storing anything in the session.
 	 *
 	 * <p>
 	 * <strong>SECURITY WARNING:</strong> This is a potentially dangerous method as it authenticates a user without password verification. This method
@@ -424,8 +481,12 @@ public class UserService {
 		// Authenticate user
 		authenticateUser(userDetails, authorities);
 
-		// Store security context in session
-		storeSecurityContextInSession();
+		if (statelessTokenService.isEnabled()) {
+			issueStatelessTokens(new DSUserDetails(userDetails.getUser(), authorities));
+		} else {
+			// Store security context in session
+			storeSecurityContextInSession();
+		}
 
 		log.debug("UserService.authWithoutPassword: authenticated user: {}", user.getEmail());
 	}
@@ -459,6 +520,19 @@ public class UserService {
 		session.setAttribute("SPRING_SECURITY_CONTEXT", SecurityContextHolder.getContext());
 	}
 
-
+	/**
+	 * Issues access and refresh tokens for the user and sends them as cookies on the current response.
+	 *
+	 * @param userDetails the user details
+	 */
+	private void issueStatelessTokens(DSUserDetails userDetails) {
+		ServletRequestAttributes servletRequestAttributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+		HttpServletResponse response = servletRequestAttributes != null ? servletRequestAttributes.getResponse() : null;
+		if (response == null) {
+			log.error("Could not get the current response");
+			return;
+		}
+		statelessTokenService.writeCookies(response, statelessTokenService.issueTokens(userDetails));
+	}
 
 }
@@ -4,11 +4,17 @@ import com.devstaq.auth.persistence.model.User;
 import com.devstaq.auth.persistence.model.VerificationToken;
 import com.devstaq.auth.persistence.repository.UserRepository;
 import com.devstaq.auth.persistence.repository.VerificationTokenRepository;
+import com.devstaq.auth.token.SignedToken;
+import com.devstaq.auth.token.SignedTokenService;
+import com.devstaq.auth.token.TokenPurpose;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Calendar;
+import java.time.Clock;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -26,6 +32,16 @@ public class UserVerificationService {
     /** The token repository. */
     private final VerificationTokenRepository tokenRepository;
 
+    /** The signed token service. */
+    private final SignedTokenService signedTokenService;
+
+    /** The clock. */
+    private final Clock clock;
+
+    /** The maximum number of unexpired tokens per user. Older tokens are deleted when a new one is created. 0 means no limit. */
+    @Value("${user.token.maxOutstandingPerUser:3}")
+    private int maxOutstandingTokens;
+
     /**
      * Gets the user by verification token.
      *
@@ -34,6 +50,10 @@ public class UserVerificationService {
      */
     public User getUserByVerificationToken(final String verificationToken) {
         log.debug("UserVerificationService.getUserByVerificationToken: called with token: {}", verificationToken);
+        if (signedTokenService.isEnabled()) {
+            final SignedToken signedToken = signedTokenService.decode(verificationToken, TokenPurpose.REGISTRATION_VERIFICATION);
+            return signedToken != null ? userRepository.findById(signedToken.getUserId()).orElse(null) : null;
+        }
         final VerificationToken token = tokenRepository.findByToken(verificationToken);
         if (token != null) {
             log.debug("UserVerificationService.getUserByVerificationToken: user found: {}", token.getUser());
@@ -62,20 +82,26 @@ public class UserVerificationService {
      */
     public VerificationToken generateNewVerificationToken(final String existingVerificationToken) {
         VerificationToken vToken = tokenRepository.findByToken(existingVerificationToken);
-        vToken.updateToken(UUID.randomUUID().toString());
+        vToken.updateToken(UUID.randomUUID().toString(), clock.instant().plus(VerificationToken.EXPIRATION));
         vToken = tokenRepository.save(vToken);
         return vToken;
     }
 
     /**
-     * Creates the verification token for user.
+     * Creates the verification token for user, and deletes the oldest tokens of the user beyond the maximum number of outstanding tokens.
      *
      * @param user the user
      * @param token the token
      */
     public void createVerificationTokenForUser(final User user, final String token) {
-        final VerificationToken myToken = new VerificationToken(token, user);
+        final VerificationToken myToken = new VerificationToken(token, user, clock.instant().plus(VerificationToken.EXPIRATION));
         tokenRepository.save(myToken);
+        if (maxOutstandingTokens > 0) {
+            final List<Long> tokenIds = tokenRepository.findIdsByUserNewestFirst(user);
+            if (tokenIds.size() > maxOutstandingTokens) {
+                tokenRepository.deleteAllByIdInBatch(tokenIds.subList(maxOutstandingTokens, tokenIds.size()));
+            }
+        }
     }
 
     /**
@@ -85,14 +111,16 @@ public class UserVerificationService {
      * @return the token validation result (VALID, INVALID_TOKEN, or EXPIRED)
      */
     public UserService.TokenValidationResult validateVerificationToken(String token) {
+        if (signedTokenService.isEnabled()) {
+            return consumeSignedVerificationToken(token).getResult();
+        }
         final VerificationToken verificationToken = tokenRepository.findByToken(token);
         if (verificationToken == null) {
             return UserService.TokenValidationResult.INVALID_TOKEN;
         }
 
         final User user = verificationToken.getUser();
-        final Calendar cal = Calendar.getInstance();
-        if (verificationToken.getExpiryDate().before(cal.getTime())) {
+        if (verificationToken.isExpired(clock.millis())) {
             tokenRepository.delete(verificationToken);
             return UserService.TokenValidationResult.EXPIRED;
         }
@@ -103,12 +131,65 @@ public class UserVerificationService {
     }
 
     /**
-     * Delete verification token.
+     * Consumes a registration verification token and enables the user it belongs to. The token is removed in a single atomic step, so of several
+     * concurrent confirmations with the same token only one succeeds. Expired tokens are removed as well.
+     *
+     * @param token the token to consume
+     * @return the token consumption result, with the enabled user if the token was valid
+     */
+    @Transactional
+    public TokenConsumptionResult consumeVerificationToken(final String token) {
+        log.debug("UserVerificationService.consumeVerificationToken: called with token: {}", token);
+        if (signedTokenService.isEnabled()) {
+            return consumeSignedVerificationToken(token);
+        }
+        final VerificationToken verificationToken = tokenRepository.consumeByToken(token).orElse(null);
+        if (verificationToken == null) {
+            return TokenConsumptionResult.failed(UserService.TokenValidationResult.INVALID_TOKEN);
+        }
+        if (verificationToken.isExpired(clock.millis())) {
+            return TokenConsumptionResult.failed(UserService.TokenValidationResult.EXPIRED);
+        }
+        final User user = verificationToken.getUser();
+        user.setEnabled(true);
+        userRepository.save(user);
+        return new TokenConsumptionResult(UserService.TokenValidationResult.VALID, user);
+    }
+
+    /**
+     * Validates a signed verification token against the current state of the user, and enables the user and revokes the token if it is valid. The
+     * token tables are not touched.
+     *
+     * @param token the token to validate
+     * @return the token consumption result
+     */
+    private TokenConsumptionResult consumeSignedVerificationToken(final String token) {
+        final SignedToken signedToken = signedTokenService.decode(token, TokenPurpose.REGISTRATION_VERIFICATION);
+        if (signedToken == null) {
+            return TokenConsumptionResult.failed(UserService.TokenValidationResult.INVALID_TOKEN);
+        }
+        final User user = userRepository.findById(signedToken.getUserId()).orElse(null);
+        final UserService.TokenValidationResult result = signedTokenService.validate(signedToken, user);
+        if (result != UserService.TokenValidationResult.VALID) {
+            return TokenConsumptionResult.failed(result);
+        }
+        user.setEnabled(true);
+        userRepository.save(user);
+        signedTokenService.revoke(token);
+        return new TokenConsumptionResult(result, user);
+    }
+
+    /**
+     * Delete verification token. If signed tokens are enabled the token is revoked instead.
      *
      * @param token the token
      */
     public void deleteVerificationToken(final String token) {
         log.debug("UserVerificationService.deleteVerificationToken: called with token: {}", token);
+        if (signedTokenService.isEnabled()) {
+            signedTokenService.revoke(token);
+            return;
+        }
         final VerificationToken verificationToken = tokenRepository.findByToken(token);
         if (verificationToken != null) {
             tokenRepository.delete(verificationToken);
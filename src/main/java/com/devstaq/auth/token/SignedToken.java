@@ -0,0 +1,35 @@
+package com.devstaq.auth.token;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * A decoded signed token whose signature has been verified. Whether the token may still be used depends on the expiry and on the current state of
+ * the user, see {@link SignedTokenService#validate(SignedToken, com.devstaq.auth.persistence.model.User)}.
+ */
+@Getter
+@ToString(exclude = "fingerprint")
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public class SignedToken {
+
+    /** The encoded token. */
+    private final String token;
+
+    /** The purpose the token was issued for. */
+    private final TokenPurpose purpose;
+
+    /** The id of the key that signed the token. */
+    private final String keyId;
+
+    /** The id of the user the token was issued to. */
+    private final long userId;
+
+    /** The expiry, in epoch seconds. */
+    private final long expiresAt;
+
+    /** The fingerprint of the user's state when the token was issued. */
+    private final long fingerprint;
+
+}
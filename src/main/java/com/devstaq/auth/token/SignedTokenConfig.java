@@ -0,0 +1,54 @@
+package com.devstaq.auth.token;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The SignedTokenConfig class is a Spring Boot configuration class that provides properties for configuring the signed token engine. This class is
+ * used to turn the engine on, and to define the signing keys, the token lifetime and the size of the revocation filter.
+ */
+@Data
+@Component
+@PropertySource("classpath:config/dsspringuserconfig.properties")
+@ConfigurationProperties(prefix = "user.token.signing")
+public class SignedTokenConfig {
+
+    /**
+     * The enabled flag. If set to true, verification and password reset tokens are issued as HMAC-signed tokens and the token tables are not used.
+     */
+    private boolean enabled;
+
+    /**
+     * The id of the key used to sign new tokens. Must be one of the keys in {@link #keys}.
+     */
+    private String activeKeyId;
+
+    /**
+     * The signing keys, keyed by key id. Values are Base64 encoded secrets of at least 32 bytes. Retired keys should be kept here until every token
+     * they signed has expired, so that rotation does not invalidate tokens already sent out. If no keys are configured a random key is generated at
+     * startup, which only works for a single node and does not survive a restart.
+     */
+    private Map<String, String> keys = new LinkedHashMap<>();
+
+    /**
+     * The token lifetime in minutes. The default is 1440 (24 hours), matching the database backed tokens.
+     */
+    private int expirationMinutes = 60 * 24;
+
+    /**
+     * The number of revoked tokens the revocation filter is sized for, per generation.
+     */
+    private int revocationExpectedInsertions = 10000;
+
+    /**
+     * The acceptable false positive probability of the revocation filter. A false positive only causes a valid token to be rejected early, the
+     * user can always request a new one.
+     */
+    private double revocationFalsePositiveProbability = 0.001;
+
+}
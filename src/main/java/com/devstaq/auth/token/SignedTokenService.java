@@ -0,0 +1,248 @@
+package com.devstaq.auth.token;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.service.UserService.TokenValidationResult;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The SignedTokenService issues and validates compact HMAC-SHA256 signed tokens for registration verification and password reset. A token carries
+ * the user id, the purpose, the expiry and a fingerprint of the user's state, so validating one is pure CPU work and no token row is ever written.
+ *
+ * <p>
+ * Single use is enforced through the fingerprint: for password reset tokens it covers the user's password hash, for verification tokens it covers
+ * the enabled flag and the token version, which moves forward on every change of the enabled flag. Once the password is changed or the account is
+ * enabled, every outstanding token for that purpose stops validating, and disabling the account again does not bring them back. Tokens can also be
+ * revoked early through a {@link TokenRevocationFilter}.
+ * </p>
+ *
+ * <p>
+ * Token layout, Base64url encoded without padding: version (1 byte), purpose (1 byte), key id length (1 byte), key id, user id (8 bytes), expiry in
+ * epoch seconds (8 bytes), fingerprint (8 bytes), followed by the HMAC of all preceding bytes truncated to 16 bytes.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SignedTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int MAC_LENGTH = 16;
+    private static final int MIN_KEY_LENGTH = 32;
+    private static final String EPHEMERAL_KEY_ID = "ephemeral";
+
+    private final SignedTokenConfig signedTokenConfig;
+
+    private final Clock clock;
+
+    private Map<String, SecretKeySpec> keys = Map.of();
+    private String activeKeyId;
+    private TokenRevocationFilter revocationFilter;
+
+    /**
+     * Loads the signing keys. Nothing is loaded if the signed token engine is disabled.
+     */
+    @PostConstruct
+    public void init() {
+        if (!signedTokenConfig.isEnabled()) {
+            return;
+        }
+        Map<String, SecretKeySpec> loaded = new HashMap<>();
+        signedTokenConfig.getKeys().forEach((keyId, secret) -> {
+            byte[] keyBytes = Base64.getDecoder().decode(secret.trim());
+            if (keyBytes.length < MIN_KEY_LENGTH) {
+                throw new IllegalStateException("Signing key " + keyId + " must be at least " + MIN_KEY_LENGTH + " bytes");
+            }
+            if (keyId.getBytes(StandardCharsets.UTF_8).length > 255) {
+                throw new IllegalStateException("Signing key id " + keyId + " is too long");
+            }
+            loaded.put(keyId, new SecretKeySpec(keyBytes, ALGORITHM));
+        });
+
+        String active = StringUtils.hasText(signedTokenConfig.getActiveKeyId()) ? signedTokenConfig.getActiveKeyId() : null;
+        if (loaded.isEmpty()) {
+            log.warn("SignedTokenService.init: no signing keys configured, generating an ephemeral key. "
+                    + "Tokens will not survive a restart and will not validate on other nodes.");
+            byte[] keyBytes = new byte[MIN_KEY_LENGTH];
+            new SecureRandom().nextBytes(keyBytes);
+            loaded.put(EPHEMERAL_KEY_ID, new SecretKeySpec(keyBytes, ALGORITHM));
+            active = EPHEMERAL_KEY_ID;
+        } else if (active == null && loaded.size() == 1) {
+            active = loaded.keySet().iterator().next();
+        }
+        if (active == null || !loaded.containsKey(active)) {
+            throw new IllegalStateException("user.token.signing.activeKeyId must name one of the configured signing keys");
+        }
+
+        this.keys = Map.copyOf(loaded);
+        this.activeKeyId = active;
+        long lifetimeMillis = signedTokenConfig.getExpirationMinutes() * 60_000L;
+        this.revocationFilter = new TokenRevocationFilter(signedTokenConfig.getRevocationExpectedInsertions(),
+                signedTokenConfig.getRevocationFalsePositiveProbability(), Math.max(lifetimeMillis, 60_000L), clock);
+        log.info("SignedTokenService.init: signed tokens enabled with {} key(s), active key: {}", keys.size(), activeKeyId);
+    }
+
+    /**
+     * Checks whether the signed token engine is enabled.
+     *
+     * @return true if verification and reset tokens are signed tokens
+     */
+    public boolean isEnabled() {
+        return signedTokenConfig.isEnabled();
+    }
+
+    /**
+     * Issues a new token for the user.
+     *
+     * @param user the user, which must already have an id
+     * @param purpose the purpose of the token
+     * @return the encoded token
+     */
+    public String issueToken(final User user, final TokenPurpose purpose) {
+        if (user.getId() == null) {
+            throw new IllegalArgumentException("Cannot issue a signed token for an unsaved user");
+        }
+        SecretKeySpec key = keys.get(activeKeyId);
+        byte[] keyIdBytes = activeKeyId.getBytes(StandardCharsets.UTF_8);
+        long expiresAt = clock.millis() / 1000 + signedTokenConfig.getExpirationMinutes() * 60L;
+
+        ByteBuffer buffer = ByteBuffer.allocate(3 + keyIdBytes.length + 24 + MAC_LENGTH);
+        buffer.put(VERSION).put(purpose.getCode()).put((byte) keyIdBytes.length).put(keyIdBytes);
+        buffer.putLong(user.getId()).putLong(expiresAt).putLong(fingerprint(key, purpose, user));
+        int payloadLength = buffer.position();
+        Mac mac = newMac(key);
+        mac.update(buffer.array(), 0, payloadLength);
+        buffer.put(mac.doFinal(), 0, MAC_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a token and verifies its signature.
+     *
+     * @param token the encoded token
+     * @param purpose the purpose the token is expected to have been issued for
+     * @return the decoded token, or null if the token is malformed, was signed with an unknown key, has a bad signature, was issued for another
+     *         purpose or has been revoked
+     */
+    public SignedToken decode(final String token, final TokenPurpose purpose) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length < 3 || bytes[0] != VERSION || bytes[1] != purpose.getCode()) {
+            return null;
+        }
+        int keyIdLength = bytes[2] & 0xFF;
+        int payloadLength = 3 + keyIdLength + 24;
+        if (bytes.length != payloadLength + MAC_LENGTH) {
+            return null;
+        }
+        String keyId = new String(bytes, 3, keyIdLength, StandardCharsets.UTF_8);
+        SecretKeySpec key = keys.get(keyId);
+        if (key == null) {
+            log.debug("SignedTokenService.decode: unknown key id: {}", keyId);
+            return null;
+        }
+        Mac mac = newMac(key);
+        mac.update(bytes, 0, payloadLength);
+        byte[] expected = mac.doFinal();
+        byte[] actual = new byte[MAC_LENGTH];
+        System.arraycopy(bytes, payloadLength, actual, 0, MAC_LENGTH);
+        byte[] truncated = new byte[MAC_LENGTH];
+        System.arraycopy(expected, 0, truncated, 0, MAC_LENGTH);
+        if (!MessageDigest.isEqual(truncated, actual)) {
+            return null;
+        }
+        if (revocationFilter.mightBeRevoked(token)) {
+            log.debug("SignedTokenService.decode: token has been revoked");
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 3 + keyIdLength, 24);
+        return new SignedToken(token, purpose, keyId, buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Validates a decoded token against the current state of the user it was issued to.
+     *
+     * @param token the decoded token, may be null
+     * @param user the user loaded by {@link SignedToken#getUserId()}, may be null
+     * @return the token validation result (VALID, INVALID_TOKEN, or EXPIRED)
+     */
+    public TokenValidationResult validate(final SignedToken token, final User user) {
+        if (token == null || user == null || user.getId() == null || user.getId() != token.getUserId()) {
+            return TokenValidationResult.INVALID_TOKEN;
+        }
+        if (fingerprint(keys.get(token.getKeyId()), token.getPurpose(), user) != token.getFingerprint()) {
+            log.debug("SignedTokenService.validate: token has already been used for user: {}", user.getEmail());
+            return TokenValidationResult.INVALID_TOKEN;
+        }
+        if (token.getExpiresAt() <= clock.millis() / 1000) {
+            return TokenValidationResult.EXPIRED;
+        }
+        return TokenValidationResult.VALID;
+    }
+
+    /**
+     * Revokes a token so it can no longer be decoded on this node.
+     *
+     * @param token the encoded token
+     */
+    public void revoke(final String token) {
+        if (revocationFilter != null && token != null) {
+            revocationFilter.revoke(token);
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the state of the user that a token of the given purpose depends on. The fingerprint is keyed with the signing
+     * key so it reveals nothing about the password hash.
+     */
+    private long fingerprint(SecretKeySpec key, TokenPurpose purpose, User user) {
+        Mac mac = newMac(key);
+        mac.update(purpose.getCode());
+        if (user.getEmail() != null) {
+            mac.update(user.getEmail().getBytes(StandardCharsets.UTF_8));
+        }
+        mac.update((byte) 0);
+        if (purpose == TokenPurpose.PASSWORD_RESET) {
+            if (user.getPassword() != null) {
+                mac.update(user.getPassword().getBytes(StandardCharsets.UTF_8));
+            }
+        } else {
+            mac.update((byte) (user.isEnabled() ? 1 : 0));
+            mac.update(ByteBuffer.allocate(Long.BYTES).putLong(user.getTokenVersion()).array());
+        }
+        return ByteBuffer.wrap(mac.doFinal()).getLong();
+    }
+
+    private Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize " + ALGORITHM, e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.devstaq.auth.token;
+
+/**
+ * The purpose a signed token was issued for. The purpose is part of the signed payload, so a token issued for one flow can never be replayed
+ * against another.
+ */
+public enum TokenPurpose {
+
+    /**
+     * Token sent in the registration verification email.
+     */
+    REGISTRATION_VERIFICATION((byte) 1),
+
+    /**
+     * Token sent in the forgot password email.
+     */
+    PASSWORD_RESET((byte) 2);
+
+    private final byte code;
+
+    /**
+     * Instantiates a new token purpose.
+     *
+     * @param code the single byte code written into the token payload
+     */
+    TokenPurpose(byte code) {
+        this.code = code;
+    }
+
+    /**
+     * Gets the single byte code written into the token payload.
+     *
+     * @return the code
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Looks up a purpose by its payload code.
+     *
+     * @param code the code
+     * @return the purpose, or null if the code is unknown
+     */
+    public static TokenPurpose fromCode(byte code) {
+        for (TokenPurpose purpose : values()) {
+            if (purpose.code == code) {
+                return purpose;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,94 @@
+package com.devstaq.auth.token;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small in-memory revocation list for signed tokens, backed by two generations of bloom filters. A token only needs to stay revoked until it
+ * expires, so the filters are rotated once per token lifetime: revocations are recorded in the current generation and checked against both, and the
+ * previous generation is dropped on the next rotation. Memory use is therefore bounded no matter how many tokens are revoked.
+ *
+ * <p>
+ * False positives are possible but only ever cause a valid token to be rejected. Revocation is local to the node; single use of a token is
+ * enforced independently by the fingerprint carried in the token.
+ * </p>
+ */
+class TokenRevocationFilter {
+
+    private final int expectedInsertions;
+    private final double falsePositiveProbability;
+    private final long generationMillis;
+    private final Clock clock;
+
+    private volatile BloomFilter<CharSequence> current;
+    private volatile BloomFilter<CharSequence> previous;
+    private volatile long currentStartedAt;
+
+    /** Guards the rotation. A lock rather than {@code synchronized}, so virtual threads waiting for it do not pin their carrier thread. */
+    private final ReentrantLock rotationLock = new ReentrantLock();
+
+    /**
+     * Instantiates a new token revocation filter.
+     *
+     * @param expectedInsertions the number of revocations each generation is sized for
+     * @param falsePositiveProbability the acceptable false positive probability
+     * @param generationMillis how long a generation stays current, which must be at least the token lifetime
+     * @param clock the clock
+     */
+    TokenRevocationFilter(int expectedInsertions, double falsePositiveProbability, long generationMillis, Clock clock) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.generationMillis = generationMillis;
+        this.clock = clock;
+        this.current = newFilter();
+        this.previous = newFilter();
+        this.currentStartedAt = clock.millis();
+    }
+
+    /**
+     * Records a token as revoked.
+     *
+     * @param token the token
+     */
+    void revoke(String token) {
+        rotateIfNeeded();
+        current.put(token);
+    }
+
+    /**
+     * Checks whether a token might have been revoked.
+     *
+     * @param token the token
+     * @return true if the token might have been revoked, false if it definitely was not
+     */
+    boolean mightBeRevoked(String token) {
+        rotateIfNeeded();
+        return current.mightContain(token) || previous.mightContain(token);
+    }
+
+    private void rotateIfNeeded() {
+        if (clock.millis() - currentStartedAt < generationMillis) {
+            return;
+        }
+        rotationLock.lock();
+        try {
+            long now = clock.millis();
+            if (now - currentStartedAt < generationMillis) {
+                return;
+            }
+            previous = current;
+            current = newFilter();
+            currentStartedAt = now;
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    private BloomFilter<CharSequence> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveProbability);
+    }
+}
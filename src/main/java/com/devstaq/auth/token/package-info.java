@@ -0,0 +1,23 @@
+/**
+ * This package contains the signed token engine for the Spring User Framework.
+ *
+ * <p>
+ * The classes in this package issue and validate compact, HMAC-signed registration verification and password reset tokens. Unlike the database
+ * backed tokens, signed tokens carry everything needed to validate them (user id, purpose, expiry and a fingerprint of the user's state), so the
+ * verification and reset flows do not need to read or write the token tables.
+ * </p>
+ *
+ *
+ * The main functionalities provided by this package include:
+ * <ul>
+ * <li>Issuing and validating signed tokens</li>
+ * <li>Signing key rotation</li>
+ * <li>Early invalidation of tokens through a revocation bloom filter</li>
+ * </ul>
+ *
+ *
+ * <p>
+ * This package is part of the Devstaq Spring User Framework project.
+ * </p>
+ */
+package com.devstaq.auth.token;
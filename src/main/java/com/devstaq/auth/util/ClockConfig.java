@@ -0,0 +1,26 @@
+package com.devstaq.auth.util;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Configuration class providing the {@link Clock} used for token issuance, validation and purging. Applications can define their own Clock bean,
+ * for example a fixed clock in tests, to control the framework's notion of the current time.
+ */
+@Configuration
+public class ClockConfig {
+
+	/**
+	 * Provides the system UTC clock unless the application defines its own.
+	 *
+	 * @return the clock
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public Clock clock() {
+		return Clock.systemUTC();
+	}
+}
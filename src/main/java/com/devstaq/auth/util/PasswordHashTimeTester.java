@@ -3,7 +3,7 @@ package com.devstaq.auth.util;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -26,11 +26,12 @@ public class PasswordHashTimeTester {
     private boolean testHashTime = true;
 
     /**
-     * Tests the time it takes to hash a password. This method is called when the application starts and tests the performance of the password hashing
-     * algorithm. The results are logged to provide feedback on the security and usability trade-offs of the password hashing configuration.
+     * Tests the time it takes to hash a password. This method is called asynchronously once the application is ready, so the hashing does not delay
+     * startup or compete with it for CPU, and tests the performance of the password hashing algorithm. The results are logged to provide feedback on
+     * the security and usability trade-offs of the password hashing configuration.
      */
     @Async
-    @EventListener(ApplicationStartedEvent.class)
+    @EventListener(ApplicationReadyEvent.class)
     public void testHashTime() {
         if (testHashTime) {
             int runs = 5;
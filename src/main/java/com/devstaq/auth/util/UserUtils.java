@@ -5,6 +5,7 @@ import com.devstaq.auth.dto.UserDto;
 import com.devstaq.auth.event.OnRegistrationCompleteEvent;
 import com.devstaq.auth.persistence.model.User;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -36,6 +37,17 @@ public final class UserUtils {
 		return request.getRemoteAddr();
 	}
 
+	/**
+	 * Get the id of the request's HTTP session without creating one, so stateless requests stay without a session.
+	 *
+	 * @param request The HttpServletRequest object.
+	 * @return The session id, or null if the request has no session.
+	 */
+	public static String getSessionId(HttpServletRequest request) {
+		HttpSession session = request.getSession(false);
+		return session != null ? session.getId() : null;
+	}
+
 	/**
 	 * Get the application URL based on the provided request.
 	 *
@@ -6,14 +6,21 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * Interceptor to add the current user to the model for applicable requests.
+ * Interceptor to add the current user to the model for applicable requests. The user is added as a {@link UserView}, not as the {@code User}
+ * entity. Whether a handler gets the user is decided from its annotations on its first request and cached.
  */
 @Slf4j
 @Component
@@ -23,64 +30,42 @@ public class GlobalUserModelInterceptor implements HandlerInterceptor {
     // The UserWebConfig object is used to determine the global user model opt-in behavior
     private final UserWebConfig userWebConfig;
 
-    /**
-     * Pre-handle method to allow all requests to proceed by default.
-     */
-    @Override
-    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-        // Allow all requests to proceed by default
-        log.debug("Handling request for path: {}", request.getRequestURI());
-
-        return true;
-    }
-
+    // Whether the user is added to the model, by handler. Controllers are fixed at startup, so the map does not grow after the first requests.
+    private final Map<HandlerKey, Boolean> includeUserByHandler = new ConcurrentHashMap<>();
 
     /**
      * Post-handle method to add the current user to the model for applicable requests.
      */
     @Override
     public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
-        log.debug("handler is: {}", handler.getClass().getName());
-        log.debug("modelAndView: {}", modelAndView);
-        if (modelAndView == null || !(handler instanceof HandlerMethod)) {
+        if (modelAndView == null || !(handler instanceof HandlerMethod handlerMethod) || !includeUser(handlerMethod)) {
             return;
         }
 
-        HandlerMethod handlerMethod = (HandlerMethod) handler;
-
-        // Apply global opt-in or opt-out behavior
-        if (userWebConfig.isGlobalUserModelOptIn()) {
-            // Global Opt-In Mode: Skip if not explicitly opted-in
-            if (!hasAnnotation(handlerMethod, IncludeUserInModel.class)) {
-                return; // Skip if not explicitly opted-in
-            }
-        } else {
-            // Global Opt-Out Mode: Skip if explicitly excluded
-            if (hasAnnotation(handlerMethod, ExcludeUserFromModel.class)) {
-                return; // Skip if explicitly excluded
-            }
-        }
-
-        // Add user to the model if applicable
-        log.debug("GlobalUserModelInterceptor.postHandle: Adding user to model");
-
-
         // Retrieve the authenticated user from the security context
-        if (SecurityContextHolder.getContext().getAuthentication() == null) {
-            return;
-        }
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-
-        if (principal instanceof DSUserDetails userDetails) {
-            modelAndView.addObject("user", userDetails.getUser());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof DSUserDetails userDetails && userDetails.getUser() != null) {
+            modelAndView.addObject("user", UserView.of(userDetails.getUser()));
         }
+    }
 
+    /**
+     * Determines whether the user is added to the model of a handler, applying the global opt-in or opt-out behavior.
+     */
+    boolean includeUser(HandlerMethod handlerMethod) {
+        HandlerKey key = new HandlerKey(handlerMethod.getBeanType(), handlerMethod.getMethod(), userWebConfig.isGlobalUserModelOptIn());
+        return includeUserByHandler.computeIfAbsent(key, k -> {
+            boolean include = k.optIn() ? hasAnnotation(handlerMethod, IncludeUserInModel.class)
+                    : !hasAnnotation(handlerMethod, ExcludeUserFromModel.class);
+            log.debug("GlobalUserModelInterceptor.includeUser: {} user in model of {}", include ? "including" : "excluding", k.method());
+            return include;
+        });
     }
 
     /**
      * Helper method to determine if the specified annotation is present on the handler method or controller class.
      */
-    private boolean hasAnnotation(HandlerMethod handlerMethod, Class<? extends java.lang.annotation.Annotation> annotationClass) {
+    private boolean hasAnnotation(HandlerMethod handlerMethod, Class<? extends Annotation> annotationClass) {
         // Check for the annotation on the method
         if (handlerMethod.getMethodAnnotation(annotationClass) != null) {
             return true;
@@ -90,4 +75,11 @@ public class GlobalUserModelInterceptor implements HandlerInterceptor {
         return handlerMethod.getBeanType().isAnnotationPresent(annotationClass);
     }
 
+    /**
+     * The cache key of a handler. The bean type is part of the key because class annotations are read from it, and a method can be inherited by
+     * several controllers.
+     */
+    private record HandlerKey(Class<?> beanType, Method method, boolean optIn) {
+    }
+
 }
@@ -0,0 +1,50 @@
+package com.devstaq.auth.web;
+
+import com.devstaq.auth.persistence.model.User;
+import lombok.Value;
+
+import java.io.Serializable;
+
+/**
+ * A read-only view of the current user, added to the model by the {@link GlobalUserModelInterceptor} as {@code user}. It holds copies of the fields
+ * templates display, so rendering a page can neither change the {@link User} entity nor trigger lazy loading of its associations.
+ */
+@Value
+public class UserView implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The user id. */
+    Long id;
+
+    /** The email address. */
+    String email;
+
+    /** The first name. */
+    String firstName;
+
+    /** The last name. */
+    String lastName;
+
+    /** The login provider. */
+    User.Provider provider;
+
+    /**
+     * Creates the view of a user.
+     *
+     * @param user the user
+     * @return the view
+     */
+    public static UserView of(User user) {
+        return new UserView(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), user.getProvider());
+    }
+
+    /**
+     * Gets the full name, the first and last name separated by a space.
+     *
+     * @return the full name
+     */
+    public String getFullName() {
+        return firstName + " " + lastName;
+    }
+}
@@ -0,0 +1,49 @@
+package com.devstaq.auth;
+
+import com.devstaq.auth.jobs.ExpiredTokenCleanJob;
+import com.devstaq.auth.service.UserEmailService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Clock;
+
+class UserLazyInitializationPostProcessorTest {
+
+    @Test
+    void postProcessBeanFactory_marksLibraryBeansLazyExceptEagerOnes() {
+        DefaultListableBeanFactory beanFactory = beanFactory();
+        postProcessor(true).postProcessBeanFactory(beanFactory);
+
+        Assertions.assertTrue(beanFactory.getBeanDefinition("userEmailService").isLazyInit());
+        Assertions.assertFalse(beanFactory.getBeanDefinition("expiredTokenCleanJob").isLazyInit());
+        Assertions.assertFalse(beanFactory.getBeanDefinition("userConfiguration").isLazyInit());
+        Assertions.assertFalse(beanFactory.getBeanDefinition("clock").isLazyInit());
+    }
+
+    @Test
+    void postProcessBeanFactory_doesNothingWhenDisabled() {
+        DefaultListableBeanFactory beanFactory = beanFactory();
+        postProcessor(false).postProcessBeanFactory(beanFactory);
+
+        Assertions.assertFalse(beanFactory.getBeanDefinition("userEmailService").isLazyInit());
+    }
+
+    private static DefaultListableBeanFactory beanFactory() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("userEmailService", new RootBeanDefinition(UserEmailService.class));
+        beanFactory.registerBeanDefinition("expiredTokenCleanJob", new RootBeanDefinition(ExpiredTokenCleanJob.class));
+        beanFactory.registerBeanDefinition("userConfiguration", new RootBeanDefinition(UserConfiguration.class));
+        beanFactory.registerBeanDefinition("clock", new RootBeanDefinition(Clock.class));
+        return beanFactory;
+    }
+
+    private static UserLazyInitializationPostProcessor postProcessor(boolean lazyInitialization) {
+        UserLazyInitializationPostProcessor postProcessor = new UserLazyInitializationPostProcessor();
+        postProcessor.setEnvironment(new MockEnvironment().withProperty(UserLazyInitializationPostProcessor.LAZY_INITIALIZATION_PROPERTY,
+                String.valueOf(lazyInitialization)));
+        return postProcessor;
+    }
+}
@@ -0,0 +1,20 @@
+package com.devstaq.auth;
+
+import com.devstaq.auth.dto.UserDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+class UserRuntimeHintsTest {
+
+    @Test
+    void registerHints_coversResourcesAndBoundTypes() {
+        RuntimeHints hints = new RuntimeHints();
+        new UserRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        Assertions.assertTrue(RuntimeHintsPredicates.resource().forResource("config/dsspringuserconfig.properties").test(hints));
+        Assertions.assertTrue(RuntimeHintsPredicates.resource().forResource("mail/registration-token.html").test(hints));
+        Assertions.assertTrue(RuntimeHintsPredicates.reflection().onType(UserDto.class).test(hints));
+    }
+}
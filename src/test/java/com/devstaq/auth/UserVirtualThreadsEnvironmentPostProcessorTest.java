@@ -0,0 +1,46 @@
+package com.devstaq.auth;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.logging.DeferredLogs;
+import org.springframework.mock.env.MockEnvironment;
+
+class UserVirtualThreadsEnvironmentPostProcessorTest {
+
+    private final UserVirtualThreadsEnvironmentPostProcessor postProcessor = new UserVirtualThreadsEnvironmentPostProcessor(new DeferredLogs());
+
+    @Test
+    void postProcessEnvironment_enablesVirtualThreadsOnJava21() {
+        MockEnvironment environment = new MockEnvironment();
+        postProcessor.postProcessEnvironment(environment, 21);
+
+        Assertions.assertEquals("true", environment.getProperty("spring.threads.virtual.enabled"));
+        Assertions.assertEquals("true", environment.getProperty("spring.main.keep-alive"));
+    }
+
+    @Test
+    void postProcessEnvironment_keepsExplicitSetting() {
+        MockEnvironment environment = new MockEnvironment().withProperty("spring.threads.virtual.enabled", "false");
+        postProcessor.postProcessEnvironment(environment, 21);
+
+        Assertions.assertEquals("false", environment.getProperty("spring.threads.virtual.enabled"));
+    }
+
+    @Test
+    void postProcessEnvironment_leavesPlatformThreadsBeforeJava21() {
+        MockEnvironment environment = new MockEnvironment();
+        postProcessor.postProcessEnvironment(environment, 17);
+
+        Assertions.assertNull(environment.getPropertySources().get(UserVirtualThreadsEnvironmentPostProcessor.PROPERTY_SOURCE_NAME));
+        Assertions.assertNull(environment.getProperty("spring.threads.virtual.enabled"));
+    }
+
+    @Test
+    void postProcessEnvironment_doesNothingWhenDisabled() {
+        MockEnvironment environment = new MockEnvironment();
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        Assertions.assertNull(environment.getPropertySources().get(UserVirtualThreadsEnvironmentPostProcessor.PROPERTY_SOURCE_NAME));
+    }
+}
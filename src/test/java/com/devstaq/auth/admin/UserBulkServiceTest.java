@@ -0,0 +1,120 @@
+package com.devstaq.auth.admin;
+
+import com.devstaq.auth.audit.AuditEvent;
+import com.devstaq.auth.persistence.model.RefreshTokenFamily;
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.RefreshTokenFamilyRepository;
+import com.devstaq.auth.persistence.repository.RoleRepository;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import com.devstaq.auth.security.CompactSessionRegistry;
+import com.devstaq.auth.service.DSUserDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies bulk actions to users in the database, in chunks smaller than the number of users.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserBulkServiceTest {
+
+    private final List<Object> events = new ArrayList<>();
+    private final CompactSessionRegistry sessionRegistry = new CompactSessionRegistry();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    private UserBulkService userBulkService;
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        roleRepository.save(new Role("ROLE_SUPPORT"));
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setEnabled(true);
+            user.setProvider(i < 3 ? User.Provider.LOCAL : User.Provider.GOOGLE);
+            users.add(userRepository.save(user));
+        }
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("sessionRegistry", sessionRegistry);
+        userBulkService = new UserBulkService(jdbcTemplate, transactionManager, roleRepository, refreshTokenFamilyRepository,
+                beanFactory.getBeanProvider(SessionRegistry.class), events::add, Clock.systemUTC(), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenFamilyRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void execute_locksFilteredUsersInChunksAndRevokesTheirSessions() {
+        User first = users.get(0);
+        sessionRegistry.registerNewSession("session-1", new DSUserDetails(first));
+        refreshTokenFamilyRepository.save(new RefreshTokenFamily("family-1", first.getId(), "hash", Instant.now(), Instant.now().plusSeconds(60)));
+        UserSearchCriteria filter = new UserSearchCriteria();
+        filter.setProvider(User.Provider.LOCAL);
+        UserBulkRequest request = new UserBulkRequest();
+        request.setAction(UserBulkAction.LOCK);
+        request.setFilter(filter);
+
+        Assertions.assertEquals(new UserBulkResult(3, 3, 2), userBulkService.execute(request, null));
+
+        Assertions.assertEquals(List.of(true, true, true, false, false),
+                users.stream().map(user -> userRepository.findById(user.getId()).orElseThrow().isLocked()).toList());
+        Assertions.assertNotNull(userRepository.findById(first.getId()).orElseThrow().getLockedDate());
+        Assertions.assertTrue(sessionRegistry.getSessionInformation("session-1").isExpired());
+        Assertions.assertEquals(0, refreshTokenFamilyRepository.count());
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals("ids=" + first.getId() + "," + users.get(1).getId(), ((AuditEvent) events.get(0)).getExtraData());
+
+        // Users already locked are not counted again
+        Assertions.assertEquals(new UserBulkResult(3, 0, 2), userBulkService.execute(request, null));
+    }
+
+    @Test
+    void execute_assignsRoleByIdsOnce() {
+        UserBulkRequest request = new UserBulkRequest();
+        request.setAction(UserBulkAction.ASSIGN_ROLE);
+        request.setRole("ROLE_SUPPORT");
+        request.setIds(List.of(users.get(3).getId(), users.get(4).getId(), users.get(3).getId()));
+
+        Assertions.assertEquals(new UserBulkResult(2, 2, 1), userBulkService.execute(request, null));
+        Assertions.assertEquals(new UserBulkResult(2, 0, 1), userBulkService.execute(request, null));
+        Assertions.assertEquals(List.of("ROLE_SUPPORT"),
+                userRepository.findById(users.get(4).getId()).orElseThrow().getRoles().stream().map(Role::getName).toList());
+
+        request.setRole("ROLE_UNKNOWN");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> userBulkService.execute(request, null));
+        request.setIds(null);
+        request.setFilter(new UserSearchCriteria());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> userBulkService.execute(request, null));
+    }
+}
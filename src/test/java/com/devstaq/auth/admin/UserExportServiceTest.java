@@ -0,0 +1,100 @@
+package com.devstaq.auth.admin;
+
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.RoleRepository;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Exports users from the database, in pages smaller than the number of users.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserExportServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserExportService userExportService;
+
+    @BeforeEach
+    void setUp() {
+        Role userRole = roleRepository.save(new Role("ROLE_USER"));
+        Role adminRole = roleRepository.save(new Role("ROLE_ADMIN"));
+        save("first@example.com", "First, Name", List.of(userRole, adminRole));
+        save("second@example.com", "Second", List.of());
+        save("third@example.com", "Third", List.of(userRole));
+        userExportService = new UserExportService(jdbcTemplate, objectMapper, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    private void save(String email, String firstName, List<Role> roles) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName(firstName);
+        user.setPassword("secret-hash");
+        user.setRegistrationDate(new Date());
+        Long id = userRepository.save(user).getId();
+        roles.forEach(role -> jdbcTemplate.update("insert into users_roles (user_id, role_id) values (?, ?)", id, role.getId()));
+    }
+
+    @Test
+    void exportUsers_writesCsvWithRolesAndWithoutPasswords() throws Exception {
+        StringWriter writer = new StringWriter();
+
+        Assertions.assertEquals(3, userExportService.exportUsers(writer, UserFileFormat.CSV));
+
+        List<String> lines = writer.toString().lines().toList();
+        Assertions.assertEquals(4, lines.size());
+        Assertions.assertEquals(String.join(",", UserExportService.CSV_COLUMNS), lines.get(0));
+        Assertions.assertTrue(lines.get(1).contains(",first@example.com,\"First, Name\","));
+        Assertions.assertTrue(lines.get(1).endsWith(",ROLE_ADMIN;ROLE_USER"));
+        Assertions.assertTrue(lines.get(2).endsWith(","));
+        Assertions.assertFalse(writer.toString().contains("secret-hash"));
+    }
+
+    @Test
+    void exportUsers_writesJsonLinesInIdOrder() throws Exception {
+        StringWriter writer = new StringWriter();
+
+        userExportService.exportUsers(writer, UserFileFormat.JSONL);
+
+        List<UserRow> rows = writer.toString().lines().map(line -> {
+            try {
+                return objectMapper.readValue(line, UserRow.class);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).toList();
+        Assertions.assertEquals(List.of("first@example.com", "second@example.com", "third@example.com"),
+                rows.stream().map(UserRow::getEmail).toList());
+        Assertions.assertTrue(rows.get(0).getId() < rows.get(1).getId() && rows.get(1).getId() < rows.get(2).getId());
+        Assertions.assertEquals(List.of("ROLE_USER"), rows.get(2).getRoles());
+        Assertions.assertNotNull(rows.get(0).getRegistrationDate());
+    }
+}
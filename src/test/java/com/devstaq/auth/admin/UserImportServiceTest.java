@@ -0,0 +1,129 @@
+package com.devstaq.auth.admin;
+
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.RoleRepository;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.StringReader;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports users into the database. The test is not transactional, so every chunk commits as it would in production.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserImportServiceTest {
+
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private final List<UserImportError> errors = new ArrayList<>();
+    private final List<UserImportProgress> progress = new ArrayList<>();
+    private final UserImportListener listener = new UserImportListener() {
+
+        @Override
+        public void onError(UserImportError error) {
+            errors.add(error);
+        }
+
+        @Override
+        public void onProgress(UserImportProgress chunkProgress) {
+            progress.add(chunkProgress);
+        }
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() {
+        roleRepository.save(new Role("ROLE_USER"));
+        roleRepository.save(new Role("ROLE_ADMIN"));
+        userImportService = new UserImportService(jdbcTemplate, transactionManager, entityManagerFactory, roleRepository, passwordEncoder,
+                new ObjectMapper(), Clock.systemUTC(), 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userImportService.shutdown();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void importUsers_insertsNewUsersInChunksAndReportsTheRest() {
+        User existing = new User();
+        existing.setEmail("existing@example.com");
+        userRepository.save(existing);
+        String hash = passwordEncoder.encode("hashed-secret");
+        String csv = """
+                email,firstName,lastName,password,passwordHash,roles
+                new@example.com,New,User,secret,,
+                "Hashed@Example.com","Has, hed",User,,%s,ROLE_USER;ROLE_ADMIN
+                EXISTING@example.com,Ex,Isting,,,
+                new@example.com,Dup,Licate,,,
+                not-an-email,,,,,
+                bad@example.com,,,,,ROLE_UNKNOWN
+                """.formatted(hash);
+
+        UserImportProgress result = userImportService.importUsers(new StringReader(csv), UserFileFormat.CSV, listener);
+
+        Assertions.assertEquals(new UserImportProgress(6, 2, 2, 2), result);
+        Assertions.assertEquals(3, progress.size());
+        Assertions.assertEquals(List.of(6L, 7L), errors.stream().map(UserImportError::getLine).toList());
+
+        User imported = userRepository.findByEmail("new@example.com");
+        Assertions.assertTrue(imported.isEnabled());
+        Assertions.assertTrue(passwordEncoder.matches("secret", imported.getPassword()));
+        Assertions.assertEquals(List.of("ROLE_USER"), imported.getRoles().stream().map(Role::getName).toList());
+        User hashed = userRepository.findByEmail("hashed@example.com");
+        Assertions.assertEquals("Has, hed", hashed.getFirstName());
+        Assertions.assertEquals(hash, hashed.getPassword());
+        Assertions.assertEquals(2, hashed.getRoles().size());
+
+        // Ids allocated by the import do not collide with ids Hibernate allocates afterwards
+        User registered = new User();
+        registered.setEmail("registered@example.com");
+        Assertions.assertNotNull(userRepository.save(registered).getId());
+        Assertions.assertEquals(4, userRepository.count());
+    }
+
+    @Test
+    void importUsers_reportsUnreadableJsonLinesAndContinues() {
+        String jsonl = """
+                {"email":"json@example.com","firstName":"Json","enabled":false}
+
+                {"email":
+                """;
+
+        UserImportProgress result = userImportService.importUsers(new StringReader(jsonl), UserFileFormat.JSONL, listener);
+
+        Assertions.assertEquals(new UserImportProgress(2, 1, 0, 1), result);
+        Assertions.assertEquals(3L, errors.get(0).getLine());
+        Assertions.assertFalse(userRepository.findByEmail("json@example.com").isEnabled());
+    }
+}
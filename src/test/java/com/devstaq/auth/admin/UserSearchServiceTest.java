@@ -0,0 +1,121 @@
+package com.devstaq.auth.admin;
+
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.RoleRepository;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Searches users in the database, reading the results in pages smaller than the number of users.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserSearchServiceTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserSearchService userSearchService;
+
+    @BeforeEach
+    void setUp() {
+        Role adminRole = roleRepository.save(new Role("ROLE_ADMIN"));
+        save("alice@example.com", "Alice", true, 0);
+        save("bob@example.com", "Alfred", true, 1);
+        save("carol@example.com", "Carol", false, 2);
+        save("a_b@example.com", "Dan", true, 2);
+        Long admin = save("erin@example.com", "Erin", true, 3);
+        jdbcTemplate.update("insert into users_roles (user_id, role_id) values (?, ?)", admin, adminRole.getId());
+        userSearchService = new UserSearchService(jdbcTemplate, entityManagerFactory, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    private Long save(String email, String firstName, boolean enabled, int days) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName(firstName);
+        user.setEnabled(enabled);
+        user.setRegistrationDate(Date.from(START.plusSeconds(days * 86_400L)));
+        return userRepository.save(user).getId();
+    }
+
+    private static List<String> emails(UserSearchResult result) {
+        return result.getUsers().stream().map(UserRow::getEmail).toList();
+    }
+
+    @Test
+    void search_readsAllPagesNewestFirstWithoutRepeatingUsers() {
+        UserSearchCriteria criteria = new UserSearchCriteria();
+        criteria.setLimit(2);
+        List<String> emails = new ArrayList<>();
+
+        UserSearchResult page = userSearchService.search(criteria);
+        Assertions.assertEquals(3L, page.getTotal());
+        Assertions.assertFalse(page.isTotalExact());
+        emails.addAll(emails(page));
+        while (page.getNextCursor() != null) {
+            criteria.setCursor(page.getNextCursor());
+            page = userSearchService.search(criteria);
+            Assertions.assertNull(page.getTotal());
+            emails.addAll(emails(page));
+        }
+
+        // Carol and Dan registered at the same time and are ordered by id
+        Assertions.assertEquals(List.of("erin@example.com", "a_b@example.com", "carol@example.com", "bob@example.com", "alice@example.com"), emails);
+        Assertions.assertEquals(List.of("ROLE_ADMIN"), userSearchService.search(new UserSearchCriteria()).getUsers().get(0).getRoles());
+    }
+
+    @Test
+    void search_filtersByPrefixStatusAndRole() {
+        UserSearchCriteria criteria = new UserSearchCriteria();
+        criteria.setQ("Al");
+        criteria.setDescending(false);
+        UserSearchResult result = userSearchService.search(criteria);
+        Assertions.assertEquals(List.of("alice@example.com", "bob@example.com"), emails(result));
+        Assertions.assertEquals(2L, result.getTotal());
+        Assertions.assertTrue(result.isTotalExact());
+
+        criteria.setQ("a_");
+        Assertions.assertEquals(List.of("a_b@example.com"), emails(userSearchService.search(criteria)));
+
+        criteria.setQ(null);
+        criteria.setEnabled(false);
+        Assertions.assertEquals(List.of("carol@example.com"), emails(userSearchService.search(criteria)));
+
+        criteria.setEnabled(null);
+        criteria.setRole("ROLE_ADMIN");
+        criteria.setProvider(User.Provider.LOCAL);
+        Assertions.assertEquals(List.of("erin@example.com"), emails(userSearchService.search(criteria)));
+
+        criteria.setCursor("not a cursor");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> userSearchService.search(criteria));
+    }
+}
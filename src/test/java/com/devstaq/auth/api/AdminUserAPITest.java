@@ -0,0 +1,53 @@
+package com.devstaq.auth.api;
+
+import com.devstaq.auth.admin.UserBulkService;
+import com.devstaq.auth.admin.UserExportService;
+import com.devstaq.auth.admin.UserImportService;
+import com.devstaq.auth.admin.UserSearchService;
+import com.devstaq.auth.listener.ListenerUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class AdminUserAPITest {
+
+    @Mock
+    private UserImportService userImportService;
+    @Mock
+    private UserExportService userExportService;
+    @Mock
+    private UserSearchService userSearchService;
+    @Mock
+    private UserBulkService userBulkService;
+    @Mock
+    private ListenerUtils listenerUtils;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new AdminUserAPI(userImportService, userExportService, userSearchService, userBulkService,
+                new ObjectMapper(), listenerUtils)).setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver()).build();
+    }
+
+    @Test
+    void importAndExport_rejectUnknownFormatsWithBadRequest() throws Exception {
+        mockMvc.perform(post("/admin/users/import").param("format", "xml").content("email\n")).andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+        mockMvc.perform(get("/admin/users/export").param("format", "xml")).andExpect(status().isBadRequest());
+        verifyNoInteractions(userImportService, userExportService);
+    }
+}
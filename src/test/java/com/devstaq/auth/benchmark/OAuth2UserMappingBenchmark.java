@@ -0,0 +1,93 @@
+package com.devstaq.auth.benchmark;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.security.oauth2.OAuth2UserMappingConfig;
+import com.devstaq.auth.security.oauth2.OAuth2UserMapperRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of mapping the attributes of an OAuth2 login to a user, comparing the previous {@code equalsIgnoreCase} dispatch with
+ * {@code String.split} name parsing against the {@link OAuth2UserMapperRegistry}.
+ *
+ * <p>
+ * Run from the project root with:
+ * </p>
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main OAuth2UserMappingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OAuth2UserMappingBenchmark {
+
+    @Param({"google", "facebook"})
+    private String registrationId;
+
+    private OAuth2UserMapperRegistry registry;
+    private OAuth2User principal;
+
+    @Setup
+    public void setup() {
+        registry = new OAuth2UserMapperRegistry(new OAuth2UserMappingConfig(), List.of());
+        principal = "google".equals(registrationId)
+                ? new DefaultOAuth2User(List.of(), Map.of("sub", "1", "email", "ada@example.com", "given_name", "Ada", "family_name", "Lovelace"), "sub")
+                : new DefaultOAuth2User(List.of(), Map.of("id", "1", "email", "ada@example.com", "name", "Ada King Lovelace"), "id");
+    }
+
+    /**
+     * The previous mapping: a chain of case-insensitive comparisons and a regular expression split of the full name.
+     */
+    @Benchmark
+    public User legacyMap() {
+        User user = new User();
+        user.setEmail(principal.getAttribute("email"));
+        if (registrationId.equalsIgnoreCase("google")) {
+            user.setFirstName(principal.getAttribute("given_name"));
+            user.setLastName(principal.getAttribute("family_name"));
+            user.setProvider(User.Provider.GOOGLE);
+        } else if (registrationId.equalsIgnoreCase("facebook")) {
+            String fullName = principal.getAttribute("name");
+            if (fullName != null) {
+                String[] names = fullName.split(" ");
+                if (names.length > 0) {
+                    user.setFirstName(names[0]);
+                }
+                if (names.length > 1) {
+                    user.setLastName(names[names.length - 1]);
+                }
+            }
+            user.setProvider(User.Provider.FACEBOOK);
+        }
+        return user;
+    }
+
+    /**
+     * The current mapping: one map lookup and a compiled attribute mapping.
+     */
+    @Benchmark
+    public User registryMap() {
+        return registry.find(registrationId, false).map(principal);
+    }
+}
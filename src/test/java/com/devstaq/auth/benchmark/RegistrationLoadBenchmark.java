@@ -0,0 +1,135 @@
+package com.devstaq.auth.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JMH load test of the registration endpoint: fires {@link #registrations} registrations over HTTP against an embedded Tomcat, with up to
+ * {@link #concurrency} requests in flight, once on platform threads and once on virtual threads. Each request hashes a password, writes the user and
+ * an audit event and starts a session, so most of its time is spent blocked on the database and the audit log rather than on the CPU. The score is
+ * the wall-clock time of a whole batch; the number of failed requests is printed after each iteration.
+ *
+ * <p>
+ * Virtual threads need Java 21 or later. On older Java versions both runs use platform threads and a warning is logged. Raise the open files limit
+ * ({@code ulimit -n}) above the concurrency before running:
+ * </p>
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main RegistrationLoadBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class RegistrationLoadBenchmark {
+
+    /** Minimal application scanning the library, like the test application. */
+    @SpringBootApplication(scanBasePackages = "com.devstaq.auth")
+    static class BenchmarkApplication {
+    }
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"10000"})
+    public int registrations;
+
+    @Param({"10000"})
+    public int concurrency;
+
+    private final AtomicLong userCounter = new AtomicLong();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient client;
+
+    private URI registrationUri;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        // Passed as command line arguments, as they have to take precedence over the library's property source
+        context = new SpringApplicationBuilder(BenchmarkApplication.class).logStartupInfo(false).run("--spring.main.banner-mode=off",
+                "--server.port=0", "--server.tomcat.max-connections=" + (concurrency * 2), "--server.tomcat.accept-count=" + concurrency,
+                "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID(), "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.mail.host=localhost", "--logging.level.root=warn", "--user.audit.logFilePath=target/benchmark-audit.log",
+                "--user.registration.sendVerificationEmail=false", "--user.security.testHashTime=false", "--user.security.bcryptStrength=4",
+                "--user.emailNormalization.backfillEnabled=false", "--user.security.disableCSRFdURIs=/api/user/registration",
+                "--user.security.unprotectedURIs=/api/user/registration,/error", "--user.threads.virtual.enabled=" + virtualThreads);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        registrationUri = URI.create("http://localhost:" + port + "/api/user/registration");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(30)).build();
+    }
+
+    @Benchmark
+    public int registerUsers() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        List<CompletableFuture<?>> responses = new ArrayList<>(registrations);
+        for (int i = 0; i < registrations; i++) {
+            inFlight.acquire();
+            responses.add(client.sendAsync(registrationRequest(userCounter.incrementAndGet()), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        inFlight.release();
+                        if (ex != null || response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).exceptionally(ex -> null).join();
+        return responses.size();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportFailures() {
+        System.out.println("Failed registrations: " + failures.getAndSet(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    private HttpRequest registrationRequest(long id) {
+        String body = "{\"firstName\":\"Load\",\"lastName\":\"Test\",\"email\":\"load" + id + "@example.com\","
+                + "\"password\":\"Password1!\",\"matchingPassword\":\"Password1!\"}";
+        return HttpRequest.newBuilder(registrationUri).timeout(Duration.ofMinutes(2)).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.devstaq.auth.benchmark;
+
+import com.devstaq.auth.persistence.model.Privilege;
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.service.AuthorityService;
+import com.devstaq.auth.service.DSUserDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.util.SerializationUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of writing and reading the security context stored in the HTTP session, as a session replication or Spring Session store does on
+ * every request that changes the session. The principal is a {@link DSUserDetails} of a user with {@link #roles} roles of five privileges each; only
+ * its compact snapshot is serialized, so the size grows with the number of authority names but not with the role and privilege entities. The
+ * serialized size is printed during setup.
+ *
+ * <p>
+ * Run from the project root with:
+ * </p>
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main SessionSerializationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionSerializationBenchmark {
+
+    /** The number of roles of the user. */
+    @Param({"1", "10"})
+    public int roles;
+
+    private SecurityContextImpl securityContext;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() {
+        List<Role> userRoles = new ArrayList<>();
+        for (int r = 0; r < roles; r++) {
+            Set<Privilege> privileges = new HashSet<>();
+            for (int p = 0; p < 5; p++) {
+                privileges.add(new Privilege("PRIVILEGE_" + r + "_" + p, "A privilege of role " + r));
+            }
+            Role role = new Role("ROLE_" + r, "Role " + r);
+            role.setPrivileges(privileges);
+            userRoles.add(role);
+        }
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("benchmark@example.com");
+        user.setFirstName("Bench");
+        user.setLastName("Mark");
+        user.setPassword("$2a$12$0123456789012345678901234567890123456789012345678901");
+        user.setEnabled(true);
+        user.setRoles(userRoles);
+
+        DSUserDetails userDetails = new DSUserDetails(user, new AuthorityService().getAuthoritiesFromUser(user));
+        securityContext = new SecurityContextImpl(new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+        serialized = SerializationUtils.serialize(securityContext);
+        System.out.println("Serialized security context with " + roles + " roles: " + serialized.length + " bytes");
+    }
+
+    /**
+     * Writes the security context, as when the session is saved.
+     */
+    @Benchmark
+    public byte[] serialize() {
+        return SerializationUtils.serialize(securityContext);
+    }
+
+    /**
+     * Reads the security context, as when the session is loaded on another node.
+     */
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.devstaq.auth.benchmark;
+
+import com.devstaq.auth.dto.UserDto;
+import com.devstaq.auth.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the time to first login: starting an application context with the library on an in-memory database, registering a user and
+ * authenticating it. Each measurement starts a new context in the same JVM, so later iterations benefit from a warm JIT; compare the first
+ * iteration of each fork for cold start figures. Pass {@code -jvmArgsAppend -XX:SharedArchiveFile=...} to measure with a class data sharing
+ * archive.
+ *
+ * <p>
+ * Run from the project root with:
+ * </p>
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main StartupBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(2)
+public class StartupBenchmark {
+
+    /** Minimal application scanning the library, like the test application. */
+    @SpringBootApplication(scanBasePackages = "com.devstaq.auth")
+    static class BenchmarkApplication {
+    }
+
+    @Param({"false", "true"})
+    public boolean lazyInitialization;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public Authentication timeToFirstLogin() {
+        // Passed as command line arguments, as they have to take precedence over the library's property source
+        context = new SpringApplicationBuilder(BenchmarkApplication.class).logStartupInfo(false).run("--spring.main.banner-mode=off",
+                "--server.port=0", "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID(), "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.mail.host=localhost", "--logging.level.root=warn", "--user.audit.logFilePath=target/benchmark-audit.log",
+                "--user.registration.sendVerificationEmail=false", "--user.security.testHashTime=false",
+                "--user.emailNormalization.backfillEnabled=false", "--user.startup.lazyInitialization=" + lazyInitialization);
+
+        UserDto userDto = new UserDto();
+        userDto.setFirstName("Bench");
+        userDto.setLastName("Mark");
+        userDto.setEmail("bench@example.com");
+        userDto.setPassword("Password1!");
+        userDto.setMatchingPassword("Password1!");
+        context.getBean(UserService.class).registerNewUserAccount(userDto);
+        return context.getBean(AuthenticationProvider.class)
+                .authenticate(new UsernamePasswordAuthenticationToken("bench@example.com", "Password1!"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeContext() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.devstaq.auth.benchmark;
+
+import com.devstaq.auth.persistence.model.VerificationToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the token expiry hot path, comparing the previous {@link Calendar}/{@link Date} based checks with the {@link Clock} based
+ * primitive comparisons used by the token entities.
+ *
+ * <p>
+ * Run from the project root with:
+ * </p>
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main TokenExpiryBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenExpiryBenchmark {
+
+    private final Clock clock = Clock.systemUTC();
+    private Date legacyExpiryDate;
+    private VerificationToken token;
+
+    @Setup
+    public void setup() {
+        legacyExpiryDate = legacyCalculateExpiryDate(60 * 24);
+        token = new VerificationToken("token", null, clock.instant().plus(VerificationToken.EXPIRATION));
+    }
+
+    /**
+     * The previous validation check: a Calendar per call.
+     */
+    @Benchmark
+    public boolean legacyValidate() {
+        final Calendar cal = Calendar.getInstance();
+        return legacyExpiryDate.before(cal.getTime());
+    }
+
+    /**
+     * The current validation check.
+     */
+    @Benchmark
+    public boolean clockValidate() {
+        return token.isExpired(clock.millis());
+    }
+
+    /**
+     * The previous issuance path.
+     */
+    @Benchmark
+    public Date legacyIssue() {
+        return legacyCalculateExpiryDate(60 * 24);
+    }
+
+    /**
+     * The current issuance path.
+     */
+    @Benchmark
+    public VerificationToken clockIssue() {
+        return new VerificationToken("token", null, clock.instant().plus(VerificationToken.EXPIRATION));
+    }
+
+    private static Date legacyCalculateExpiryDate(final int expiryTimeInMinutes) {
+        final Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(new Date().getTime());
+        cal.add(Calendar.MINUTE, expiryTimeInMinutes);
+        return new Date(cal.getTime().getTime());
+    }
+}
@@ -0,0 +1,111 @@
+package com.devstaq.auth.benchmark;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.service.DSUserDetails;
+import com.devstaq.auth.web.ExcludeUserFromModel;
+import com.devstaq.auth.web.GlobalUserModelInterceptor;
+import com.devstaq.auth.web.UserWebConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the per-request overhead of the {@link GlobalUserModelInterceptor}, comparing the previous annotation lookups on every request
+ * with the cached decision. Each operation handles one request of a controller method without annotations.
+ *
+ * <p>
+ * Run from the project root with:
+ * </p>
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main UserModelInterceptorBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserModelInterceptorBenchmark {
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private GlobalUserModelInterceptor interceptor;
+    private HandlerMethod handlerMethod;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        interceptor = new GlobalUserModelInterceptor(new UserWebConfig());
+        handlerMethod = new HandlerMethod(new BenchmarkController(), BenchmarkController.class.getMethod("page"));
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("benchmark@example.com");
+        user.setFirstName("Bench");
+        user.setLastName("Mark");
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(new DSUserDetails(user), null, List.of()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * The previous post-handle: annotation lookups on the method and class of every request, and the entity added to the model.
+     */
+    @Benchmark
+    public ModelAndView legacyPostHandle() {
+        ModelAndView modelAndView = new ModelAndView("page");
+        if (handlerMethod.getMethodAnnotation(ExcludeUserFromModel.class) == null
+                && !handlerMethod.getBeanType().isAnnotationPresent(ExcludeUserFromModel.class)
+                && SecurityContextHolder.getContext().getAuthentication() != null
+                && SecurityContextHolder.getContext().getAuthentication().getPrincipal() instanceof DSUserDetails userDetails) {
+            modelAndView.addObject("user", userDetails.getUser());
+        }
+        return modelAndView;
+    }
+
+    /**
+     * The current post-handle.
+     */
+    @Benchmark
+    public ModelAndView cachedPostHandle() throws Exception {
+        ModelAndView modelAndView = new ModelAndView("page");
+        interceptor.postHandle(request, response, handlerMethod, modelAndView);
+        return modelAndView;
+    }
+
+    /**
+     * A controller with a handler method without annotations.
+     */
+    public static class BenchmarkController {
+
+        /**
+         * A page.
+         *
+         * @return the view name
+         */
+        public String page() {
+            return "page";
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.devstaq.auth.jobs;
+
+import com.devstaq.auth.persistence.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Runs the {@link EmailNormalizationBackfillJob} against rows inserted without a normalized email. The test is not transactional, so each chunk of
+ * the job commits as it would in production.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailNormalizationBackfillJobTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void backfill_normalizesEmailsAndSkipsCollisions() {
+        insertLegacyUser(1, "First@Example.com");
+        insertLegacyUser(2, "second@example.com ");
+        insertLegacyUser(3, "FIRST@example.com");
+        insertLegacyUser(4, "third@example.com");
+
+        EmailNormalizationBackfillJob job = new EmailNormalizationBackfillJob(userRepository, transactionManager);
+        ReflectionTestUtils.setField(job, "chunkSize", 2);
+
+        Assertions.assertEquals(3, job.backfill());
+        Assertions.assertEquals(1L, userRepository.findByEmail("first@example.com").getId());
+        Assertions.assertEquals(2L, userRepository.findByEmail("Second@Example.com").getId());
+        Assertions.assertEquals(4L, userRepository.findByEmail("THIRD@example.com").getId());
+        Assertions.assertEquals(1, userRepository.findWithoutNormalizedEmail(0L, Limit.unlimited()).size());
+        Assertions.assertEquals(0, job.backfill());
+    }
+
+    private void insertLegacyUser(long id, String email) {
+        jdbcTemplate.update("insert into user_account (id, email, enabled, locked, failed_login_attempts) values (?, ?, false, false, 0)", id,
+                email);
+    }
+}
@@ -0,0 +1,46 @@
+package com.devstaq.auth.mail;
+
+import com.devstaq.auth.persistence.model.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.thymeleaf.context.Context;
+
+import java.util.Locale;
+
+public class MailContentBuilderTest {
+
+    private MailContentBuilder mailContentBuilder;
+
+    @BeforeEach
+    void setUp() {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages/dsspringusermessages");
+        mailContentBuilder = new MailContentBuilder(messageSource);
+        mailContentBuilder.preloadTemplates();
+    }
+
+    @Test
+    void build_rendersTheLibraryTemplatesWithoutTheWebTemplateEngine() {
+        String first = mailContentBuilder.build("mail/registration-token.html", context("Alice", "https://example.com/confirm?token=a"));
+        String second = mailContentBuilder.build("mail/forgot-password-token.html", context("Bob", "https://example.com/change?token=b"));
+
+        Assertions.assertTrue(first.contains("<span>Alice</span>"));
+        Assertions.assertTrue(first.contains("href=\"https://example.com/confirm?token=a\""));
+        Assertions.assertFalse(first.contains("th:"));
+        Assertions.assertFalse(first.contains("Bob"));
+        Assertions.assertTrue(second.contains("<span>Bob</span>"));
+        Assertions.assertFalse(second.contains("Alice"));
+    }
+
+    private static Context context(String firstName, String confirmationUrl) {
+        User user = new User();
+        user.setFirstName(firstName);
+        Context context = new Context(Locale.ENGLISH);
+        context.setVariable("user", user);
+        context.setVariable("confirmationUrl", confirmationUrl);
+        context.setVariable("appUrl", "https://example.com");
+        return context;
+    }
+}
@@ -0,0 +1,115 @@
+package com.devstaq.auth.mail;
+
+import com.devstaq.auth.persistence.model.MailOutboxMessage;
+import com.devstaq.auth.persistence.model.MailOutboxMessage.Status;
+import com.devstaq.auth.persistence.repository.MailOutboxMessageRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+/**
+ * Sends the mail outbox to an in-process GreenMail SMTP server. The test is not transactional, so every write commits as it would in production.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MailOutboxDispatcherTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private MailOutboxMessageRepository mailOutboxMessageRepository;
+
+    private MailOutboxConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new MailOutboxConfig();
+        config.setEnabled(true);
+        config.setBatchSize(2);
+        config.setMaxAttempts(2);
+        config.setInitialBackoffSeconds(30);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailOutboxMessageRepository.deleteAll();
+    }
+
+    @Test
+    void dispatch_sendsEveryDueMessageInBatches() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mailOutboxMessageRepository.save(new MailOutboxMessage("user" + i + "@example.com", "Subject " + i, "<p>Body " + i + "</p>", NOW));
+        }
+
+        dispatcher(greenMail.getSmtp().getPort(), NOW).dispatch();
+
+        Assertions.assertEquals(3, greenMail.getReceivedMessages().length);
+        Assertions.assertEquals("Subject 0", greenMail.getReceivedMessages()[0].getSubject());
+        for (MailOutboxMessage message : mailOutboxMessageRepository.findAll()) {
+            Assertions.assertEquals(Status.SENT, message.getStatus());
+            Assertions.assertEquals(1, message.getAttempts());
+            Assertions.assertNull(message.getBody());
+        }
+    }
+
+    @Test
+    void dispatch_retriesWithBackoffAndGivesUpAfterMaxAttempts() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        Long id = mailOutboxMessageRepository.save(new MailOutboxMessage("user@example.com", "Subject", "<p>Body</p>", NOW)).getId();
+
+        dispatcher(closedPort, NOW).dispatch();
+        MailOutboxMessage message = mailOutboxMessageRepository.findById(id).orElseThrow();
+        Assertions.assertEquals(Status.PENDING, message.getStatus());
+        Assertions.assertEquals(1, message.getAttempts());
+        Assertions.assertEquals(NOW.plusSeconds(30), message.getNextAttemptAt());
+        Assertions.assertNotNull(message.getLastError());
+
+        // Not due yet
+        dispatcher(closedPort, NOW.plusSeconds(29)).dispatch();
+        Assertions.assertEquals(1, mailOutboxMessageRepository.findById(id).orElseThrow().getAttempts());
+
+        dispatcher(closedPort, NOW.plusSeconds(30)).dispatch();
+        message = mailOutboxMessageRepository.findById(id).orElseThrow();
+        Assertions.assertEquals(Status.DEAD, message.getStatus());
+        Assertions.assertEquals(2, message.getAttempts());
+    }
+
+    @Test
+    void backoff_doublesUpToTheMaximum() {
+        config.setMaxBackoffSeconds(100);
+        MailOutboxDispatcher dispatcher = dispatcher(greenMail.getSmtp().getPort(), NOW);
+        Assertions.assertEquals(Duration.ofSeconds(30), dispatcher.backoff(1));
+        Assertions.assertEquals(Duration.ofSeconds(60), dispatcher.backoff(2));
+        Assertions.assertEquals(Duration.ofSeconds(100), dispatcher.backoff(3));
+        Assertions.assertEquals(Duration.ofSeconds(100), dispatcher.backoff(64));
+    }
+
+    private MailOutboxDispatcher dispatcher(int port, Instant now) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        return new MailOutboxDispatcher(mailSender, mailOutboxMessageRepository, config, Clock.fixed(now, ZoneOffset.UTC), "test@example.com");
+    }
+}
@@ -0,0 +1,127 @@
+package com.devstaq.auth.persistence.repository;
+
+import com.devstaq.auth.persistence.model.Privilege;
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Verifies the number of statements and entity loads of the {@link UserRepository} lookups using Hibernate statistics.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UserRepositoryTest {
+
+    private static final String EMAIL = "test@example.com";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Privilege login = entityManager.persist(new Privilege("LOGIN_PRIVILEGE"));
+        Privilege update = entityManager.persist(new Privilege("UPDATE_OWN_USER_PRIVILEGE"));
+        Role userRole = new Role("ROLE_USER");
+        userRole.setPrivileges(Set.of(login, update));
+        entityManager.persist(userRole);
+        Role managerRole = new Role("ROLE_MANAGER");
+        managerRole.setPrivileges(Set.of(login));
+        entityManager.persist(managerRole);
+
+        User user = new User();
+        user.setEmail(EMAIL);
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setLocked(true);
+        user.setLockedDate(new Date());
+        user.setFailedLoginAttempts(10);
+        user.setRoles(List.of(userRole, managerRole));
+        entityManager.persist(user);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void existsByEmail_runsOneStatementWithoutLoadingEntities() {
+        Assertions.assertTrue(userRepository.existsByEmail(EMAIL));
+        Assertions.assertFalse(userRepository.existsByEmail("missing@example.com"));
+        Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findLockStatusByEmail_runsOneStatementWithoutLoadingEntities() {
+        UserLockStatus status = userRepository.findLockStatusByEmail(EMAIL).orElseThrow();
+        Assertions.assertTrue(status.isLocked());
+        Assertions.assertEquals(10, status.getFailedLoginAttempts());
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findWithAuthoritiesByEmail_loadsRolesAndPrivilegesInTwoStatements() {
+        User user = userRepository.findWithAuthoritiesByEmail(EMAIL);
+        Assertions.assertEquals(2, user.getRoles().size());
+        user.getRoles().forEach(role -> Assertions.assertFalse(role.getPrivileges().isEmpty()));
+        Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findSummaryByEmail_leavesRolesUnloaded() {
+        User user = userRepository.findSummaryByEmail(EMAIL);
+        Assertions.assertEquals("Test", user.getFirstName());
+        Assertions.assertFalse(Hibernate.isInitialized(user.getRoles()));
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void emailLookups_ignoreCaseAndSurroundingWhitespace() {
+        Assertions.assertNotNull(userRepository.findByEmail(" Test@Example.COM "));
+        Assertions.assertTrue(userRepository.existsByEmail("TEST@example.com"));
+        Assertions.assertTrue(userRepository.findLockStatusByEmail("Test@Example.com").isPresent());
+        Assertions.assertNotNull(userRepository.findWithAuthoritiesByEmail("TEST@EXAMPLE.COM"));
+        Assertions.assertNotNull(userRepository.findSummaryByEmail("Test@example.com"));
+    }
+
+    @Test
+    void findByEmail_loadsTheEagerGraphWithAdditionalStatements() {
+        User user = userRepository.findByEmail(EMAIL);
+        Assertions.assertTrue(Hibernate.isInitialized(user.getRoles()));
+        Assertions.assertTrue(statistics.getPrepareStatementCount() > 1);
+    }
+
+    @Test
+    void emailLookups_fallBackToTheEmailUntilItIsNormalized() {
+        userRepository.updateEmailNormalized(userRepository.findSummaryByEmail(EMAIL).getId(), null);
+        entityManager.clear();
+        Assertions.assertNotNull(userRepository.findByEmail(EMAIL));
+        Assertions.assertTrue(userRepository.existsByEmail(EMAIL));
+        Assertions.assertTrue(userRepository.findLockStatusByEmail(EMAIL).isPresent());
+        Assertions.assertNotNull(userRepository.findWithAuthoritiesByEmail(EMAIL));
+        Assertions.assertNotNull(userRepository.findForShareByEmailNormalized(User.normalizeEmail(EMAIL), EMAIL));
+    }
+}
@@ -0,0 +1,133 @@
+package com.devstaq.auth.reactive;
+
+import com.devstaq.auth.dto.PasswordDto;
+import com.devstaq.auth.dto.UserDto;
+import com.devstaq.auth.reactive.persistence.ReactiveUserRepository;
+import com.devstaq.auth.service.DSUserDetails;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.csrf;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.mockAuthentication;
+
+/**
+ * Runs the reactive endpoints against an in-memory database over R2DBC, in a reactive application without JPA.
+ */
+@SpringBootTest(properties = {"spring.main.web-application-type=reactive", "spring.autoconfigure.exclude=",
+        "spring.sql.init.schema-locations=classpath:reactive-schema.sql", "user.registration.sendVerificationEmail=false",
+        "user.security.unprotectedURIs=/api/user/registration,/api/user/registrationConfirm", "user.audit.logFilePath=target/reactive-audit.log"})
+@AutoConfigureWebTestClient
+class ReactiveAuthHandlerTest {
+
+    /** Reactive application with only the library's auto-configuration. */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    static class ReactiveTestApplication {
+
+        /** Records the threads passwords are hashed and checked on. */
+        static final Set<String> HASH_THREADS = ConcurrentHashMap.newKeySet();
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            PasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+            return new PasswordEncoder() {
+                @Override
+                public String encode(CharSequence rawPassword) {
+                    HASH_THREADS.add(Thread.currentThread().getName());
+                    return bcrypt.encode(rawPassword);
+                }
+
+                @Override
+                public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                    HASH_THREADS.add(Thread.currentThread().getName());
+                    return bcrypt.matches(rawPassword, encodedPassword);
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveAuthenticationManager authenticationManager;
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    @Test
+    void registration_createsEnabledUserWithRolePrivilegesAndLogsIn() {
+        webTestClient.mutateWith(csrf()).post().uri("/api/user/registration").bodyValue(userDto("New.User@example.com")).exchange().expectStatus()
+                .isOk().expectCookie().exists("SESSION").expectBody().jsonPath("$.success").isEqualTo(true).jsonPath("$.redirectUrl")
+                .isEqualTo("/user/registration-complete.html");
+
+        Authentication authentication = authenticationManager
+                .authenticate(new UsernamePasswordAuthenticationToken(" new.user@EXAMPLE.com", "Password1!")).block();
+        Assertions.assertNotNull(authentication);
+        Assertions.assertEquals(Set.of("LOGIN_PRIVILEGE", "UPDATE_OWN_USER_PRIVILEGE"),
+                authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet()));
+        Assertions.assertTrue(ReactiveTestApplication.HASH_THREADS.stream().allMatch(name -> name.startsWith("user-password-hash")),
+                () -> "Passwords hashed on " + ReactiveTestApplication.HASH_THREADS);
+    }
+
+    @Test
+    void registration_rejectsTakenEmail() {
+        webTestClient.mutateWith(csrf()).post().uri("/api/user/registration").bodyValue(userDto("taken@example.com")).exchange().expectStatus()
+                .isOk();
+        webTestClient.mutateWith(csrf()).post().uri("/api/user/registration").bodyValue(userDto("Taken@Example.com")).exchange().expectStatus()
+                .isEqualTo(409).expectBody().jsonPath("$.code").isEqualTo(2);
+    }
+
+    @Test
+    void updatePassword_checksOldPassword() {
+        webTestClient.mutateWith(csrf()).post().uri("/api/user/registration").bodyValue(userDto("password@example.com")).exchange().expectStatus()
+                .isOk();
+        DSUserDetails userDetails = (DSUserDetails) authenticationManager
+                .authenticate(new UsernamePasswordAuthenticationToken("password@example.com", "Password1!")).block().getPrincipal();
+        Authentication authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+
+        webTestClient.mutateWith(csrf()).mutateWith(mockAuthentication(authentication)).post().uri("/user/updatePassword")
+                .bodyValue(passwordDto("wrong", "NewPassword1!")).exchange().expectStatus().isBadRequest().expectBody().jsonPath("$.code")
+                .isEqualTo(1);
+        webTestClient.mutateWith(csrf()).mutateWith(mockAuthentication(authentication)).post().uri("/user/updatePassword")
+                .bodyValue(passwordDto("Password1!", "NewPassword1!")).exchange().expectStatus().isOk();
+
+        Assertions.assertNotNull(authenticationManager
+                .authenticate(new UsernamePasswordAuthenticationToken("password@example.com", "NewPassword1!")).block());
+        Assertions.assertTrue(userRepository.existsByEmail("PASSWORD@example.com").block());
+    }
+
+    private static UserDto userDto(String email) {
+        UserDto userDto = new UserDto();
+        userDto.setFirstName("Reactive");
+        userDto.setLastName("User");
+        userDto.setEmail(email);
+        userDto.setPassword("Password1!");
+        userDto.setMatchingPassword("Password1!");
+        return userDto;
+    }
+
+    private static PasswordDto passwordDto(String oldPassword, String newPassword) {
+        PasswordDto passwordDto = new PasswordDto();
+        passwordDto.setOldPassword(oldPassword);
+        passwordDto.setNewPassword(newPassword);
+        return passwordDto;
+    }
+}
@@ -0,0 +1,67 @@
+package com.devstaq.auth.reactive;
+
+import com.devstaq.auth.dto.UserDto;
+import com.devstaq.auth.reactive.persistence.ReactiveUserRepository;
+import com.devstaq.auth.reactive.persistence.UserAccountRow;
+import com.devstaq.auth.token.SignedTokenService;
+import com.devstaq.auth.token.TokenPurpose;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.csrf;
+
+/**
+ * Confirms registrations with signed verification tokens in a reactive application.
+ */
+@SpringBootTest(classes = ReactiveAuthHandlerTest.ReactiveTestApplication.class, properties = {"spring.main.web-application-type=reactive",
+        "spring.autoconfigure.exclude=", "spring.sql.init.schema-locations=classpath:reactive-schema.sql", "user.registration.sendVerificationEmail=false",
+        "user.security.unprotectedURIs=/api/user/registration,/api/user/registrationConfirm", "user.audit.logFilePath=target/reactive-audit.log",
+        "spring.r2dbc.generate-unique-name=true", "user.token.signing.enabled=true", "user.token.signing.activeKeyId=test",
+        "user.token.signing.keys.test=MDEyMzQ1Njc4OTAxMjM0NTY3ODkwMTIzNDU2Nzg5MDE="})
+@AutoConfigureWebTestClient
+class ReactiveSignedTokenTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private SignedTokenService signedTokenService;
+
+    @Test
+    void confirmRegistration_enablesTheUserOnceWithASignedToken() {
+        webTestClient.mutateWith(csrf()).post().uri("/api/user/registration").bodyValue(userDto("signed@example.com")).exchange().expectStatus()
+                .isOk();
+        UserAccountRow user = userRepository.findByEmail("signed@example.com").block();
+        databaseClient.sql("UPDATE user_account SET enabled = FALSE WHERE id = :id").bind("id", user.getId()).then().block();
+        user.setEnabled(false);
+        String token = signedTokenService.issueToken(user.toUser(), TokenPurpose.REGISTRATION_VERIFICATION);
+
+        webTestClient.get().uri(uri -> uri.path("/api/user/registrationConfirm").queryParam("token", token).build()).exchange().expectStatus()
+                .isOk().expectBody().jsonPath("$.success").isEqualTo(true);
+        Assertions.assertTrue(userRepository.findByEmail("signed@example.com").block().isEnabled());
+
+        webTestClient.get().uri(uri -> uri.path("/api/user/registrationConfirm").queryParam("token", token).build()).exchange().expectStatus()
+                .isBadRequest();
+    }
+
+    private static UserDto userDto(String email) {
+        UserDto userDto = new UserDto();
+        userDto.setFirstName("Reactive");
+        userDto.setLastName("User");
+        userDto.setEmail(email);
+        userDto.setPassword("Password1!");
+        userDto.setMatchingPassword("Password1!");
+        return userDto;
+    }
+}
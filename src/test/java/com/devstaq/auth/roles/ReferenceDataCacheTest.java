@@ -0,0 +1,125 @@
+package com.devstaq.auth.roles;
+
+import com.devstaq.auth.persistence.model.Privilege;
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.PrivilegeRepository;
+import com.devstaq.auth.persistence.repository.RoleRepository;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Verifies that roles, privileges and role lookups are served from the second-level cache once loaded, and that {@link ReferenceDataCache} evicts
+ * them and reports the hit ratio. The test is not transactional, so each lookup runs in its own session as it would in production.
+ */
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true", "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create",
+        "spring.jpa.properties.hibernate.cache.region_prefix=referenceDataCacheTest",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReferenceDataCacheTest {
+
+    private static final String EMAIL = "test@example.com";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PrivilegeRepository privilegeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ReferenceDataCache referenceDataCache;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Privilege login = privilegeRepository.save(new Privilege("LOGIN_PRIVILEGE"));
+            Privilege update = privilegeRepository.save(new Privilege("UPDATE_OWN_USER_PRIVILEGE"));
+            Role role = new Role("ROLE_USER");
+            role.setPrivileges(Set.of(login, update));
+            role = roleRepository.save(role);
+            User user = new User();
+            user.setEmail(EMAIL);
+            user.setRoles(List.of(role));
+            userRepository.save(user);
+        });
+        referenceDataCache = new ReferenceDataCache(entityManagerFactory);
+        referenceDataCache.evict();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+        privilegeRepository.deleteAll();
+    }
+
+    @Test
+    void findByName_isServedFromTheQueryCacheUntilEvicted() {
+        Assertions.assertNotNull(roleRepository.findByName("ROLE_USER"));
+        long statementsOnMiss = statistics.getPrepareStatementCount();
+        Assertions.assertTrue(statementsOnMiss > 0);
+
+        Assertions.assertNotNull(roleRepository.findByName("ROLE_USER"));
+        Assertions.assertEquals(statementsOnMiss, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(1, statistics.getQueryCacheHitCount());
+
+        referenceDataCache.evict();
+        Assertions.assertNotNull(roleRepository.findByName("ROLE_USER"));
+        Assertions.assertEquals(2 * statementsOnMiss, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findWithAuthoritiesByEmail_readsPrivilegesFromTheCacheOnceLoaded() {
+        loadAuthorities();
+        long statementsOnMiss = statistics.getPrepareStatementCount();
+        Assertions.assertEquals(2, statementsOnMiss);
+
+        loadAuthorities();
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount() - statementsOnMiss);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        referenceDataCache.bindTo(registry);
+        Assertions.assertTrue(registry.get("user.cache.reference.hit.ratio").gauge().value() > 0);
+    }
+
+    private void loadAuthorities() {
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = userRepository.findWithAuthoritiesByEmail(EMAIL);
+            user.getRoles().forEach(role -> Assertions.assertEquals(2, role.getPrivileges().size()));
+        });
+    }
+}
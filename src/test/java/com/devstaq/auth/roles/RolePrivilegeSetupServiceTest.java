@@ -0,0 +1,141 @@
+package com.devstaq.auth.roles;
+
+import com.devstaq.auth.persistence.model.ConfigurationState;
+import com.devstaq.auth.persistence.model.Privilege;
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.repository.ConfigurationStateRepository;
+import com.devstaq.auth.persistence.repository.PrivilegeRepository;
+import com.devstaq.auth.persistence.repository.RoleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies that {@link RolePrivilegeSetupService} writes only the differences between the configuration and the database, and skips the setup when
+ * the configuration is unchanged.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class RolePrivilegeSetupServiceTest {
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PrivilegeRepository privilegeRepository;
+
+    @Autowired
+    private ConfigurationStateRepository configurationStateRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RolesAndPrivilegesConfig config;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        config = new RolesAndPrivilegesConfig();
+        config.getRolesAndPrivileges().put("ROLE_ADMIN", List.of("ADMIN_PRIVILEGE", "LOGIN_PRIVILEGE"));
+        config.getRolesAndPrivileges().put("ROLE_USER", List.of("LOGIN_PRIVILEGE", "UPDATE_OWN_USER_PRIVILEGE"));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void onApplicationEvent_createsRolesThenSkipsWhenConfigurationIsUnchanged() {
+        runSetup();
+        Assertions.assertEquals(Set.of("ADMIN_PRIVILEGE", "LOGIN_PRIVILEGE"), privilegeNames("ROLE_ADMIN"));
+        Assertions.assertEquals(Set.of("LOGIN_PRIVILEGE", "UPDATE_OWN_USER_PRIVILEGE"), privilegeNames("ROLE_USER"));
+        Assertions.assertEquals(3, privilegeRepository.count());
+
+        statistics.clear();
+        runSetup();
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void reconcile_writesOnlyTheDifferences() {
+        runSetup();
+        config.getRolesAndPrivileges().put("ROLE_USER", List.of("LOGIN_PRIVILEGE", "RESET_OWN_PASSWORD_PRIVILEGE"));
+        config.getRolesAndPrivileges().put("ROLE_MANAGER", List.of("LOGIN_PRIVILEGE"));
+
+        RolePrivilegeSetupService.ReconciliationResult result = newService().reconcile(
+                config.getRolesAndPrivileges().entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> Set.copyOf(e.getValue()))));
+        entityManager.flush();
+        entityManager.clear();
+
+        Assertions.assertEquals(new RolePrivilegeSetupService.ReconciliationResult(1, 1, 1), result);
+        Assertions.assertEquals(Set.of("LOGIN_PRIVILEGE", "RESET_OWN_PASSWORD_PRIVILEGE"), privilegeNames("ROLE_USER"));
+        Assertions.assertEquals(Set.of("ADMIN_PRIVILEGE", "LOGIN_PRIVILEGE"), privilegeNames("ROLE_ADMIN"));
+        Assertions.assertEquals(Set.of("LOGIN_PRIVILEGE"), privilegeNames("ROLE_MANAGER"));
+    }
+
+    @Test
+    void onApplicationEvent_retriesWhenAnotherNodeAppliedTheConfigurationConcurrently() {
+        runSetup();
+        String hash = configurationStateRepository.findById(RolePrivilegeSetupService.CONFIGURATION_NAME).orElseThrow().getHash();
+        configurationStateRepository.deleteAll();
+        entityManager.flush();
+
+        // The state is missing when this node reads it, and is inserted by another node before this node writes it
+        ConfigurationStateRepository concurrentRepository = Mockito.mock(ConfigurationStateRepository.class,
+                AdditionalAnswers.delegatesTo(configurationStateRepository));
+        Mockito.doReturn(Optional.empty()).doAnswer(AdditionalAnswers.delegatesTo(configurationStateRepository)).when(concurrentRepository)
+                .findById(RolePrivilegeSetupService.CONFIGURATION_NAME);
+        Mockito.doAnswer(invocation -> {
+            configurationStateRepository.save(new ConfigurationState(RolePrivilegeSetupService.CONFIGURATION_NAME, hash, Instant.now()));
+            throw new DataIntegrityViolationException("duplicate key");
+        }).when(concurrentRepository).save(Mockito.any(ConfigurationState.class));
+
+        RolePrivilegeSetupService service = newService(concurrentRepository);
+        service.onApplicationEvent(null);
+
+        Assertions.assertTrue(service.isAlreadySetup());
+        Mockito.verify(concurrentRepository, Mockito.times(2)).findById(RolePrivilegeSetupService.CONFIGURATION_NAME);
+        Mockito.verify(concurrentRepository, Mockito.times(1)).save(Mockito.any(ConfigurationState.class));
+    }
+
+    private void runSetup() {
+        newService().onApplicationEvent(null);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private RolePrivilegeSetupService newService() {
+        return newService(configurationStateRepository);
+    }
+
+    private RolePrivilegeSetupService newService(ConfigurationStateRepository stateRepository) {
+        return new RolePrivilegeSetupService(config, roleRepository, privilegeRepository, new ReferenceDataCache(entityManagerFactory),
+                stateRepository, Clock.systemUTC(), transactionManager);
+    }
+
+    private Set<String> privilegeNames(String roleName) {
+        Role role = roleRepository.findByName(roleName);
+        return role.getPrivileges().stream().map(Privilege::getName).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,101 @@
+package com.devstaq.auth.security;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.security.IndexedSessionRegistry.SessionPrincipal;
+import com.devstaq.auth.service.DSUserDetails;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.web.session.HttpSessionDestroyedEvent;
+
+import java.util.List;
+
+public class CompactSessionRegistryTest {
+
+    private CompactSessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new CompactSessionRegistry();
+    }
+
+    @Test
+    void registerNewSession_keysSessionsByUserIdWithCompactPrincipals() {
+        registry.registerNewSession("s1", userDetails(1L, "alice@example.com"));
+        // A fresh principal object for the same user, as after a second login
+        registry.registerNewSession("s2", userDetails(1L, "alice@example.com"));
+        registry.registerNewSession("s3", userDetails(2L, "bob@example.com"));
+
+        Assertions.assertEquals(2, registry.getActiveUserCount());
+        Assertions.assertEquals(3, registry.getSessionCount());
+        Assertions.assertEquals(2, registry.getAllSessions(userDetails(1L, "alice@example.com"), false).size());
+
+        List<Object> principals = registry.getAllPrincipals();
+        Assertions.assertEquals(List.of("alice@example.com", "bob@example.com"), principals.stream().map(Object::toString).toList());
+        Assertions.assertInstanceOf(SessionPrincipal.class, principals.get(0));
+        Assertions.assertEquals(2, registry.getAllSessions(principals.get(0), false).size());
+        Assertions.assertSame(principals.get(0), registry.getSessionInformation("s1").getPrincipal());
+    }
+
+    @Test
+    void expireNow_isKeptInTheRegistry() {
+        registry.registerNewSession("s1", userDetails(1L, "alice@example.com"));
+        registry.getSessionInformation("s1").expireNow();
+
+        SessionInformation information = registry.getSessionInformation("s1");
+        Assertions.assertTrue(information.isExpired());
+        Assertions.assertTrue(registry.getAllSessions(information.getPrincipal(), false).isEmpty());
+        Assertions.assertEquals(1, registry.getAllSessions(information.getPrincipal(), true).size());
+        Assertions.assertEquals(0, registry.streamActivePrincipals().count());
+    }
+
+    @Test
+    void getActiveUserCount_skipsUsersWhoseLastSessionExpired() {
+        registry.registerNewSession("s1", userDetails(1L, "alice@example.com"));
+        registry.registerNewSession("s2", userDetails(2L, "bob@example.com"));
+        registry.registerNewSession("s3", userDetails(2L, "bob@example.com"));
+        Assertions.assertEquals(2, registry.getActiveUserCount());
+
+        registry.getSessionInformation("s2").expireNow();
+        Assertions.assertEquals(2, registry.getActiveUserCount());
+        registry.getSessionInformation("s3").expireNow();
+        Assertions.assertEquals(1, registry.getActiveUserCount());
+        Assertions.assertEquals(3, registry.getSessionCount());
+    }
+
+    @Test
+    void getActivePrincipals_pagesByUsername() {
+        registry.registerNewSession("s1", userDetails(3L, "carol@example.com"));
+        registry.registerNewSession("s2", userDetails(1L, "alice@example.com"));
+        registry.registerNewSession("s3", userDetails(2L, "bob@example.com"));
+
+        List<SessionPrincipal> first = registry.getActivePrincipals(null, 2);
+        Assertions.assertEquals(List.of("alice@example.com", "bob@example.com"), first.stream().map(SessionPrincipal::username).toList());
+        List<SessionPrincipal> second = registry.getActivePrincipals(first.get(1).username(), 2);
+        Assertions.assertEquals(List.of("carol@example.com"), second.stream().map(SessionPrincipal::username).toList());
+    }
+
+    @Test
+    void onApplicationEvent_removesDestroyedSessions() {
+        registry.registerNewSession("s1", userDetails(1L, "alice@example.com"));
+        registry.registerNewSession("s2", userDetails(1L, "alice@example.com"));
+
+        registry.onApplicationEvent(new HttpSessionDestroyedEvent(new MockHttpSession(null, "s1")));
+        Assertions.assertNull(registry.getSessionInformation("s1"));
+        Assertions.assertEquals(1, registry.getActiveUserCount());
+
+        registry.removeSessionInformation("s2");
+        Assertions.assertEquals(0, registry.getActiveUserCount());
+        Assertions.assertEquals(0, registry.getSessionCount());
+        Assertions.assertTrue(registry.getAllPrincipals().isEmpty());
+    }
+
+    private static DSUserDetails userDetails(long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return new DSUserDetails(user);
+    }
+}
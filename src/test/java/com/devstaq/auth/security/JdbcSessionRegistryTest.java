@@ -0,0 +1,122 @@
+package com.devstaq.auth.security;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.UserSessionRepository;
+import com.devstaq.auth.security.IndexedSessionRegistry.SessionPrincipal;
+import com.devstaq.auth.service.DSUserDetails;
+import com.devstaq.auth.util.MutableClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Runs two {@link JdbcSessionRegistry} instances against the same table, as two nodes of a cluster would. The test is not transactional, so every
+ * write commits as it would in production.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JdbcSessionRegistryTest {
+
+    private static final Duration NEAR_CACHE_TTL = Duration.ofSeconds(5);
+    private static final Duration SESSION_TIMEOUT = Duration.ofMinutes(30);
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    private MutableClock clock;
+    private JdbcSessionRegistry nodeA;
+    private JdbcSessionRegistry nodeB;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+        nodeA = new JdbcSessionRegistry(userSessionRepository, clock, NEAR_CACHE_TTL, SESSION_TIMEOUT, 2);
+        nodeB = new JdbcSessionRegistry(userSessionRepository, clock, NEAR_CACHE_TTL, SESSION_TIMEOUT, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userSessionRepository.deleteAll();
+    }
+
+    @Test
+    void getAllSessions_seesTheSessionsOfEveryNode() {
+        nodeA.registerNewSession("a1", userDetails(1L, "alice@example.com"));
+        nodeB.registerNewSession("b1", userDetails(1L, "alice@example.com"));
+        nodeB.registerNewSession("b2", userDetails(2L, "bob@example.com"));
+
+        Assertions.assertEquals(2, nodeA.getAllSessions(userDetails(1L, "alice@example.com"), false).size());
+        Assertions.assertEquals(2, nodeA.getActiveUserCount());
+        Assertions.assertEquals(List.of("alice@example.com", "bob@example.com"), nodeA.streamActivePrincipals().map(SessionPrincipal::username).toList());
+        Assertions.assertEquals(List.of("bob@example.com"),
+                nodeA.getActivePrincipals("alice@example.com", 10).stream().map(SessionPrincipal::username).toList());
+        Assertions.assertEquals("alice@example.com", nodeA.getSessionInformation("b1").getPrincipal().toString());
+    }
+
+    @Test
+    void expireNow_reachesOtherNodesOnceTheirCacheEntryIsStale() {
+        nodeA.registerNewSession("a1", userDetails(1L, "alice@example.com"));
+        Assertions.assertFalse(nodeA.getSessionInformation("a1").isExpired());
+
+        // The concurrent session limit on node B expires the least recently used session of the user
+        List<SessionInformation> sessions = nodeB.getAllSessions(userDetails(1L, "alice@example.com"), false);
+        Assertions.assertEquals(1, sessions.size());
+        sessions.get(0).expireNow();
+
+        Assertions.assertFalse(nodeA.getSessionInformation("a1").isExpired());
+        clock.advance(NEAR_CACHE_TTL);
+        Assertions.assertTrue(nodeA.getSessionInformation("a1").isExpired());
+        Assertions.assertTrue(nodeA.getAllSessions(userDetails(1L, "alice@example.com"), false).isEmpty());
+        Assertions.assertEquals(0, nodeA.getActiveUserCount());
+    }
+
+    @Test
+    void refreshLastRequest_isWrittenInBatchesAndKeepsSessionsFromBeingSwept() {
+        for (int i = 1; i <= 5; i++) {
+            nodeA.registerNewSession("a" + i, userDetails(i, "user" + i + "@example.com"));
+        }
+        clock.advance(Duration.ofMinutes(20));
+        nodeA.refreshLastRequest("a1");
+        nodeA.getSessionInformation("a2").refreshLastRequest();
+        Assertions.assertEquals(clock.instant(), nodeA.getSessionInformation("a1").getLastRequest().toInstant());
+        Assertions.assertNotEquals(clock.instant(), nodeB.getSessionInformation("a1").getLastRequest().toInstant());
+
+        Assertions.assertEquals(2, nodeA.flushLastRequests());
+        Assertions.assertEquals(0, nodeA.flushLastRequests());
+
+        clock.advance(Duration.ofMinutes(15));
+        Assertions.assertEquals(3, nodeB.sweepStaleSessions());
+        Assertions.assertNotNull(nodeA.getSessionInformation("a1"));
+        Assertions.assertNotNull(nodeA.getSessionInformation("a2"));
+        Assertions.assertNull(nodeA.getSessionInformation("a3"));
+        Assertions.assertEquals(2, userSessionRepository.count());
+    }
+
+    @Test
+    void removeSessionInformation_removesTheSessionForEveryNode() {
+        nodeA.registerNewSession("a1", userDetails(1L, "alice@example.com"));
+        Assertions.assertNotNull(nodeB.getSessionInformation("a1"));
+
+        nodeA.removeSessionInformation("a1");
+        clock.advance(NEAR_CACHE_TTL);
+        Assertions.assertNull(nodeB.getSessionInformation("a1"));
+        Assertions.assertTrue(nodeB.getAllPrincipals().isEmpty());
+    }
+
+    private static DSUserDetails userDetails(long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return new DSUserDetails(user);
+    }
+}
@@ -0,0 +1,110 @@
+package com.devstaq.auth.security.oauth2;
+
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes ID tokens signed with the keys of a local mock issuer, counting the requests for its JWK set.
+ */
+class CachingIdTokenDecoderFactoryTest {
+
+    private final AtomicInteger jwkSetRequests = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private final OAuth2ProviderCacheConfig config = new OAuth2ProviderCacheConfig();
+
+    private RSAKey signingKey;
+    private HttpServer issuer;
+    private String issuerUri;
+    private ClientRegistration registration;
+    private CachingIdTokenDecoderFactory factory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        signingKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        String jwkSet = new JWKSet(signingKey.toPublicJWK()).toString();
+        issuer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        issuer.createContext("/jwks", exchange -> {
+            jwkSetRequests.incrementAndGet();
+            byte[] body = failing.get() ? new byte[0] : jwkSet.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(failing.get() ? 503 : 200, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        issuer.start();
+        issuerUri = "http://127.0.0.1:" + issuer.getAddress().getPort();
+        registration = ClientRegistration.withRegistrationId("mock").clientId("client").authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}").scope("openid").authorizationUri(issuerUri + "/authorize")
+                .tokenUri(issuerUri + "/token").jwkSetUri(issuerUri + "/jwks").issuerUri(issuerUri).build();
+        config.setConnectTimeoutMillis(200);
+        config.setReadTimeoutMillis(200);
+        factory = new CachingIdTokenDecoderFactory(config, new StaticListableBeanFactory().getBeanProvider(ClientRegistrationRepository.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        factory.destroy();
+        issuer.stop(0);
+    }
+
+    private String idToken() throws Exception {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder().issuer(issuerUri).subject("subject-1").audience("client").issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(300))).build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).type(JOSEObjectType.JWT).build(), claims);
+        jwt.sign(new RSASSASigner(signingKey));
+        return jwt.serialize();
+    }
+
+    @Test
+    void createDecoder_readsThePrewarmedKeysWithoutFurtherRequests() throws Exception {
+        factory.prewarm(registration);
+        Assertions.assertEquals(1, jwkSetRequests.get());
+
+        JwtDecoder decoder = factory.createDecoder(registration);
+        Assertions.assertSame(decoder, factory.createDecoder(registration));
+        Assertions.assertEquals("subject-1", decoder.decode(idToken()).getSubject());
+        Assertions.assertEquals("subject-1", decoder.decode(idToken()).getSubject());
+        Assertions.assertEquals(1, jwkSetRequests.get());
+    }
+
+    @Test
+    void createDecoder_keepsUsingExpiredKeysWhileTheIssuerFails() throws Exception {
+        config.setJwkCacheSeconds(2);
+        config.setJwkRefreshAheadSeconds(1);
+        JwtDecoder decoder = factory.createDecoder(registration);
+        decoder.decode(idToken());
+        failing.set(true);
+
+        Thread.sleep(2500);
+
+        Assertions.assertEquals("subject-1", decoder.decode(idToken()).getSubject());
+        Assertions.assertTrue(jwkSetRequests.get() > 1);
+    }
+}
@@ -0,0 +1,70 @@
+package com.devstaq.auth.security.oauth2;
+
+import com.devstaq.auth.util.MutableClock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CachingOidcUserInfoServiceTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+    private final AtomicInteger requests = new AtomicInteger();
+    private CachingOidcUserInfoService service;
+    private boolean failing;
+
+    @BeforeEach
+    void setUp() {
+        OAuth2ProviderCacheConfig config = new OAuth2ProviderCacheConfig();
+        config.setUserInfoCacheSeconds(60);
+        config.setUserInfoMaxStaleSeconds(60);
+        service = new CachingOidcUserInfoService(config, clock);
+        service.delegate = userRequest -> {
+            requests.incrementAndGet();
+            if (failing) {
+                throw new OAuth2AuthenticationException(new OAuth2Error("invalid_user_info_response"));
+            }
+            return new DefaultOAuth2User(List.of(), Map.of("sub", "subject-1", "name", "Name " + requests.get()), "sub");
+        };
+    }
+
+    private static OidcUserRequest request() {
+        ClientRegistration registration = ClientRegistration.withRegistrationId("mock").clientId("client")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE).redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+                .authorizationUri("http://issuer/authorize").tokenUri("http://issuer/token").userInfoUri("http://issuer/userinfo")
+                .userNameAttributeName("sub").build();
+        Instant now = Instant.now();
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token", now, now.plusSeconds(60));
+        OidcIdToken idToken = OidcIdToken.withTokenValue("id-token").subject("subject-1").issuedAt(now).expiresAt(now.plusSeconds(60)).build();
+        return new OidcUserRequest(registration, accessToken, idToken);
+    }
+
+    @Test
+    void loadUser_cachesBySubjectAndServesStaleCopiesWhileTheEndpointFails() {
+        Assertions.assertEquals("Name 1", service.loadUser(request()).getAttribute("name"));
+        clock.advance(Duration.ofSeconds(30));
+        Assertions.assertEquals("Name 1", service.loadUser(request()).getAttribute("name"));
+        Assertions.assertEquals(1, requests.get());
+
+        clock.advance(Duration.ofSeconds(60));
+        failing = true;
+        Assertions.assertEquals("Name 1", service.loadUser(request()).getAttribute("name"));
+
+        clock.advance(Duration.ofSeconds(60));
+        Assertions.assertThrows(OAuth2AuthenticationException.class, () -> service.loadUser(request()));
+        Assertions.assertEquals(3, requests.get());
+    }
+}
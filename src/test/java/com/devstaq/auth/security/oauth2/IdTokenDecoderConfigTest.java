@@ -0,0 +1,30 @@
+package com.devstaq.auth.security.oauth2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+
+/**
+ * Registers the caching ID token decoder factory unless the application defines its own decoder factory.
+ */
+class IdTokenDecoderConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withBean(OAuth2ProviderCacheConfig.class)
+            .withUserConfiguration(IdTokenDecoderConfig.class);
+
+    @Test
+    void cachingIdTokenDecoderFactory_isRegisteredByDefault() {
+        contextRunner.run(context -> Assertions.assertNotNull(context.getBean(CachingIdTokenDecoderFactory.class)));
+    }
+
+    @Test
+    void cachingIdTokenDecoderFactory_backsOffForTheApplicationsDecoderFactory() {
+        contextRunner.withBean("applicationDecoderFactory", JwtDecoderFactory.class, OidcIdTokenDecoderFactory::new).run(context -> {
+            Assertions.assertTrue(context.getBeansOfType(CachingIdTokenDecoderFactory.class).isEmpty());
+            Assertions.assertEquals(1, context.getBeanNamesForType(JwtDecoderFactory.class).length);
+        });
+    }
+}
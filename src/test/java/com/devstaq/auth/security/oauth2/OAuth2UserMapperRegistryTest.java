@@ -0,0 +1,82 @@
+package com.devstaq.auth.security.oauth2;
+
+import com.devstaq.auth.persistence.model.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import java.util.List;
+import java.util.Map;
+
+class OAuth2UserMapperRegistryTest {
+
+    private static OAuth2User principal(Map<String, Object> attributes) {
+        return new DefaultOAuth2User(List.of(), attributes, "sub");
+    }
+
+    @Test
+    void find_mapsTheBuiltInProviders() {
+        OAuth2UserMapperRegistry registry = new OAuth2UserMapperRegistry(new OAuth2UserMappingConfig(), List.of());
+
+        User google = registry.find("Google", false).map(principal(Map.of("sub", "1", "email", "g@example.com", "given_name", "Ada",
+                "family_name", "Lovelace")));
+        Assertions.assertEquals(User.Provider.GOOGLE, google.getProvider());
+        Assertions.assertEquals("Ada", google.getFirstName());
+        Assertions.assertEquals("Lovelace", google.getLastName());
+
+        User github = registry.find("github", false).map(principal(Map.of("sub", "2", "email", "gh@example.com", "name", " Grace  Brewster Hopper ")));
+        Assertions.assertEquals(User.Provider.GITHUB, github.getProvider());
+        Assertions.assertEquals("Grace", github.getFirstName());
+        Assertions.assertEquals("Hopper", github.getLastName());
+
+        Assertions.assertEquals(User.Provider.APPLE, registry.find("apple", true).map(principal(Map.of("sub", "3", "email", "a@example.com")))
+                .getProvider());
+        Assertions.assertNull(registry.find("okta", false));
+        Assertions.assertNull(registry.find("okta", true));
+    }
+
+    @Test
+    void find_fallsBackToGenericOidcOnlyIfEnabledAndTheEmailIsVerified() {
+        OAuth2UserMappingConfig config = new OAuth2UserMappingConfig();
+        config.setGenericOidcEnabled(true);
+        OAuth2UserMapperRegistry registry = new OAuth2UserMapperRegistry(config, List.of());
+
+        Assertions.assertNull(registry.find("okta", false));
+        OAuth2UserMapper okta = registry.find("okta", true);
+        Assertions.assertEquals(User.Provider.OIDC, okta.map(principal(Map.of("sub", "4", "email", "o@example.com", "email_verified", true)))
+                .getProvider());
+        Assertions.assertNull(okta.map(principal(Map.of("sub", "4", "email", "o@example.com", "email_verified", false))));
+        Assertions.assertNull(okta.map(principal(Map.of("sub", "4", "email", "o@example.com"))));
+    }
+
+    @Test
+    void find_prefersMapperBeansOverConfiguredMappingsOverBuiltIns() {
+        OAuth2UserMappingConfig config = new OAuth2UserMappingConfig();
+        OAuth2UserMappingConfig.Mapping facebook = OAuth2UserMappingConfig.Mapping.of(User.Provider.FACEBOOK);
+        facebook.setEmail("contact.email");
+        config.getMappings().put("facebook", facebook);
+        config.getMappings().put("keycloak", OAuth2UserMappingConfig.Mapping.of(User.Provider.OIDC));
+        OAuth2UserMapper keycloak = new OAuth2UserMapper() {
+
+            @Override
+            public String registrationId() {
+                return "keycloak";
+            }
+
+            @Override
+            public User map(OAuth2User principal) {
+                User user = new User();
+                user.setEmail(principal.getName() + "@keycloak.example.com");
+                user.setProvider(User.Provider.KEYCLOAK);
+                return user;
+            }
+        };
+        OAuth2UserMapperRegistry registry = new OAuth2UserMapperRegistry(config, List.of(keycloak));
+
+        User user = registry.find("facebook", false).map(principal(Map.of("sub", "5", "contact", Map.of("email", "f@example.com"))));
+        Assertions.assertEquals("f@example.com", user.getEmail());
+        Assertions.assertEquals(User.Provider.FACEBOOK, user.getProvider());
+        Assertions.assertSame(keycloak, registry.find("keycloak", true));
+    }
+}
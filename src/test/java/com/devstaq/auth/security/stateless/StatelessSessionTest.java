@@ -0,0 +1,155 @@
+package com.devstaq.auth.security.stateless;
+
+import com.devstaq.auth.dto.UserDto;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import com.devstaq.auth.security.CustomOAuth2AuthenticationEntryPoint;
+import com.devstaq.auth.service.UserEmailService;
+import com.devstaq.auth.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that the stateless session mode logs users in without an HTTP session and authenticates requests without reading the database.
+ */
+@SpringBootTest(properties = {"user.security.stateless.enabled=true",
+        "user.security.stateless.keys.k1=MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=", "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true", "spring.mail.host=localhost", "user.audit.logEvents=false"})
+@AutoConfigureMockMvc
+class StatelessSessionTest {
+
+    @SpringBootApplication(scanBasePackages = "com.devstaq.auth")
+    static class StatelessTestApplication {
+    }
+
+    private static final String EMAIL = "stateless@example.com";
+    private static final String PASSWORD = "Password1!";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserEmailService userEmailService;
+
+    @Autowired
+    private StatelessSessionConfig statelessSessionConfig;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        if (userRepository.findByEmail(EMAIL) == null) {
+            UserDto userDto = new UserDto();
+            userDto.setEmail(EMAIL);
+            userDto.setFirstName("Stateless");
+            userDto.setLastName("User");
+            userDto.setPassword(PASSWORD);
+            User user = userService.registerNewUserAccount(userDto);
+            user.setEnabled(true);
+            userRepository.save(user);
+        }
+    }
+
+    @Test
+    void login_issuesTokenCookiesWithoutCreatingASession() throws Exception {
+        MvcResult login = mockMvc.perform(formLogin("/user/login").user("username", EMAIL).password(PASSWORD))
+                .andExpect(status().is3xxRedirection()).andReturn();
+        Assertions.assertNull(login.getRequest().getSession(false));
+        Cookie accessToken = login.getResponse().getCookie(statelessSessionConfig.getAccessTokenCookieName());
+        Assertions.assertNotNull(accessToken);
+        Assertions.assertTrue(accessToken.isHttpOnly());
+        Assertions.assertNotNull(login.getResponse().getCookie(statelessSessionConfig.getRefreshTokenCookieName()));
+
+        // A protected URI redirects to the login page without a token, and is reached with one
+        mockMvc.perform(get("/stateless-protected")).andExpect(status().is3xxRedirection());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        MvcResult authenticated = mockMvc.perform(get("/stateless-protected").cookie(accessToken)).andExpect(status().isNotFound()).andReturn();
+        Assertions.assertNull(authenticated.getRequest().getSession(false));
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void refresh_rotatesTheRefreshToken() throws Exception {
+        MvcResult login = mockMvc.perform(formLogin("/user/login").user("username", EMAIL).password(PASSWORD)).andReturn();
+        Cookie refreshToken = login.getResponse().getCookie(statelessSessionConfig.getRefreshTokenCookieName());
+
+        MvcResult refreshed = mockMvc.perform(post(statelessSessionConfig.getRefreshUri()).cookie(refreshToken)).andExpect(status().isOk()).andReturn();
+        Cookie newRefreshToken = refreshed.getResponse().getCookie(statelessSessionConfig.getRefreshTokenCookieName());
+        Assertions.assertNotEquals(refreshToken.getValue(), newRefreshToken.getValue());
+
+        mockMvc.perform(post(statelessSessionConfig.getRefreshUri()).cookie(refreshToken)).andExpect(status().isUnauthorized());
+        mockMvc.perform(post(statelessSessionConfig.getRefreshUri()).cookie(newRefreshToken)).andExpect(status().isOk());
+    }
+
+    @Test
+    void refreshToken_isNotReadFromRequestParameters() throws Exception {
+        MvcResult login = mockMvc.perform(formLogin("/user/login").user("username", EMAIL).password(PASSWORD)).andReturn();
+        String refreshToken = login.getResponse().getCookie(statelessSessionConfig.getRefreshTokenCookieName()).getValue();
+
+        MvcResult crafted = mockMvc.perform(get("/stateless-protected").param("refreshToken", refreshToken)).andExpect(status().is3xxRedirection())
+                .andReturn();
+        Assertions.assertNull(crafted.getResponse().getCookie(statelessSessionConfig.getAccessTokenCookieName()));
+        mockMvc.perform(post(statelessSessionConfig.getRefreshUri()).param("refreshToken", refreshToken)).andExpect(status().isUnauthorized());
+
+        // Clients without cookies post the refresh token in a JSON body and get the new tokens in the response body only
+        MvcResult refreshed = mockMvc.perform(post(statelessSessionConfig.getRefreshUri()).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"" + refreshToken + "\"}")).andExpect(status().isOk()).andReturn();
+        Assertions.assertNull(refreshed.getResponse().getCookie(statelessSessionConfig.getRefreshTokenCookieName()));
+        Assertions.assertTrue(refreshed.getResponse().getContentAsString().contains("accessToken"));
+    }
+
+    @Test
+    void auditedRequest_doesNotCreateASession() throws Exception {
+        MvcResult login = mockMvc.perform(formLogin("/user/login").user("username", EMAIL).password(PASSWORD)).andReturn();
+        Cookie accessToken = login.getResponse().getCookie(statelessSessionConfig.getAccessTokenCookieName());
+        userEmailService.createPasswordResetTokenForUser(userRepository.findByEmail(EMAIL), "stateless-reset");
+
+        MvcResult page = mockMvc.perform(get("/user/changePassword").param("token", "stateless-reset").cookie(accessToken))
+                .andExpect(status().is3xxRedirection()).andReturn();
+        MvcResult api = mockMvc.perform(get("/api/user/changePassword").param("token", "stateless-reset").cookie(accessToken))
+                .andExpect(status().isOk()).andReturn();
+        for (MvcResult result : new MvcResult[] {page, api}) {
+            Assertions.assertNull(result.getRequest().getSession(false));
+            Assertions.assertTrue(result.getResponse().getHeaders(HttpHeaders.SET_COOKIE).stream().noneMatch(cookie -> cookie.startsWith("JSESSIONID")));
+        }
+    }
+
+    @Test
+    void oauthError_isPassedAsAQueryParameter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new CustomOAuth2AuthenticationEntryPoint(null, "/user/login.html", true).commence(request, response,
+                new BadCredentialsException("Login failed & denied"));
+        Assertions.assertNull(request.getSession(false));
+        Assertions.assertEquals("/user/login.html?errorMessage=Login%20failed%20%26%20denied", response.getRedirectedUrl());
+    }
+}
@@ -0,0 +1,173 @@
+package com.devstaq.auth.security.stateless;
+
+import com.devstaq.auth.persistence.model.RefreshTokenFamily;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.RefreshTokenFamilyRepository;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import com.devstaq.auth.service.DSUserDetails;
+import com.devstaq.auth.service.LoginHelperService;
+import com.devstaq.auth.security.stateless.StatelessTokenService.TokenPair;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StatelessTokenServiceTest {
+
+    private static final String KEY_1 = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final String KEY_2 = Base64.getEncoder().encodeToString("fedcba9876543210fedcba9876543210".getBytes());
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Mock
+    private RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private LoginHelperService loginHelperService;
+
+    private StatelessSessionConfig config;
+    private DSUserDetails userDetails;
+
+    @BeforeEach
+    void setUp() {
+        config = new StatelessSessionConfig();
+        config.setEnabled(true);
+        config.getKeys().put("k1", KEY_1);
+        config.setActiveKeyId("k1");
+
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("test@example.com");
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setPassword("$2a$12$hash");
+        user.setEnabled(true);
+        userDetails = new DSUserDetails(user, List.of(new SimpleGrantedAuthority("LOGIN_PRIVILEGE"), new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    @Test
+    void authenticate_rebuildsUserDetailsFromClaimsWithoutReadingTheDatabase() {
+        StatelessTokenService service = newService(Clock.fixed(NOW, ZoneOffset.UTC));
+        TokenPair tokens = service.issueTokens(userDetails);
+
+        DSUserDetails authenticated = service.authenticate(tokens.accessToken());
+        Assertions.assertNotNull(authenticated);
+        Assertions.assertEquals(42L, authenticated.getUser().getId());
+        Assertions.assertEquals("test@example.com", authenticated.getUsername());
+        Assertions.assertEquals("Test", authenticated.getUser().getFirstName());
+        Assertions.assertNull(authenticated.getPassword());
+        Assertions.assertEquals(Set.of("LOGIN_PRIVILEGE", "ROLE_USER"),
+                authenticated.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet()));
+        verifyNoInteractions(userRepository, loginHelperService);
+    }
+
+    @Test
+    void authenticate_rejectsExpiredAndTamperedTokens() {
+        TokenPair tokens = newService(Clock.fixed(NOW, ZoneOffset.UTC)).issueTokens(userDetails);
+        StatelessTokenService later = newService(Clock.fixed(NOW.plus(Duration.ofMinutes(16)), ZoneOffset.UTC));
+        Assertions.assertNull(later.authenticate(tokens.accessToken()));
+
+        StatelessTokenService service = newService(Clock.fixed(NOW, ZoneOffset.UTC));
+        String accessToken = tokens.accessToken();
+        String tampered = accessToken.substring(0, accessToken.length() - 2) + (accessToken.endsWith("AA") ? "BB" : "AA");
+        Assertions.assertNull(service.authenticate(tampered));
+        Assertions.assertNull(service.authenticate("not-a-token"));
+    }
+
+    @Test
+    void authenticate_acceptsTokensOfRetiredKeysUntilTheyAreRemoved() {
+        String accessToken = newService(Clock.fixed(NOW, ZoneOffset.UTC)).issueTokens(userDetails).accessToken();
+
+        config.getKeys().put("k2", KEY_2);
+        config.setActiveKeyId("k2");
+        StatelessTokenService rotated = newService(Clock.fixed(NOW, ZoneOffset.UTC));
+        Assertions.assertNotNull(rotated.authenticate(accessToken));
+        Assertions.assertNotNull(rotated.authenticate(rotated.issueTokens(userDetails).accessToken()));
+
+        config.getKeys().remove("k1");
+        Assertions.assertNull(newService(Clock.fixed(NOW, ZoneOffset.UTC)).authenticate(accessToken));
+    }
+
+    @Test
+    void refresh_rotatesTheRefreshToken() {
+        StatelessTokenService service = newService(Clock.fixed(NOW, ZoneOffset.UTC));
+        TokenPair tokens = service.issueTokens(userDetails);
+        RefreshTokenFamily family = savedFamily();
+        when(refreshTokenFamilyRepository.findById(family.getId())).thenReturn(Optional.of(family));
+        when(refreshTokenFamilyRepository.rotate(eq(family.getId()), eq(family.getTokenHash()), anyString(), eq(NOW))).thenReturn(1);
+        when(userRepository.findById(42L)).thenReturn(Optional.of(userDetails.getUser()));
+        when(loginHelperService.userLoginHelper(userDetails.getUser())).thenReturn(userDetails);
+
+        TokenPair refreshed = service.refresh(tokens.refreshToken());
+        Assertions.assertNotNull(refreshed);
+        Assertions.assertNotEquals(tokens.refreshToken(), refreshed.refreshToken());
+        Assertions.assertTrue(refreshed.refreshToken().startsWith(family.getId() + "."));
+        Assertions.assertEquals(family.getExpiryDate(), refreshed.refreshTokenExpiresAt());
+        Assertions.assertNotNull(service.authenticate(refreshed.accessToken()));
+    }
+
+    @Test
+    void refresh_revokesTheFamilyWhenAReplacedTokenIsReused() {
+        StatelessTokenService service = newService(Clock.fixed(NOW, ZoneOffset.UTC));
+        TokenPair tokens = service.issueTokens(userDetails);
+        RefreshTokenFamily family = savedFamily();
+        family.setPreviousTokenHash(family.getTokenHash());
+        family.setTokenHash("0".repeat(64));
+        family.setRotatedDate(NOW.minus(Duration.ofMinutes(5)));
+        when(refreshTokenFamilyRepository.findById(family.getId())).thenReturn(Optional.of(family));
+
+        Assertions.assertNull(service.refresh(tokens.refreshToken()));
+        verify(refreshTokenFamilyRepository).deleteById(family.getId());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void refresh_onlyRejectsATokenReplacedWithinTheGracePeriod() {
+        StatelessTokenService service = newService(Clock.fixed(NOW, ZoneOffset.UTC));
+        TokenPair tokens = service.issueTokens(userDetails);
+        RefreshTokenFamily family = savedFamily();
+        family.setPreviousTokenHash(family.getTokenHash());
+        family.setTokenHash("0".repeat(64));
+        family.setRotatedDate(NOW.minusSeconds(5));
+        when(refreshTokenFamilyRepository.findById(family.getId())).thenReturn(Optional.of(family));
+
+        Assertions.assertNull(service.refresh(tokens.refreshToken()));
+        verify(refreshTokenFamilyRepository, never()).deleteById(any());
+    }
+
+    private RefreshTokenFamily savedFamily() {
+        ArgumentCaptor<RefreshTokenFamily> captor = ArgumentCaptor.forClass(RefreshTokenFamily.class);
+        verify(refreshTokenFamilyRepository).save(captor.capture());
+        return captor.getValue();
+    }
+
+    private StatelessTokenService newService(Clock clock) {
+        StatelessTokenService service = new StatelessTokenService(config, refreshTokenFamilyRepository, userRepository, loginHelperService, clock);
+        service.init();
+        return service;
+    }
+}
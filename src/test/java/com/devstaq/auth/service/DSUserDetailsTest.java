@@ -0,0 +1,119 @@
+package com.devstaq.auth.service;
+
+import com.devstaq.auth.persistence.model.Privilege;
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.util.SerializationUtils;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public class DSUserDetailsTest {
+
+    @Test
+    void serialization_writesACompactSnapshotOfTheUser() throws Exception {
+        DSUserDetails userDetails = new DSUserDetails(newUser(), new AuthorityService().getAuthoritiesFromUser(newUser()));
+        byte[] serialized = SerializationUtils.serialize(userDetails);
+        Assertions.assertTrue(serialized.length < 1024, "serialized size " + serialized.length);
+
+        DSUserDetails restored = (DSUserDetails) deserialize(serialized);
+        Assertions.assertEquals(42L, restored.getUser().getId());
+        Assertions.assertEquals("test@example.com", restored.getUsername());
+        Assertions.assertEquals("Test User", restored.getName());
+        Assertions.assertTrue(restored.isEnabled());
+        Assertions.assertFalse(restored.isAccountNonLocked());
+        Assertions.assertEquals(User.Provider.GOOGLE, restored.getUser().getProvider());
+        Assertions.assertNull(restored.getPassword());
+        Assertions.assertTrue(restored.getUser().getRoles().isEmpty());
+        for (GrantedAuthority authority : restored.getAuthorities()) {
+            Assertions.assertSame(DSUserDetails.internAuthority(authority.getAuthority()), authority);
+        }
+        Assertions.assertEquals(Set.of("LOGIN_PRIVILEGE", "READ_PRIVILEGE"),
+                Set.copyOf(restored.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList()));
+    }
+
+    @Test
+    void getUser_reloadsTheEntityInARequestAfterDeserialization() throws Exception {
+        User entity = newUser();
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.findById(42L)).thenReturn(Optional.of(entity));
+        MockServletContext servletContext = new MockServletContext();
+        GenericWebApplicationContext context = new GenericWebApplicationContext(servletContext);
+        context.registerBean(UserRepository.class, () -> userRepository);
+        context.refresh();
+        servletContext.setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE, context);
+
+        DSUserDetails restored = (DSUserDetails) deserialize(SerializationUtils.serialize(new DSUserDetails(newUser())));
+        Assertions.assertNull(restored.getUser().getPassword());
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(servletContext)));
+        try {
+            Assertions.assertSame(entity, restored.getUser());
+            Assertions.assertSame(entity, restored.getUser());
+            Assertions.assertEquals(entity.getPassword(), restored.getPassword());
+            Assertions.assertEquals(1, restored.getUser().getRoles().size());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+            context.close();
+        }
+        Mockito.verify(userRepository, Mockito.times(1)).findById(42L);
+    }
+
+    @Test
+    void serialization_keepsTheOidcTokenInTheSecurityContext() throws Exception {
+        OidcIdToken idToken = new OidcIdToken("id-token", Instant.parse("2025-01-01T00:00:00Z"), Instant.parse("2025-01-01T01:00:00Z"),
+                Map.of("sub", "subject"));
+        DSUserDetails userDetails = DSUserDetails.builder().user(newUser()).oidcIdToken(idToken).build();
+        SecurityContextImpl context = new SecurityContextImpl(
+                new UsernamePasswordAuthenticationToken(userDetails, null, List.of(DSUserDetails.internAuthority("LOGIN_PRIVILEGE"))));
+
+        SecurityContextImpl restored = (SecurityContextImpl) deserialize(SerializationUtils.serialize(context));
+        DSUserDetails principal = (DSUserDetails) restored.getAuthentication().getPrincipal();
+        Assertions.assertEquals("id-token", principal.getIdToken().getTokenValue());
+        Assertions.assertEquals("test@example.com", principal.getUsername());
+    }
+
+    private static Object deserialize(byte[] serialized) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+
+    private static User newUser() {
+        Privilege login = new Privilege("LOGIN_PRIVILEGE");
+        Privilege read = new Privilege("READ_PRIVILEGE");
+        Role role = new Role("ROLE_USER");
+        role.setPrivileges(Set.of(login, read));
+
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("test@example.com");
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setPassword("$2a$12$0123456789012345678901234567890123456789012345678901");
+        user.setProvider(User.Provider.GOOGLE);
+        user.setEnabled(true);
+        user.setLocked(true);
+        user.setRoles(List.of(role));
+        return user;
+    }
+}
@@ -0,0 +1,66 @@
+package com.devstaq.auth.service;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.token.TokenPurpose;
+import com.devstaq.auth.util.MutableClock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.BooleanSupplier;
+
+public class EmailRequestCoalescerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+    private final EmailRequestCoalescer coalescer = new EmailRequestCoalescer(clock, 60);
+
+    @Test
+    void tryAcquire_collapsesRequestsWithinTheWindow() {
+        User user = user(1L);
+        Assertions.assertTrue(coalescer.tryAcquire(TokenPurpose.PASSWORD_RESET, user));
+        Assertions.assertFalse(coalescer.tryAcquire(TokenPurpose.PASSWORD_RESET, user));
+
+        clock.advance(Duration.ofSeconds(59));
+        Assertions.assertFalse(coalescer.tryAcquire(TokenPurpose.PASSWORD_RESET, user));
+
+        // The window is not extended by the dropped requests
+        clock.advance(Duration.ofSeconds(1));
+        Assertions.assertTrue(coalescer.tryAcquire(TokenPurpose.PASSWORD_RESET, user));
+    }
+
+    @Test
+    void tryAcquire_keepsSeparateWindowsPerUserAndPurpose() {
+        Assertions.assertTrue(coalescer.tryAcquire(TokenPurpose.PASSWORD_RESET, user(1L)));
+        Assertions.assertTrue(coalescer.tryAcquire(TokenPurpose.REGISTRATION_VERIFICATION, user(1L)));
+        Assertions.assertTrue(coalescer.tryAcquire(TokenPurpose.PASSWORD_RESET, user(2L)));
+        Assertions.assertTrue(new EmailRequestCoalescer(clock, 0).tryAcquire(TokenPurpose.PASSWORD_RESET, user(1L)));
+    }
+
+    @Test
+    void tryAcquire_closesTheWindowWhenTheTransactionRollsBack() {
+        User user = user(1L);
+        Assertions.assertTrue(complete(TransactionSynchronization.STATUS_ROLLED_BACK, () -> coalescer.tryAcquire(TokenPurpose.PASSWORD_RESET, user)));
+        Assertions.assertTrue(complete(TransactionSynchronization.STATUS_COMMITTED, () -> coalescer.tryAcquire(TokenPurpose.PASSWORD_RESET, user)));
+        Assertions.assertFalse(coalescer.tryAcquire(TokenPurpose.PASSWORD_RESET, user));
+    }
+
+    private static boolean complete(int status, BooleanSupplier work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            boolean result = work.getAsBoolean();
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCompletion(status));
+            return result;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
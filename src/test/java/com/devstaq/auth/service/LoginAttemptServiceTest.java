@@ -1,16 +1,23 @@
 package com.devstaq.auth.service;
 
 import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.UserLockStatus;
 import com.devstaq.auth.persistence.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Date;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -25,18 +32,21 @@ class LoginAttemptServiceTest {
     private final int failedLoginAttempts = 10; // Assuming these are the values in your application.properties
     private final int accountLockoutDuration = 1; // Assuming these are the values in your application.properties
 
+    private final Clock clock = Clock.fixed(Instant.parse("2024-01-01T12:00:00Z"), ZoneOffset.UTC);
+
     private User testUser;
 
     @BeforeEach
     void setUp() {
         // Initialize your test user here
         testUser = new User();
+        testUser.setId(1L);
         testUser.setEmail("test@example.com");
         testUser.setFailedLoginAttempts(0);
         testUser.setLocked(false);
 
         // Manually construct the service with mocked dependencies
-        loginAttemptService = new LoginAttemptService(userRepository);
+        loginAttemptService = new LoginAttemptService(userRepository, clock);
         loginAttemptService.setMaxFailedLoginAttempts(failedLoginAttempts);
         loginAttemptService.setAccountLockoutDuration(accountLockoutDuration);
     }
@@ -63,40 +73,43 @@ class LoginAttemptServiceTest {
 
         assertEquals(failedLoginAttempts, testUser.getFailedLoginAttempts());
         assertTrue(testUser.isLocked());
-        assertNotNull(testUser.getLockedDate());
+        assertEquals(Date.from(clock.instant()), testUser.getLockedDate());
         verify(userRepository, times(failedLoginAttempts)).save(testUser);
     }
 
     @Test
     void isLocked_returnsTrueWhenUserIsLocked() {
         testUser.setLocked(true);
-        testUser.setLockedDate(new Date());
+        testUser.setLockedDate(Date.from(clock.instant()));
 
-        when(userRepository.findByEmail(anyString())).thenReturn(testUser);
+        when(userRepository.findLockStatusByEmail(anyString())).thenReturn(Optional.of(lockStatus(testUser)));
 
         assertTrue(loginAttemptService.isLocked(testUser.getEmail()));
     }
 
     @Test
     void isLocked_returnsFalseWhenUserIsNotLocked() {
-        when(userRepository.findByEmail(anyString())).thenReturn(testUser);
+        when(userRepository.findLockStatusByEmail(anyString())).thenReturn(Optional.of(lockStatus(testUser)));
 
         assertFalse(loginAttemptService.isLocked(testUser.getEmail()));
+        verify(userRepository, never()).unlockUser(any());
     }
 
     @Test
     void isLocked_unlocksUserAfterLockoutDuration() {
         // Set the user as locked with a lock date before the lockout duration
         testUser.setLocked(true);
-        testUser.setLockedDate(new Date(System.currentTimeMillis() - (accountLockoutDuration + 1) * 60 * 1000));
+        testUser.setLockedDate(new Date(clock.millis() - (accountLockoutDuration + 1) * 60 * 1000));
 
-        when(userRepository.findByEmail(anyString())).thenReturn(testUser);
+        when(userRepository.findLockStatusByEmail(anyString())).thenReturn(Optional.of(lockStatus(testUser)));
 
         assertFalse(loginAttemptService.isLocked(testUser.getEmail()));
-        assertFalse(testUser.isLocked());
-        assertNull(testUser.getLockedDate());
-        assertEquals(0, testUser.getFailedLoginAttempts());
-        verify(userRepository).save(testUser);
+        verify(userRepository).unlockUser(testUser.getId());
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    private static UserLockStatus lockStatus(User user) {
+        return new SpelAwareProxyProjectionFactory().createProjection(UserLockStatus.class, user);
     }
 
     // Additional tests can be written for edge cases and exception handling
@@ -0,0 +1,114 @@
+package com.devstaq.auth.service;
+
+import com.devstaq.auth.persistence.model.Role;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.repository.RoleRepository;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates and updates users of OAuth2 logins. The test is not transactional, so every login commits as it would in production.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OAuthUserUpsertServiceTest {
+
+    private final List<Object> events = new ArrayList<>();
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private OAuthUserUpsertService upsertService;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        roleRepository.save(new Role(OAuthUserUpsertService.USER_ROLE_NAME));
+        upsertService = new OAuthUserUpsertService(userRepository, events::add);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    private User login(String email, String firstName, User.Provider provider) {
+        User profile = new User();
+        profile.setEmail(email);
+        profile.setFirstName(firstName);
+        profile.setLastName("Social");
+        profile.setProvider(provider);
+        return transactionTemplate.execute(status -> upsertService.upsert(profile));
+    }
+
+    @Test
+    void upsert_createsUserOnceAndWritesOnlyChangedProfiles() {
+        User created = login("Social@Example.com", "Sam", User.Provider.GOOGLE);
+
+        Assertions.assertTrue(created.isEnabled());
+        Assertions.assertEquals(List.of(OAuthUserUpsertService.USER_ROLE_NAME), created.getRoles().stream().map(Role::getName).toList());
+        Assertions.assertEquals(1, events.size());
+
+        // An unchanged profile is not written, so a name changed in the meantime is kept
+        jdbcTemplate.update("update user_account set first_name = 'Local edit' where id = ?", created.getId());
+        Assertions.assertEquals("Local edit", login("social@example.com", "Sam", User.Provider.GOOGLE).getFirstName());
+
+        login("social@example.com", "Samuel", User.Provider.GOOGLE);
+        Assertions.assertEquals("Samuel", userRepository.findByEmail("social@example.com").getFirstName());
+        Assertions.assertEquals(1, userRepository.count());
+        Assertions.assertEquals(1, events.size());
+
+        Assertions.assertThrows(OAuth2AuthenticationException.class, () -> login("social@example.com", "Sam", User.Provider.FACEBOOK));
+    }
+
+    @Test
+    void upsert_rejectsAnotherRegistrationOfTheOidcProvider() {
+        User profile = new User();
+        profile.setEmail("oidc@example.com");
+        profile.setProvider(User.Provider.OIDC);
+        profile.setProviderRegistrationId("okta");
+        transactionTemplate.execute(status -> upsertService.upsert(profile));
+
+        User other = new User();
+        other.setEmail("oidc@example.com");
+        other.setProvider(User.Provider.OIDC);
+        other.setProviderRegistrationId("auth0");
+        Assertions.assertThrows(OAuth2AuthenticationException.class, () -> transactionTemplate.execute(status -> upsertService.upsert(other)));
+        Assertions.assertEquals("okta", userRepository.findByEmail("oidc@example.com").getProviderRegistrationId());
+    }
+
+    @Test
+    void insertIfAbsent_doesNothingWhenTheEmailExists() {
+        User existing = login("race@example.com", "First", User.Provider.GOOGLE);
+        User concurrent = new User();
+        concurrent.setEmail("race@example.com");
+        concurrent.setProvider(User.Provider.GOOGLE);
+
+        Assertions.assertEquals(Boolean.FALSE,
+                transactionTemplate.execute(status -> userRepository.insertIfAbsent(concurrent, OAuthUserUpsertService.USER_ROLE_NAME)));
+        Assertions.assertEquals(1, userRepository.count());
+        Assertions.assertEquals("First", userRepository.findById(existing.getId()).orElseThrow().getFirstName());
+    }
+}
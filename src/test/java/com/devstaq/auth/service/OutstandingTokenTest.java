@@ -0,0 +1,98 @@
+package com.devstaq.auth.service;
+
+import com.devstaq.auth.mail.MailService;
+import com.devstaq.auth.persistence.model.PasswordResetToken;
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.persistence.model.VerificationToken;
+import com.devstaq.auth.persistence.repository.PasswordResetTokenRepository;
+import com.devstaq.auth.persistence.repository.UserRepository;
+import com.devstaq.auth.persistence.repository.VerificationTokenRepository;
+import com.devstaq.auth.token.SignedTokenService;
+import com.devstaq.auth.util.MutableClock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Issues more than user.token.maxOutstandingPerUser verification and password reset tokens to one user against the database, and checks that only
+ * the newest ones remain.
+ */
+@DataJpaTest
+class OutstandingTokenTest {
+
+    private static final int MAX_OUTSTANDING = 3;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VerificationTokenRepository verificationTokenRepository;
+
+    @Autowired
+    private PasswordResetTokenRepository passwordResetTokenRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+
+    private UserVerificationService userVerificationService;
+
+    private UserEmailService userEmailService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        SignedTokenService signedTokenService = Mockito.mock(SignedTokenService.class);
+        userVerificationService = new UserVerificationService(userRepository, verificationTokenRepository, signedTokenService, clock);
+        ReflectionTestUtils.setField(userVerificationService, "maxOutstandingTokens", MAX_OUTSTANDING);
+        userEmailService = new UserEmailService(Mockito.mock(MailService.class), userVerificationService, passwordResetTokenRepository,
+                Mockito.mock(ApplicationEventPublisher.class), signedTokenService, new EmailRequestCoalescer(clock, 60), clock);
+        ReflectionTestUtils.setField(userEmailService, "maxOutstandingTokens", MAX_OUTSTANDING);
+
+        user = new User();
+        user.setEmail("tokens@example.com");
+        user.setFirstName("Token");
+        user.setLastName("User");
+        entityManager.persist(user);
+        entityManager.flush();
+    }
+
+    @Test
+    void createVerificationTokenForUser_keepsTheNewestTokens() {
+        for (int i = 1; i <= 5; i++) {
+            userVerificationService.createVerificationTokenForUser(user, "verification-" + i);
+            clock.advance(Duration.ofMinutes(5));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String> tokens = verificationTokenRepository.findAll().stream().map(VerificationToken::getToken).sorted().toList();
+        Assertions.assertEquals(List.of("verification-3", "verification-4", "verification-5"), tokens);
+        Assertions.assertEquals(user.getId(), verificationTokenRepository.findByToken("verification-5").getUser().getId());
+    }
+
+    @Test
+    void createPasswordResetTokenForUser_keepsTheNewestTokens() {
+        for (int i = 1; i <= 5; i++) {
+            userEmailService.createPasswordResetTokenForUser(user, "reset-" + i);
+            clock.advance(Duration.ofMinutes(5));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String> tokens = passwordResetTokenRepository.findAll().stream().map(PasswordResetToken::getToken).sorted().toList();
+        Assertions.assertEquals(List.of("reset-3", "reset-4", "reset-5"), tokens);
+    }
+}
@@ -8,6 +8,8 @@ import com.devstaq.auth.persistence.repository.PasswordResetTokenRepository;
 import com.devstaq.auth.persistence.repository.RoleRepository;
 import com.devstaq.auth.persistence.repository.UserRepository;
 import com.devstaq.auth.persistence.repository.VerificationTokenRepository;
+import com.devstaq.auth.security.stateless.StatelessTokenService;
+import com.devstaq.auth.token.SignedTokenService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
@@ -19,6 +21,7 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Clock;
 import java.util.Collections;
 
 import static org.mockito.ArgumentMatchers.anyString;
@@ -52,6 +55,10 @@ public class UserServiceTest {
 
     @Mock
     private AuthorityService authorityService;
+    @Mock
+    private SignedTokenService signedTokenService;
+    @Mock
+    private StatelessTokenService statelessTokenService;
 
     private UserService userService;
     private User testUser;
@@ -75,7 +82,8 @@ public class UserServiceTest {
         testUserDto.setRole(1);
 
         userService = new UserService(userRepository, tokenRepository, passwordTokenRepository, passwordEncoder, roleRepository, sessionRegistry,
-                userEmailService, userVerificationService, authorityService, dsUserDetailsService, eventPublisher);
+                userEmailService, userVerificationService, authorityService, dsUserDetailsService, eventPublisher,
+                signedTokenService, statelessTokenService, Clock.systemUTC());
     }
 
     @Test
@@ -89,7 +97,7 @@ public class UserServiceTest {
 
     @Test
     void registerNewUserAccount_throwsExceptionWhenUserExist() {
-        when(userRepository.findByEmail(testUser.getEmail())).thenReturn(testUser);
+        when(userRepository.existsByEmail(testUser.getEmail())).thenReturn(true);
         Assertions.assertThrows(UserAlreadyExistException.class, () -> userService.registerNewUserAccount(testUserDto));
     }
 
@@ -4,17 +4,26 @@ import com.devstaq.auth.persistence.model.User;
 import com.devstaq.auth.persistence.model.VerificationToken;
 import com.devstaq.auth.persistence.repository.UserRepository;
 import com.devstaq.auth.persistence.repository.VerificationTokenRepository;
+import com.devstaq.auth.token.SignedTokenConfig;
+import com.devstaq.auth.token.SignedTokenService;
+import com.devstaq.auth.token.TokenPurpose;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.Calendar;
-import java.util.Date;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,7 +49,8 @@ public class UserVerificationServiceTest {
         testToken = new VerificationToken();
         testToken.setUser(testUser);
 
-        userVerificationService = new UserVerificationService(userRepository, verificationTokenRepository);
+        userVerificationService = new UserVerificationService(userRepository, verificationTokenRepository,
+                new SignedTokenService(new SignedTokenConfig(), Clock.systemUTC()), Clock.systemUTC());
     }
 
     @Test
@@ -73,12 +83,69 @@ public class UserVerificationServiceTest {
         Assertions.assertEquals(result, UserService.TokenValidationResult.INVALID_TOKEN);
     }
 
-    private Date getExpirationDate(int amount) {
-        Date dt = new Date();
-        Calendar c = Calendar.getInstance();
-        c.setTime(dt);
-        c.add(Calendar.DATE, amount);
-        return c.getTime();
+    @Test
+    void consumeVerificationToken_enablesUserIfTokenValid() {
+        testToken.setExpiryDate(getExpirationDate(1));
+        when(verificationTokenRepository.consumeByToken("token")).thenReturn(Optional.of(testToken));
+        TokenConsumptionResult result = userVerificationService.consumeVerificationToken("token");
+        Assertions.assertEquals(UserService.TokenValidationResult.VALID, result.getResult());
+        Assertions.assertSame(testUser, result.getUser());
+        Assertions.assertTrue(testUser.isEnabled());
+    }
+
+    @Test
+    void consumeVerificationToken_returnsExpiredIfTokenExpired() {
+        testToken.setExpiryDate(getExpirationDate(-1));
+        when(verificationTokenRepository.consumeByToken("token")).thenReturn(Optional.of(testToken));
+        TokenConsumptionResult result = userVerificationService.consumeVerificationToken("token");
+        Assertions.assertEquals(UserService.TokenValidationResult.EXPIRED, result.getResult());
+        Assertions.assertFalse(testUser.isEnabled());
+    }
+
+    @Test
+    void consumeVerificationToken_returnsInvalidTokenIfAlreadyConsumed() {
+        when(verificationTokenRepository.consumeByToken("token")).thenReturn(Optional.empty());
+        TokenConsumptionResult result = userVerificationService.consumeVerificationToken("token");
+        Assertions.assertEquals(UserService.TokenValidationResult.INVALID_TOKEN, result.getResult());
+        Assertions.assertNull(result.getUser());
+    }
+
+    @Test
+    void createVerificationTokenForUser_deletesTheOldestTokensBeyondTheLimit() {
+        ReflectionTestUtils.setField(userVerificationService, "maxOutstandingTokens", 2);
+        when(verificationTokenRepository.findIdsByUserNewestFirst(testUser)).thenReturn(List.of(4L, 3L, 2L, 1L));
+        userVerificationService.createVerificationTokenForUser(testUser, "token");
+        verify(verificationTokenRepository).deleteAllByIdInBatch(List.of(2L, 1L));
+    }
+
+    @Test
+    void consumeSignedVerificationToken_rejectsReplayAfterDisable() {
+        SignedTokenConfig config = new SignedTokenConfig();
+        config.setEnabled(true);
+        config.getKeys().put("k1", Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes()));
+        SignedTokenService signedTokenService = new SignedTokenService(config, Clock.systemUTC());
+        signedTokenService.init();
+        // A second node shares the signing key but not the node-local revocation filter.
+        SignedTokenService otherNodeTokenService = new SignedTokenService(config, Clock.systemUTC());
+        otherNodeTokenService.init();
+        testUser.setId(42L);
+        when(userRepository.findById(42L)).thenReturn(Optional.of(testUser));
+        String token = signedTokenService.issueToken(testUser, TokenPurpose.REGISTRATION_VERIFICATION);
+
+        userVerificationService = new UserVerificationService(userRepository, verificationTokenRepository, signedTokenService, Clock.systemUTC());
+        Assertions.assertEquals(UserService.TokenValidationResult.VALID, userVerificationService.consumeVerificationToken(token).getResult());
+        Assertions.assertTrue(testUser.isEnabled());
+
+        testUser.setEnabled(false);
+        userVerificationService = new UserVerificationService(userRepository, verificationTokenRepository, otherNodeTokenService,
+                Clock.systemUTC());
+        TokenConsumptionResult replay = userVerificationService.consumeVerificationToken(token);
+        Assertions.assertEquals(UserService.TokenValidationResult.INVALID_TOKEN, replay.getResult());
+        Assertions.assertFalse(testUser.isEnabled());
+    }
+
+    private Instant getExpirationDate(int amount) {
+        return Instant.now().plus(Duration.ofDays(amount));
     }
 
 }
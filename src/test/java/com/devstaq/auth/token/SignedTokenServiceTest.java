@@ -0,0 +1,114 @@
+package com.devstaq.auth.token;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.service.UserService.TokenValidationResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+public class SignedTokenServiceTest {
+
+    private static final String KEY_1 = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final String KEY_2 = Base64.getEncoder().encodeToString("fedcba9876543210fedcba9876543210".getBytes());
+
+    private SignedTokenConfig config;
+    private SignedTokenService signedTokenService;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        config = new SignedTokenConfig();
+        config.setEnabled(true);
+        config.getKeys().put("k1", KEY_1);
+        config.setActiveKeyId("k1");
+        signedTokenService = newService(Clock.systemUTC());
+
+        testUser = new User();
+        testUser.setId(42L);
+        testUser.setEmail("test@example.com");
+        testUser.setPassword("$2a$12$hash");
+    }
+
+    @Test
+    void validate_returnsValidForFreshToken() {
+        String token = signedTokenService.issueToken(testUser, TokenPurpose.PASSWORD_RESET);
+        SignedToken decoded = signedTokenService.decode(token, TokenPurpose.PASSWORD_RESET);
+        Assertions.assertNotNull(decoded);
+        Assertions.assertEquals(42L, decoded.getUserId());
+        Assertions.assertEquals(TokenValidationResult.VALID, signedTokenService.validate(decoded, testUser));
+    }
+
+    @Test
+    void decode_returnsNullIfTampered() {
+        String token = signedTokenService.issueToken(testUser, TokenPurpose.PASSWORD_RESET);
+        char last = token.charAt(token.length() - 2);
+        String tampered = token.substring(0, token.length() - 2) + (last == 'A' ? 'B' : 'A') + token.charAt(token.length() - 1);
+        Assertions.assertNull(signedTokenService.decode(tampered, TokenPurpose.PASSWORD_RESET));
+        Assertions.assertNull(signedTokenService.decode("not-a-token", TokenPurpose.PASSWORD_RESET));
+    }
+
+    @Test
+    void decode_returnsNullForOtherPurpose() {
+        String token = signedTokenService.issueToken(testUser, TokenPurpose.REGISTRATION_VERIFICATION);
+        Assertions.assertNull(signedTokenService.decode(token, TokenPurpose.PASSWORD_RESET));
+    }
+
+    @Test
+    void validate_returnsInvalidAfterPasswordChange() {
+        String token = signedTokenService.issueToken(testUser, TokenPurpose.PASSWORD_RESET);
+        testUser.setPassword("$2a$12$newhash");
+        SignedToken decoded = signedTokenService.decode(token, TokenPurpose.PASSWORD_RESET);
+        Assertions.assertEquals(TokenValidationResult.INVALID_TOKEN, signedTokenService.validate(decoded, testUser));
+    }
+
+    @Test
+    void validate_returnsInvalidAfterAccountEnabled() {
+        String token = signedTokenService.issueToken(testUser, TokenPurpose.REGISTRATION_VERIFICATION);
+        testUser.setEnabled(true);
+        SignedToken decoded = signedTokenService.decode(token, TokenPurpose.REGISTRATION_VERIFICATION);
+        Assertions.assertEquals(TokenValidationResult.INVALID_TOKEN, signedTokenService.validate(decoded, testUser));
+    }
+
+    @Test
+    void validate_returnsExpiredAfterLifetime() {
+        Instant issuedAt = Instant.parse("2024-01-01T00:00:00Z");
+        SignedTokenService issuer = newService(Clock.fixed(issuedAt, ZoneOffset.UTC));
+        String token = issuer.issueToken(testUser, TokenPurpose.PASSWORD_RESET);
+
+        SignedTokenService later = newService(Clock.fixed(issuedAt.plus(Duration.ofMinutes(config.getExpirationMinutes() + 1)), ZoneOffset.UTC));
+        SignedToken decoded = later.decode(token, TokenPurpose.PASSWORD_RESET);
+        Assertions.assertEquals(TokenValidationResult.EXPIRED, later.validate(decoded, testUser));
+    }
+
+    @Test
+    void decode_acceptsTokensSignedWithRetiredKey() {
+        String token = signedTokenService.issueToken(testUser, TokenPurpose.PASSWORD_RESET);
+        config.getKeys().put("k2", KEY_2);
+        config.setActiveKeyId("k2");
+        SignedTokenService rotated = newService(Clock.systemUTC());
+
+        SignedToken decoded = rotated.decode(token, TokenPurpose.PASSWORD_RESET);
+        Assertions.assertNotNull(decoded);
+        Assertions.assertEquals("k1", decoded.getKeyId());
+        Assertions.assertEquals("k2", rotated.decode(rotated.issueToken(testUser, TokenPurpose.PASSWORD_RESET), TokenPurpose.PASSWORD_RESET).getKeyId());
+    }
+
+    @Test
+    void decode_returnsNullIfRevoked() {
+        String token = signedTokenService.issueToken(testUser, TokenPurpose.REGISTRATION_VERIFICATION);
+        signedTokenService.revoke(token);
+        Assertions.assertNull(signedTokenService.decode(token, TokenPurpose.REGISTRATION_VERIFICATION));
+    }
+
+    private SignedTokenService newService(Clock clock) {
+        SignedTokenService service = new SignedTokenService(config, clock);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,84 @@
+package com.devstaq.auth.web;
+
+import com.devstaq.auth.persistence.model.User;
+import com.devstaq.auth.service.DSUserDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.util.List;
+
+public class GlobalUserModelInterceptorTest {
+
+    private UserWebConfig userWebConfig;
+    private GlobalUserModelInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        userWebConfig = new UserWebConfig();
+        interceptor = new GlobalUserModelInterceptor(userWebConfig);
+
+        User user = new User();
+        user.setId(7L);
+        user.setEmail("view@example.com");
+        user.setFirstName("View");
+        user.setLastName("User");
+        DSUserDetails userDetails = new DSUserDetails(user);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(userDetails, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void postHandle_addsAUserViewUnlessExcluded() throws Exception {
+        ModelAndView included = postHandle("page");
+        UserView view = (UserView) included.getModel().get("user");
+        Assertions.assertEquals(7L, view.getId());
+        Assertions.assertEquals("view@example.com", view.getEmail());
+        Assertions.assertEquals("View User", view.getFullName());
+
+        Assertions.assertNull(postHandle("excludedPage").getModel().get("user"));
+    }
+
+    @Test
+    void postHandle_onlyAddsTheUserToOptedInHandlersInOptInMode() throws Exception {
+        userWebConfig.setGlobalUserModelOptIn(true);
+        Assertions.assertNull(postHandle("page").getModel().get("user"));
+        Assertions.assertNotNull(postHandle("includedPage").getModel().get("user"));
+        Assertions.assertNotNull(postHandle("includedPage").getModel().get("user"));
+    }
+
+    private ModelAndView postHandle(String methodName) throws Exception {
+        ModelAndView modelAndView = new ModelAndView("view");
+        HandlerMethod handlerMethod = new HandlerMethod(new TestController(), TestController.class.getMethod(methodName));
+        interceptor.postHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handlerMethod, modelAndView);
+        return modelAndView;
+    }
+
+    static class TestController {
+
+        public String page() {
+            return "page";
+        }
+
+        @ExcludeUserFromModel
+        public String excludedPage() {
+            return "excluded";
+        }
+
+        @IncludeUserInModel
+        public String includedPage() {
+            return "included";
+        }
+    }
+}
@@ -0,0 +1,28 @@
+CREATE SEQUENCE user_account_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE verification_token_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE privilege (id BIGINT PRIMARY KEY, name VARCHAR(255), description VARCHAR(255));
+CREATE TABLE role (id BIGINT PRIMARY KEY, name VARCHAR(255), description VARCHAR(255));
+CREATE TABLE roles_privileges (role_id BIGINT NOT NULL, privilege_id BIGINT NOT NULL, PRIMARY KEY (role_id, privilege_id));
+CREATE TABLE user_account (
+  id BIGINT PRIMARY KEY,
+  email VARCHAR(255) NOT NULL UNIQUE,
+  email_normalized VARCHAR(255) UNIQUE,
+  enabled BOOLEAN NOT NULL,
+  token_version BIGINT DEFAULT 0 NOT NULL,
+  first_name VARCHAR(255),
+  last_activity_date TIMESTAMP,
+  last_name VARCHAR(255),
+  locked BOOLEAN NOT NULL,
+  password VARCHAR(60),
+  provider VARCHAR(20),
+  registration_date TIMESTAMP,
+  failed_login_attempts INT NOT NULL,
+  locked_date TIMESTAMP
+);
+CREATE TABLE users_roles (user_id BIGINT NOT NULL, role_id BIGINT NOT NULL);
+CREATE TABLE verification_token (id BIGINT PRIMARY KEY, expiry_date TIMESTAMP WITH TIME ZONE, token VARCHAR(255), user_id BIGINT NOT NULL);
+
+INSERT INTO privilege (id, name) VALUES (1, 'LOGIN_PRIVILEGE'), (2, 'UPDATE_OWN_USER_PRIVILEGE');
+INSERT INTO role (id, name) VALUES (1, 'ROLE_USER');
+INSERT INTO roles_privileges (role_id, privilege_id) VALUES (1, 1), (1, 2);